@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.Channel;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.EventDeliveryException;
+import org.apache.flume.api.RpcClient;
+import org.apache.flume.api.RpcClientFactory;
+import org.apache.flume.channel.BasicChannelSemantics;
+import org.apache.flume.channel.BasicTransactionSemantics;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.flume.channel.ReplicatingChannelSelector;
+import org.apache.flume.conf.Configurables;
+import org.apache.flume.source.AvroSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of sending a batch of events with the
+ * {@code NettyAvroRpcClient} to an {@link AvroSource} on the loopback
+ * interface. The source writes to a channel that discards the events, so
+ * the round trip through the RPC layer is what is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class AvroRpcBenchmark {
+
+  @Param({"1", "100"})
+  public int batchSize;
+
+  @Param({"256"})
+  public int bodySize;
+
+  private AvroSource source;
+  private RpcClient client;
+  private List<Event> events;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+
+    Channel channel = new DiscardingChannel();
+    channel.setName("discard");
+    ReplicatingChannelSelector selector = new ReplicatingChannelSelector();
+    selector.setChannels(Collections.singletonList(channel));
+
+    source = new AvroSource();
+    source.setName("benchmark");
+    source.setChannelProcessor(new ChannelProcessor(selector));
+    Context context = new Context();
+    context.put("bind", "localhost");
+    context.put("port", String.valueOf(port));
+    Configurables.configure(source, context);
+    channel.start();
+    source.start();
+
+    client = RpcClientFactory.getDefaultInstance("localhost", port, batchSize);
+    events = EventSerializerBenchmark.createEvents(batchSize, bodySize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    client.close();
+    source.stop();
+  }
+
+  @Benchmark
+  public void appendBatch() throws EventDeliveryException {
+    client.appendBatch(events);
+  }
+
+  private static class DiscardingChannel extends BasicChannelSemantics {
+    @Override
+    protected BasicTransactionSemantics createTransaction() {
+      return new BasicTransactionSemantics() {
+        @Override
+        protected void doPut(Event event) {
+        }
+
+        @Override
+        protected Event doTake() {
+          return null;
+        }
+
+        @Override
+        protected void doCommit() {
+        }
+
+        @Override
+        protected void doRollback() {
+        }
+      };
+    }
+  }
+}
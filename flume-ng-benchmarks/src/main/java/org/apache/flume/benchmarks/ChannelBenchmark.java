@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.flume.Channel;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.channel.MemoryChannel;
+import org.apache.flume.channel.file.FileChannel;
+import org.apache.flume.channel.file.FileChannelConfiguration;
+import org.apache.flume.conf.Configurables;
+import org.apache.flume.event.EventBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.io.Files;
+
+/**
+ * Measures the put, take and commit throughput of the memory and file
+ * channels. Every operation puts a batch of events in one transaction and
+ * takes a batch back in another, so the score is in batches per second. Use
+ * the JMH {@code -t} option to run it with several threads sharing the
+ * channel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ChannelBenchmark {
+
+  @Param({"memory", "file"})
+  public String channelType;
+
+  @Param({"1", "100"})
+  public int batchSize;
+
+  @Param({"256"})
+  public int bodySize;
+
+  private Channel channel;
+  private File directory;
+  private Event event;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    event = EventBuilder.withBody(new byte[bodySize]);
+    Context context = new Context();
+    context.put("capacity", "1000000");
+    context.put("transactionCapacity", String.valueOf(Math.max(batchSize, 100)));
+    if ("file".equals(channelType)) {
+      directory = Files.createTempDir();
+      context.put(FileChannelConfiguration.CHECKPOINT_DIR,
+          new File(directory, "checkpoint").getAbsolutePath());
+      context.put(FileChannelConfiguration.DATA_DIRS,
+          new File(directory, "data").getAbsolutePath());
+      channel = new FileChannel();
+    } else if ("memory".equals(channelType)) {
+      channel = new MemoryChannel();
+    } else {
+      throw new IllegalArgumentException("Unknown channel type: " + channelType);
+    }
+    channel.setName("benchmark-" + channelType);
+    Configurables.configure(channel, context);
+    channel.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    channel.stop();
+    if (directory != null) {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  @Benchmark
+  public void putTake(Blackhole blackhole) {
+    Transaction put = channel.getTransaction();
+    put.begin();
+    try {
+      for (int i = 0; i < batchSize; i++) {
+        channel.put(event);
+      }
+      put.commit();
+    } finally {
+      put.close();
+    }
+
+    Transaction take = channel.getTransaction();
+    take.begin();
+    try {
+      for (int i = 0; i < batchSize; i++) {
+        Event taken = channel.take();
+        if (taken == null) {
+          break;
+        }
+        blackhole.consume(taken);
+      }
+      take.commit();
+    } finally {
+      take.close();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.serialization.EventDeserializer;
+import org.apache.flume.serialization.EventDeserializerFactory;
+import org.apache.flume.serialization.EventSerializer;
+import org.apache.flume.serialization.EventSerializerFactory;
+import org.apache.flume.serialization.PositionTracker;
+import org.apache.flume.serialization.ResettableFileInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how fast the built-in event deserializers read a file, as the
+ * spooling directory source does. Every operation reads the whole file of
+ * {@code fileEvents} events in batches of {@code batchSize}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class EventDeserializerBenchmark {
+
+  @Param({"line", "avro"})
+  public String deserializerType;
+
+  @Param({"10000"})
+  public int fileEvents;
+
+  @Param({"100"})
+  public int batchSize;
+
+  @Param({"256"})
+  public int bodySize;
+
+  private File file;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    file = File.createTempFile("flume-benchmark", ".data");
+    // The line deserializer reads what the text serializer writes, the avro
+    // deserializer what the avro_event serializer writes
+    String serializerType = "avro".equals(deserializerType) ? "avro_event" : "text";
+    try (OutputStream out = new FileOutputStream(file)) {
+      EventSerializer serializer =
+          EventSerializerFactory.getInstance(serializerType, new Context(), out);
+      serializer.afterCreate();
+      List<Event> events = EventSerializerBenchmark.createEvents(batchSize, bodySize);
+      for (int i = 0; i < fileEvents; i += batchSize) {
+        for (Event event : events) {
+          serializer.write(event);
+        }
+      }
+      serializer.flush();
+      serializer.beforeClose();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Benchmark
+  public void readFile(Blackhole blackhole) throws IOException {
+    Context context = new Context();
+    context.put("maxLineLength", String.valueOf(bodySize * 2));
+    ResettableFileInputStream in =
+        new ResettableFileInputStream(file, new MemoryPositionTracker(file));
+    EventDeserializer deserializer =
+        EventDeserializerFactory.getInstance(deserializerType, context, in);
+    try {
+      List<Event> events;
+      do {
+        events = deserializer.readEvents(batchSize);
+        blackhole.consume(events);
+      } while (!events.isEmpty());
+    } finally {
+      deserializer.close();
+    }
+  }
+
+  private static class MemoryPositionTracker implements PositionTracker {
+    private final String target;
+    private long position;
+
+    MemoryPositionTracker(File file) {
+      this.target = file.getPath();
+    }
+
+    @Override
+    public void storePosition(long position) {
+      this.position = position;
+    }
+
+    @Override
+    public long getPosition() {
+      return position;
+    }
+
+    @Override
+    public String getTarget() {
+      return target;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
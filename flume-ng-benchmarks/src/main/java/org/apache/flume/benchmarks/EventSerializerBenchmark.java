@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.event.EventBuilder;
+import org.apache.flume.serialization.EventSerializer;
+import org.apache.flume.serialization.EventSerializerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast the built-in event serializers write a batch of events.
+ * The output goes to a buffer that is emptied before every batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class EventSerializerBenchmark {
+
+  @Param({"text", "header_and_text", "avro_event"})
+  public String serializerType;
+
+  @Param({"100"})
+  public int batchSize;
+
+  @Param({"256"})
+  public int bodySize;
+
+  private ByteArrayOutputStream out;
+  private EventSerializer serializer;
+  private List<Event> events;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    events = createEvents(batchSize, bodySize);
+    out = new ByteArrayOutputStream(batchSize * bodySize * 2);
+    serializer = EventSerializerFactory.getInstance(serializerType, new Context(), out);
+    serializer.afterCreate();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    serializer.beforeClose();
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    out.reset();
+    for (Event event : events) {
+      serializer.write(event);
+    }
+    serializer.flush();
+  }
+
+  static List<Event> createEvents(int count, int bodySize) {
+    StringBuilder body = new StringBuilder(bodySize);
+    for (int i = 0; i < bodySize; i++) {
+      body.append((char) ('a' + i % 26));
+    }
+    byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+    List<Event> events = new ArrayList<Event>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, String> headers = new HashMap<String, String>();
+      headers.put("timestamp", String.valueOf(System.currentTimeMillis()));
+      headers.put("host", "host-" + (i % 8));
+      headers.put("sequence", String.valueOf(i));
+      events.add(EventBuilder.withBody(bytes, headers));
+    }
+    return events;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.Event;
+import org.apache.flume.formatter.output.BucketPath;
+import org.apache.flume.source.SyslogUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Measures the per event string handling on the hot paths of the HDFS sink
+ * and the syslog sources: escaping a bucket path and parsing syslog
+ * messages.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class FormattingBenchmark {
+
+  private static final String BUCKET_PATH = "/flume/%{host}/%Y-%m-%d/%H%M/events-%{sequence}";
+  private static final byte[] RFC3164 = ("<34>Oct 11 22:14:15 mymachine su: 'su root' "
+      + "failed for lonvick on /dev/pts/8\n").getBytes(StandardCharsets.UTF_8);
+  private static final byte[] RFC5424 = ("<165>1 2003-10-11T22:14:15.003Z mymachine.example.com "
+      + "evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\"] "
+      + "An application event log entry\n").getBytes(StandardCharsets.UTF_8);
+
+  private Map<String, String> headers;
+  private SyslogUtils syslogUtils;
+  private ByteBuf rfc3164;
+  private ByteBuf rfc5424;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    headers = new HashMap<String, String>();
+    headers.put("timestamp", String.valueOf(System.currentTimeMillis()));
+    headers.put("host", "host-1");
+    headers.put("sequence", "42");
+    syslogUtils = new SyslogUtils(false);
+    rfc3164 = Unpooled.wrappedBuffer(RFC3164);
+    rfc5424 = Unpooled.wrappedBuffer(RFC5424);
+  }
+
+  @Benchmark
+  public String escapeBucketPath() {
+    return BucketPath.escapeString(BUCKET_PATH, headers);
+  }
+
+  @Benchmark
+  public Event parseSyslogRfc3164() {
+    rfc3164.readerIndex(0);
+    return syslogUtils.extractEvent(rfc3164);
+  }
+
+  @Benchmark
+  public Event parseSyslogRfc5424() {
+    rfc5424.readerIndex(0);
+    return syslogUtils.extractEvent(rfc5424);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.interceptor.Interceptor;
+import org.apache.flume.interceptor.InterceptorBuilderFactory;
+import org.apache.flume.interceptor.InterceptorChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of running a batch of events through an interceptor
+ * chain. The chain is a comma separated list of built-in interceptor types,
+ * configured the way a typical agent would be.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class InterceptorChainBenchmark {
+
+  @Param({"timestamp", "timestamp,host,static",
+      "timestamp,host,static,regex_filter,search_replace"})
+  public String interceptors;
+
+  @Param({"100"})
+  public int batchSize;
+
+  @Param({"256"})
+  public int bodySize;
+
+  // 0 runs the chain serially, try a chunk size of 1000 with batches of 10000
+  @Param({"0"})
+  public int parallelChunkSize;
+
+  private InterceptorChain chain;
+  private List<Event> events;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    List<Interceptor> list = new ArrayList<Interceptor>();
+    for (String type : interceptors.split(",")) {
+      Interceptor.Builder builder = InterceptorBuilderFactory.newInstance(type);
+      builder.configure(createContext(type));
+      list.add(builder.build());
+    }
+    chain = new InterceptorChain();
+    chain.setInterceptors(list);
+    chain.setParallelChunkSize(parallelChunkSize);
+    chain.initialize();
+    events = EventSerializerBenchmark.createEvents(batchSize, bodySize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    chain.close();
+  }
+
+  @Benchmark
+  public List<Event> intercept() {
+    return chain.intercept(new ArrayList<Event>(events));
+  }
+
+  private static Context createContext(String type) {
+    Context context = new Context();
+    if ("static".equals(type)) {
+      context.put("key", "datacenter");
+      context.put("value", "dc1");
+    } else if ("regex_filter".equals(type)) {
+      // Nothing matches, so every event is kept after being checked
+      context.put("regex", "^DEBUG");
+      context.put("excludeEvents", "true");
+    } else if ("search_replace".equals(type)) {
+      // The benchmark bodies have no digits, so they are scanned but not changed
+      context.put("searchPattern", "[0-9]{4}");
+      context.put("replaceString", "####");
+    }
+    return context;
+  }
+}
@@ -492,7 +492,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
 
     @Override
     protected void doPut(Event event) throws InterruptedException {
-      channelCounter.incrementEventPutAttemptCount();
+      channelCounter.recordEventPutAttempt();
       if (putList.remainingCapacity() == 0) {
         throw new ChannelException("Put queue for FileBackedTransaction " +
             "of capacity " + putList.size() + " full, consider " +
@@ -532,7 +532,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
 
     @Override
     protected Event doTake() throws InterruptedException {
-      channelCounter.incrementEventTakeAttemptCount();
+      channelCounter.recordEventTakeAttempt();
       if (takeList.remainingCapacity() == 0) {
         throw new ChannelException("Take list for FileBackedTransaction, capacity " +
             takeList.size() + " full, consider committing more frequently, " +
@@ -589,6 +589,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
 
     @Override
     protected void doCommit() throws InterruptedException {
+      long startNanos = System.nanoTime();
       int puts = putList.size();
       int takes = takeList.size();
       if (puts > 0) {
@@ -597,7 +598,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
         log.lockShared();
         try {
           log.commitPut(transactionID);
-          channelCounter.addToEventPutSuccessCount(puts);
+          channelCounter.recordEventPutSuccess(puts);
           synchronized (queue) {
             while (!putList.isEmpty()) {
               if (!queue.addTail(putList.removeFirst())) {
@@ -626,7 +627,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
         try {
           log.commitTake(transactionID);
           queue.completeTransaction(transactionID);
-          channelCounter.addToEventTakeSuccessCount(takes);
+          channelCounter.recordEventTakeSuccess(takes);
         } catch (IOException e) {
           throw new ChannelException("Commit failed due to IO error "
               + channelNameDescriptor, e);
@@ -638,6 +639,7 @@ public class FileChannel extends BasicChannelSemantics implements TransactionCap
       putList.clear();
       takeList.clear();
       channelCounter.setChannelSize(queue.getSize());
+      channelCounter.recordCommit(puts, takes, startNanos);
     }
 
     @Override
@@ -22,44 +22,63 @@ import org.apache.flume.instrumentation.ChannelCounter;
 
 public class FileChannelCounter extends ChannelCounter implements FileChannelCounterMBean {
 
-  private boolean open;
-  private int unhealthy;
-
   private static final String EVENT_PUT_ERROR_COUNT = "channel.file.event.put.error";
   private static final String EVENT_TAKE_ERROR_COUNT = "channel.file.event.take.error";
   private static final String CHECKPOINT_WRITE_ERROR_COUNT = "channel.file.checkpoint.write.error";
   private static final String CHECKPOINT_BACKUP_WRITE_ERROR_COUNT
       = "channel.file.checkpoint.backup.write.error";
+  private static final String CLOSED = "channel.file.closed";
+  private static final String UNHEALTHY = "channel.file.unhealthy";
+
+  private final Counter closed;
+  private final Counter unhealthy;
 
   public FileChannelCounter(String name) {
     super(name, new String[] {
         EVENT_PUT_ERROR_COUNT, EVENT_TAKE_ERROR_COUNT,
-        CHECKPOINT_WRITE_ERROR_COUNT, CHECKPOINT_BACKUP_WRITE_ERROR_COUNT
+        CHECKPOINT_WRITE_ERROR_COUNT, CHECKPOINT_BACKUP_WRITE_ERROR_COUNT,
+        CLOSED, UNHEALTHY
         }
     );
+    closed = getCounter(CLOSED).asGauge();
+    unhealthy = getCounter(UNHEALTHY).asGauge();
+    closed.set(1);
+  }
+
+  /**
+   * Resets the counters but keeps the state of the channel, which is managed
+   * by the channel itself.
+   */
+  @Override
+  public void start() {
+    long wasClosed = closed.get();
+    long wasUnhealthy = unhealthy.get();
+    super.start();
+    closed.set(wasClosed);
+    unhealthy.set(wasUnhealthy);
   }
 
   @Override
   public boolean isOpen() {
-    return open;
+    return closed.get() == 0;
   }
 
   public void setOpen(boolean open) {
-    this.open = open;
+    closed.set(open ? 0 : 1);
   }
 
   @Override
   public int getClosed() {
-    return open ? 0 : 1;
+    return (int) closed.get();
   }
 
   @Override
   public int getUnhealthy() {
-    return unhealthy;
+    return (int) unhealthy.get();
   }
 
   public void setUnhealthy(int unhealthy) {
-    this.unhealthy = unhealthy;
+    this.unhealthy.set(unhealthy);
   }
 
   @Override
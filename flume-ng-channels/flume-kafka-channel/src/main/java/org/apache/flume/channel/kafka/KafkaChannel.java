@@ -20,6 +20,8 @@ package org.apache.flume.channel.kafka;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
@@ -36,6 +38,7 @@ import org.apache.flume.conf.ConfigurationException;
 import org.apache.flume.conf.LogPrivacyUtil;
 import org.apache.flume.event.EventBuilder;
 import org.apache.flume.instrumentation.kafka.KafkaChannelCounter;
+import org.apache.flume.shared.kafka.AvroEncodedEvent;
 import org.apache.flume.shared.kafka.KafkaSSLUtil;
 import org.apache.flume.source.avro.AvroFlumeEvent;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -72,8 +75,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -111,6 +118,12 @@ public class KafkaChannel extends BasicChannelSemantics {
   // This isn't a Kafka property per se, but we allow it to be configurable
   private long pollTimeout = DEFAULT_POLL_TIMEOUT;
 
+  // When prefetching, each consumer polls its next records on this executor
+  // while the sink works through the current ones
+  private boolean prefetch = DEFAULT_PREFETCH;
+  private long maxUncommittedOffsets = DEFAULT_MAX_UNCOMMITTED_OFFSETS;
+  private ExecutorService prefetchExecutor;
+
   // Track all consumers to close them eventually.
   private final List<ConsumerAndRecords> consumers =
           Collections.synchronizedList(new LinkedList<ConsumerAndRecords>());
@@ -140,12 +153,19 @@ public class KafkaChannel extends BasicChannelSemantics {
     }
     // We always have just one topic being read by one thread
     logger.info("Topic = {}", topic.get());
+    if (prefetch) {
+      prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setNameFormat("kafka-channel-" + getName() + "-prefetch-%d").build());
+    }
     counter.start();
     super.start();
   }
 
   @Override
   public void stop() {
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdown();
+    }
     for (ConsumerAndRecords c : consumers) {
       try {
         decommissionConsumerAndRecords(c);
@@ -201,6 +221,13 @@ public class KafkaChannel extends BasicChannelSemantics {
     parseAsFlumeEvent = ctx.getBoolean(PARSE_AS_FLUME_EVENT, DEFAULT_PARSE_AS_FLUME_EVENT);
     pollTimeout = ctx.getLong(POLL_TIMEOUT, DEFAULT_POLL_TIMEOUT);
 
+    prefetch = ctx.getBoolean(PREFETCH, DEFAULT_PREFETCH);
+    maxUncommittedOffsets = ctx.getLong(MAX_UNCOMMITTED_OFFSETS,
+        DEFAULT_MAX_UNCOMMITTED_OFFSETS);
+    if (maxUncommittedOffsets < 1) {
+      throw new ConfigurationException(MAX_UNCOMMITTED_OFFSETS + " must be greater than 0");
+    }
+
     staticPartitionId = ctx.getInteger(STATIC_PARTITION_CONF);
     partitionHeader = ctx.getString(PARTITION_HEADER_NAME);
 
@@ -278,8 +305,23 @@ public class KafkaChannel extends BasicChannelSemantics {
   }
 
   private void decommissionConsumerAndRecords(ConsumerAndRecords c) {
-    c.consumer.wakeup();
-    c.consumer.close();
+    if (!prefetch) {
+      c.consumer.wakeup();
+      c.consumer.close();
+      return;
+    }
+    // Wait for a prefetching poll to return, then send the offsets of the
+    // committed transactions that are still held back before closing
+    if (!c.lock.tryLock()) {
+      c.consumer.wakeup();
+      c.lock.lock();
+    }
+    try {
+      c.sendPendingOffsets(true);
+      c.consumer.close();
+    } finally {
+      c.lock.unlock();
+    }
   }
 
   @VisibleForTesting
@@ -356,7 +398,7 @@ public class KafkaChannel extends BasicChannelSemantics {
               new ProducerRecord<String, byte[]>(topic.get(), key,
                                                  serializeValue(event, parseAsFlumeEvent)));
         }
-        counter.incrementEventPutAttemptCount();
+        counter.recordEventPutAttempt();
       } catch (NumberFormatException e) {
         throw new ChannelException("Non integer partition id specified", e);
       } catch (Exception e) {
@@ -390,7 +432,7 @@ public class KafkaChannel extends BasicChannelSemantics {
       if (!consumerAndRecords.get().failedEvents.isEmpty()) {
         e = consumerAndRecords.get().failedEvents.removeFirst();
       } else {
-        if ( logger.isTraceEnabled() ) {
+        if (!prefetch && logger.isTraceEnabled()) {
           logger.trace("Assignment during take: {}",
               consumerAndRecords.get().consumer.assignment().toString());
         }
@@ -421,7 +463,7 @@ public class KafkaChannel extends BasicChannelSemantics {
           } else {
             return null;
           }
-          counter.incrementEventTakeAttemptCount();
+          counter.recordEventTakeAttempt();
         } catch (Exception ex) {
           logger.warn("Error while getting events from Kafka. This is usually caused by " +
                       "trying to read a non-flume event. Ensure the setting for " +
@@ -473,7 +515,8 @@ public class KafkaChannel extends BasicChannelSemantics {
           }
           long endTime = System.nanoTime();
           counter.addToKafkaEventSendTimer((endTime - startTime) / (1000 * 1000));
-          counter.addToEventPutSuccessCount(batchSize);
+          counter.recordEventPutSuccess(batchSize);
+          counter.recordCommit(batchSize, 0, startTime);
           producerRecords.get().clear();
           kafkaFutures.get().clear();
         } catch (Exception ex) {
@@ -490,6 +533,7 @@ public class KafkaChannel extends BasicChannelSemantics {
                   ex);
         }
       } else {
+        long commitStartTime = System.nanoTime();
         // event taken ensures that we have collected events in this transaction
         // before committing
         if (consumerAndRecords.get().failedEvents.isEmpty() && eventTaken) {
@@ -498,14 +542,15 @@ public class KafkaChannel extends BasicChannelSemantics {
           consumerAndRecords.get().commitOffsets();
           long endTime = System.nanoTime();
           counter.addToKafkaCommitTimer((endTime - startTime) / (1000 * 1000));
-          if (logger.isDebugEnabled()) {
+          if (!prefetch && logger.isDebugEnabled()) {
             logger.debug(consumerAndRecords.get().getCommittedOffsetsString());
           }
         }
 
         int takes = events.get().size();
         if (takes > 0) {
-          counter.addToEventTakeSuccessCount(takes);
+          counter.recordEventTakeSuccess(takes);
+          counter.recordCommit(0, takes, commitStartTime);
           events.get().clear();
         }
       }
@@ -529,6 +574,10 @@ public class KafkaChannel extends BasicChannelSemantics {
     private byte[] serializeValue(Event event, boolean parseAsFlumeEvent) throws IOException {
       byte[] bytes;
       if (parseAsFlumeEvent) {
+        byte[] encoded = AvroEncodedEvent.getEncodedIfUnchanged(event);
+        if (encoded != null) {
+          return encoded;
+        }
         if (!tempOutStream.isPresent()) {
           tempOutStream = Optional.of(new ByteArrayOutputStream());
         }
@@ -562,8 +611,8 @@ public class KafkaChannel extends BasicChannelSemantics {
                   new SpecificDatumReader<AvroFlumeEvent>(AvroFlumeEvent.class));
         }
         AvroFlumeEvent event = reader.get().read(null, decoder);
-        e = EventBuilder.withBody(event.getBody().array(),
-                toStringMap(event.getHeaders()));
+        // keep the record so that it can be forwarded as is
+        e = new AvroEncodedEvent(toStringMap(event.getHeaders()), event.getBody().array(), value);
       } else {
         e = EventBuilder.withBody(value, Collections.EMPTY_MAP);
       }
@@ -604,6 +653,23 @@ public class KafkaChannel extends BasicChannelSemantics {
     Iterator<ConsumerRecord<String, byte[]>> recordIterator;
     Map<TopicPartition, OffsetAndMetadata> offsets;
 
+    // Guards the consumer against concurrent use by the sink and prefetch threads
+    final Lock lock = new ReentrantLock();
+    Future<ConsumerRecords<String, byte[]>> prefetched;
+
+    // Number of records taken, and of those whose offsets are known to be
+    // committed. Kafka completes asynchronous commits in the order they were
+    // sent, so the committed count only moves forward.
+    long taken = 0;
+    final AtomicLong committed = new AtomicLong();
+    // Offsets waiting to be sent and the taken count they cover, guarded by itself
+    final Map<TopicPartition, OffsetAndMetadata> pendingOffsets =
+        new HashMap<TopicPartition, OffsetAndMetadata>();
+    long pendingTaken = 0;
+    // Latest offsets sent for every partition, only used with the lock held
+    final Map<TopicPartition, OffsetAndMetadata> sentOffsets =
+        new HashMap<TopicPartition, OffsetAndMetadata>();
+
     ConsumerAndRecords(KafkaConsumer<String, byte[]> consumer, String uuid) {
       this.consumer = consumer;
       this.uuid = uuid;
@@ -612,17 +678,67 @@ public class KafkaChannel extends BasicChannelSemantics {
     }
 
     private void poll() {
+      if (!prefetch) {
+        ConsumerRecords<String, byte[]> polled = pollConsumer();
+        if (polled != null) {
+          records = polled;
+          recordIterator = records.iterator();
+        }
+        return;
+      }
+      if (prefetched == null) {
+        prefetch();
+      }
+      try {
+        records = prefetched.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      } finally {
+        if (prefetched.isDone()) {
+          prefetched = null;
+        }
+      }
+      recordIterator = records.iterator();
+      // Fetch the next records while these are being processed
+      prefetch();
+    }
+
+    private void prefetch() {
+      prefetched = prefetchExecutor.submit(() -> {
+        lock.lock();
+        try {
+          sendPendingOffsets(false);
+          ConsumerRecords<String, byte[]> polled = pollConsumer();
+          // Send the offsets committed while this poll was running
+          sendPendingOffsets(false);
+          return polled == null ? ConsumerRecords.<String, byte[]>empty() : polled;
+        } finally {
+          lock.unlock();
+        }
+      });
+    }
+
+    // Returns null if the consumer was woken up
+    private ConsumerRecords<String, byte[]> pollConsumer() {
       logger.trace("Polling with timeout: {}ms channel-{}", pollTimeout, getName());
       try {
-        records = consumer.poll(Duration.ofMillis(pollTimeout));
-        recordIterator = records.iterator();
-        logger.debug("{} returned {} records from last poll", getName(), records.count());
+        ConsumerRecords<String, byte[]> polled = consumer.poll(Duration.ofMillis(pollTimeout));
+        logger.debug("{} returned {} records from last poll", getName(), polled.count());
+        return polled;
       } catch (WakeupException e) {
         logger.trace("Consumer woken up for channel {}.", getName());
+        return null;
       }
     }
 
     private void commitOffsets() {
+      if (prefetch) {
+        commitOffsetsAsync();
+        return;
+      }
       try {
         consumer.commitSync(offsets);
       } catch (Exception e) {
@@ -633,6 +749,76 @@ public class KafkaChannel extends BasicChannelSemantics {
       }
     }
 
+    /**
+     * Hands the offsets of this transaction over to be committed
+     * asynchronously. They are sent right away unless a prefetching poll is
+     * in progress, in which case the next poll sends them. Once more than
+     * {@code maxUncommittedOffsets} records are taken without their commit
+     * being acknowledged, this waits for the consumer and commits
+     * synchronously.
+     */
+    private void commitOffsetsAsync() {
+      synchronized (pendingOffsets) {
+        pendingOffsets.putAll(offsets);
+        pendingTaken = taken;
+      }
+      offsets.clear();
+      if (taken - committed.get() > maxUncommittedOffsets) {
+        lock.lock();
+        try {
+          sendPendingOffsets(true);
+        } finally {
+          lock.unlock();
+        }
+      } else if (lock.tryLock()) {
+        try {
+          sendPendingOffsets(false);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    // Must be called with the lock held
+    private void sendPendingOffsets(boolean sync) {
+      final Map<TopicPartition, OffsetAndMetadata> toCommit;
+      final long upTo;
+      synchronized (pendingOffsets) {
+        if (pendingOffsets.isEmpty() && !sync) {
+          return;
+        }
+        toCommit = new HashMap<TopicPartition, OffsetAndMetadata>(pendingOffsets);
+        pendingOffsets.clear();
+        upTo = pendingTaken;
+      }
+      sentOffsets.putAll(toCommit);
+      try {
+        if (sync) {
+          // Also covers the asynchronous commits still in flight
+          Map<TopicPartition, OffsetAndMetadata> all =
+              new HashMap<TopicPartition, OffsetAndMetadata>(sentOffsets);
+          all.keySet().retainAll(consumer.assignment());
+          try {
+            consumer.commitSync(all);
+          } catch (WakeupException e) {
+            // Meant for a poll that had already returned
+            consumer.commitSync(all);
+          }
+          committed.accumulateAndGet(upTo, Math::max);
+        } else {
+          consumer.commitAsync(toCommit, (committedOffsets, exception) -> {
+            if (exception != null) {
+              logger.info("Error committing offsets.", exception);
+            } else {
+              committed.accumulateAndGet(upTo, Math::max);
+            }
+          });
+        }
+      } catch (Exception e) {
+        logger.info("Error committing offsets.", e);
+      }
+    }
+
     private String getOffsetMapString() {
       StringBuilder sb = new StringBuilder();
       sb.append(getName()).append(" current offsets map: ");
@@ -661,6 +847,7 @@ public class KafkaChannel extends BasicChannelSemantics {
 
     private void saveOffsets(TopicPartition tp, OffsetAndMetadata oam) {
       offsets.put(tp,oam);
+      taken++;
       if (logger.isTraceEnabled()) {
         logger.trace(getOffsetMapString());
       }
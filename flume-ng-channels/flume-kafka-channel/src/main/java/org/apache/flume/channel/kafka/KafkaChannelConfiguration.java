@@ -56,4 +56,10 @@ public class KafkaChannelConfiguration {
   public static final String PARTITION_HEADER_NAME = "partitionIdHeader";
   public static final String STATIC_PARTITION_CONF = "defaultPartitionId";
 
+  public static final String PREFETCH = "prefetch";
+  public static final boolean DEFAULT_PREFETCH = false;
+
+  public static final String MAX_UNCOMMITTED_OFFSETS = "maxUncommittedOffsets";
+  public static final long DEFAULT_MAX_UNCOMMITTED_OFFSETS = 10000;
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.channel.kafka;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.conf.ConfigurationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+import static org.apache.flume.channel.kafka.KafkaChannelConfiguration.MAX_UNCOMMITTED_OFFSETS;
+import static org.apache.flume.channel.kafka.KafkaChannelConfiguration.PREFETCH;
+
+public class TestPrefetch extends TestKafkaChannelBase {
+
+  @Test
+  public void testPrefetch() throws Exception {
+    doTestPrefetch(false, 10000);
+  }
+
+  @Test
+  public void testPrefetchRollbacks() throws Exception {
+    doTestPrefetch(true, 10000);
+  }
+
+  @Test
+  public void testPrefetchUncommittedLimit() throws Exception {
+    doTestPrefetch(false, 3);
+  }
+
+  @Test(expected = ConfigurationException.class)
+  public void testInvalidUncommittedLimit() throws Exception {
+    Context context = prepareDefaultContext(true);
+    context.put(MAX_UNCOMMITTED_OFFSETS, "0");
+    createChannel(context);
+  }
+
+  private void doTestPrefetch(boolean rollback, long maxUncommitted) throws Exception {
+    Context context = prepareDefaultContext(true);
+    context.put(PREFETCH, "true");
+    context.put(MAX_UNCOMMITTED_OFFSETS, String.valueOf(maxUncommitted));
+    KafkaChannel channel = createChannel(context);
+    channel.start();
+
+    ExecutorCompletionService<Void> submitterSvc =
+        new ExecutorCompletionService<Void>(Executors.newCachedThreadPool());
+    putEvents(channel, createBaseList(), submitterSvc);
+    wait(submitterSvc, 5);
+
+    ExecutorCompletionService<Void> submitterSvc2 =
+        new ExecutorCompletionService<Void>(Executors.newCachedThreadPool());
+    List<Event> eventsPulled = pullEvents(channel, submitterSvc2, 50, rollback, true);
+    wait(submitterSvc2, 5);
+    verify(eventsPulled);
+    channel.stop();
+
+    // The offsets were committed, so a new consumer finds nothing left to take
+    channel = startChannel(true);
+    for (int i = 0; i < 20; i++) {
+      Transaction txn = channel.getTransaction();
+      txn.begin();
+      Assert.assertNull(channel.take());
+      txn.commit();
+      txn.close();
+    }
+    channel.stop();
+  }
+}
@@ -336,7 +336,7 @@ public class SpillableMemoryChannel extends FileChannel {
 
     @Override
     protected void doPut(Event event) throws InterruptedException {
-      channelCounter.incrementEventPutAttemptCount();
+      channelCounter.recordEventPutAttempt();
 
       putCalled = true;
       int eventByteSize = (int) Math.ceil(estimateEventSize(event) / avgEventSize);
@@ -353,7 +353,7 @@ public class SpillableMemoryChannel extends FileChannel {
     // This ensures commits/rollbacks are restricted to a single channel.
     @Override
     protected Event doTake() throws InterruptedException {
-      channelCounter.incrementEventTakeAttemptCount();
+      channelCounter.recordEventTakeAttempt();
       if (!totalStored.tryAcquire(overflowTimeout, TimeUnit.SECONDS)) {
         LOGGER.debug("Take is backing off as channel is empty.");
         return null;
@@ -414,13 +414,17 @@ public class SpillableMemoryChannel extends FileChannel {
 
     @Override
     protected void doCommit() throws InterruptedException {
+      long startNanos = System.nanoTime();
       if (putCalled) {
+        int puts = putList.size();
         putCommit();
+        channelCounter.recordCommit(puts, 0, startNanos);
         if (LOGGER.isDebugEnabled()) {
           LOGGER.debug("Put Committed. Drain Order Queue state : " + drainOrder.dump());
         }
       } else if (takeCalled) {
         takeCommit();
+        channelCounter.recordCommit(0, takeCount, startNanos);
         if (LOGGER.isDebugEnabled()) {
           LOGGER.debug("Take Committed. Drain Order Queue state : " + drainOrder.dump());
         }
@@ -450,7 +454,7 @@ public class SpillableMemoryChannel extends FileChannel {
         bytesRemaining.release(takeListByteCount);
       }
 
-      channelCounter.addToEventTakeSuccessCount(takeCount);
+      channelCounter.recordEventTakeSuccess(takeCount);
     }
 
     private void putCommit() throws InterruptedException {
@@ -506,7 +510,7 @@ public class SpillableMemoryChannel extends FileChannel {
       commitPutsToOverflow_core(overflowPutTx);
       totalStored.release(putList.size());
       overflowPutCount += putList.size();
-      channelCounter.addToEventPutSuccessCount(putList.size());
+      channelCounter.recordEventPutSuccess(putList.size());
     }
 
     private void commitPutsToOverflow_core(Transaction overflowPutTx)
@@ -547,7 +551,7 @@ public class SpillableMemoryChannel extends FileChannel {
       }
       // update counters and semaphores
       totalStored.release(putList.size());
-      channelCounter.addToEventPutSuccessCount(putList.size());
+      channelCounter.recordEventPutSuccess(putList.size());
     }
 
     @Override
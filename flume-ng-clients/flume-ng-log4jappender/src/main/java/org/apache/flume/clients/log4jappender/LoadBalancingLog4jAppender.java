@@ -22,6 +22,7 @@ import java.util.Properties;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.flume.FlumeException;
+import org.apache.flume.api.RpcClient;
 import org.apache.flume.api.RpcClientConfigurationConstants;
 import org.apache.flume.api.RpcClientFactory;
 import org.apache.flume.api.RpcClientFactory.ClientType;
@@ -75,7 +76,10 @@ import org.apache.log4j.spi.LoggingEvent;
  * <pre>
  * <p>log4j.logger.com.bar.foo = DEBUG,out2</p>
  * </pre>
- *
+ * <p>
+ * The Async, BufferSize, BatchSize and OverflowPolicy parameters of
+ * {@link Log4jAppender} apply to this appender as well.
+ * </p>
  *
  */
 public class LoadBalancingLog4jAppender extends Log4jAppender {
@@ -121,8 +125,7 @@ public class LoadBalancingLog4jAppender extends Log4jAppender {
   @Override
   public void activateOptions() throws FlumeException {
     try {
-      final Properties properties = getProperties(hosts, selector, maxBackoff, getTimeout());
-      rpcClient = RpcClientFactory.getInstance(properties);
+      rpcClient = createRpcClient();
       if (layout != null) {
         layout.activateOptions();
       }
@@ -136,6 +139,12 @@ public class LoadBalancingLog4jAppender extends Log4jAppender {
       throw new FlumeException(e);
     }
     initializeClientAddress();
+    startSender();
+  }
+
+  @Override
+  protected RpcClient createRpcClient() throws FlumeException {
+    return RpcClientFactory.getInstance(getProperties(hosts, selector, maxBackoff, getTimeout()));
   }
 
   private Properties getProperties(String hosts, String selector,
@@ -23,13 +23,21 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
@@ -73,11 +81,43 @@ import org.apache.log4j.spi.LoggingEvent;
  *do the appending.For example if classes from the package
  *com.bar.foo are appending, the last line would be:</i></p>
  *<pre><p>log4j.logger.com.bar.foo = DEBUG,out2</p></pre>
+ *<p>
+ *With <strong>Async</strong> set to true, <tt>append()</tt> only builds the
+ *Flume events and adds them to a buffer of <strong>BufferSize</strong>
+ *events. A background thread sends them in batches of up to
+ *<strong>BatchSize</strong> events. <strong>OverflowPolicy</strong> tells
+ *what happens when the buffer is full: BLOCK waits for room, DROP drops the
+ *new event and DISCARD_OLDEST drops the oldest buffered event. A batch that
+ *cannot be delivered is retried, with a backoff growing up to 10 seconds,
+ *until it is sent. The buffer fills up in the meantime, so with BLOCK an
+ *unreachable agent eventually blocks the logging threads. Failures are
+ *reported through LogLog at most once every 30 seconds. The events that still
+ *cannot be sent when the appender is closed are dropped.
+ *</p>
  *
  *
  */
 public class Log4jAppender extends AppenderSkeleton {
 
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  /**
+   * What to do with an event appended in async mode while the buffer is full.
+   */
+  public enum OverflowPolicy {
+    BLOCK,
+    DROP,
+    DISCARD_OLDEST
+  }
+
+  // How long a sender with nothing to send or an appender waiting for room
+  // sleeps before checking again, if nobody wakes it up first
+  private static final long IDLE_WAIT_MILLIS = 100;
+  private static final long INITIAL_RETRY_BACKOFF_MILLIS = 100;
+  private static final long MAX_RETRY_BACKOFF_MILLIS = 10000;
+  private static final long FAILURE_REPORT_INTERVAL_MILLIS = 30000;
+
   private String hostname;
   private int port;
   private boolean unsafeMode = false;
@@ -85,8 +125,20 @@ public class Log4jAppender extends AppenderSkeleton {
   private boolean avroReflectionEnabled;
   private String avroSchemaUrl;
   private String clientAddress = "";
+  private boolean async = false;
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+  volatile RpcClient rpcClient = null;
 
-  RpcClient rpcClient = null;
+  // Async mode: the buffer is a lock free queue, bounded by the free slots
+  private Queue<Event> buffer;
+  private Semaphore freeSlots;
+  private final AtomicInteger blockedAppenders = new AtomicInteger();
+  private Thread sender;
+  private volatile boolean senderRunning;
+  private volatile boolean senderIdle;
 
   /**
    * If this constructor is used programmatically rather than from a log4j conf
@@ -132,6 +184,13 @@ public class Log4jAppender extends AppenderSkeleton {
       throw new FlumeException(errorMsg);
     }
 
+    if (async) {
+      for (Event flumeEvent : parseEvents(event)) {
+        enqueue(flumeEvent);
+      }
+      return;
+    }
+
     if (!rpcClient.isActive()) {
       reconnect();
     }
@@ -157,6 +216,205 @@ public class Log4jAppender extends AppenderSkeleton {
     }
   }
 
+  // Called with the appender lock held
+  private void enqueue(Event event) {
+    if (!senderRunning) {
+      LogLog.debug("Flume appender closing, dropping event.");
+      return;
+    }
+    while (!freeSlots.tryAcquire()) {
+      switch (overflowPolicy) {
+        case DROP:
+          LogLog.debug("Flume appender buffer full, dropping event.");
+          return;
+        case DISCARD_OLDEST:
+          // Take over the slot of the oldest event
+          if (buffer.poll() != null) {
+            LogLog.debug("Flume appender buffer full, discarding oldest event.");
+            buffer.offer(event);
+            wakeUpSender();
+            return;
+          }
+          Thread.yield();
+          break;
+        default:
+          if (!senderRunning) {
+            return;
+          }
+          blockedAppenders.incrementAndGet();
+          try {
+            // Releases the appender lock, so that the sender can reconnect
+            wait(IDLE_WAIT_MILLIS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LogLog.warn("Interrupted while waiting for room in the Flume appender buffer.");
+            return;
+          } finally {
+            blockedAppenders.decrementAndGet();
+          }
+      }
+    }
+    buffer.offer(event);
+    wakeUpSender();
+  }
+
+  private void wakeUpSender() {
+    if (senderIdle) {
+      LockSupport.unpark(sender);
+    }
+  }
+
+  private class Sender implements Runnable {
+    @Override
+    public void run() {
+      List<Event> batch = new ArrayList<>(batchSize);
+      while (true) {
+        Event event;
+        while (batch.size() < batchSize && (event = buffer.poll()) != null) {
+          batch.add(event);
+        }
+        if (batch.isEmpty()) {
+          if (!senderRunning) {
+            return;
+          }
+          senderIdle = true;
+          if (buffer.isEmpty() && senderRunning) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(IDLE_WAIT_MILLIS));
+          }
+          senderIdle = false;
+          continue;
+        }
+        freeSlots.release(batch.size());
+        if (blockedAppenders.get() > 0) {
+          synchronized (Log4jAppender.this) {
+            Log4jAppender.this.notifyAll();
+          }
+        }
+        send(batch);
+        batch.clear();
+      }
+    }
+
+    private long lastFailureReport = 0;
+    private int unreportedFailures = 0;
+
+    private void send(List<Event> batch) {
+      long backoff = INITIAL_RETRY_BACKOFF_MILLIS;
+      boolean reconnect = false;
+      int failures = 0;
+      while (true) {
+        Exception failure = null;
+        try {
+          RpcClient client = rpcClient;
+          if (reconnect || client == null || !client.isActive()) {
+            client = reconnectSender();
+          }
+          client.appendBatch(batch);
+          if (failures > 0) {
+            LogLog.warn("Sent " + batch.size() + " events to Flume after " + failures
+                + " failed attempts.");
+            lastFailureReport = 0;
+          }
+          return;
+        } catch (EventDeliveryException | RuntimeException e) {
+          failure = e;
+        }
+        failures++;
+        reportFailure(failure);
+        if (!senderRunning) {
+          dropOnClose(batch);
+          return;
+        }
+        // Woken up early if the appender is closed
+        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(backoff));
+        backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MILLIS);
+        reconnect = true;
+      }
+    }
+
+    private void reportFailure(Exception failure) {
+      long now = System.currentTimeMillis();
+      if (now - lastFailureReport < FAILURE_REPORT_INTERVAL_MILLIS) {
+        unreportedFailures++;
+        return;
+      }
+      String msg = "Flume appendBatch() failed, retrying.";
+      if (unreportedFailures > 0) {
+        msg += " " + unreportedFailures + " failures were not reported since the last one.";
+      }
+      LogLog.error(msg, failure);
+      lastFailureReport = now;
+      unreportedFailures = 0;
+    }
+
+    // Do not hold up closing the appender with more failing attempts
+    private void dropOnClose(List<Event> batch) {
+      int dropped = 0;
+      while (buffer.poll() != null) {
+        dropped++;
+      }
+      freeSlots.release(dropped);
+      LogLog.error("Dropped " + (batch.size() + dropped)
+          + " events that could not be sent to Flume on close.");
+    }
+  }
+
+  /**
+   * Replaces the client of the sender. The previous client is kept if a new
+   * one cannot be created, so that appending does not fail while the agent
+   * is unreachable.
+   */
+  private synchronized RpcClient reconnectSender() {
+    RpcClient client = createRpcClient();
+    if (rpcClient != null) {
+      try {
+        rpcClient.close();
+      } catch (FlumeException e) {
+        LogLog.error("Error while trying to close RpcClient.", e);
+      }
+    }
+    rpcClient = client;
+    return client;
+  }
+
+  /**
+   * Starts the thread sending the buffered events in async mode, unless it
+   * is already running.
+   */
+  protected synchronized void startSender() {
+    if (!async || sender != null) {
+      return;
+    }
+    if (bufferSize < 1 || batchSize < 1) {
+      throw new FlumeException("BufferSize and BatchSize must be greater than 0");
+    }
+    buffer = new ConcurrentLinkedQueue<>();
+    freeSlots = new Semaphore(bufferSize);
+    senderRunning = true;
+    sender = new Thread(new Sender(), "flume-log4jappender-sender");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  // Sends what is left in the buffer, called with the appender lock held
+  private void stopSender() {
+    if (sender == null) {
+      return;
+    }
+    senderRunning = false;
+    LockSupport.unpark(sender);
+    try {
+      while (sender.isAlive()) {
+        // Releases the appender lock, so that the sender can reconnect
+        wait(IDLE_WAIT_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LogLog.warn("Interrupted while sending the buffered events to Flume.");
+    }
+    sender = null;
+  }
+
   private List<Event> parseEvents(LoggingEvent loggingEvent) {
     Map<String, String> headers = new HashMap<>();
     headers.put(Log4jAvroHeaders.LOGGER_NAME.toString(), loggingEvent.getLoggerName());
@@ -257,6 +515,7 @@ public class Log4jAppender extends AppenderSkeleton {
    */
   @Override
   public synchronized void close() throws FlumeException {
+    stopSender();
     // Any append calls after this will result in an Exception.
     if (rpcClient != null) {
       try {
@@ -329,6 +588,39 @@ public class Log4jAppender extends AppenderSkeleton {
     this.avroSchemaUrl = avroSchemaUrl;
   }
 
+  public void setAsync(boolean async) {
+    this.async = async;
+  }
+
+  public boolean getAsync() {
+    return async;
+  }
+
+  public void setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setOverflowPolicy(String overflowPolicy) {
+    this.overflowPolicy =
+        OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ENGLISH));
+  }
+
+  public String getOverflowPolicy() {
+    return overflowPolicy.name();
+  }
+
   /**
    * Activate the options set using <tt>setPort()</tt>
    * and <tt>setHostname()</tt>
@@ -338,16 +630,8 @@ public class Log4jAppender extends AppenderSkeleton {
    */
   @Override
   public void activateOptions() throws FlumeException {
-    Properties props = new Properties();
-    props.setProperty(RpcClientConfigurationConstants.CONFIG_HOSTS, "h1");
-    props.setProperty(RpcClientConfigurationConstants.CONFIG_HOSTS_PREFIX + "h1",
-        hostname + ":" + port);
-    props.setProperty(RpcClientConfigurationConstants.CONFIG_CONNECT_TIMEOUT,
-        String.valueOf(timeout));
-    props.setProperty(RpcClientConfigurationConstants.CONFIG_REQUEST_TIMEOUT,
-        String.valueOf(timeout));
     try {
-      rpcClient = RpcClientFactory.getInstance(props);
+      rpcClient = createRpcClient();
       if (layout != null) {
         layout.activateOptions();
       }
@@ -360,6 +644,23 @@ public class Log4jAppender extends AppenderSkeleton {
       throw e;
     }
     initializeClientAddress();
+    startSender();
+  }
+
+  /**
+   * Creates a client for the configured agent.
+   * @throws FlumeException if the client cannot be created.
+   */
+  protected RpcClient createRpcClient() throws FlumeException {
+    Properties props = new Properties();
+    props.setProperty(RpcClientConfigurationConstants.CONFIG_HOSTS, "h1");
+    props.setProperty(RpcClientConfigurationConstants.CONFIG_HOSTS_PREFIX + "h1",
+        hostname + ":" + port);
+    props.setProperty(RpcClientConfigurationConstants.CONFIG_CONNECT_TIMEOUT,
+        String.valueOf(timeout));
+    props.setProperty(RpcClientConfigurationConstants.CONFIG_REQUEST_TIMEOUT,
+        String.valueOf(timeout));
+    return RpcClientFactory.getInstance(props);
   }
 
   /**
@@ -48,6 +48,7 @@ import org.apache.flume.conf.Configurables;
 import org.apache.flume.source.AvroSource;
 import org.apache.flume.source.avro.AvroFlumeEvent;
 import org.apache.flume.source.avro.Status;
+import org.apache.log4j.Appender;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -65,6 +66,7 @@ public class TestLoadBalancingLog4jAppender {
   private ChannelSelector rcs;
   private Logger fixture;
   private boolean slowDown = false;
+  private boolean async = false;
 
   private static List<Integer> getFreePorts(int numberOfPorts) throws IOException {
     List<Integer> ports = new ArrayList<>(numberOfPorts);
@@ -123,6 +125,36 @@ public class TestLoadBalancingLog4jAppender {
     }
   }
 
+  @Test
+  public void testLog4jAppenderRoundRobinAsync() throws Exception {
+    async = true;
+    String propertiesFile = "flume-loadbalancinglog4jtest.properties";
+    startSources(propertiesFile, false, getFreePorts(2));
+    for (int count = 0; count < 100; count++) {
+      fixture.info("This is log message number" + count);
+    }
+    // Closing the appender sends the buffered events
+    closeAppender(fixture);
+
+    int total = 0;
+    for (CountingAvroSource source : sources) {
+      Assert.assertTrue(source.appendCount.get() > 0);
+      total += source.appendCount.get();
+    }
+    Assert.assertEquals(100, total);
+
+    Transaction transaction = ch.getTransaction();
+    transaction.begin();
+    for (int count = 0; count < 100; count++) {
+      Event event = ch.take();
+      Assert.assertNotNull(event);
+      Assert.assertEquals("This is log message number" + count,
+          new String(event.getBody(), "UTF8"));
+    }
+    transaction.commit();
+    transaction.close();
+  }
+
   @Test
   public void testLog4jAppenderRandom() throws IOException {
     int numberOfMsgs = 1000;
@@ -305,10 +337,23 @@ public class TestLoadBalancingLog4jAppender {
     if (slowDown) {
       props.setProperty("log4j.appender.out2.Timeout", String.valueOf(1000));
     }
+    if (async) {
+      props.setProperty("log4j.appender.out2.Async", String.valueOf(true));
+      props.setProperty("log4j.appender.out2.BatchSize", String.valueOf(10));
+    }
     PropertyConfigurator.configure(props);
     fixture = LogManager.getLogger(TestLoadBalancingLog4jAppender.class);
   }
 
+
+  // Closes the appender and removes it, so that reconfiguring log4j does not
+  // close it a second time
+  private static void closeAppender(Logger logger) {
+    Appender appender = logger.getParent().getAppender("out2");
+    appender.close();
+    logger.getParent().removeAppender(appender);
+  }
+
   static class CountingAvroSource extends AvroSource {
     AtomicInteger appendCount = new AtomicInteger();
     volatile boolean isFail = false;
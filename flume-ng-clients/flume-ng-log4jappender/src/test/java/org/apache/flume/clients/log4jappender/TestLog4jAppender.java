@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,7 @@ import org.apache.flume.channel.ReplicatingChannelSelector;
 import org.apache.flume.conf.Configurables;
 import org.apache.flume.source.AvroSource;
 import org.apache.flume.source.avro.AvroFlumeEvent;
+import org.apache.log4j.Appender;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -318,6 +320,106 @@ public class TestLog4jAppender {
   }
 
 
+  @Test
+  public void testAsync() throws Exception {
+    configureSource();
+    props.put("log4j.appender.out2.Async", "true");
+    props.put("log4j.appender.out2.BatchSize", "10");
+    PropertyConfigurator.configure(props);
+    Logger logger = LogManager.getLogger(TestLog4jAppender.class);
+    for (int count = 0; count < 100; count++) {
+      logger.info(String.valueOf(count));
+    }
+    // Closing the appender sends the buffered events
+    closeAppender(logger);
+
+    List<String> bodies = takeAll();
+    Assert.assertEquals(100, bodies.size());
+    for (int count = 0; count < 100; count++) {
+      Assert.assertEquals(String.valueOf(count), bodies.get(count));
+    }
+    Mockito.verify(source, Mockito.atLeastOnce()).appendBatch(Mockito.anyList());
+    Mockito.verify(source, Mockito.times(0)).append(Mockito.any(AvroFlumeEvent.class));
+  }
+
+  @Test
+  public void testAsyncRetriesWhileAgentIsDown() throws Exception {
+    configureSource();
+    props.put("log4j.appender.out2.Async", "true");
+    props.put("log4j.appender.out2.Timeout", "1000");
+    PropertyConfigurator.configure(props);
+    Logger logger = LogManager.getLogger(TestLog4jAppender.class);
+    source.stop();
+    for (int count = 0; count < 10; count++) {
+      logger.info(String.valueOf(count));
+    }
+    // let a few attempts fail
+    TimeUnit.MILLISECONDS.sleep(500);
+    source.start();
+    closeAppender(logger);
+
+    List<String> bodies = takeAll();
+    Assert.assertEquals(10, bodies.size());
+    for (int count = 0; count < 10; count++) {
+      Assert.assertEquals(String.valueOf(count), bodies.get(count));
+    }
+  }
+
+  @Test
+  public void testAsyncBlock() throws Exception {
+    List<String> bodies = sendAsyncToSlowChannel("BLOCK");
+    Assert.assertEquals(10, bodies.size());
+    for (int count = 0; count < 10; count++) {
+      Assert.assertEquals(String.valueOf(count), bodies.get(count));
+    }
+  }
+
+  @Test
+  public void testAsyncDrop() throws Exception {
+    List<String> bodies = sendAsyncToSlowChannel("DROP");
+    Assert.assertTrue(bodies.size() < 10);
+    Assert.assertEquals("0", bodies.get(0));
+  }
+
+  @Test
+  public void testAsyncDiscardOldest() throws Exception {
+    List<String> bodies = sendAsyncToSlowChannel("DISCARD_OLDEST");
+    Assert.assertTrue(bodies.size() < 10);
+    Assert.assertEquals("9", bodies.get(bodies.size() - 1));
+  }
+
+  private List<String> sendAsyncToSlowChannel(String overflowPolicy) throws Exception {
+    ch = new SlowMemoryChannel(200);
+    Configurables.configure(ch, new Context());
+    configureSource();
+    props.put("log4j.appender.out2.Async", "true");
+    props.put("log4j.appender.out2.BufferSize", "1");
+    props.put("log4j.appender.out2.BatchSize", "1");
+    props.put("log4j.appender.out2.OverflowPolicy", overflowPolicy);
+    PropertyConfigurator.configure(props);
+    Logger logger = LogManager.getLogger(TestLog4jAppender.class);
+    for (int count = 0; count < 10; count++) {
+      logger.info(String.valueOf(count));
+    }
+    closeAppender(logger);
+    return takeAll();
+  }
+
+  private List<String> takeAll() throws Exception {
+    List<String> bodies = new ArrayList<>();
+    while (true) {
+      Transaction transaction = ch.getTransaction();
+      transaction.begin();
+      Event event = ch.take();
+      transaction.commit();
+      transaction.close();
+      if (event == null) {
+        return bodies;
+      }
+      bodies.add(new String(event.getBody(), "UTF8"));
+    }
+  }
+
   @After
   public void cleanUp() {
     source.stop();
@@ -325,6 +427,15 @@ public class TestLog4jAppender {
     props.clear();
   }
 
+
+  // Closes the appender and removes it, so that reconfiguring log4j does not
+  // close it a second time
+  private static void closeAppender(Logger logger) {
+    Appender appender = logger.getParent().getAppender("out2");
+    appender.close();
+    logger.getParent().removeAppender(appender);
+  }
+
   static class SlowMemoryChannel extends MemoryChannel {
     private final int slowTime;
 
@@ -44,6 +44,7 @@ public class ChannelSelectorConfiguration extends
   public enum ChannelSelectorConfigurationType {
     OTHER(null),
     REPLICATING(null),
+    ROUTING(null),
     MULTIPLEXING(
         "org.apache.flume.conf.channel." +
             "MultiplexingChannelSelectorConfiguration");
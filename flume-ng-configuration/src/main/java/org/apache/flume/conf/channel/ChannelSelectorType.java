@@ -41,7 +41,12 @@ public enum ChannelSelectorType implements ComponentWithClassName {
   /**
    * Multiplexing channel selector.
    */
-  MULTIPLEXING("org.apache.flume.channel.MultiplexingChannelSelector");
+  MULTIPLEXING("org.apache.flume.channel.MultiplexingChannelSelector"),
+
+  /**
+   * Rule based routing channel selector.
+   */
+  ROUTING("org.apache.flume.channel.RoutingChannelSelector");
 
   private final String channelSelectorClassName;
 
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ChannelSelector} that can route a whole batch of events at once.
+ * The {@link org.apache.flume.channel.ChannelProcessor} uses it instead of
+ * asking for the channels of every event of a batch.
+ */
+public interface BatchChannelSelector extends ChannelSelector {
+
+  /**
+   * Groups the events of a batch by the channels they must be put in, in the
+   * order of the batch.
+   *
+   * @param events the events to route.
+   * @param requiredChannels filled with the events of every required channel.
+   * @param optionalChannels filled with the events of every optional channel.
+   */
+  public void selectChannels(List<Event> events,
+      Map<Channel, List<Event>> requiredChannels,
+      Map<Channel, List<Event>> optionalChannels);
+
+}
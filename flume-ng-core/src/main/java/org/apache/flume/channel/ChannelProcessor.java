@@ -26,6 +26,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.flume.BatchChannelSelector;
 import org.apache.flume.Channel;
 import org.apache.flume.ChannelException;
 import org.apache.flume.ChannelSelector;
@@ -56,6 +57,15 @@ public class ChannelProcessor implements Configurable {
   private static final Logger LOG = LoggerFactory.getLogger(
       ChannelProcessor.class);
 
+  /**
+   * Source property enabling the parallel execution of the thread safe
+   * interceptors over large batches.
+   */
+  public static final String PARALLEL_INTERCEPTORS = "parallelInterceptors";
+  /** Source property setting the number of events processed by each thread. */
+  public static final String PARALLEL_INTERCEPTORS_CHUNK_SIZE = "parallelInterceptorsChunkSize";
+  public static final int DEFAULT_PARALLEL_INTERCEPTORS_CHUNK_SIZE = 1000;
+
   private final ChannelSelector selector;
   private final InterceptorChain interceptorChain;
 
@@ -124,6 +134,12 @@ public class ChannelProcessor implements Configurable {
     }
 
     interceptorChain.setInterceptors(interceptors);
+
+    // Opt-in parallel processing of the large batches
+    if (context.getBoolean(PARALLEL_INTERCEPTORS, false)) {
+      interceptorChain.setParallelChunkSize(context.getInteger(
+          PARALLEL_INTERCEPTORS_CHUNK_SIZE, DEFAULT_PARALLEL_INTERCEPTORS_CHUNK_SIZE));
+    }
   }
 
   public ChannelSelector getSelector() {
@@ -153,28 +169,33 @@ public class ChannelProcessor implements Configurable {
     Map<Channel, List<Event>> optChannelQueue =
         new LinkedHashMap<Channel, List<Event>>();
 
-    for (Event event : events) {
-      List<Channel> reqChannels = selector.getRequiredChannels(event);
-
-      for (Channel ch : reqChannels) {
-        List<Event> eventQueue = reqChannelQueue.get(ch);
-        if (eventQueue == null) {
-          eventQueue = new ArrayList<Event>();
-          reqChannelQueue.put(ch, eventQueue);
+    if (selector instanceof BatchChannelSelector) {
+      ((BatchChannelSelector) selector).selectChannels(events, reqChannelQueue,
+          optChannelQueue);
+    } else {
+      for (Event event : events) {
+        List<Channel> reqChannels = selector.getRequiredChannels(event);
+
+        for (Channel ch : reqChannels) {
+          List<Event> eventQueue = reqChannelQueue.get(ch);
+          if (eventQueue == null) {
+            eventQueue = new ArrayList<Event>();
+            reqChannelQueue.put(ch, eventQueue);
+          }
+          eventQueue.add(event);
         }
-        eventQueue.add(event);
-      }
 
-      List<Channel> optChannels = selector.getOptionalChannels(event);
+        List<Channel> optChannels = selector.getOptionalChannels(event);
 
-      for (Channel ch : optChannels) {
-        List<Event> eventQueue = optChannelQueue.get(ch);
-        if (eventQueue == null) {
-          eventQueue = new ArrayList<Event>();
-          optChannelQueue.put(ch, eventQueue);
-        }
+        for (Channel ch : optChannels) {
+          List<Event> eventQueue = optChannelQueue.get(ch);
+          if (eventQueue == null) {
+            eventQueue = new ArrayList<Event>();
+            optChannelQueue.put(ch, eventQueue);
+          }
 
-        eventQueue.add(event);
+          eventQueue.add(event);
+        }
       }
     }
 
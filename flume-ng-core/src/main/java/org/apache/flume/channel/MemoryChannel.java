@@ -77,7 +77,7 @@ public class MemoryChannel extends BasicChannelSemantics implements TransactionC
 
     @Override
     protected void doPut(Event event) throws InterruptedException {
-      channelCounter.incrementEventPutAttemptCount();
+      channelCounter.recordEventPutAttempt();
       int eventByteSize = (int) Math.ceil(estimateEventSize(event) / byteCapacitySlotSize);
 
       if (!putList.offer(event)) {
@@ -91,7 +91,7 @@ public class MemoryChannel extends BasicChannelSemantics implements TransactionC
 
     @Override
     protected Event doTake() throws InterruptedException {
-      channelCounter.incrementEventTakeAttemptCount();
+      channelCounter.recordEventTakeAttempt();
       if (takeList.remainingCapacity() == 0) {
         throw new ChannelException("Take list for MemoryTransaction, capacity " +
             takeList.size() + " full, consider committing more frequently, " +
@@ -116,6 +116,7 @@ public class MemoryChannel extends BasicChannelSemantics implements TransactionC
 
     @Override
     protected void doCommit() throws InterruptedException {
+      long startNanos = System.nanoTime();
       int remainingChange = takeList.size() - putList.size();
       if (remainingChange < 0) {
         if (!bytesRemaining.tryAcquire(putByteCounter, keepAlive, TimeUnit.SECONDS)) {
@@ -152,13 +153,14 @@ public class MemoryChannel extends BasicChannelSemantics implements TransactionC
         queueRemaining.release(remainingChange);
       }
       if (puts > 0) {
-        channelCounter.addToEventPutSuccessCount(puts);
+        channelCounter.recordEventPutSuccess(puts);
       }
       if (takes > 0) {
-        channelCounter.addToEventTakeSuccessCount(takes);
+        channelCounter.recordEventTakeSuccess(takes);
       }
 
       channelCounter.setChannelSize(queue.size());
+      channelCounter.recordCommit(puts, takes, startNanos);
     }
 
     @Override
@@ -125,13 +125,13 @@ public class PseudoTxnMemoryChannel extends AbstractChannel {
   public void put(Event event) {
     Preconditions.checkState(queue != null,
         "No queue defined (Did you forget to configure me?");
-    channelCounter.incrementEventPutAttemptCount();
+    channelCounter.recordEventPutAttempt();
     try {
       queue.put(event);
     } catch (InterruptedException ex) {
       throw new ChannelException("Failed to put(" + event + ")", ex);
     }
-    channelCounter.addToEventPutSuccessCount(1);
+    channelCounter.recordEventPutSuccess(1);
     channelCounter.setChannelSize(queue.size());
   }
 
@@ -139,10 +139,10 @@ public class PseudoTxnMemoryChannel extends AbstractChannel {
   public Event take() {
     Preconditions.checkState(queue != null,
         "No queue defined (Did you forget to configure me?");
-    channelCounter.incrementEventTakeAttemptCount();
+    channelCounter.recordEventTakeAttempt();
     try {
       Event e = queue.poll(keepAlive, TimeUnit.SECONDS);
-      channelCounter.addToEventTakeSuccessCount(1);
+      channelCounter.recordEventTakeSuccess(1);
       channelCounter.setChannelSize(queue.size());
       return e;
     } catch (InterruptedException ex) {
@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.flume.BatchChannelSelector;
+import org.apache.flume.Channel;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.FlumeException;
+
+/**
+ * Channel selector that routes events with a table of rules over their
+ * headers. A rule is made of conditions on one or more headers, all of which
+ * must match, and of the channels the matching events go to:
+ * <pre>
+ * selector.type = routing
+ * selector.rules = errors web
+ * selector.rules.errors.header.level = exact:ERROR FATAL
+ * selector.rules.errors.header.status = range:500,599
+ * selector.rules.errors.channels = c1
+ * selector.rules.web.header.path = prefix:/api/ /static/
+ * selector.rules.web.header.agent = regex:(?i)mozilla
+ * selector.rules.web.channels = c2
+ * selector.rules.web.optional = c3
+ * selector.default = c4
+ * </pre>
+ * A condition is <tt>exact</tt> or <tt>prefix</tt> followed by space
+ * separated values, <tt>regex</tt> followed by a pattern that must be found
+ * in the header, or <tt>range</tt> followed by the inclusive numeric bounds
+ * of the header, either of which may be left out. Rules are evaluated in
+ * order and the first matching one wins, unless <tt>mode</tt> is
+ * <tt>all</tt>, in which case the events go to the channels of all the
+ * matching rules. Events that match no rule go to the default channels.
+ * <p>
+ * The rules are compiled into one index per header: a hash table of the
+ * exact values, a trie of the prefixes and sorted ranges. An event is matched
+ * against all the rules with one lookup per header, and batches are routed in
+ * one pass without building channel lists for every event.
+ */
+public class RoutingChannelSelector extends AbstractChannelSelector
+    implements BatchChannelSelector {
+
+  public static final String CONFIG_RULES = "rules";
+  public static final String CONFIG_PREFIX_HEADER = "header.";
+  public static final String CONFIG_CHANNELS = "channels";
+  public static final String CONFIG_OPTIONAL = "optional";
+  public static final String CONFIG_DEFAULT_CHANNEL = "default";
+  public static final String CONFIG_MODE = "mode";
+
+  public enum Mode {
+    FIRST,
+    ALL
+  }
+
+  private static final List<Channel> EMPTY_LIST = Collections.emptyList();
+
+  private Mode mode;
+  private HeaderIndex[] headerIndexes;
+  private Rule[] rules;
+  private int[] defaultChannels;
+  private List<Channel> defaultChannelList;
+  private List<Channel> channels;
+
+  @Override
+  public List<Channel> getRequiredChannels(Event event) {
+    Scratch scratch = new Scratch();
+    BitSet matched = match(event, scratch);
+    if (matched.isEmpty()) {
+      return defaultChannelList;
+    }
+    if (mode == Mode.FIRST) {
+      return rules[matched.nextSetBit(0)].requiredList;
+    }
+    List<Channel> result = new ArrayList<Channel>();
+    for (int rule = matched.nextSetBit(0); rule >= 0; rule = matched.nextSetBit(rule + 1)) {
+      for (int channel : rules[rule].required) {
+        if (!scratch.channels.get(channel)) {
+          scratch.channels.set(channel);
+          result.add(channels.get(channel));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public List<Channel> getOptionalChannels(Event event) {
+    Scratch scratch = new Scratch();
+    BitSet matched = match(event, scratch);
+    if (matched.isEmpty()) {
+      return EMPTY_LIST;
+    }
+    if (mode == Mode.FIRST) {
+      return rules[matched.nextSetBit(0)].optionalList;
+    }
+    for (int rule = matched.nextSetBit(0); rule >= 0; rule = matched.nextSetBit(rule + 1)) {
+      for (int channel : rules[rule].required) {
+        scratch.channels.set(channel);
+      }
+    }
+    List<Channel> result = new ArrayList<Channel>();
+    for (int rule = matched.nextSetBit(0); rule >= 0; rule = matched.nextSetBit(rule + 1)) {
+      for (int channel : rules[rule].optional) {
+        if (!scratch.channels.get(channel)) {
+          scratch.channels.set(channel);
+          result.add(channels.get(channel));
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void selectChannels(List<Event> events,
+      Map<Channel, List<Event>> requiredChannels,
+      Map<Channel, List<Event>> optionalChannels) {
+    Scratch scratch = new Scratch();
+    List<List<Event>> required = new ArrayList<List<Event>>(
+        Collections.<List<Event>>nCopies(channels.size(), null));
+    List<List<Event>> optional = new ArrayList<List<Event>>(
+        Collections.<List<Event>>nCopies(channels.size(), null));
+
+    for (Event event : events) {
+      BitSet matched = match(event, scratch);
+      if (matched.isEmpty()) {
+        addToQueues(required, defaultChannels, event, events.size());
+      } else if (mode == Mode.FIRST) {
+        Rule rule = rules[matched.nextSetBit(0)];
+        addToQueues(required, rule.required, event, events.size());
+        addToQueues(optional, rule.optional, event, events.size());
+      } else {
+        BitSet seen = scratch.channels;
+        seen.clear();
+        for (int rule = matched.nextSetBit(0); rule >= 0; rule = matched.nextSetBit(rule + 1)) {
+          for (int channel : rules[rule].required) {
+            if (!seen.get(channel)) {
+              seen.set(channel);
+              addToQueue(required, channel, event, events.size());
+            }
+          }
+        }
+        for (int rule = matched.nextSetBit(0); rule >= 0; rule = matched.nextSetBit(rule + 1)) {
+          for (int channel : rules[rule].optional) {
+            if (!seen.get(channel)) {
+              seen.set(channel);
+              addToQueue(optional, channel, event, events.size());
+            }
+          }
+        }
+      }
+    }
+
+    for (int channel = 0; channel < channels.size(); channel++) {
+      if (required.get(channel) != null) {
+        requiredChannels.put(channels.get(channel), required.get(channel));
+      }
+      if (optional.get(channel) != null) {
+        optionalChannels.put(channels.get(channel), optional.get(channel));
+      }
+    }
+  }
+
+  private static void addToQueues(List<List<Event>> queues, int[] channels, Event event,
+      int batchSize) {
+    for (int channel : channels) {
+      addToQueue(queues, channel, event, batchSize);
+    }
+  }
+
+  private static void addToQueue(List<List<Event>> queues, int channel, Event event,
+      int batchSize) {
+    List<Event> queue = queues.get(channel);
+    if (queue == null) {
+      queue = new ArrayList<Event>(batchSize);
+      queues.set(channel, queue);
+    }
+    queue.add(event);
+  }
+
+  /**
+   * @return the rules matched by the event, in the scratch space.
+   */
+  private BitSet match(Event event, Scratch scratch) {
+    BitSet candidates = scratch.candidates;
+    candidates.clear();
+    candidates.set(0, rules.length);
+    Map<String, String> headers = event.getHeaders();
+    for (HeaderIndex index : headerIndexes) {
+      BitSet matched = scratch.matched;
+      matched.clear();
+      String value = headers.get(index.header);
+      if (value != null) {
+        index.match(value, matched);
+      }
+      // Drop the rules with a condition on this header that did not match
+      BitSet failed = scratch.failed;
+      failed.clear();
+      failed.or(index.constrained);
+      failed.andNot(matched);
+      candidates.andNot(failed);
+      if (candidates.isEmpty()) {
+        break;
+      }
+    }
+    return candidates;
+  }
+
+  @Override
+  public void configure(Context context) {
+    channels = getAllChannels();
+    Map<String, Channel> channelNameMap = getChannelNameMap();
+    Map<Channel, Integer> channelIndexes = new HashMap<Channel, Integer>();
+    for (int i = 0; i < channels.size(); i++) {
+      channelIndexes.put(channels.get(i), i);
+    }
+
+    String modeName = context.getString(CONFIG_MODE, Mode.FIRST.toString());
+    try {
+      mode = Mode.valueOf(modeName.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new FlumeException("Invalid routing mode: " + modeName, e);
+    }
+
+    defaultChannelList = getChannelListFromNames(
+        context.getString(CONFIG_DEFAULT_CHANNEL), channelNameMap);
+    defaultChannels = toIndexes(defaultChannelList, channelIndexes);
+
+    String ruleNames = context.getString(CONFIG_RULES, "").trim();
+    String[] names = ruleNames.isEmpty() ? new String[0] : ruleNames.split("\\s+");
+    rules = new Rule[names.length];
+    Map<String, HeaderIndex> indexes = new LinkedHashMap<String, HeaderIndex>();
+    for (int i = 0; i < names.length; i++) {
+      Context ruleContext = new Context(
+          context.getSubProperties(CONFIG_RULES + "." + names[i] + "."));
+      List<Channel> required = getChannelListFromNames(
+          ruleContext.getString(CONFIG_CHANNELS), channelNameMap);
+      if (required.isEmpty()) {
+        throw new FlumeException("No channel configured for rule: " + names[i]);
+      }
+      List<Channel> optional = getChannelListFromNames(
+          ruleContext.getString(CONFIG_OPTIONAL), channelNameMap);
+      optional.removeAll(required);
+      rules[i] = new Rule(required, toIndexes(required, channelIndexes),
+          optional, toIndexes(optional, channelIndexes));
+
+      Map<String, String> conditions = ruleContext.getSubProperties(CONFIG_PREFIX_HEADER);
+      for (Map.Entry<String, String> condition : conditions.entrySet()) {
+        HeaderIndex index = indexes.get(condition.getKey());
+        if (index == null) {
+          index = new HeaderIndex(condition.getKey());
+          indexes.put(condition.getKey(), index);
+        }
+        index.add(i, condition.getValue(), names[i]);
+      }
+    }
+    headerIndexes = indexes.values().toArray(new HeaderIndex[0]);
+    for (HeaderIndex index : headerIndexes) {
+      index.ranges.sort((a, b) -> Double.compare(a.low, b.low));
+    }
+  }
+
+  private static int[] toIndexes(List<Channel> channels, Map<Channel, Integer> channelIndexes) {
+    int[] indexes = new int[channels.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = channelIndexes.get(channels.get(i));
+    }
+    return indexes;
+  }
+
+  private static class Rule {
+    private final List<Channel> requiredList;
+    private final int[] required;
+    private final List<Channel> optionalList;
+    private final int[] optional;
+
+    Rule(List<Channel> requiredList, int[] required, List<Channel> optionalList,
+        int[] optional) {
+      this.requiredList = requiredList;
+      this.required = required;
+      this.optionalList = optionalList.isEmpty() ? EMPTY_LIST : optionalList;
+      this.optional = optional;
+    }
+  }
+
+  /**
+   * The conditions of all the rules on one header.
+   */
+  private static class HeaderIndex {
+    private final String header;
+    private final BitSet constrained = new BitSet();
+    private final Map<String, BitSet> exact = new HashMap<String, BitSet>();
+    private final TrieNode prefixes = new TrieNode();
+    private final List<RegexCondition> regexes = new ArrayList<RegexCondition>();
+    private final List<RangeCondition> ranges = new ArrayList<RangeCondition>();
+
+    HeaderIndex(String header) {
+      this.header = header;
+    }
+
+    void add(int rule, String condition, String ruleName) {
+      int separator = condition.indexOf(':');
+      if (separator < 0) {
+        throw new FlumeException("Invalid condition on header " + header + " of rule "
+            + ruleName + ": " + condition);
+      }
+      String type = condition.substring(0, separator).trim().toLowerCase(Locale.ENGLISH);
+      String argument = condition.substring(separator + 1);
+      constrained.set(rule);
+      if (type.equals("exact")) {
+        for (String value : argument.trim().split("\\s+")) {
+          BitSet matching = exact.get(value);
+          if (matching == null) {
+            matching = new BitSet();
+            exact.put(value, matching);
+          }
+          matching.set(rule);
+        }
+      } else if (type.equals("prefix")) {
+        for (String prefix : argument.trim().split("\\s+")) {
+          prefixes.add(prefix, rule);
+        }
+      } else if (type.equals("regex")) {
+        try {
+          regexes.add(new RegexCondition(Pattern.compile(argument), rule));
+        } catch (PatternSyntaxException e) {
+          throw new FlumeException("Invalid regex on header " + header + " of rule "
+              + ruleName + ": " + argument, e);
+        }
+      } else if (type.equals("range")) {
+        String[] bounds = argument.split(",", -1);
+        if (bounds.length != 2) {
+          throw new FlumeException("Invalid range on header " + header + " of rule "
+              + ruleName + ": " + argument);
+        }
+        try {
+          double low = bounds[0].trim().isEmpty()
+              ? Double.NEGATIVE_INFINITY : Double.parseDouble(bounds[0].trim());
+          double high = bounds[1].trim().isEmpty()
+              ? Double.POSITIVE_INFINITY : Double.parseDouble(bounds[1].trim());
+          ranges.add(new RangeCondition(low, high, rule));
+        } catch (NumberFormatException e) {
+          throw new FlumeException("Invalid range on header " + header + " of rule "
+              + ruleName + ": " + argument, e);
+        }
+      } else {
+        throw new FlumeException("Unknown condition type on header " + header + " of rule "
+            + ruleName + ": " + type);
+      }
+    }
+
+    void match(String value, BitSet matched) {
+      BitSet matching = exact.get(value);
+      if (matching != null) {
+        matched.or(matching);
+      }
+      prefixes.match(value, matched);
+      for (RegexCondition regex : regexes) {
+        if (regex.pattern.matcher(value).find()) {
+          matched.set(regex.rule);
+        }
+      }
+      if (!ranges.isEmpty()) {
+        double number;
+        try {
+          number = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+          return;
+        }
+        for (RangeCondition range : ranges) {
+          if (range.low > number) {
+            break;
+          }
+          if (number <= range.high) {
+            matched.set(range.rule);
+          }
+        }
+      }
+    }
+  }
+
+  private static class TrieNode {
+    private char[] keys = new char[0];
+    private TrieNode[] children = new TrieNode[0];
+    private BitSet rules;
+
+    void add(String prefix, int rule) {
+      TrieNode node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        node = node.getOrAddChild(prefix.charAt(i));
+      }
+      if (node.rules == null) {
+        node.rules = new BitSet();
+      }
+      node.rules.set(rule);
+    }
+
+    void match(String value, BitSet matched) {
+      TrieNode node = this;
+      for (int i = 0; ; i++) {
+        if (node.rules != null) {
+          matched.or(node.rules);
+        }
+        if (i == value.length()) {
+          return;
+        }
+        int child = Arrays.binarySearch(node.keys, value.charAt(i));
+        if (child < 0) {
+          return;
+        }
+        node = node.children[child];
+      }
+    }
+
+    private TrieNode getOrAddChild(char key) {
+      int child = Arrays.binarySearch(keys, key);
+      if (child >= 0) {
+        return children[child];
+      }
+      int insertAt = -child - 1;
+      char[] newKeys = new char[keys.length + 1];
+      TrieNode[] newChildren = new TrieNode[children.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insertAt);
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      newKeys[insertAt] = key;
+      newChildren[insertAt] = new TrieNode();
+      System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1,
+          children.length - insertAt);
+      keys = newKeys;
+      children = newChildren;
+      return newChildren[insertAt];
+    }
+  }
+
+  private static class RegexCondition {
+    private final Pattern pattern;
+    private final int rule;
+
+    RegexCondition(Pattern pattern, int rule) {
+      this.pattern = pattern;
+      this.rule = rule;
+    }
+  }
+
+  private static class RangeCondition {
+    private final double low;
+    private final double high;
+    private final int rule;
+
+    RangeCondition(double low, double high, int rule) {
+      this.low = low;
+      this.high = high;
+      this.rule = rule;
+    }
+  }
+
+  /**
+   * Space reused by the evaluation of the events of a call.
+   */
+  private static class Scratch {
+    private final BitSet candidates = new BitSet();
+    private final BitSet matched = new BitSet();
+    private final BitSet failed = new BitSet();
+    private final BitSet channels = new BitSet();
+  }
+}
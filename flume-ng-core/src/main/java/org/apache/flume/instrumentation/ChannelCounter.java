@@ -40,73 +40,135 @@ public class ChannelCounter extends MonitoredCounterGroup implements
   private static final String COUNTER_CHANNEL_CAPACITY =
           "channel.capacity";
 
+  private static final String HISTOGRAM_PUT_BATCH_SIZE =
+      "channel.put.batch.size";
+
+  private static final String HISTOGRAM_TAKE_BATCH_SIZE =
+      "channel.take.batch.size";
+
+  private static final String HISTOGRAM_COMMIT_LATENCY =
+      "channel.commit.latency.us";
+
   private static final String[] ATTRIBUTES = {
     COUNTER_CHANNEL_SIZE, COUNTER_EVENT_PUT_ATTEMPT,
     COUNTER_EVENT_TAKE_ATTEMPT, COUNTER_EVENT_PUT_SUCCESS,
     COUNTER_EVENT_TAKE_SUCCESS, COUNTER_CHANNEL_CAPACITY
   };
 
+  private final Counter channelSize = getCounter(COUNTER_CHANNEL_SIZE).asGauge();
+  private final Counter eventPutAttempt = getCounter(COUNTER_EVENT_PUT_ATTEMPT);
+  private final Counter eventTakeAttempt = getCounter(COUNTER_EVENT_TAKE_ATTEMPT);
+  private final Counter eventPutSuccess = getCounter(COUNTER_EVENT_PUT_SUCCESS);
+  private final Counter eventTakeSuccess = getCounter(COUNTER_EVENT_TAKE_SUCCESS);
+  private final Counter channelCapacity = getCounter(COUNTER_CHANNEL_CAPACITY).asGauge();
+
+  private final Histogram putBatchSize;
+  private final Histogram takeBatchSize;
+  private final Histogram commitLatency;
+
   public ChannelCounter(String name) {
-    super(MonitoredCounterGroup.Type.CHANNEL, name, ATTRIBUTES);
+    this(name, new String[0]);
   }
 
   public ChannelCounter(String name, String[] attributes) {
     super(MonitoredCounterGroup.Type.CHANNEL, name,
         (String[])ArrayUtils.addAll(attributes,ATTRIBUTES));
+    putBatchSize = addHistogram(HISTOGRAM_PUT_BATCH_SIZE);
+    takeBatchSize = addHistogram(HISTOGRAM_TAKE_BATCH_SIZE);
+    commitLatency = addHistogram(HISTOGRAM_COMMIT_LATENCY);
   }
 
   @Override
   public long getChannelSize() {
-    return get(COUNTER_CHANNEL_SIZE);
+    return channelSize.get();
   }
 
   public void setChannelSize(long newSize) {
-    set(COUNTER_CHANNEL_SIZE, newSize);
+    channelSize.set(newSize);
   }
 
   @Override
   public long getEventPutAttemptCount() {
-    return get(COUNTER_EVENT_PUT_ATTEMPT);
+    return eventPutAttempt.get();
   }
 
   public long incrementEventPutAttemptCount() {
-    return increment(COUNTER_EVENT_PUT_ATTEMPT);
+    recordEventPutAttempt();
+    return eventPutAttempt.get();
+  }
+
+  public void recordEventPutAttempt() {
+    eventPutAttempt.increment();
   }
 
   @Override
   public long getEventTakeAttemptCount() {
-    return get(COUNTER_EVENT_TAKE_ATTEMPT);
+    return eventTakeAttempt.get();
   }
 
   public long incrementEventTakeAttemptCount() {
-    return increment(COUNTER_EVENT_TAKE_ATTEMPT);
+    recordEventTakeAttempt();
+    return eventTakeAttempt.get();
+  }
+
+  public void recordEventTakeAttempt() {
+    eventTakeAttempt.increment();
   }
 
   @Override
   public long getEventPutSuccessCount() {
-    return get(COUNTER_EVENT_PUT_SUCCESS);
+    return eventPutSuccess.get();
   }
 
   public long addToEventPutSuccessCount(long delta) {
-    return addAndGet(COUNTER_EVENT_PUT_SUCCESS, delta);
+    recordEventPutSuccess(delta);
+    return eventPutSuccess.get();
+  }
+
+  public void recordEventPutSuccess(long delta) {
+    eventPutSuccess.add(delta);
   }
 
   @Override
   public long getEventTakeSuccessCount() {
-    return get(COUNTER_EVENT_TAKE_SUCCESS);
+    return eventTakeSuccess.get();
   }
 
   public long addToEventTakeSuccessCount(long delta) {
-    return addAndGet(COUNTER_EVENT_TAKE_SUCCESS, delta);
+    recordEventTakeSuccess(delta);
+    return eventTakeSuccess.get();
+  }
+
+  public void recordEventTakeSuccess(long delta) {
+    eventTakeSuccess.add(delta);
+  }
+
+  /**
+   * Records the batch sizes of a committed transaction and the time taken to
+   * commit it. Channels call it once per committed transaction, the memory,
+   * file, spillable memory and Kafka channels do.
+   *
+   * @param puts The number of events put by the transaction
+   * @param takes The number of events taken by the transaction
+   * @param startNanos The {@link System#nanoTime()} the commit started at
+   */
+  public void recordCommit(long puts, long takes, long startNanos) {
+    if (puts > 0) {
+      putBatchSize.record(puts);
+    }
+    if (takes > 0) {
+      takeBatchSize.record(takes);
+    }
+    commitLatency.recordMicrosSince(startNanos);
   }
 
   public void setChannelCapacity(long capacity) {
-    set(COUNTER_CHANNEL_CAPACITY, capacity);
+    channelCapacity.set(capacity);
   }
 
   @Override
   public long getChannelCapacity() {
-    return get(COUNTER_CHANNEL_CAPACITY);
+    return channelCapacity.get();
   }
 
   @Override
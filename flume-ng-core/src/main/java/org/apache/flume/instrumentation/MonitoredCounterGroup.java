@@ -20,13 +20,18 @@ package org.apache.flume.instrumentation;
 
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.management.ObjectName;
 
@@ -35,7 +40,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Used for keeping track of internal metrics using atomic integers</p>
+ * Used for keeping track of internal metrics using {@link LongAdder}s, so
+ * that components updating them from many threads do not contend on a single
+ * value. Subclasses should resolve their counters once with
+ * {@link #getCounter(String)} rather than looking them up by name on every
+ * update. Reading a counter sums it up, so the updates made for every event
+ * or batch should not return the updated value: the <tt>record</tt> methods
+ * of the subclasses only update the counters, while the <tt>increment</tt>
+ * and <tt>addTo</tt> ones also read them back.</p>
  *
  * This is used by a variety of component types such as Sources, Channels,
  * Sinks, SinkProcessors, ChannelProcessors, Interceptors and Serializers.
@@ -51,9 +63,18 @@ public abstract class MonitoredCounterGroup {
   // key for component's stop time in MonitoredCounterGroup.counterMap
   private static final String COUNTER_GROUP_STOP_TIME = "stop.time";
 
+  // Groups of the running components, by object name, read by the monitoring
+  // services which do not poll JMX
+  private static final ConcurrentMap<String, MonitoredCounterGroup> registeredGroups =
+      new ConcurrentHashMap<String, MonitoredCounterGroup>();
+
   private final Type type;
   private final String name;
-  private final Map<String, AtomicLong> counterMap;
+  private final String objNamePrefix;
+  private final Map<String, Counter> counterMap;
+  // Only modified by the constructors of the subclasses
+  private final Map<String, Histogram> histogramMap =
+      new LinkedHashMap<String, Histogram>();
 
   private AtomicLong startTime;
   private AtomicLong stopTime;
@@ -62,12 +83,14 @@ public abstract class MonitoredCounterGroup {
   protected MonitoredCounterGroup(Type type, String name, String... attrs) {
     this.type = type;
     this.name = name;
+    this.objNamePrefix = "org.apache.flume."
+        + type.name().toLowerCase(Locale.ENGLISH) + ":type=" + name;
 
-    Map<String, AtomicLong> counterInitMap = new HashMap<String, AtomicLong>();
+    Map<String, Counter> counterInitMap = new HashMap<String, Counter>();
 
     // Initialize the counters
     for (String attribute : attrs) {
-      counterInitMap.put(attribute, new AtomicLong(0L));
+      counterInitMap.put(attribute, new Counter());
     }
 
     counterMap = Collections.unmodifiableMap(counterInitMap);
@@ -87,10 +110,16 @@ public abstract class MonitoredCounterGroup {
   public void start() {
 
     register();
+    if (registered) {
+      registeredGroups.put(objNamePrefix, this);
+    }
     stopTime.set(0L);
     for (String counter : counterMap.keySet()) {
       counterMap.get(counter).set(0L);
     }
+    for (Histogram histogram : histogramMap.values()) {
+      histogram.reset();
+    }
     startTime.set(System.currentTimeMillis());
     logger.info("Component type: " + type + ", name: " + name + " started");
   }
@@ -104,20 +133,14 @@ public abstract class MonitoredCounterGroup {
   void register() {
     if (!registered) {
       try {
-        ObjectName objName = new ObjectName("org.apache.flume."
-                + type.name().toLowerCase(Locale.ENGLISH) + ":type=" + this.name);
-
-        if (ManagementFactory.getPlatformMBeanServer().isRegistered(objName)) {
-          logger.debug("Monitored counter group for type: " + type + ", name: "
-              + name + ": Another MBean is already registered with this name. "
-              + "Unregistering that pre-existing MBean now...");
-          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objName);
-          logger.debug("Monitored counter group for type: " + type + ", name: "
-              + name + ": Successfully unregistered pre-existing MBean.");
-        }
-        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objName);
+        ObjectName objName = new ObjectName(objNamePrefix);
+        registerMBean(this, objName);
         logger.info("Monitored counter group for type: " + type + ", name: "
             + name + ": Successfully registered new MBean.");
+        for (Histogram histogram : histogramMap.values()) {
+          registerMBean(histogram,
+              new ObjectName(objNamePrefix + ",histogram=" + histogram.getName()));
+        }
         registered = true;
       } catch (Exception ex) {
         logger.error("Failed to register monitored counter group for type: "
@@ -126,6 +149,18 @@ public abstract class MonitoredCounterGroup {
     }
   }
 
+  private void registerMBean(Object mbean, ObjectName objName) throws Exception {
+    if (ManagementFactory.getPlatformMBeanServer().isRegistered(objName)) {
+      logger.debug("Monitored counter group for type: " + type + ", name: "
+          + name + ": Another MBean is already registered with name " + objName
+          + ". Unregistering that pre-existing MBean now...");
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objName);
+      logger.debug("Monitored counter group for type: " + type + ", name: "
+          + name + ": Successfully unregistered pre-existing MBean.");
+    }
+    ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objName);
+  }
+
   /**
    * Shuts Down the Component
    *
@@ -145,6 +180,10 @@ public abstract class MonitoredCounterGroup {
     // Sets the stopTime for the component as the current time in milliseconds
     stopTime.set(System.currentTimeMillis());
 
+    // Stopped components are not reported by the monitoring services anymore,
+    // unless another group has replaced this one in the meantime
+    registeredGroups.remove(objNamePrefix, this);
+
     // Prints out a message indicating that this component has been stopped
     logger.info("Component type: " + type + ", name: " + name + " stopped");
 
@@ -178,6 +217,12 @@ public abstract class MonitoredCounterGroup {
           + "name: " + name + ". "
           + counterMapKey + " == " + counterMapValue);
     }
+
+    // Print out a summary of the histograms
+    for (Histogram histogram : histogramMap.values()) {
+      logger.info("Shutdown Metric for type: " + type + ", "
+          + "name: " + name + ". " + histogram);
+    }
   }
 
   /**
@@ -240,24 +285,129 @@ public abstract class MonitoredCounterGroup {
   }
 
   /**
-   * Atomically adds the delta to the current value for this key
+   * Adds the delta to the current value for this key
    *
    * @param counter The key for this metric
    * @param delta
-   * @return The updated value for this key
+   * @return The updated value for this key, including concurrent updates
    */
   protected long addAndGet(String counter, long delta) {
-    return counterMap.get(counter).addAndGet(delta);
+    Counter c = counterMap.get(counter);
+    c.add(delta);
+    return c.get();
   }
 
   /**
-   * Atomically increments the current value for this key by one
+   * Increments the current value for this key by one
    *
    * @param counter The key for this metric
-   * @return The updated value for this key
+   * @return The updated value for this key, including concurrent updates
    */
   protected long increment(String counter) {
-    return counterMap.get(counter).incrementAndGet();
+    Counter c = counterMap.get(counter);
+    c.increment();
+    return c.get();
+  }
+
+  /**
+   * Retrieves the counter for this key, to be kept by subclasses so that
+   * updates do not need to look it up.
+   *
+   * @param counter The key for this metric
+   * @return The counter for this key
+   */
+  protected Counter getCounter(String counter) {
+    return counterMap.get(counter);
+  }
+
+  /**
+   * A counter which can be updated from many threads without contention.
+   * Updates are spread over the cells of a {@link LongAdder}, which are only
+   * summed up when the value is read. The metrics used as gauges are kept in
+   * a single {@link AtomicLong} instead, so that setting them is atomic with
+   * the other updates.
+   */
+  public static final class Counter {
+    private final LongAdder adder = new LongAdder();
+    // Only set for gauges, which are then updated through it alone
+    private volatile AtomicLong gauge;
+
+    /**
+     * Marks this counter as a gauge, a value which is set rather than
+     * accumulated. Must be called before the counter is updated.
+     *
+     * @return This counter
+     */
+    public Counter asGauge() {
+      if (gauge == null) {
+        gauge = new AtomicLong(adder.sum());
+      }
+      return this;
+    }
+
+    public boolean isGauge() {
+      return gauge != null;
+    }
+
+    public void increment() {
+      AtomicLong value = gauge;
+      if (value != null) {
+        value.incrementAndGet();
+      } else {
+        adder.increment();
+      }
+    }
+
+    public void add(long delta) {
+      AtomicLong value = gauge;
+      if (value != null) {
+        value.addAndGet(delta);
+      } else {
+        adder.add(delta);
+      }
+    }
+
+    /**
+     * Sets the value. It is atomic for gauges only, counters are only meant
+     * to be set when they are reset, while they are not being updated.
+     */
+    public void set(long value) {
+      AtomicLong current = gauge;
+      if (current != null) {
+        current.set(value);
+      } else {
+        adder.reset();
+        adder.add(value);
+      }
+    }
+
+    public long get() {
+      AtomicLong value = gauge;
+      return value != null ? value.get() : adder.sum();
+    }
+  }
+
+  /**
+   * Creates a histogram with the given name, registered in JMX along with
+   * the counters. Must only be called from the constructor of the subclass.
+   *
+   * @param histogramName The name of the histogram
+   * @return The new histogram
+   */
+  protected Histogram addHistogram(String histogramName) {
+    Histogram histogram = new Histogram(histogramName);
+    histogramMap.put(histogramName, histogram);
+    return histogram;
+  }
+
+  /**
+   * Retrieves the histogram with the given name
+   *
+   * @param histogramName The name of the histogram
+   * @return The histogram, or null if there is no histogram with that name
+   */
+  public Histogram getHistogram(String histogramName) {
+    return histogramMap.get(histogramName);
   }
 
   /**
@@ -280,4 +430,34 @@ public abstract class MonitoredCounterGroup {
   public String getType() {
     return type.name();
   }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return The counters of this group, by key
+   */
+  public Map<String, Counter> getCounters() {
+    return counterMap;
+  }
+
+  /**
+   * @return The histograms of this group
+   */
+  public Collection<Histogram> getHistograms() {
+    return Collections.unmodifiableCollection(histogramMap.values());
+  }
+
+  /**
+   * Returns the counter groups of the components started and not stopped
+   * since, so that monitoring services can read them directly instead of
+   * polling JMX. A group replaces the one previously started with the same
+   * type and name.
+   *
+   * @return The registered counter groups
+   */
+  public static Collection<MonitoredCounterGroup> getRegisteredGroups() {
+    return Collections.unmodifiableCollection(registeredGroups.values());
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.flume.instrumentation;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.flume.ChannelException;
+import org.apache.flume.Event;
 
 public class SinkCounter extends MonitoredCounterGroup implements
     SinkCounterMBean {
@@ -50,122 +51,246 @@ public class SinkCounter extends MonitoredCounterGroup implements
   private static final String COUNTER_EVENT_WRITE_FAIL =
       "sink.event.write.fail";
 
+  private static final String COUNTER_EVENT_SKIPPED =
+      "sink.event.skipped";
+
   private static final String COUNTER_CHANNEL_READ_FAIL =
       "sink.channel.read.fail";
 
+  private static final String HISTOGRAM_BATCH_SIZE =
+      "sink.batch.size";
+
+  private static final String HISTOGRAM_DELIVERY_LATENCY =
+      "sink.delivery.latency.us";
+
+  private static final String HISTOGRAM_EVENT_AGE =
+      "sink.event.age.ms";
+
+  private static final String TIMESTAMP_HEADER = "timestamp";
+
   private static final String[] ATTRIBUTES = {
     COUNTER_CONNECTION_CREATED, COUNTER_CONNECTION_CLOSED,
     COUNTER_CONNECTION_FAILED, COUNTER_BATCH_EMPTY,
     COUNTER_BATCH_UNDERFLOW, COUNTER_BATCH_COMPLETE,
     COUNTER_EVENT_DRAIN_ATTEMPT, COUNTER_EVENT_DRAIN_SUCCESS,
-    COUNTER_EVENT_WRITE_FAIL, COUNTER_CHANNEL_READ_FAIL
+    COUNTER_EVENT_WRITE_FAIL, COUNTER_CHANNEL_READ_FAIL,
+    COUNTER_EVENT_SKIPPED
   };
 
+  private final Counter connectionCreated = getCounter(COUNTER_CONNECTION_CREATED);
+  private final Counter connectionClosed = getCounter(COUNTER_CONNECTION_CLOSED);
+  private final Counter connectionFailed = getCounter(COUNTER_CONNECTION_FAILED);
+  private final Counter batchEmpty = getCounter(COUNTER_BATCH_EMPTY);
+  private final Counter batchUnderflow = getCounter(COUNTER_BATCH_UNDERFLOW);
+  private final Counter batchComplete = getCounter(COUNTER_BATCH_COMPLETE);
+  private final Counter eventDrainAttempt = getCounter(COUNTER_EVENT_DRAIN_ATTEMPT);
+  private final Counter eventDrainSuccess = getCounter(COUNTER_EVENT_DRAIN_SUCCESS);
+  private final Counter eventWriteFail = getCounter(COUNTER_EVENT_WRITE_FAIL);
+  private final Counter channelReadFail = getCounter(COUNTER_CHANNEL_READ_FAIL);
+  private final Counter eventSkipped = getCounter(COUNTER_EVENT_SKIPPED);
+
+  private final Histogram batchSize;
+  private final Histogram deliveryLatency;
+  private final Histogram eventAge;
+
   public SinkCounter(String name) {
-    super(MonitoredCounterGroup.Type.SINK, name, ATTRIBUTES);
+    this(name, new String[0]);
   }
 
   public SinkCounter(String name, String[] attributes) {
     super(MonitoredCounterGroup.Type.SINK, name,
         (String[]) ArrayUtils.addAll(attributes,ATTRIBUTES));
+    batchSize = addHistogram(HISTOGRAM_BATCH_SIZE);
+    deliveryLatency = addHistogram(HISTOGRAM_DELIVERY_LATENCY);
+    eventAge = addHistogram(HISTOGRAM_EVENT_AGE);
   }
 
   @Override
   public long getConnectionCreatedCount() {
-    return get(COUNTER_CONNECTION_CREATED);
+    return connectionCreated.get();
   }
 
   public long incrementConnectionCreatedCount() {
-    return increment(COUNTER_CONNECTION_CREATED);
+    connectionCreated.increment();
+    return connectionCreated.get();
   }
 
   @Override
   public long getConnectionClosedCount() {
-    return get(COUNTER_CONNECTION_CLOSED);
+    return connectionClosed.get();
   }
 
   public long incrementConnectionClosedCount() {
-    return increment(COUNTER_CONNECTION_CLOSED);
+    connectionClosed.increment();
+    return connectionClosed.get();
   }
 
   @Override
   public long getConnectionFailedCount() {
-    return get(COUNTER_CONNECTION_FAILED);
+    return connectionFailed.get();
   }
 
   public long incrementConnectionFailedCount() {
-    return increment(COUNTER_CONNECTION_FAILED);
+    connectionFailed.increment();
+    return connectionFailed.get();
   }
 
   @Override
   public long getBatchEmptyCount() {
-    return get(COUNTER_BATCH_EMPTY);
+    return batchEmpty.get();
   }
 
   public long incrementBatchEmptyCount() {
-    return increment(COUNTER_BATCH_EMPTY);
+    recordBatchEmpty();
+    return batchEmpty.get();
+  }
+
+  public void recordBatchEmpty() {
+    batchEmpty.increment();
   }
 
   @Override
   public long getBatchUnderflowCount() {
-    return get(COUNTER_BATCH_UNDERFLOW);
+    return batchUnderflow.get();
   }
 
   public long incrementBatchUnderflowCount() {
-    return increment(COUNTER_BATCH_UNDERFLOW);
+    recordBatchUnderflow();
+    return batchUnderflow.get();
+  }
+
+  public void recordBatchUnderflow() {
+    batchUnderflow.increment();
   }
 
   @Override
   public long getBatchCompleteCount() {
-    return get(COUNTER_BATCH_COMPLETE);
+    return batchComplete.get();
   }
 
   public long incrementBatchCompleteCount() {
-    return increment(COUNTER_BATCH_COMPLETE);
+    recordBatchComplete();
+    return batchComplete.get();
+  }
+
+  public void recordBatchComplete() {
+    batchComplete.increment();
   }
 
   @Override
   public long getEventDrainAttemptCount() {
-    return get(COUNTER_EVENT_DRAIN_ATTEMPT);
+    return eventDrainAttempt.get();
   }
 
   public long incrementEventDrainAttemptCount() {
-    return increment(COUNTER_EVENT_DRAIN_ATTEMPT);
+    recordEventDrainAttempt();
+    return eventDrainAttempt.get();
   }
 
   public long addToEventDrainAttemptCount(long delta) {
-    return addAndGet(COUNTER_EVENT_DRAIN_ATTEMPT, delta);
+    recordEventDrainAttempt(delta);
+    return eventDrainAttempt.get();
+  }
+
+  public void recordEventDrainAttempt() {
+    eventDrainAttempt.increment();
+  }
+
+  public void recordEventDrainAttempt(long delta) {
+    eventDrainAttempt.add(delta);
   }
 
   @Override
   public long getEventDrainSuccessCount() {
-    return get(COUNTER_EVENT_DRAIN_SUCCESS);
+    return eventDrainSuccess.get();
   }
 
   public long incrementEventDrainSuccessCount() {
-    return increment(COUNTER_EVENT_DRAIN_SUCCESS);
+    recordEventDrainSuccess();
+    return eventDrainSuccess.get();
   }
 
   public long addToEventDrainSuccessCount(long delta) {
-    return addAndGet(COUNTER_EVENT_DRAIN_SUCCESS, delta);
+    recordEventDrainSuccess(delta);
+    return eventDrainSuccess.get();
+  }
+
+  public void recordEventDrainSuccess() {
+    eventDrainSuccess.increment();
+  }
+
+  public void recordEventDrainSuccess(long delta) {
+    eventDrainSuccess.add(delta);
+  }
+
+  /**
+   * Records the size of a batch delivered to the destination, and the time
+   * taken to deliver it. Sinks call it once per delivered batch, unlike the
+   * event counters which may be updated several times per batch. The sinks
+   * that record their batches are the RPC sinks, the rolling file, HDFS,
+   * HTTP, Kafka, HBase, Hive, Kudu and Morphline Solr sinks. The sinks that
+   * write the events as they take them from the channel measure the latency
+   * from the beginning of their transaction.
+   *
+   * @param size The number of events in the batch, empty batches are ignored
+   * @param startNanos The {@link System#nanoTime()} the delivery started at
+   */
+  public void recordBatch(long size, long startNanos) {
+    if (size > 0) {
+      batchSize.record(size);
+      deliveryLatency.recordMicrosSince(startNanos);
+    }
+  }
+
+  /**
+   * Records the time elapsed since the event was created, as given by its
+   * timestamp header. Events without a valid timestamp header are ignored.
+   *
+   * @param event The delivered event
+   */
+  public void recordEventAge(Event event) {
+    String timestamp = event.getHeaders().get(TIMESTAMP_HEADER);
+    if (timestamp != null) {
+      try {
+        eventAge.record(System.currentTimeMillis() - Long.parseLong(timestamp));
+      } catch (NumberFormatException e) {
+        // not an epoch timestamp, nothing to record
+      }
+    }
   }
 
   public long incrementEventWriteFail() {
-    return increment(COUNTER_EVENT_WRITE_FAIL);
+    eventWriteFail.increment();
+    return eventWriteFail.get();
   }
 
   @Override
   public long getEventWriteFail() {
-    return get(COUNTER_EVENT_WRITE_FAIL);
+    return eventWriteFail.get();
   }
 
   public long incrementChannelReadFail() {
-    return increment(COUNTER_CHANNEL_READ_FAIL);
+    channelReadFail.increment();
+    return channelReadFail.get();
   }
 
   @Override
   public long getChannelReadFail() {
-    return get(COUNTER_CHANNEL_READ_FAIL);
+    return channelReadFail.get();
+  }
+
+  /**
+   * Counts the events that were taken from the channel and committed without
+   * being delivered, such as the events a sink cannot encode.
+   */
+  public long addToEventSkippedCount(long delta) {
+    eventSkipped.add(delta);
+    return eventSkipped.get();
+  }
+
+  @Override
+  public long getEventSkippedCount() {
+    return eventSkipped.get();
   }
 
   public long incrementEventWriteOrChannelFail(Throwable t) {
@@ -53,4 +53,6 @@ public interface SinkCounterMBean {
 
   long getChannelReadFail();
 
+  long getEventSkippedCount();
+
 }
@@ -51,6 +51,9 @@ public class SourceCounter extends MonitoredCounterGroup implements
   private static final String COUNTER_CHANNEL_WRITE_FAIL =
       "src.channel.write.fail";
 
+  private static final String HISTOGRAM_BATCH_SIZE =
+      "src.batch.size";
+
   private static final String[] ATTRIBUTES = {
     COUNTER_EVENTS_RECEIVED, COUNTER_EVENTS_ACCEPTED,
     COUNTER_APPEND_RECEIVED, COUNTER_APPEND_ACCEPTED,
@@ -59,110 +62,180 @@ public class SourceCounter extends MonitoredCounterGroup implements
     COUNTER_CHANNEL_WRITE_FAIL, COUNTER_GENERIC_PROCESSING_FAIL
   };
 
+  private final Counter eventsReceived = getCounter(COUNTER_EVENTS_RECEIVED);
+  private final Counter eventsAccepted = getCounter(COUNTER_EVENTS_ACCEPTED);
+  private final Counter appendReceived = getCounter(COUNTER_APPEND_RECEIVED);
+  private final Counter appendAccepted = getCounter(COUNTER_APPEND_ACCEPTED);
+  private final Counter appendBatchReceived = getCounter(COUNTER_APPEND_BATCH_RECEIVED);
+  private final Counter appendBatchAccepted = getCounter(COUNTER_APPEND_BATCH_ACCEPTED);
+  private final Counter openConnections = getCounter(COUNTER_OPEN_CONNECTION_COUNT).asGauge();
+  private final Counter eventReadFail = getCounter(COUNTER_EVENT_READ_FAIL);
+  private final Counter genericProcessingFail = getCounter(COUNTER_GENERIC_PROCESSING_FAIL);
+  private final Counter channelWriteFail = getCounter(COUNTER_CHANNEL_WRITE_FAIL);
+
+  private final Histogram batchSize;
+
   public SourceCounter(String name) {
-    super(MonitoredCounterGroup.Type.SOURCE, name, ATTRIBUTES);
+    this(name, new String[0]);
   }
 
   public SourceCounter(String name, String[] attributes) {
     super(Type.SOURCE, name,
         (String[]) ArrayUtils.addAll(attributes,ATTRIBUTES));
+    batchSize = addHistogram(HISTOGRAM_BATCH_SIZE);
   }
 
   @Override
   public long getEventReceivedCount() {
-    return get(COUNTER_EVENTS_RECEIVED);
+    return eventsReceived.get();
   }
 
   public long incrementEventReceivedCount() {
-    return increment(COUNTER_EVENTS_RECEIVED);
+    recordEventReceived();
+    return eventsReceived.get();
   }
 
   public long addToEventReceivedCount(long delta) {
-    return addAndGet(COUNTER_EVENTS_RECEIVED, delta);
+    recordEventReceived(delta);
+    return eventsReceived.get();
+  }
+
+  public void recordEventReceived() {
+    eventsReceived.increment();
+  }
+
+  public void recordEventReceived(long delta) {
+    eventsReceived.add(delta);
   }
 
   @Override
   public long getEventAcceptedCount() {
-    return get(COUNTER_EVENTS_ACCEPTED);
+    return eventsAccepted.get();
   }
 
   public long incrementEventAcceptedCount() {
-    return increment(COUNTER_EVENTS_ACCEPTED);
+    recordEventAccepted();
+    return eventsAccepted.get();
   }
 
   public long addToEventAcceptedCount(long delta) {
-    return addAndGet(COUNTER_EVENTS_ACCEPTED, delta);
+    recordEventAccepted(delta);
+    return eventsAccepted.get();
+  }
+
+  public void recordEventAccepted() {
+    eventsAccepted.increment();
+  }
+
+  public void recordEventAccepted(long delta) {
+    eventsAccepted.add(delta);
+  }
+
+  /**
+   * Records the size of a batch of events written to the channels. Sources
+   * call it once per accepted batch, single events appended on their own are
+   * not recorded.
+   *
+   * @param size The number of events in the batch, empty batches are ignored
+   */
+  public void recordBatch(long size) {
+    if (size > 0) {
+      batchSize.record(size);
+    }
   }
 
   @Override
   public long getAppendReceivedCount() {
-    return get(COUNTER_APPEND_RECEIVED);
+    return appendReceived.get();
   }
 
   public long incrementAppendReceivedCount() {
-    return increment(COUNTER_APPEND_RECEIVED);
+    recordAppendReceived();
+    return appendReceived.get();
+  }
+
+  public void recordAppendReceived() {
+    appendReceived.increment();
   }
 
   @Override
   public long getAppendAcceptedCount() {
-    return get(COUNTER_APPEND_ACCEPTED);
+    return appendAccepted.get();
   }
 
   public long incrementAppendAcceptedCount() {
-    return increment(COUNTER_APPEND_ACCEPTED);
+    recordAppendAccepted();
+    return appendAccepted.get();
+  }
+
+  public void recordAppendAccepted() {
+    appendAccepted.increment();
   }
 
   @Override
   public long getAppendBatchReceivedCount() {
-    return get(COUNTER_APPEND_BATCH_RECEIVED);
+    return appendBatchReceived.get();
   }
 
   public long incrementAppendBatchReceivedCount() {
-    return increment(COUNTER_APPEND_BATCH_RECEIVED);
+    recordAppendBatchReceived();
+    return appendBatchReceived.get();
+  }
+
+  public void recordAppendBatchReceived() {
+    appendBatchReceived.increment();
   }
 
   @Override
   public long getAppendBatchAcceptedCount() {
-    return get(COUNTER_APPEND_BATCH_ACCEPTED);
+    return appendBatchAccepted.get();
   }
 
   public long incrementAppendBatchAcceptedCount() {
-    return increment(COUNTER_APPEND_BATCH_ACCEPTED);
+    recordAppendBatchAccepted();
+    return appendBatchAccepted.get();
+  }
+
+  public void recordAppendBatchAccepted() {
+    appendBatchAccepted.increment();
   }
 
   public long getOpenConnectionCount() {
-    return get(COUNTER_OPEN_CONNECTION_COUNT);
+    return openConnections.get();
   }
 
   public void setOpenConnectionCount(long openConnectionCount) {
-    set(COUNTER_OPEN_CONNECTION_COUNT, openConnectionCount);
+    openConnections.set(openConnectionCount);
   }
 
   public long incrementEventReadFail() {
-    return increment(COUNTER_EVENT_READ_FAIL);
+    eventReadFail.increment();
+    return eventReadFail.get();
   }
 
   @Override
   public long getEventReadFail() {
-    return get(COUNTER_EVENT_READ_FAIL);
+    return eventReadFail.get();
   }
 
   public long incrementChannelWriteFail() {
-    return increment(COUNTER_CHANNEL_WRITE_FAIL);
+    channelWriteFail.increment();
+    return channelWriteFail.get();
   }
 
   @Override
   public long getChannelWriteFail() {
-    return get(COUNTER_CHANNEL_WRITE_FAIL);
+    return channelWriteFail.get();
   }
 
   public long incrementGenericProcessingFail() {
-    return increment(COUNTER_GENERIC_PROCESSING_FAIL);
+    genericProcessingFail.increment();
+    return genericProcessingFail.get();
   }
 
   @Override
   public long getGenericProcessingFail() {
-    return get(COUNTER_GENERIC_PROCESSING_FAIL);
+    return genericProcessingFail.get();
   }
 
   public long incrementEventReadOrChannelFail(Throwable t) {
@@ -21,10 +21,15 @@ package org.apache.flume.instrumentation.http;
 
 import com.google.common.base.Throwables;
 import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.CounterMetricFamily;
 import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.SummaryMetricFamily;
 import io.prometheus.client.exporter.MetricsServlet;
+import org.apache.flume.Context;
+import org.apache.flume.instrumentation.Histogram;
 import org.apache.flume.instrumentation.MonitorService;
+import org.apache.flume.instrumentation.MonitoredCounterGroup;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Server;
@@ -48,34 +53,73 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Monitor service implementation that runs a web server on a configurable
- * port and returns the metrics for components in JSON format. <p> Optional
- * parameters: <p> <tt>port</tt> : The port on which the server should listen
- * to.<p> Returns metrics in the following format: <p>
- *
- * {<p> "componentName1":{"metric1" : "metricValue1","metric2":"metricValue2"}
- * <p> "componentName1":{"metric3" : "metricValue3","metric4":"metricValue4"}
- * <p> }
+ * port and returns the metrics for components in the Prometheus text format
+ * on <tt>/metrics</tt>. <p> Optional parameters: <p> <tt>port</tt> : The port
+ * on which the server should listen to.<p> <tt>agent</tt> : The value of the
+ * agent label of the metrics, the name of the agent by default.<p>
+ * <tt>collector</tt> : <tt>jmx</tt> (default) to poll the component MBeans
+ * through JMX and report them with the metric names of earlier releases, or
+ * <tt>native</tt> to read the counters of the components directly.<p> The
+ * native collector names the metrics after the counter keys of the
+ * components, prefixed with <tt>Flume_</tt> and with the characters other
+ * than letters, digits and underscores replaced by underscores:
+ * <tt>channel.event.put.attempt</tt> is reported as the counter
+ * <tt>Flume_channel_event_put_attempt_total</tt>, the gauge
+ * <tt>channel.current.size</tt> as <tt>Flume_channel_current_size</tt> and
+ * the histogram <tt>sink.delivery.latency.us</tt> as the summary
+ * <tt>Flume_sink_delivery_latency_us</tt>. Every metric has the labels
+ * <tt>agent</tt>, <tt>type</tt> (the component type in lower case) and
+ * <tt>component</tt> (the component name), and only the running components
+ * are reported.<p> The metrics of the Kafka clients are always read from
+ * JMX.
  */
 public class PrometheusHTTPMetricsServer extends HTTPMetricsServer implements MonitorService {
 
+  public static final String CONFIG_AGENT = "agent";
+  public static final String CONFIG_COLLECTOR = "collector";
+  public static final String COLLECTOR_NATIVE = "native";
+  public static final String COLLECTOR_JMX = "jmx";
+
   private static final String PROM_DEFAULT_PREFIX = "Flume_";
+  private static final List<String> NATIVE_LABELS = Arrays.asList("agent", "type", "component");
+  private static final List<Double> HISTOGRAM_QUANTILES = Arrays.asList(0.5, 0.95, 0.99, 0.999);
+  private static final String[] HISTOGRAM_ATTRIBUTES = {"Count", "Sum", "50thPercentile",
+    "95thPercentile", "99thPercentile", "999thPercentile"};
   private Server jettyServer;
   private static Logger LOG = LoggerFactory.getLogger(PrometheusHTTPMetricsServer.class);
   private static MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
 
   private FlumePrometheusCollector requests;
+  private String agent;
+  private boolean nativeCollector;
+
+  @Override
+  public void configure(Context context) {
+    super.configure(context);
+    agent = context.getString(CONFIG_AGENT, "");
+    String collector = context.getString(CONFIG_COLLECTOR, COLLECTOR_JMX);
+    if (!COLLECTOR_NATIVE.equalsIgnoreCase(collector)
+        && !COLLECTOR_JMX.equalsIgnoreCase(collector)) {
+      throw new IllegalArgumentException("Unknown Prometheus collector " + collector);
+    }
+    nativeCollector = COLLECTOR_NATIVE.equalsIgnoreCase(collector);
+  }
 
   @Override
   public void start() {
 
-    requests = new FlumePrometheusCollector().register();
+    requests = new FlumePrometheusCollector(nativeCollector).register();
 
     jettyServer = new Server();
     //We can use Contexts etc if we have many urls to handle. For one url,
@@ -103,6 +147,14 @@ public class PrometheusHTTPMetricsServer extends HTTPMetricsServer implements Mo
 
   class FlumePrometheusCollector extends Collector {
 
+    private final boolean nativeFlumeMetrics;
+    // Prometheus names of the counters, by key
+    private final Map<String, String> metricNames = new ConcurrentHashMap<>();
+
+    FlumePrometheusCollector(boolean nativeFlumeMetrics) {
+      this.nativeFlumeMetrics = nativeFlumeMetrics;
+    }
+
     public List<MetricFamilySamples> collect() {
 
       Map<Object, Map<String, MetricFamilySamples>> counterMetricMap = new HashMap<>();
@@ -110,11 +162,26 @@ public class PrometheusHTTPMetricsServer extends HTTPMetricsServer implements Mo
 
       Set<ObjectInstance> queryMBeans;
       try {
-        queryMBeans = mbeanServer.queryMBeans(null, null);
+        if (nativeFlumeMetrics) {
+          collectFlumeMetrics(mfs);
+          // only the Kafka clients metrics still come from JMX
+          queryMBeans = new HashSet<>();
+          queryMBeans.addAll(mbeanServer.queryMBeans(new ObjectName("kafka.consumer:*"), null));
+          queryMBeans.addAll(mbeanServer.queryMBeans(new ObjectName("kafka.producer:*"), null));
+        } else {
+          queryMBeans = mbeanServer.queryMBeans(null, null);
+        }
 
         for (ObjectInstance obj : queryMBeans) {
           try {
-            if (obj.getObjectName().toString().startsWith("org.apache.flume")) {
+            if (nativeFlumeMetrics) {
+              if (obj.getObjectName().toString().contains("metrics")) {
+                processKafkaMetric(counterMetricMap, mfs, obj);
+              }
+            } else if (obj.getObjectName().toString().startsWith("org.apache.flume")
+                && obj.getObjectName().getKeyProperty("histogram") != null) {
+              processFlumeHistogram(counterMetricMap, mfs, obj);
+            } else if (obj.getObjectName().toString().startsWith("org.apache.flume")) {
               processFlumeMetric(counterMetricMap, mfs, obj);
             } else if ((obj.getObjectName().toString().startsWith("kafka.consumer") ||
                         obj.getObjectName().toString().startsWith("kafka.producer"))
@@ -192,6 +259,94 @@ public class PrometheusHTTPMetricsServer extends HTTPMetricsServer implements Mo
       }
     }
 
+    /**
+     * Reads the counter groups of the components directly, without going
+     * through JMX.
+     */
+    private void collectFlumeMetrics(List<MetricFamilySamples> mfs) {
+      Map<String, MetricFamilySamples> families = new LinkedHashMap<>();
+      for (MonitoredCounterGroup group : MonitoredCounterGroup.getRegisteredGroups()) {
+        List<String> labels = Arrays.asList(agent,
+            group.getType().toLowerCase(Locale.ENGLISH), group.getName());
+
+        for (Map.Entry<String, MonitoredCounterGroup.Counter> entry
+            : group.getCounters().entrySet()) {
+          MonitoredCounterGroup.Counter counter = entry.getValue();
+          String metricName = metricName(entry.getKey());
+          MetricFamilySamples family = families.get(metricName);
+          if (family == null) {
+            family = counter.isGauge()
+                ? new GaugeMetricFamily(metricName, entry.getKey(), NATIVE_LABELS)
+                : new CounterMetricFamily(metricName, entry.getKey(), NATIVE_LABELS);
+            families.put(metricName, family);
+          }
+          if (family instanceof GaugeMetricFamily) {
+            ((GaugeMetricFamily) family).addMetric(labels, counter.get());
+          } else {
+            ((CounterMetricFamily) family).addMetric(labels, counter.get());
+          }
+        }
+
+        for (Histogram histogram : group.getHistograms()) {
+          String metricName = metricName(histogram.getName());
+          MetricFamilySamples family = families.get(metricName);
+          if (family == null) {
+            family = new SummaryMetricFamily(metricName, histogram.getName(),
+                NATIVE_LABELS, HISTOGRAM_QUANTILES);
+            families.put(metricName, family);
+          }
+          List<Double> quantiles = new ArrayList<>();
+          for (Double quantile : HISTOGRAM_QUANTILES) {
+            quantiles.add((double) histogram.getPercentile(quantile * 100));
+          }
+          ((SummaryMetricFamily) family).addMetric(labels, histogram.getCount(),
+              histogram.getSum(), quantiles);
+        }
+      }
+      mfs.addAll(families.values());
+    }
+
+    private String metricName(String key) {
+      String metricName = metricNames.get(key);
+      if (metricName == null) {
+        metricName = PROM_DEFAULT_PREFIX + key.replaceAll("[^a-zA-Z0-9_]", "_");
+        metricNames.put(key, metricName);
+      }
+      return metricName;
+    }
+
+    private void processFlumeHistogram(
+        Map<Object, Map<String, MetricFamilySamples>> counterMetricMap,
+        List<MetricFamilySamples> mfs, ObjectInstance obj)
+        throws InstanceNotFoundException, ReflectionException {
+      String summaryName = PROM_DEFAULT_PREFIX
+          + obj.getObjectName().getKeyProperty("histogram").replaceAll("[.\\-]", "_");
+      Map<String, MetricFamilySamples> metricsMap = counterMetricMap.get(summaryName);
+      if (metricsMap == null) {
+        metricsMap = new HashMap<>();
+        SummaryMetricFamily summary = new SummaryMetricFamily(summaryName, summaryName,
+            Arrays.asList("component"), HISTOGRAM_QUANTILES);
+        metricsMap.put(summaryName, summary);
+        mfs.add(summary);
+        counterMetricMap.put(summaryName, metricsMap);
+      }
+
+      AttributeList attrList = mbeanServer.getAttributes(obj.getObjectName(),
+          HISTOGRAM_ATTRIBUTES);
+      Map<String, Double> values = new HashMap<>();
+      for (Object attr : attrList) {
+        Attribute localAttr = (Attribute) attr;
+        values.put(localAttr.getName(), Double.valueOf(localAttr.getValue().toString()));
+      }
+      List<Double> quantiles = new ArrayList<>();
+      for (int i = 2; i < HISTOGRAM_ATTRIBUTES.length; i++) {
+        quantiles.add(values.get(HISTOGRAM_ATTRIBUTES[i]));
+      }
+      ((SummaryMetricFamily) metricsMap.get(summaryName)).addMetric(
+          Arrays.asList(obj.getObjectName().getKeyProperty("type")),
+          values.get("Count"), values.get("Sum"), quantiles);
+    }
+
     private void processKafkaMetric(Map<Object, Map<String, MetricFamilySamples>> counterMetricMap,
                                 List<MetricFamilySamples> mfs, ObjectInstance obj)
         throws InstanceNotFoundException, IntrospectionException, ReflectionException {
@@ -283,6 +438,7 @@ public class PrometheusHTTPMetricsServer extends HTTPMetricsServer implements Mo
 
   @Override
   public void stop() {
+    CollectorRegistry.defaultRegistry.unregister(requests);
     try {
       jettyServer.stop();
       jettyServer.join();
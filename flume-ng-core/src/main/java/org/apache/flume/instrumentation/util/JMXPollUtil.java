@@ -21,6 +21,7 @@ package org.apache.flume.instrumentation.util;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import java.lang.management.ManagementFactory;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import javax.management.Attribute;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 public class JMXPollUtil {
 
   private static Logger LOG = LoggerFactory.getLogger(JMXPollUtil.class);
+  private static final String DOMAIN_PREFIX = "org.apache.flume.";
   private static MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
 
   public static Map<String, Map<String, String>> getAllMBeans() {
@@ -59,8 +61,19 @@ public class JMXPollUtil {
           strAtts[i] = attrs[i].getName();
         }
         AttributeList attrList = mbeanServer.getAttributes(obj.getObjectName(), strAtts);
-        String component = obj.getObjectName().toString().substring(
-            obj.getObjectName().toString().indexOf('=') + 1);
+        String histogram = obj.getObjectName().getKeyProperty("histogram");
+        String component;
+        String attrPrefix;
+        if (histogram != null) {
+          // histograms are reported along with the counters of their component
+          component = obj.getObjectName().getDomain().substring(DOMAIN_PREFIX.length())
+              .toUpperCase(Locale.ENGLISH) + "." + obj.getObjectName().getKeyProperty("type");
+          attrPrefix = histogram + ".";
+        } else {
+          component = obj.getObjectName().toString().substring(
+              obj.getObjectName().toString().indexOf('=') + 1);
+          attrPrefix = "";
+        }
         Map<String, String> attrMap = Maps.newHashMap();
 
         for (Object attr : attrList) {
@@ -68,9 +81,14 @@ public class JMXPollUtil {
           if (localAttr.getName().equalsIgnoreCase("type")) {
             component = localAttr.getValue() + "." + component;
           }
-          attrMap.put(localAttr.getName(), localAttr.getValue().toString());
+          attrMap.put(attrPrefix + localAttr.getName(), localAttr.getValue().toString());
+        }
+        Map<String, String> componentMap = mbeanMap.get(component);
+        if (componentMap == null) {
+          mbeanMap.put(component, attrMap);
+        } else {
+          componentMap.putAll(attrMap);
         }
-        mbeanMap.put(component, attrMap);
       } catch (Exception e) {
         LOG.error("Unable to poll JMX for metrics.", e);
       }
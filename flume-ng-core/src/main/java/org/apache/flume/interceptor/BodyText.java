@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.interceptor;
+
+import java.nio.charset.Charset;
+
+import com.google.common.base.Charsets;
+
+/**
+ * The body of an event seen as text by the regex interceptors. Bodies made
+ * of ASCII bytes, and any body in ISO-8859-1, are not decoded: they are
+ * matched through a view of their bytes, which the JDK regex engine reads
+ * like a String.
+ */
+final class BodyText {
+
+  private BodyText() {
+  }
+
+  /**
+   * @return the body as text, a view of its bytes if they decode to the same
+   * chars in the given charset, a decoded String otherwise.
+   */
+  static CharSequence of(byte[] body, Charset charset) {
+    if (charset.equals(Charsets.ISO_8859_1)
+        || ((charset.equals(Charsets.UTF_8) || charset.equals(Charsets.US_ASCII))
+            && isAscii(body))) {
+      return new ByteView(body, 0, body.length);
+    }
+    return new String(body, charset);
+  }
+
+  /**
+   * @return a view of the bytes of the body, one char per byte. Only text
+   * made of ASCII chars can be found the same way in this view and in the
+   * decoded body.
+   */
+  static CharSequence bytes(byte[] body) {
+    return new ByteView(body, 0, body.length);
+  }
+
+  static boolean isAscii(byte[] body) {
+    for (byte b : body) {
+      if (b < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the bytes of text returned by {@link #of(byte[], Charset)} or
+   * built from it.
+   */
+  static byte[] toBytes(CharSequence text, Charset charset) {
+    if (text instanceof ByteView) {
+      return ((ByteView) text).toByteArray();
+    }
+    return text.toString().getBytes(charset);
+  }
+
+  private static final class ByteView implements CharSequence {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    ByteView(byte[] bytes, int offset, int length) {
+      this.bytes = bytes;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes[offset + index] & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new ByteView(bytes, offset + start, end - start);
+    }
+
+    byte[] toByteArray() {
+      if (offset == 0 && length == bytes.length) {
+        return bytes;
+      }
+      byte[] copy = new byte[length];
+      System.arraycopy(bytes, offset, copy, 0, length);
+      return copy;
+    }
+
+    @Override
+    public String toString() {
+      return new String(bytes, offset, length, Charsets.ISO_8859_1);
+    }
+  }
+}
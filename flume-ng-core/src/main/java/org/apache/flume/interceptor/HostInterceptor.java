@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +61,7 @@ import static org.apache.flume.interceptor.HostInterceptor.Constants.*;
  * </code>
  *
  */
+@ThreadSafe
 public class HostInterceptor implements Interceptor {
 
   private static final Logger logger = LoggerFactory
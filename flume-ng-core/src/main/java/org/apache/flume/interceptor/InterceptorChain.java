@@ -19,20 +19,33 @@
 package org.apache.flume.interceptor;
 
 import com.google.common.base.Preconditions;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import com.google.common.collect.Lists;
 
 /**
  * Implementation of Interceptor that calls a list of other Interceptors
  * serially.
+ * <p>
+ * When a parallel chunk size is set, batches larger than a chunk are split in
+ * chunks of that size, and each run of consecutive interceptors annotated
+ * {@link ThreadSafe} processes the chunks concurrently on a pool shared by
+ * all the chains of the agent. The other interceptors still see the whole
+ * batch on the calling thread, and the order of the events is preserved.
  */
 public class InterceptorChain implements Interceptor {
 
   // list of interceptors that will be traversed, in order
   private List<Interceptor> interceptors;
+  // batches are split in chunks of this size, 0 if they are not
+  private int parallelChunkSize;
 
   public InterceptorChain() {
     interceptors = Lists.newLinkedList();
@@ -42,6 +55,16 @@ public class InterceptorChain implements Interceptor {
     this.interceptors = interceptors;
   }
 
+  /**
+   * Sets the size of the chunks the batches are split in to run the thread
+   * safe interceptors in parallel, 0 to run them serially.
+   */
+  public void setParallelChunkSize(int parallelChunkSize) {
+    Preconditions.checkArgument(parallelChunkSize >= 0,
+        "Parallel chunk size must not be negative: %s", parallelChunkSize);
+    this.parallelChunkSize = parallelChunkSize;
+  }
+
   @Override
   public Event intercept(Event event) {
     for (Interceptor interceptor : interceptors) {
@@ -55,6 +78,34 @@ public class InterceptorChain implements Interceptor {
 
   @Override
   public List<Event> intercept(List<Event> events) {
+    if (parallelChunkSize == 0 || events.size() <= parallelChunkSize) {
+      return interceptSerially(interceptors, events);
+    }
+    List<Interceptor> threadSafe = new ArrayList<Interceptor>();
+    for (Interceptor interceptor : interceptors) {
+      if (isThreadSafe(interceptor)) {
+        threadSafe.add(interceptor);
+        continue;
+      }
+      if (!threadSafe.isEmpty()) {
+        events = interceptInParallel(threadSafe, events);
+        threadSafe.clear();
+      }
+      if (events.isEmpty()) {
+        return events;
+      }
+      events = interceptor.intercept(events);
+      Preconditions.checkNotNull(events,
+          "Event list returned null from interceptor %s", interceptor);
+    }
+    if (!threadSafe.isEmpty()) {
+      events = interceptInParallel(threadSafe, events);
+    }
+    return events;
+  }
+
+  private static List<Event> interceptSerially(List<Interceptor> interceptors,
+                                               List<Event> events) {
     for (Interceptor interceptor : interceptors) {
       if (events.isEmpty()) {
         return events;
@@ -66,6 +117,38 @@ public class InterceptorChain implements Interceptor {
     return events;
   }
 
+  private List<Event> interceptInParallel(List<Interceptor> threadSafe, List<Event> events) {
+    if (events.size() <= parallelChunkSize) {
+      return interceptSerially(threadSafe, events);
+    }
+    final List<Interceptor> chunkInterceptors = new ArrayList<Interceptor>(threadSafe);
+    int size = events.size();
+    // Chunks are copied, the interceptors may modify the lists they are given
+    List<ForkJoinTask<List<Event>>> tasks = new ArrayList<ForkJoinTask<List<Event>>>();
+    for (int from = parallelChunkSize; from < size; from += parallelChunkSize) {
+      final List<Event> chunk = new ArrayList<Event>(
+          events.subList(from, Math.min(from + parallelChunkSize, size)));
+      tasks.add(PoolHolder.POOL.submit(() -> interceptSerially(chunkInterceptors, chunk)));
+    }
+    try {
+      List<Event> out = new ArrayList<Event>(size);
+      out.addAll(interceptSerially(chunkInterceptors,
+          new ArrayList<Event>(events.subList(0, parallelChunkSize))));
+      for (ForkJoinTask<List<Event>> task : tasks) {
+        out.addAll(task.join());
+      }
+      return out;
+    } finally {
+      for (ForkJoinTask<List<Event>> task : tasks) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  static boolean isThreadSafe(Interceptor interceptor) {
+    return interceptor.getClass().isAnnotationPresent(ThreadSafe.class);
+  }
+
   @Override
   public void initialize() {
     Iterator<Interceptor> iter = interceptors.iterator();
@@ -84,4 +167,17 @@ public class InterceptorChain implements Interceptor {
     }
   }
 
+  private static class PoolHolder {
+    // Created on first use, its daemon threads exit once idle
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(),
+        pool -> {
+          ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("interceptor-chain-" + thread.getPoolIndex());
+          return thread;
+        },
+        null, false);
+  }
+
 }
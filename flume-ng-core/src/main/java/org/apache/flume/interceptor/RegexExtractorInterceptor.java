@@ -25,6 +25,7 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang.StringUtils;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -97,6 +98,7 @@ import com.google.common.collect.Lists;
  * body: 1:2:3.4foobar5 headers: one=>1, two=>2
  * </pre>
  */
+@ThreadSafe
 public class RegexExtractorInterceptor implements Interceptor {
 
   static final String REGEX = "regex";
@@ -105,12 +107,12 @@ public class RegexExtractorInterceptor implements Interceptor {
   private static final Logger logger = LoggerFactory
       .getLogger(RegexExtractorInterceptor.class);
 
-  private final Pattern regex;
+  private final ReusableMatcher regex;
   private final List<NameAndSerializer> serializers;
 
   private RegexExtractorInterceptor(Pattern regex,
       List<NameAndSerializer> serializers) {
-    this.regex = regex;
+    this.regex = new ReusableMatcher(regex);
     this.serializers = serializers;
   }
 
@@ -126,28 +128,7 @@ public class RegexExtractorInterceptor implements Interceptor {
 
   @Override
   public Event intercept(Event event) {
-    Matcher matcher = regex.matcher(
-        new String(event.getBody(), Charsets.UTF_8));
-    Map<String, String> headers = event.getHeaders();
-    if (matcher.find()) {
-      for (int group = 0, count = matcher.groupCount(); group < count; group++) {
-        int groupIndex = group + 1;
-        if (groupIndex > serializers.size()) {
-          if (logger.isDebugEnabled()) {
-            logger.debug("Skipping group {} to {} due to missing serializer",
-                group, count);
-          }
-          break;
-        }
-        NameAndSerializer serializer = serializers.get(group);
-        if (logger.isDebugEnabled()) {
-          logger.debug("Serializing {} using {}", serializer.headerName,
-              serializer.serializer);
-        }
-        headers.put(serializer.headerName,
-            serializer.serializer.serialize(matcher.group(groupIndex)));
-      }
-    }
+    extract(BodyText.of(event.getBody(), Charsets.UTF_8), event.getHeaders());
     return event;
   }
 
@@ -163,6 +144,36 @@ public class RegexExtractorInterceptor implements Interceptor {
     return intercepted;
   }
 
+  /**
+   * Adds the groups matched in the given text to the headers.
+   */
+  void extract(CharSequence text, Map<String, String> headers) {
+    Matcher matcher = regex.reset(text);
+    try {
+      if (matcher.find()) {
+        for (int group = 0, count = matcher.groupCount(); group < count; group++) {
+          int groupIndex = group + 1;
+          if (groupIndex > serializers.size()) {
+            if (logger.isDebugEnabled()) {
+              logger.debug("Skipping group {} to {} due to missing serializer",
+                  group, count);
+            }
+            break;
+          }
+          NameAndSerializer serializer = serializers.get(group);
+          if (logger.isDebugEnabled()) {
+            logger.debug("Serializing {} using {}", serializer.headerName,
+                serializer.serializer);
+          }
+          headers.put(serializer.headerName,
+              serializer.serializer.serialize(matcher.group(groupIndex)));
+        }
+      }
+    } finally {
+      regex.release(matcher);
+    }
+  }
+
   public static class Builder implements Interceptor.Builder {
 
     private Pattern regex;
@@ -22,7 +22,9 @@ import org.apache.flume.conf.ConfigurableComponent;
 
 /**
  * Serializer for serializing groups matched by the
- * {@link RegexExtractorInterceptor}
+ * {@link RegexExtractorInterceptor}. As the interceptor may run on several
+ * threads at once, see {@link org.apache.flume.annotations.ThreadSafe},
+ * implementations must be thread safe.
  */
 public interface RegexExtractorInterceptorSerializer extends Configurable,
     ConfigurableComponent {
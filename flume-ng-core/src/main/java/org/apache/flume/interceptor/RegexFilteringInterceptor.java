@@ -24,13 +24,16 @@ import static org.apache.flume.interceptor.RegexFilteringInterceptor.Constants.E
 import static org.apache.flume.interceptor.RegexFilteringInterceptor.Constants.REGEX;
 
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 
 /**
@@ -47,7 +50,8 @@ import com.google.common.collect.Lists;
  * will pass through.
  *
  * Note that all regular expression matching occurs through Java's built in
- * java.util.regex package.
+ * java.util.regex package. The body is matched as UTF-8 text, it is only
+ * decoded if it is not ASCII and the regex is not a plain ASCII string.
  *
  * Properties:<p>
  *
@@ -69,19 +73,20 @@ import com.google.common.collect.Lists;
  * </code>
  *
  */
+@ThreadSafe
 public class RegexFilteringInterceptor implements Interceptor {
 
   private static final Logger logger = LoggerFactory
       .getLogger(RegexFilteringInterceptor.class);
 
-  private final Pattern regex;
+  private final ReusableMatcher regex;
   private final boolean excludeEvents;
 
   /**
    * Only {@link RegexFilteringInterceptor.Builder} can build me
    */
   private RegexFilteringInterceptor(Pattern regex, boolean excludeEvents) {
-    this.regex = regex;
+    this.regex = new ReusableMatcher(regex);
     this.excludeEvents = excludeEvents;
   }
 
@@ -97,22 +102,10 @@ public class RegexFilteringInterceptor implements Interceptor {
    * otherwise.
    */
   public Event intercept(Event event) {
-    // We've already ensured here that at most one of includeRegex and
-    // excludeRegex are defined.
-
-    if (!excludeEvents) {
-      if (regex.matcher(new String(event.getBody())).find()) {
-        return event;
-      } else {
-        return null;
-      }
-    } else {
-      if (regex.matcher(new String(event.getBody())).find()) {
-        return null;
-      } else {
-        return event;
-      }
-    }
+    byte[] body = event.getBody();
+    CharSequence text = regex.isAsciiLiteral()
+        ? BodyText.bytes(body) : BodyText.of(body, Charsets.UTF_8);
+    return accepts(text) ? event : null;
   }
 
   /**
@@ -123,7 +116,7 @@ public class RegexFilteringInterceptor implements Interceptor {
    */
   @Override
   public List<Event> intercept(List<Event> events) {
-    List<Event> out = Lists.newArrayList();
+    List<Event> out = Lists.newArrayListWithCapacity(events.size());
     for (Event event : events) {
       Event outEvent = intercept(event);
       if (outEvent != null) {
@@ -133,6 +126,18 @@ public class RegexFilteringInterceptor implements Interceptor {
     return out;
   }
 
+  /**
+   * Returns true if an event whose body is the given text passes the filter.
+   */
+  boolean accepts(CharSequence text) {
+    Matcher matcher = regex.reset(text);
+    try {
+      return matcher.find() != excludeEvents;
+    } finally {
+      regex.release(matcher);
+    }
+  }
+
   @Override
   public void close() {
     // no-op
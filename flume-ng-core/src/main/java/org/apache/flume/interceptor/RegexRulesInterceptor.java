@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.interceptor;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * <p>
+ * Interceptor that applies several regex filter, extractor and search and
+ * replace rules to the body of every event. The body is turned into text
+ * once for all the rules, without decoding it if it is ASCII, and is only
+ * encoded again if a rule replaced part of it.
+ * <p>
+ * Rules are applied in order, a rule sees the replacements made by the rules
+ * before it and a filter rule that drops an event skips the rules after it.
+ * A rule takes the same properties as the interceptor of its type, bodies
+ * are UTF-8 text.
+ * <p>
+ * Usage:
+ * <pre>
+ *   agent.source-1.interceptors.rules.type = regex_rules
+ *   agent.source-1.interceptors.rules.rules = no-debug user mask
+ *   agent.source-1.interceptors.rules.rules.no-debug.type = regex_filter
+ *   agent.source-1.interceptors.rules.rules.no-debug.regex = ^DEBUG
+ *   agent.source-1.interceptors.rules.rules.no-debug.excludeEvents = true
+ *   agent.source-1.interceptors.rules.rules.user.type = regex_extractor
+ *   agent.source-1.interceptors.rules.rules.user.regex = user=(\\w+)
+ *   agent.source-1.interceptors.rules.rules.user.serializers = s1
+ *   agent.source-1.interceptors.rules.rules.user.serializers.s1.name = user
+ *   agent.source-1.interceptors.rules.rules.mask.type = search_replace
+ *   agent.source-1.interceptors.rules.rules.mask.searchPattern = password=\\S+
+ *   agent.source-1.interceptors.rules.rules.mask.replaceString = password=***
+ * </pre>
+ */
+@ThreadSafe
+public class RegexRulesInterceptor implements Interceptor {
+
+  static final String RULES = "rules";
+
+  private final List<Interceptor> rules;
+
+  private RegexRulesInterceptor(List<Interceptor> rules) {
+    this.rules = rules;
+  }
+
+  @Override
+  public void initialize() {
+    for (Interceptor rule : rules) {
+      rule.initialize();
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Interceptor rule : rules) {
+      rule.close();
+    }
+  }
+
+  @Override
+  public Event intercept(Event event) {
+    CharSequence origText = BodyText.of(event.getBody(), Charsets.UTF_8);
+    CharSequence text = origText;
+    for (Interceptor rule : rules) {
+      if (rule instanceof RegexFilteringInterceptor) {
+        if (!((RegexFilteringInterceptor) rule).accepts(text)) {
+          return null;
+        }
+      } else if (rule instanceof RegexExtractorInterceptor) {
+        ((RegexExtractorInterceptor) rule).extract(text, event.getHeaders());
+      } else {
+        text = ((SearchAndReplaceInterceptor) rule).replace(text);
+      }
+    }
+    if (text != origText) {
+      event.setBody(BodyText.toBytes(text, Charsets.UTF_8));
+    }
+    return event;
+  }
+
+  @Override
+  public List<Event> intercept(List<Event> events) {
+    List<Event> intercepted = Lists.newArrayListWithCapacity(events.size());
+    for (Event event : events) {
+      Event interceptedEvent = intercept(event);
+      if (interceptedEvent != null) {
+        intercepted.add(interceptedEvent);
+      }
+    }
+    return intercepted;
+  }
+
+  public static class Builder implements Interceptor.Builder {
+
+    private List<Interceptor> rules;
+
+    @Override
+    public void configure(Context context) {
+      String ruleListStr = context.getString(RULES);
+      Preconditions.checkArgument(!StringUtils.isEmpty(ruleListStr),
+          "Must supply at least one rule");
+
+      Context ruleContexts = new Context(context.getSubProperties(RULES + "."));
+      rules = Lists.newArrayList();
+      for (String ruleName : ruleListStr.trim().split("\\s+")) {
+        Context ruleContext = new Context(ruleContexts.getSubProperties(ruleName + "."));
+        String type = ruleContext.getString("type");
+        Preconditions.checkArgument(!StringUtils.isEmpty(type),
+            "Type not specified for rule " + ruleName);
+        InterceptorType ruleType;
+        try {
+          ruleType = InterceptorType.valueOf(type.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+          ruleType = null;
+        }
+        Preconditions.checkArgument(ruleType == InterceptorType.REGEX_FILTER
+            || ruleType == InterceptorType.REGEX_EXTRACTOR
+            || ruleType == InterceptorType.SEARCH_REPLACE,
+            "Rule " + ruleName + " must be of type regex_filter, regex_extractor"
+            + " or search_replace, not " + type);
+
+        Interceptor.Builder builder;
+        try {
+          builder = ruleType.getBuilderClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+          throw new IllegalStateException("Cannot instantiate builder of " + ruleType, e);
+        }
+        builder.configure(ruleContext);
+        Interceptor rule = builder.build();
+        if (rule instanceof SearchAndReplaceInterceptor) {
+          Preconditions.checkArgument(
+              ((SearchAndReplaceInterceptor) rule).getCharset().equals(Charsets.UTF_8),
+              "Rule " + ruleName + " must use the UTF-8 charset");
+        }
+        rules.add(rule);
+      }
+    }
+
+    @Override
+    public Interceptor build() {
+      Preconditions.checkArgument(rules != null && !rules.isEmpty(),
+          "Must supply at least one rule");
+      return new RegexRulesInterceptor(rules);
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.flume.interceptor;
 
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.apache.flume.conf.LogPrivacyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +52,7 @@ import java.util.regex.Pattern;
  * - .matching (optional): All the headers which names match this regular expression are
  * removed
  */
+@ThreadSafe
 public class RemoveHeaderInterceptor implements Interceptor {
   static final String WITH_NAME = "withName";
   static final String FROM_LIST = "fromList";
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.interceptor;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out one {@link Matcher} of a pattern per thread, reset for every
+ * input instead of being allocated for every event.
+ */
+final class ReusableMatcher {
+
+  private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+  private final Pattern pattern;
+  private final boolean asciiLiteral;
+  private final ThreadLocal<Matcher> matchers;
+
+  ReusableMatcher(Pattern pattern) {
+    this.pattern = pattern;
+    this.asciiLiteral = pattern.flags() == 0 && isAsciiLiteralRegex(pattern.pattern());
+    this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+  }
+
+  private static boolean isAsciiLiteralRegex(String regex) {
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c >= 0x80 || METACHARACTERS.indexOf(c) >= 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  Pattern pattern() {
+    return pattern;
+  }
+
+  /**
+   * @return true if the pattern only matches its own ASCII text. It is found
+   * at the same places in a UTF-8 body and in the view of its bytes, as the
+   * bytes of multi-byte UTF-8 chars are never ASCII.
+   */
+  boolean isAsciiLiteral() {
+    return asciiLiteral;
+  }
+
+  /**
+   * @return the matcher of the calling thread, reset to the given input. It
+   * must be given back to {@link #release(Matcher)} once done with.
+   */
+  Matcher reset(CharSequence input) {
+    return matchers.get().reset(input);
+  }
+
+  /**
+   * Resets a matcher returned by {@link #reset(CharSequence)} to an empty
+   * input, so that it does not keep the last body reachable.
+   */
+  void release(Matcher matcher) {
+    matcher.reset("");
+  }
+
+  @Override
+  public String toString() {
+    return pattern.toString();
+  }
+}
@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 import org.apache.commons.lang.StringUtils;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,21 +45,23 @@ import java.util.regex.Pattern;
  * <p>
  * Any regular expression search pattern and replacement pattern that can be
  * used with {@link java.util.regex.Matcher#replaceAll(String)} may be used,
- * including backtracking and grouping.
+ * including backtracking and grouping. ASCII bodies are matched without being
+ * decoded, and bodies without a match are left untouched.
  */
+@ThreadSafe
 public class SearchAndReplaceInterceptor implements Interceptor {
 
   private static final Logger logger = LoggerFactory
       .getLogger(SearchAndReplaceInterceptor.class);
 
-  private final Pattern searchPattern;
+  private final ReusableMatcher searchPattern;
   private final String replaceString;
   private final Charset charset;
 
   private SearchAndReplaceInterceptor(Pattern searchPattern,
                                       String replaceString,
                                       Charset charset) {
-    this.searchPattern = searchPattern;
+    this.searchPattern = new ReusableMatcher(searchPattern);
     this.replaceString = replaceString;
     this.charset = charset;
   }
@@ -73,10 +76,11 @@ public class SearchAndReplaceInterceptor implements Interceptor {
 
   @Override
   public Event intercept(Event event) {
-    String origBody = new String(event.getBody(), charset);
-    Matcher matcher = searchPattern.matcher(origBody);
-    String newBody = matcher.replaceAll(replaceString);
-    event.setBody(newBody.getBytes(charset));
+    CharSequence origBody = BodyText.of(event.getBody(), charset);
+    CharSequence newBody = replace(origBody);
+    if (newBody != origBody) {
+      event.setBody(BodyText.toBytes(newBody, charset));
+    }
     return event;
   }
 
@@ -88,6 +92,32 @@ public class SearchAndReplaceInterceptor implements Interceptor {
     return events;
   }
 
+  /**
+   * Replaces the matches of the search pattern in the given text.
+   *
+   * @return the text itself if there is no match.
+   */
+  CharSequence replace(CharSequence text) {
+    Matcher matcher = searchPattern.reset(text);
+    try {
+      if (!matcher.find()) {
+        return text;
+      }
+      StringBuffer newText = new StringBuffer(text.length() + 16);
+      do {
+        matcher.appendReplacement(newText, replaceString);
+      } while (matcher.find());
+      matcher.appendTail(newText);
+      return newText.toString();
+    } finally {
+      searchPattern.release(matcher);
+    }
+  }
+
+  Charset getCharset() {
+    return charset;
+  }
+
   public static class Builder implements Interceptor.Builder {
     private static final String SEARCH_PAT_KEY = "searchPattern";
     private static final String REPLACE_STRING_KEY = "replaceString";
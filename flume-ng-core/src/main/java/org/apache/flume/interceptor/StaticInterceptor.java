@@ -23,6 +23,7 @@ import java.util.Map;
 
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +54,7 @@ import org.slf4j.LoggerFactory;
  * </code>
  *
  */
+@ThreadSafe
 public class StaticInterceptor implements Interceptor {
 
   private static final Logger logger = LoggerFactory.getLogger(StaticInterceptor.class);
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 
 import static org.apache.flume.interceptor.TimestampInterceptor.Constants.*;
 
@@ -33,6 +34,7 @@ import static org.apache.flume.interceptor.TimestampInterceptor.Constants.*;
  * The name of the header can be changed through the configuration using the
  * config key "header".
  */
+@ThreadSafe
 public class TimestampInterceptor implements Interceptor {
 
   private final boolean preserveExisting;
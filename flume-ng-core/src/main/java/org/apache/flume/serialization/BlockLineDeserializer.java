@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.serialization;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.annotations.InterfaceAudience;
+import org.apache.flume.annotations.InterfaceStability;
+import org.apache.flume.event.EventBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A deserializer that parses text lines from a file like {@link LineDeserializer}, but reads
+ * the file in blocks and looks for line endings at the byte level instead of decoding it one
+ * character at a time. Lines made of ASCII characters only are copied to the event body
+ * without decoding at all.
+ * <p>
+ * This only works for files in an ASCII compatible charset where the newline byte cannot be
+ * part of a multi-byte sequence, i.e. UTF-8 or US-ASCII, read through a
+ * {@link ResettableFileInputStream}. For any other input the builder falls back to a
+ * {@link LineDeserializer}. Lines are split and truncated exactly like
+ * {@link LineDeserializer} does.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class BlockLineDeserializer implements EventDeserializer {
+
+  private static final Logger logger = LoggerFactory.getLogger(BlockLineDeserializer.class);
+
+  private static final byte NEWLINE = '\n';
+
+  public static final String BLOCK_SIZE_KEY = "blockSize";
+  public static final int BLOCK_SIZE_DFLT = 65536;
+
+  private final ResettableFileInputStream in;
+  private final Charset outputCharset;
+  private final boolean asciiOutput;
+  private final int maxLineLength;
+  private final CharsetDecoder decoder;
+  private final CharBuffer charBuf;
+  private final byte[] buf;
+  // unconsumed bytes of the block are between start and end
+  private int start;
+  private int end;
+  private boolean eof;
+  private volatile boolean isOpen;
+
+  BlockLineDeserializer(Context context, ResettableFileInputStream in) {
+    this.in = in;
+    this.outputCharset = Charset.forName(
+        context.getString(LineDeserializer.OUT_CHARSET_KEY, LineDeserializer.CHARSET_DFLT));
+    this.asciiOutput = isAsciiCompatible(outputCharset);
+    this.maxLineLength = context.getInteger(LineDeserializer.MAXLINE_KEY,
+        LineDeserializer.MAXLINE_DFLT);
+    this.decoder = in.newDecoder();
+    this.charBuf = CharBuffer.allocate(maxLineLength);
+    // a block must be able to hold the bytes of a truncated line and its line ending
+    int blockSize = context.getInteger(BLOCK_SIZE_KEY, BLOCK_SIZE_DFLT);
+    this.buf = new byte[Math.max(blockSize, 4 * (maxLineLength + 1))];
+    this.isOpen = true;
+  }
+
+  /**
+   * Reads a line from a file and returns an event
+   * @return Event containing parsed line
+   * @throws IOException
+   */
+  @Override
+  public Event readEvent() throws IOException {
+    ensureOpen();
+    byte[] body = readLine();
+    if (body == null) {
+      return null;
+    } else {
+      return EventBuilder.withBody(body);
+    }
+  }
+
+  /**
+   * Batch line read
+   * @param numEvents Maximum number of events to return.
+   * @return List of events containing read lines
+   * @throws IOException
+   */
+  @Override
+  public List<Event> readEvents(int numEvents) throws IOException {
+    ensureOpen();
+    List<Event> events = Lists.newArrayList();
+    for (int i = 0; i < numEvents; i++) {
+      Event event = readEvent();
+      if (event != null) {
+        events.add(event);
+      } else {
+        break;
+      }
+    }
+    return events;
+  }
+
+  /**
+   * Marks the position following the last line returned, not the end of the block read
+   * from the stream.
+   */
+  @Override
+  public void mark() throws IOException {
+    ensureOpen();
+    in.markPosition(in.tell() - (end - start));
+  }
+
+  @Override
+  public void reset() throws IOException {
+    ensureOpen();
+    in.reset();
+    start = 0;
+    end = 0;
+    eof = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (isOpen) {
+      reset();
+      in.close();
+      isOpen = false;
+    }
+  }
+
+  private void ensureOpen() {
+    if (!isOpen) {
+      throw new IllegalStateException("Serializer has been closed");
+    }
+  }
+
+  private byte[] readLine() throws IOException {
+    int newline = -1;
+    boolean ascii = true;
+    int scan = start;
+    while (true) {
+      for (; scan < end; scan++) {
+        byte b = buf[scan];
+        if (b == NEWLINE) {
+          newline = scan;
+          break;
+        }
+        if (b < 0) {
+          ascii = false;
+        }
+      }
+      if (newline >= 0 || eof || end - start == buf.length
+          || (ascii && scan - start >= maxLineLength)) {
+        break;
+      }
+      scan -= start;
+      fill();
+      scan += start;
+    }
+
+    if (start == end) {
+      return null;
+    }
+    int lineEnd = newline >= 0 ? newline : scan;
+    return ascii ? asciiLine(lineEnd, newline >= 0) : decodeLine(lineEnd, newline >= 0);
+  }
+
+  private byte[] asciiLine(int lineEnd, boolean hasNewline) {
+    int lineStart = start;
+    int length = lineEnd - lineStart;
+    if (length >= maxLineLength) {
+      logger.warn("Line length exceeds max ({}), truncating line!", maxLineLength);
+      length = maxLineLength;
+      start += length;
+    } else {
+      start = hasNewline ? lineEnd + 1 : lineEnd;
+    }
+    if (asciiOutput) {
+      return Arrays.copyOfRange(buf, lineStart, lineStart + length);
+    }
+    return new String(buf, lineStart, length, Charsets.US_ASCII).getBytes(outputCharset);
+  }
+
+  private byte[] decodeLine(int lineEnd, boolean hasNewline) throws IOException {
+    ByteBuffer bytes = ByteBuffer.wrap(buf, start, lineEnd - start);
+    charBuf.clear();
+    decoder.reset();
+    CoderResult res = decoder.decode(bytes, charBuf, true);
+    if (res.isMalformed() || res.isUnmappable()) {
+      res.throwException();
+    }
+    if (res.isUnderflow()) {
+      decoder.flush(charBuf);
+    }
+    if (res.isOverflow() || charBuf.position() >= maxLineLength) {
+      logger.warn("Line length exceeds max ({}), truncating line!", maxLineLength);
+      start = bytes.position();
+    } else {
+      start = hasNewline ? lineEnd + 1 : lineEnd;
+    }
+    charBuf.flip();
+    return charBuf.toString().getBytes(outputCharset);
+  }
+
+  /**
+   * Moves the unconsumed bytes to the beginning of the block and reads more from the stream.
+   */
+  private void fill() throws IOException {
+    if (start > 0) {
+      System.arraycopy(buf, start, buf, 0, end - start);
+      end -= start;
+      start = 0;
+    }
+    int read = in.read(buf, end, buf.length - end);
+    if (read <= 0) {
+      eof = true;
+    } else {
+      end += read;
+    }
+  }
+
+  private static boolean isAsciiCompatible(Charset charset) {
+    return Charsets.UTF_8.equals(charset) || Charsets.US_ASCII.equals(charset)
+        || Charsets.ISO_8859_1.equals(charset);
+  }
+
+  public static class Builder implements EventDeserializer.Builder {
+
+    @Override
+    public EventDeserializer build(Context context, ResettableInputStream in) {
+      if (in instanceof ResettableFileInputStream) {
+        ResettableFileInputStream fileIn = (ResettableFileInputStream) in;
+        Charset charset = fileIn.newDecoder().charset();
+        if (Charsets.UTF_8.equals(charset) || Charsets.US_ASCII.equals(charset)) {
+          return new BlockLineDeserializer(context, fileIn);
+        }
+        logger.warn("Input charset {} is not supported, falling back to LineDeserializer",
+            charset);
+      } else {
+        logger.warn("Input stream {} is not supported, falling back to LineDeserializer",
+            in.getClass().getName());
+      }
+      return new LineDeserializer(context, in);
+    }
+
+  }
+
+}
@@ -22,6 +22,7 @@ import java.io.OutputStream;
 import org.apache.avro.Schema;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.event.CompactEvent;
 
 public class FlumeEventAvroEventSerializer extends AbstractAvroEventSerializer<Event> {
 
@@ -47,12 +48,18 @@ public class FlumeEventAvroEventSerializer extends AbstractAvroEventSerializer<E
   }
 
   /**
-   * A no-op for this simple, special-case implementation
+   * A no-op for this simple, special-case implementation, except that the
+   * headers and body of a {@link CompactEvent} are materialized, as the
+   * reflection based writer reads the fields of the event.
    * @param event
    * @return
    */
   @Override
   protected Event convert(Event event) {
+    if (event instanceof CompactEvent) {
+      event.getHeaders();
+      event.getBody();
+    }
     return event;
   }
 
@@ -332,6 +332,17 @@ public class ResettableFileInputStream extends ResettableInputStream
 
   }
 
+  /**
+   * Returns a new decoder for the charset of this stream, with the same error handling as the
+   * one used by {@link #readChar()}. Meant for callers that decode bytes from
+   * {@link #read(byte[], int, int)} in bulk.
+   */
+  CharsetDecoder newDecoder() {
+    return decoder.charset().newDecoder()
+        .onMalformedInput(decoder.malformedInputAction())
+        .onUnmappableCharacter(decoder.unmappableCharacterAction());
+  }
+
   private void refillBuf() throws IOException {
     buf.compact();
     chan.position(position); // ensure we read from the proper offset
@@ -368,20 +368,25 @@ public abstract class AbstractRpcSink extends AbstractSink implements Configurab
       int batchSize = client.getBatchSize();
 
       if (size == 0) {
-        sinkCounter.incrementBatchEmptyCount();
+        sinkCounter.recordBatchEmpty();
         status = Status.BACKOFF;
       } else {
         if (size < batchSize) {
-          sinkCounter.incrementBatchUnderflowCount();
+          sinkCounter.recordBatchUnderflow();
         } else {
-          sinkCounter.incrementBatchCompleteCount();
+          sinkCounter.recordBatchComplete();
         }
-        sinkCounter.addToEventDrainAttemptCount(size);
+        sinkCounter.recordEventDrainAttempt(size);
+        long startNanos = System.nanoTime();
         client.appendBatch(batch);
+        sinkCounter.recordBatch(size, startNanos);
       }
 
       transaction.commit();
-      sinkCounter.addToEventDrainSuccessCount(size);
+      sinkCounter.recordEventDrainSuccess(size);
+      for (Event event : batch) {
+        sinkCounter.recordEventAge(event);
+      }
 
     } catch (Throwable t) {
       transaction.rollback();
@@ -18,8 +18,10 @@
  */
 package org.apache.flume.sink;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.flume.Context;
 import org.apache.flume.EventDeliveryException;
@@ -32,6 +34,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import org.apache.flume.util.LeastLatencyOrderSelector;
 import org.apache.flume.util.OrderSelector;
 import org.apache.flume.util.RandomOrderSelector;
 import org.apache.flume.util.RoundRobinOrderSelector;
@@ -66,14 +69,31 @@ import org.apache.flume.util.RoundRobinOrderSelector;
  * </pre>
  *
  * The value of processor.selector could be either <tt>round_robin</tt> for
- * round-robin scheme of load-balancing or <tt>random</tt> for random
- * selection. Alternatively you can specify your own implementation of the
+ * round-robin scheme of load-balancing, <tt>random</tt> for random
+ * selection or <tt>least_latency</tt> to favor the sinks that drain their
+ * batches the fastest, see {@link LeastLatencyOrderSelector}. The
+ * <tt>latencyDecayTime</tt> selector property sets the time in milliseconds
+ * over which the observed latencies of the least latency selector lose most
+ * of their weight, 10 seconds by default. Alternatively you can specify your own implementation of the
  * selection algorithm by implementing the <tt>LoadBalancingSelector</tt>
  * interface. If no selector mechanism is specified, the round-robin selector
  * is used by default.
  * </p>
  * <p>
- * This implementation is not thread safe at this time
+ * With <tt>processor.concurrent = true</tt>, every sink of the group runs on
+ * its own thread against the shared channel, so that the group can have as
+ * many batches in flight as it has sinks. The sinks then share the load of
+ * the channel according to how fast they drain it. A failing sink is
+ * reported to the selector and only runs again once the selector considers
+ * it active, so the backoff of the selector still applies, and the process
+ * calls of the sink runner only report the aggregated status of the sinks.
+ * </p>
+ * <p>
+ * Without <tt>processor.concurrent</tt>, this implementation is not thread
+ * safe: it expects a single sink runner to call <tt>process</tt>. In the
+ * concurrent mode, the sink threads share the selector and every call they
+ * make to it is serialized on the selector, so it does not need to be thread
+ * safe. The sinks themselves are only ever run by their own thread.
  * </p>
  *
  * @see FailoverSinkProcessor
@@ -83,16 +103,26 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
   public static final String CONFIG_SELECTOR = "selector";
   public static final String CONFIG_SELECTOR_PREFIX = CONFIG_SELECTOR + ".";
   public static final String CONFIG_BACKOFF = "backoff";
+  public static final String CONFIG_CONCURRENT = "concurrent";
 
   public static final String SELECTOR_NAME_ROUND_ROBIN = "ROUND_ROBIN";
   public static final String SELECTOR_NAME_RANDOM = "RANDOM";
   public static final String SELECTOR_NAME_ROUND_ROBIN_BACKOFF = "ROUND_ROBIN_BACKOFF";
   public static final String SELECTOR_NAME_RANDOM_BACKOFF = "RANDOM_BACKOFF";
+  public static final String SELECTOR_NAME_LEAST_LATENCY = "LEAST_LATENCY";
+  public static final String CONFIG_LATENCY_DECAY_TIME = "latencyDecayTime";
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(LoadBalancingSinkProcessor.class);
 
+  // Same delays as the SinkRunner, for the threads of the concurrent mode
+  private static final long BACKOFF_SLEEP_INCREMENT = 1000;
+  private static final long MAX_BACKOFF_SLEEP = 5000;
+
   private SinkSelector selector;
+  private boolean concurrent;
+  private List<SinkWorker> workers;
+  private final AtomicLong readyCount = new AtomicLong();
 
   @Override
   public void configure(Context context) {
@@ -104,6 +134,7 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
         SELECTOR_NAME_ROUND_ROBIN);
 
     Boolean shouldBackOff = context.getBoolean(CONFIG_BACKOFF, false);
+    concurrent = context.getBoolean(CONFIG_CONCURRENT, false);
 
     selector = null;
 
@@ -111,6 +142,8 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
       selector = new RoundRobinSinkSelector(shouldBackOff);
     } else if (selectorTypeName.equalsIgnoreCase(SELECTOR_NAME_RANDOM)) {
       selector = new RandomOrderSinkSelector(shouldBackOff);
+    } else if (selectorTypeName.equalsIgnoreCase(SELECTOR_NAME_LEAST_LATENCY)) {
+      selector = new LeastLatencySinkSelector(shouldBackOff);
     } else {
       try {
         @SuppressWarnings("unchecked")
@@ -136,10 +169,38 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
     super.start();
 
     selector.start();
+
+    if (concurrent) {
+      workers = new ArrayList<SinkWorker>();
+      for (Sink sink : getSinks()) {
+        SinkWorker worker = new SinkWorker(sink);
+        worker.setName("LoadBalancingSinkProcessor-" + sink.getName());
+        workers.add(worker);
+        worker.start();
+      }
+    }
   }
 
   @Override
   public void stop() {
+    if (workers != null) {
+      for (SinkWorker worker : workers) {
+        worker.shouldStop = true;
+        worker.interrupt();
+      }
+      for (SinkWorker worker : workers) {
+        while (worker.isAlive()) {
+          try {
+            LOGGER.debug("Waiting for sink thread {} to exit", worker.getName());
+            worker.join(500);
+          } catch (InterruptedException e) {
+            LOGGER.debug("Interrupted while waiting for sink thread to exit", e);
+          }
+        }
+      }
+      workers = null;
+    }
+
     super.stop();
 
     selector.stop();
@@ -147,13 +208,23 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
 
   @Override
   public Status process() throws EventDeliveryException {
+    if (concurrent) {
+      return processConcurrently();
+    }
+
     Status status = null;
 
+    LoadAwareSinkSelector loadAwareSelector = selector instanceof LoadAwareSinkSelector
+        ? (LoadAwareSinkSelector) selector : null;
     Iterator<Sink> sinkIterator = selector.createSinkIterator();
     while (sinkIterator.hasNext()) {
       Sink sink = sinkIterator.next();
       try {
+        long start = System.nanoTime();
         status = sink.process();
+        if (loadAwareSelector != null) {
+          loadAwareSelector.informSinkProcessed(sink, status, System.nanoTime() - start);
+        }
         break;
       } catch (Exception ex) {
         selector.informSinkFailed(sink);
@@ -169,6 +240,106 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
     return status;
   }
 
+  /**
+   * Waits for the sink threads to process some batches and reports their
+   * aggregated status: <tt>READY</tt> if any of them processed a batch,
+   * <tt>BACKOFF</tt> otherwise, or a failure if all of them are failing.
+   */
+  private Status processConcurrently() throws EventDeliveryException {
+    try {
+      Thread.sleep(BACKOFF_SLEEP_INCREMENT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.BACKOFF;
+    }
+    boolean allFailing = true;
+    for (SinkWorker worker : workers) {
+      allFailing &= worker.failing;
+    }
+    if (allFailing) {
+      throw new EventDeliveryException("All configured sinks have failed");
+    }
+    return readyCount.getAndSet(0) > 0 ? Status.READY : Status.BACKOFF;
+  }
+
+  private boolean isActive(Sink sink) {
+    synchronized (selector) {
+      return selector.isActive(sink);
+    }
+  }
+
+  /**
+   * Runs a sink of the group in the concurrent mode. The selector is shared
+   * by all the threads, its calls are serialized.
+   */
+  private class SinkWorker extends Thread {
+    private final Sink sink;
+    private volatile boolean shouldStop = false;
+    private volatile boolean failing = false;
+
+    SinkWorker(Sink sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runSink();
+      } finally {
+        // The group must not wait for a sink whose thread died
+        failing = true;
+      }
+    }
+
+    private void runSink() {
+      long consecutiveBackoffs = 0;
+      while (!shouldStop) {
+        try {
+          if (!isActive(sink)) {
+            // Backed off by the selector
+            failing = true;
+            Thread.sleep(BACKOFF_SLEEP_INCREMENT);
+            continue;
+          }
+          Status status;
+          try {
+            long start = System.nanoTime();
+            status = sink.process();
+            if (selector instanceof LoadAwareSinkSelector) {
+              synchronized (selector) {
+                ((LoadAwareSinkSelector) selector).informSinkProcessed(sink, status,
+                    System.nanoTime() - start);
+              }
+            }
+          } catch (Throwable t) {
+            if (shouldStop) {
+              break;
+            }
+            failing = true;
+            synchronized (selector) {
+              selector.informSinkFailed(sink);
+            }
+            LOGGER.warn("Sink " + sink.getName() + " failed to consume events. "
+                + "The other sinks of the group keep running.", t);
+            Thread.sleep(BACKOFF_SLEEP_INCREMENT);
+            continue;
+          }
+          failing = false;
+          if (status == Status.BACKOFF) {
+            consecutiveBackoffs++;
+            Thread.sleep(Math.min(consecutiveBackoffs * BACKOFF_SLEEP_INCREMENT,
+                MAX_BACKOFF_SLEEP));
+          } else {
+            consecutiveBackoffs = 0;
+            readyCount.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          LOGGER.debug("Sink thread {} interrupted", getName());
+        }
+      }
+    }
+  }
+
   /**
    * <p>
    * An interface that allows the LoadBalancingSinkProcessor to use
@@ -198,6 +369,40 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
     Iterator<Sink> createSinkIterator();
 
     void informSinkFailed(Sink failedSink);
+
+    /**
+     * Tells whether a sink is currently active, i.e. not backed off, which
+     * the concurrent mode checks before every <tt>process</tt> call of the
+     * sink. Unlike {@link #createSinkIterator()} it must not change the
+     * selection order. The default implementation looks for the sink in a
+     * new iteration order, selectors whose iterators have side effects
+     * should override it.
+     */
+    default boolean isActive(Sink sink) {
+      Iterator<Sink> sinkIterator = createSinkIterator();
+      while (sinkIterator.hasNext()) {
+        if (sinkIterator.next() == sink) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A {@link SinkSelector} that is also informed of how long each successful
+   * <tt>process</tt> call took, to balance the load according to how fast
+   * the sinks drain their batches.
+   */
+  public interface LoadAwareSinkSelector extends SinkSelector {
+
+    /**
+     * @param sink The sink that processed a batch
+     * @param status The status the sink returned, {@link Status#BACKOFF}
+     *               usually meaning its batch was empty
+     * @param latencyNanos How long the <tt>process</tt> call took
+     */
+    void informSinkProcessed(Sink sink, Status status, long latencyNanos);
   }
 
   /**
@@ -238,6 +443,11 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
       selector.informFailure(failedSink);
     }
 
+    @Override
+    public boolean isActive(Sink sink) {
+      return selector.isActive(sink);
+    }
+
   }
 
   /**
@@ -274,5 +484,64 @@ public class LoadBalancingSinkProcessor extends AbstractSinkProcessor {
     public void informSinkFailed(Sink failedSink) {
       selector.informFailure(failedSink);
     }
+
+    @Override
+    public boolean isActive(Sink sink) {
+      return selector.isActive(sink);
+    }
+  }
+
+  /**
+   * A sink selector that favors the sinks with the lowest recent latency per
+   * full batch, using the power of two choices. A <tt>READY</tt> status
+   * counts as a full batch. A <tt>BACKOFF</tt> one is ignored: the sink only
+   * found its channel empty, which says nothing about how fast it delivers.
+   * This implementation is thread safe.
+   */
+  private static class LeastLatencySinkSelector extends AbstractSinkSelector
+      implements LoadAwareSinkSelector {
+
+    private LeastLatencyOrderSelector<Sink> selector;
+
+    LeastLatencySinkSelector(boolean backoff) {
+      selector = new LeastLatencyOrderSelector<Sink>(backoff);
+    }
+
+    @Override
+    public void configure(Context context) {
+      super.configure(context);
+      if (maxTimeOut != 0) {
+        selector.setMaxTimeOut(maxTimeOut);
+      }
+      selector.setDecayTime(context.getLong(CONFIG_LATENCY_DECAY_TIME,
+          LeastLatencyOrderSelector.DEFAULT_DECAY_TIME));
+    }
+
+    @Override
+    public void setSinks(List<Sink> sinks) {
+      selector.setObjects(sinks);
+    }
+
+    @Override
+    public Iterator<Sink> createSinkIterator() {
+      return selector.createIterator();
+    }
+
+    @Override
+    public void informSinkFailed(Sink failedSink) {
+      selector.informFailure(failedSink);
+    }
+
+    @Override
+    public boolean isActive(Sink sink) {
+      return selector.isActive(sink);
+    }
+
+    @Override
+    public void informSinkProcessed(Sink sink, Status status, long latencyNanos) {
+      if (status == Status.READY) {
+        selector.informSuccess(sink, latencyNanos, 1.0);
+      }
+    }
   }
 }
@@ -193,11 +193,12 @@ public class RollingFileSink extends AbstractSink implements Configurable, Batch
 
     try {
       transaction.begin();
+      long startNanos = System.nanoTime();
       int eventAttemptCounter = 0;
       for (int i = 0; i < batchSize; i++) {
         event = channel.take();
         if (event != null) {
-          sinkCounter.incrementEventDrainAttemptCount();
+          sinkCounter.recordEventDrainAttempt();
           eventAttemptCounter++;
           serializer.write(event);
 
@@ -219,7 +220,8 @@ public class RollingFileSink extends AbstractSink implements Configurable, Batch
       serializer.flush();
       outputStream.flush();
       transaction.commit();
-      sinkCounter.addToEventDrainSuccessCount(eventAttemptCounter);
+      sinkCounter.recordEventDrainSuccess(eventAttemptCounter);
+      sinkCounter.recordBatch(eventAttemptCounter, startNanos);
     } catch (Exception ex) {
       sinkCounter.incrementEventWriteOrChannelFail(ex);
       transaction.rollback();
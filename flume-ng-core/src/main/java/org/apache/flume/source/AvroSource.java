@@ -33,7 +33,8 @@ import org.apache.flume.Source;
 import org.apache.flume.conf.Configurable;
 import org.apache.flume.conf.Configurables;
 import org.apache.flume.conf.LogPrivacyUtil;
-import org.apache.flume.event.EventBuilder;
+import org.apache.flume.event.CompactEvent;
+import org.apache.flume.event.CompactHeaderMap;
 import org.apache.flume.instrumentation.SourceCounter;
 import org.apache.flume.netty.filter.PatternRule;
 import org.apache.flume.source.avro.AvroFlumeEvent;
@@ -46,7 +47,6 @@ import javax.net.ssl.SSLEngine;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -259,13 +259,24 @@ public class AvroSource extends SslContextAwareAbstractSource implements EventDr
    * Helper function to convert a map of CharSequence to a map of String.
    */
   private static Map<String, String> toStringMap(Map<CharSequence, CharSequence> charSeqMap) {
-    Map<String, String> stringMap = new HashMap<>();
+    Map<String, String> stringMap = new CompactHeaderMap();
     for (Map.Entry<CharSequence, CharSequence> entry : charSeqMap.entrySet()) {
       stringMap.put(entry.getKey().toString(), entry.getValue().toString());
     }
     return stringMap;
   }
 
+  /**
+   * Helper function to convert an Avro event to a Flume event. The body is
+   * only copied if a sink reads it as an array and it is not a whole one.
+   */
+  private static Event toFlumeEvent(AvroFlumeEvent avroEvent) {
+    CompactEvent event = new CompactEvent();
+    event.setBody(avroEvent.getBody());
+    event.setHeaders(toStringMap(avroEvent.getHeaders()));
+    return event;
+  }
+
   @Override
   public Status append(AvroFlumeEvent avroEvent) {
     if (logger.isDebugEnabled()) {
@@ -276,11 +287,10 @@ public class AvroSource extends SslContextAwareAbstractSource implements EventDr
       }
     }
 
-    sourceCounter.incrementAppendReceivedCount();
-    sourceCounter.incrementEventReceivedCount();
+    sourceCounter.recordAppendReceived();
+    sourceCounter.recordEventReceived();
 
-    Event event = EventBuilder.withBody(avroEvent.getBody().array(),
-        toStringMap(avroEvent.getHeaders()));
+    Event event = toFlumeEvent(avroEvent);
 
     try {
       getChannelProcessor().processEvent(event);
@@ -291,8 +301,8 @@ public class AvroSource extends SslContextAwareAbstractSource implements EventDr
       return Status.FAILED;
     }
 
-    sourceCounter.incrementAppendAcceptedCount();
-    sourceCounter.incrementEventAcceptedCount();
+    sourceCounter.recordAppendAccepted();
+    sourceCounter.recordEventAccepted();
 
     return Status.OK;
   }
@@ -301,14 +311,13 @@ public class AvroSource extends SslContextAwareAbstractSource implements EventDr
   public Status appendBatch(List<AvroFlumeEvent> events) {
     logger.debug("Avro source {}: Received avro event batch of {} events.",
         getName(), events.size());
-    sourceCounter.incrementAppendBatchReceivedCount();
-    sourceCounter.addToEventReceivedCount(events.size());
+    sourceCounter.recordAppendBatchReceived();
+    sourceCounter.recordEventReceived(events.size());
 
     List<Event> batch = new ArrayList<Event>();
 
     for (AvroFlumeEvent avroEvent : events) {
-      Event event = EventBuilder.withBody(avroEvent.getBody().array(),
-          toStringMap(avroEvent.getHeaders()));
+      Event event = toFlumeEvent(avroEvent);
 
       batch.add(event);
     }
@@ -325,8 +334,9 @@ public class AvroSource extends SslContextAwareAbstractSource implements EventDr
       return Status.FAILED;
     }
 
-    sourceCounter.incrementAppendBatchAcceptedCount();
-    sourceCounter.addToEventAcceptedCount(events.size());
+    sourceCounter.recordAppendBatchAccepted();
+    sourceCounter.recordEventAccepted(events.size());
+    sourceCounter.recordBatch(events.size());
 
     return Status.OK;
   }
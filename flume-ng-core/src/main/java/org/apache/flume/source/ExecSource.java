@@ -338,7 +338,7 @@ public class ExecSource extends AbstractSource implements EventDrivenSource, Con
           batchTimeout, batchTimeout, TimeUnit.MILLISECONDS);
 
           while ((line = reader.readLine()) != null) {
-            sourceCounter.incrementEventReceivedCount();
+            sourceCounter.recordEventReceived();
             synchronized (eventList) {
               eventList.add(EventBuilder.withBody(line.getBytes(charset)));
               if (eventList.size() >= bufferCount || timeout()) {
@@ -383,7 +383,8 @@ public class ExecSource extends AbstractSource implements EventDrivenSource, Con
 
     private void flushEventBatch(List<Event> eventList) {
       channelProcessor.processEventBatch(eventList);
-      sourceCounter.addToEventAcceptedCount(eventList.size());
+      sourceCounter.recordEventAccepted(eventList.size());
+      sourceCounter.recordBatch(eventList.size());
       eventList.clear();
       lastPushToChannel = systemClock.currentTimeMillis();
     }
@@ -357,12 +357,13 @@ public class MultiportSyslogTCPSource extends SslContextAwareAbstractSource impl
         }
 
         int numEvents = events.size();
-        sourceCounter.addToEventReceivedCount(numEvents);
+        sourceCounter.recordEventReceived(numEvents);
 
         // write the events to the downstream channel
         try {
           channelProcessor.processEventBatch(events);
-          sourceCounter.addToEventAcceptedCount(numEvents);
+          sourceCounter.recordEventAccepted(numEvents);
+          sourceCounter.recordBatch(numEvents);
         } catch (Throwable t) {
           logger.error("Error writing to channel, event dropped", t);
           sourceCounter.incrementEventReadOrChannelFail(t);
@@ -70,7 +70,7 @@ public class SequenceGeneratorSource extends AbstractPollableSource implements
         if (eventsSentTX < totalEvents) {
           getChannelProcessor().processEvent(
                   EventBuilder.withBody(String.valueOf(eventsSentTX++).getBytes()));
-          sourceCounter.incrementEventAcceptedCount();
+          sourceCounter.recordEventAccepted();
         } else {
           status = Status.BACKOFF;
         }
@@ -87,8 +87,9 @@ public class SequenceGeneratorSource extends AbstractPollableSource implements
         }
         if (!batchArrayList.isEmpty()) {
           getChannelProcessor().processEventBatch(batchArrayList);
-          sourceCounter.incrementAppendBatchAcceptedCount();
-          sourceCounter.addToEventAcceptedCount(batchArrayList.size());
+          sourceCounter.recordAppendBatchAccepted();
+          sourceCounter.recordEventAccepted(batchArrayList.size());
+          sourceCounter.recordBatch(batchArrayList.size());
         }
       }
       eventsSent = eventsSentTX;
@@ -265,8 +265,8 @@ public class SpoolDirectorySource extends AbstractSource
           if (events.isEmpty()) {
             break;
           }
-          sourceCounter.addToEventReceivedCount(events.size());
-          sourceCounter.incrementAppendBatchReceivedCount();
+          sourceCounter.recordEventReceived(events.size());
+          sourceCounter.recordAppendBatchReceived();
 
           try {
             getChannelProcessor().processEventBatch(events);
@@ -289,8 +289,9 @@ public class SpoolDirectorySource extends AbstractSource
             continue;
           }
           backoffInterval = 250;
-          sourceCounter.addToEventAcceptedCount(events.size());
-          sourceCounter.incrementAppendBatchAcceptedCount();
+          sourceCounter.recordEventAccepted(events.size());
+          sourceCounter.recordBatch(events.size());
+          sourceCounter.recordAppendBatchAccepted();
         }
       } catch (Throwable t) {
         logger.error("FATAL: " + SpoolDirectorySource.this.toString() + ": " +
@@ -107,11 +107,11 @@ public class SyslogTcpSource extends SslContextAwareAbstractSource
               SyslogUtils.getHostname(ctx.channel().remoteAddress()));
         }
 
-        sourceCounter.incrementEventReceivedCount();
+        sourceCounter.recordEventReceived();
 
         try {
           getChannelProcessor().processEvent(e);
-          sourceCounter.incrementEventAcceptedCount();
+          sourceCounter.recordEventAccepted();
         } catch (ChannelException ex) {
           logger.error("Error writting to channel, event dropped", ex);
           sourceCounter.incrementChannelWriteFail();
@@ -157,10 +157,10 @@ public class SyslogUDPSource extends AbstractSource implements EventDrivenSource
           e.getHeaders().put(clientHostnameHeader, SyslogUtils.getHostname(packet.sender()));
         }
 
-        sourceCounter.incrementEventReceivedCount();
+        sourceCounter.recordEventReceived();
 
         getChannelProcessor().processEvent(e);
-        sourceCounter.incrementEventAcceptedCount();
+        sourceCounter.recordEventAccepted();
       } catch (ChannelException ex) {
         logger.error("Error writting to channel", ex);
         sourceCounter.incrementChannelWriteFail();
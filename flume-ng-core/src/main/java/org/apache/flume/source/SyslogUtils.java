@@ -22,6 +22,7 @@ package org.apache.flume.source;
 import org.apache.flume.Event;
 import org.apache.flume.annotations.InterfaceAudience;
 import org.apache.flume.annotations.InterfaceStability;
+import org.apache.flume.event.CompactHeaderMap;
 import org.apache.flume.event.EventBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +39,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
@@ -334,7 +334,7 @@ public class SyslogUtils {
         formatHeaders();
       }
 
-      Map<String, String> headers = new HashMap<String, String>();
+      Map<String, String> headers = new CompactHeaderMap();
       headers.put(SYSLOG_FACILITY, String.valueOf(facility));
       headers.put(SYSLOG_SEVERITY, String.valueOf(sev));
       if (priority != null && priority.length() > 0) {
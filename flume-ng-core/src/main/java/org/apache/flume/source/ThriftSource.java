@@ -371,8 +371,8 @@ public class ThriftSource extends SslContextAwareAbstractSource
     public Status append(ThriftFlumeEvent event) throws TException {
       Event flumeEvent = EventBuilder.withBody(event.getBody(), event.getHeaders());
 
-      sourceCounter.incrementAppendReceivedCount();
-      sourceCounter.incrementEventReceivedCount();
+      sourceCounter.recordAppendReceived();
+      sourceCounter.recordEventReceived();
 
       try {
         getChannelProcessor().processEvent(flumeEvent);
@@ -382,15 +382,15 @@ public class ThriftSource extends SslContextAwareAbstractSource
         sourceCounter.incrementChannelWriteFail();
         return Status.FAILED;
       }
-      sourceCounter.incrementAppendAcceptedCount();
-      sourceCounter.incrementEventAcceptedCount();
+      sourceCounter.recordAppendAccepted();
+      sourceCounter.recordEventAccepted();
       return Status.OK;
     }
 
     @Override
     public Status appendBatch(List<ThriftFlumeEvent> events) throws TException {
-      sourceCounter.incrementAppendBatchReceivedCount();
-      sourceCounter.addToEventReceivedCount(events.size());
+      sourceCounter.recordAppendBatchReceived();
+      sourceCounter.recordEventReceived(events.size());
 
       List<Event> flumeEvents = Lists.newArrayList();
       for (ThriftFlumeEvent event : events) {
@@ -405,8 +405,9 @@ public class ThriftSource extends SslContextAwareAbstractSource
         return Status.FAILED;
       }
 
-      sourceCounter.incrementAppendBatchAcceptedCount();
-      sourceCounter.addToEventAcceptedCount(events.size());
+      sourceCounter.recordAppendBatchAccepted();
+      sourceCounter.recordEventAccepted(events.size());
+      sourceCounter.recordBatch(events.size());
       return Status.OK;
     }
   }
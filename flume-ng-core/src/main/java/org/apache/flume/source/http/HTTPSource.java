@@ -246,8 +246,8 @@ public class HTTPSource extends SslContextAwareAbstractSource implements
                 + ex.getMessage());
         return;
       }
-      sourceCounter.incrementAppendBatchReceivedCount();
-      sourceCounter.addToEventReceivedCount(events.size());
+      sourceCounter.recordAppendBatchReceived();
+      sourceCounter.recordEventReceived(events.size());
       try {
         getChannelProcessor().processEventBatch(events);
       } catch (ChannelException ex) {
@@ -270,8 +270,9 @@ public class HTTPSource extends SslContextAwareAbstractSource implements
       response.setCharacterEncoding(request.getCharacterEncoding());
       response.setStatus(HttpServletResponse.SC_OK);
       response.flushBuffer();
-      sourceCounter.incrementAppendBatchAcceptedCount();
-      sourceCounter.addToEventAcceptedCount(events.size());
+      sourceCounter.recordAppendBatchAccepted();
+      sourceCounter.recordEventAccepted(events.size());
+      sourceCounter.recordBatch(events.size());
     }
 
     @Override
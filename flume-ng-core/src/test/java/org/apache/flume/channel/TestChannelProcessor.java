@@ -32,6 +32,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.mock;
@@ -150,4 +151,49 @@ public class TestChannelProcessor {
     }
   }
 
+  /**
+   * Test that batches are routed in one pass by a BatchChannelSelector
+   */
+  @Test
+  public void testBatchChannelSelector() {
+    Context context = new Context();
+    ArrayList<Channel> channels = new ArrayList<Channel>();
+    for (int i = 0; i < 2; i++) {
+      Channel ch = new MemoryChannel();
+      ch.setName("ch" + i);
+      Configurables.configure(ch, context);
+      channels.add(ch);
+    }
+
+    ChannelSelector selector = new RoutingChannelSelector();
+    selector.setChannels(channels);
+    context = new Context();
+    context.put(RoutingChannelSelector.CONFIG_RULES, "odd");
+    context.put("rules.odd.header.parity", "exact:odd");
+    context.put("rules.odd.channels", "ch1");
+    context.put(RoutingChannelSelector.CONFIG_DEFAULT_CHANNEL, "ch0");
+    Configurables.configure(selector, context);
+
+    ChannelProcessor processor = new ChannelProcessor(selector);
+    Configurables.configure(processor, new Context());
+
+    List<Event> events = Lists.newArrayList();
+    for (int i = 0; i < 10; i++) {
+      events.add(EventBuilder.withBody(String.valueOf(i).getBytes(Charsets.UTF_8),
+          Collections.singletonMap("parity", i % 2 == 0 ? "even" : "odd")));
+    }
+    processor.processEventBatch(events);
+
+    for (int ch = 0; ch < 2; ch++) {
+      Transaction transaction = channels.get(ch).getTransaction();
+      transaction.begin();
+      for (int i = ch; i < 10; i += 2) {
+        Assert.assertEquals(String.valueOf(i),
+            new String(channels.get(ch).take().getBody(), Charsets.UTF_8));
+      }
+      transaction.commit();
+      transaction.close();
+    }
+  }
+
 }
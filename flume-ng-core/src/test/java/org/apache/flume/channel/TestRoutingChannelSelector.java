@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.channel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.flume.Channel;
+import org.apache.flume.ChannelSelector;
+import org.apache.flume.Event;
+import org.apache.flume.FlumeException;
+import org.apache.flume.event.EventBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class TestRoutingChannelSelector {
+
+  private List<Channel> channels = new ArrayList<Channel>();
+  private Map<String, String> config = new HashMap<String, String>();
+
+  @Before
+  public void setUp() throws Exception {
+    channels.clear();
+    channels.add(MockChannel.createMockChannel("ch1"));
+    channels.add(MockChannel.createMockChannel("ch2"));
+    channels.add(MockChannel.createMockChannel("ch3"));
+    channels.add(MockChannel.createMockChannel("ch4"));
+    config.put("type", "routing");
+    config.put("rules", "errors web any");
+    config.put("rules.errors.header.level", "exact:ERROR FATAL");
+    config.put("rules.errors.header.status", "range:500,599");
+    config.put("rules.errors.channels", "ch1");
+    config.put("rules.web.header.path", "prefix:/api/ /static/");
+    config.put("rules.web.channels", "ch2");
+    config.put("rules.web.optional", "ch2 ch3");
+    config.put("rules.any.header.agent", "regex:(?i)mozilla");
+    config.put("rules.any.channels", "ch3");
+    config.put("default", "ch4");
+  }
+
+  private static Event event(Map<String, String> headers) {
+    return EventBuilder.withBody(new byte[0], headers);
+  }
+
+  private static List<String> names(List<Channel> channels) {
+    List<String> names = new ArrayList<String>();
+    for (Channel channel : channels) {
+      names.add(channel.getName());
+    }
+    return names;
+  }
+
+  @Test
+  public void testFirstMatch() throws Exception {
+    ChannelSelector selector = ChannelSelectorFactory.create(channels, config);
+    Assert.assertTrue(selector instanceof RoutingChannelSelector);
+
+    // both conditions of a rule must match
+    Event error = event(ImmutableMap.of("level", "ERROR", "status", "503",
+        "agent", "Mozilla/5.0"));
+    Assert.assertEquals(Lists.newArrayList("ch1"), names(selector.getRequiredChannels(error)));
+    Assert.assertTrue(selector.getOptionalChannels(error).isEmpty());
+
+    Event notAnError = event(ImmutableMap.of("level", "ERROR", "status", "404"));
+    Assert.assertEquals(Lists.newArrayList("ch4"),
+        names(selector.getRequiredChannels(notAnError)));
+
+    Event api = event(ImmutableMap.of("path", "/api/v1/users", "agent", "mozilla"));
+    Assert.assertEquals(Lists.newArrayList("ch2"), names(selector.getRequiredChannels(api)));
+    // a channel both required and optional is only required
+    Assert.assertEquals(Lists.newArrayList("ch3"), names(selector.getOptionalChannels(api)));
+
+    Event browser = event(ImmutableMap.of("path", "/index.html", "agent", "a MOZILLA agent"));
+    Assert.assertEquals(Lists.newArrayList("ch3"), names(selector.getRequiredChannels(browser)));
+
+    Event prefixOnly = event(ImmutableMap.of("path", "/api"));
+    Assert.assertEquals(Lists.newArrayList("ch4"),
+        names(selector.getRequiredChannels(prefixOnly)));
+    Assert.assertTrue(selector.getOptionalChannels(prefixOnly).isEmpty());
+  }
+
+  @Test
+  public void testAllMatches() throws Exception {
+    config.put("mode", "all");
+    ChannelSelector selector = ChannelSelectorFactory.create(channels, config);
+
+    Event event = event(ImmutableMap.of("level", "FATAL", "status", "500",
+        "path", "/static/a.css", "agent", "Mozilla"));
+    Assert.assertEquals(Lists.newArrayList("ch1", "ch2", "ch3"),
+        names(selector.getRequiredChannels(event)));
+    Assert.assertTrue(selector.getOptionalChannels(event).isEmpty());
+
+    Event api = event(ImmutableMap.of("path", "/api/"));
+    Assert.assertEquals(Lists.newArrayList("ch2"), names(selector.getRequiredChannels(api)));
+    Assert.assertEquals(Lists.newArrayList("ch3"), names(selector.getOptionalChannels(api)));
+  }
+
+  @Test
+  public void testOpenRange() throws Exception {
+    config.put("rules", "small");
+    config.put("rules.small.header.size", "range:,10.5");
+    config.put("rules.small.channels", "ch1");
+    ChannelSelector selector = ChannelSelectorFactory.create(channels, config);
+
+    Assert.assertEquals(Lists.newArrayList("ch1"),
+        names(selector.getRequiredChannels(event(ImmutableMap.of("size", "-3")))));
+    Assert.assertEquals(Lists.newArrayList("ch1"),
+        names(selector.getRequiredChannels(event(ImmutableMap.of("size", "10.5")))));
+    Assert.assertEquals(Lists.newArrayList("ch4"),
+        names(selector.getRequiredChannels(event(ImmutableMap.of("size", "11")))));
+    Assert.assertEquals(Lists.newArrayList("ch4"),
+        names(selector.getRequiredChannels(event(ImmutableMap.of("size", "small")))));
+  }
+
+  @Test
+  public void testSelectBatch() throws Exception {
+    RoutingChannelSelector selector =
+        (RoutingChannelSelector) ChannelSelectorFactory.create(channels, config);
+
+    Event error = event(ImmutableMap.of("level", "ERROR", "status", "500"));
+    Event api = event(ImmutableMap.of("path", "/api/x"));
+    Event other = event(ImmutableMap.<String, String>of());
+    Event browser = event(ImmutableMap.of("agent", "Mozilla"));
+    List<Event> batch = Lists.newArrayList(error, api, other, browser, api, error);
+
+    Map<Channel, List<Event>> required = new LinkedHashMap<Channel, List<Event>>();
+    Map<Channel, List<Event>> optional = new LinkedHashMap<Channel, List<Event>>();
+    selector.selectChannels(batch, required, optional);
+
+    Assert.assertEquals(4, required.size());
+    Assert.assertEquals(Lists.newArrayList(error, error), required.get(channels.get(0)));
+    Assert.assertEquals(Lists.newArrayList(api, api), required.get(channels.get(1)));
+    Assert.assertEquals(Lists.newArrayList(browser), required.get(channels.get(2)));
+    Assert.assertEquals(Lists.newArrayList(other), required.get(channels.get(3)));
+    Assert.assertEquals(1, optional.size());
+    Assert.assertEquals(Lists.newArrayList(api, api), optional.get(channels.get(2)));
+
+    // the batch routing agrees with the routing of single events
+    for (Event event : batch) {
+      for (Channel channel : selector.getRequiredChannels(event)) {
+        Assert.assertTrue(required.get(channel).contains(event));
+      }
+    }
+  }
+
+  @Test(expected = FlumeException.class)
+  public void testRuleWithoutChannels() throws Exception {
+    config.remove("rules.web.channels");
+    ChannelSelectorFactory.create(channels, config);
+  }
+
+  @Test(expected = FlumeException.class)
+  public void testUnknownCondition() throws Exception {
+    config.put("rules.web.header.path", "suffix:.html");
+    ChannelSelectorFactory.create(channels, config);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.instrumentation;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.flume.Event;
+import org.apache.flume.event.EventBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestHistogram {
+
+  @Test
+  public void testBuckets() {
+    long previousUpper = -1;
+    for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L,
+        Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+      int index = Histogram.bucketIndex(value);
+      long upper = Histogram.bucketUpperBound(index);
+      Assert.assertTrue("value " + value, upper >= value);
+      Assert.assertTrue("value " + value, upper - value <= value / 32);
+      Assert.assertTrue(upper >= previousUpper);
+      previousUpper = upper;
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    Histogram histogram = new Histogram("test");
+    Assert.assertEquals(0L, histogram.get99thPercentile());
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    Assert.assertEquals(1000L, histogram.getCount());
+    Assert.assertEquals(500500L, histogram.getSum());
+    Assert.assertEquals(500.5, histogram.getMean(), 0.0);
+    Assert.assertEquals(1000L, histogram.getMax());
+    assertWithinPrecision(500, histogram.get50thPercentile());
+    assertWithinPrecision(950, histogram.get95thPercentile());
+    assertWithinPrecision(990, histogram.get99thPercentile());
+    Assert.assertEquals(1000L, histogram.get999thPercentile());
+
+    histogram.reset();
+    Assert.assertEquals(0L, histogram.getCount());
+    Assert.assertEquals(0L, histogram.getMax());
+    Assert.assertEquals(0L, histogram.get50thPercentile());
+  }
+
+  @Test
+  public void testCounterHistograms() throws Exception {
+    SinkCounter counter = new SinkCounter("histogramSink");
+    counter.start();
+    counter.addToEventDrainSuccessCount(4);
+    counter.addToEventDrainSuccessCount(6);
+    counter.recordBatch(10, System.nanoTime());
+    counter.recordBatch(0, System.nanoTime());
+    Event event = EventBuilder.withBody(new byte[0], Collections.singletonMap("timestamp",
+        String.valueOf(System.currentTimeMillis() - 60000L)));
+    counter.recordEventAge(event);
+    counter.recordEventAge(EventBuilder.withBody(new byte[0]));
+
+    Assert.assertEquals(10L, counter.getEventDrainSuccessCount());
+    Assert.assertEquals(1L, counter.getHistogram("sink.batch.size").getCount());
+    Assert.assertEquals(1L, counter.getHistogram("sink.delivery.latency.us").getCount());
+    Histogram eventAge = counter.getHistogram("sink.event.age.ms");
+    Assert.assertEquals(1L, eventAge.getCount());
+    Assert.assertTrue(eventAge.getMax() >= 60000L);
+
+    MBeanServer mbServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName on = new ObjectName(
+        "org.apache.flume.sink:type=histogramSink,histogram=sink.batch.size");
+    Assert.assertEquals(10L, mbServer.getAttribute(on, "50thPercentile"));
+    counter.stop();
+  }
+
+  private void assertWithinPrecision(long expected, long actual) {
+    Assert.assertTrue("expected " + expected + " but was " + actual,
+        actual >= expected && actual <= expected + expected / 32);
+  }
+}
@@ -227,6 +227,42 @@ public class TestMonitoredCounterGroup {
     assertChCounterState(on, 0L, 0L, 0L, 0L, 0L);
   }
 
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    String name = getRandomName();
+
+    final ChannelCounter chc = new ChannelCounter(name);
+    chc.register();
+    ObjectName on = new ObjectName(CHANNEL_OBJ_NAME_PREFIX + name);
+    chc.start();
+
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int size = t;
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            chc.incrementEventPutAttemptCount();
+            chc.addToEventPutSuccessCount(2);
+            chc.setChannelSize(size);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(80000L, chc.getEventPutAttemptCount());
+    Assert.assertEquals(160000L, chc.getEventPutSuccessCount());
+    Assert.assertTrue(chc.getChannelSize() >= 0 && chc.getChannelSize() < threads.length);
+    chc.setChannelSize(42L);
+    assertChCounterState(on, 42L, 80000L, 0L, 160000L, 0L);
+    chc.stop();
+  }
+
   @Test
   public void testSourceCounter() throws Exception {
     String name = getRandomName();
@@ -328,6 +364,40 @@ public class TestMonitoredCounterGroup {
     Assert.assertEquals("StopTime", 0L, getStopTime(on));
   }
 
+  @Test
+  public void testCounter() {
+    MonitoredCounterGroup.Counter counter = new MonitoredCounterGroup.Counter();
+    counter.add(3L);
+    counter.increment();
+    Assert.assertEquals(4L, counter.get());
+    counter.set(0L);
+    Assert.assertEquals(0L, counter.get());
+    counter.increment();
+    Assert.assertEquals(1L, counter.get());
+
+    MonitoredCounterGroup.Counter gauge = new MonitoredCounterGroup.Counter().asGauge();
+    Assert.assertTrue(gauge.isGauge());
+    gauge.set(5L);
+    gauge.add(2L);
+    gauge.increment();
+    Assert.assertEquals(8L, gauge.get());
+    gauge.add(-8L);
+    Assert.assertEquals(0L, gauge.get());
+  }
+
+  @Test
+  public void testRegisteredGroups() throws Exception {
+    SinkCounter counter = new SinkCounter("registered-" + getRandomName());
+    Assert.assertFalse(MonitoredCounterGroup.getRegisteredGroups().contains(counter));
+    counter.start();
+    Assert.assertTrue(MonitoredCounterGroup.getRegisteredGroups().contains(counter));
+    counter.stop();
+    Assert.assertFalse(MonitoredCounterGroup.getRegisteredGroups().contains(counter));
+    counter.start();
+    Assert.assertTrue(MonitoredCounterGroup.getRegisteredGroups().contains(counter));
+    counter.stop();
+  }
+
   private void assertSrcCounterState(ObjectName on, long eventReceivedCount,
       long eventAcceptedCount, long appendReceivedCount,
       long appendAcceptedCount, long appendBatchReceivedCount,
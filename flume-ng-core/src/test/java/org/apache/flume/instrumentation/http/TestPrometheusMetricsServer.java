@@ -40,12 +40,40 @@ public class TestPrometheusMetricsServer extends BaseHTTPMetricsTest {
     shutdown();
   }
 
-  private void testWithPort(int port) throws Exception {
+  @Test
+  public void testNativeMetrics() throws Exception {
+    runLoad();
+
     MonitorService srv = new PrometheusHTTPMetricsServer();
+    int port = getFreePort();
     Context context = new Context();
     context.put(PrometheusHTTPMetricsServer.CONFIG_PORT, String.valueOf(port));
+    context.put(PrometheusHTTPMetricsServer.CONFIG_AGENT, "a1");
+    context.put(PrometheusHTTPMetricsServer.CONFIG_COLLECTOR,
+        PrometheusHTTPMetricsServer.COLLECTOR_NATIVE);
     srv.configure(context);
     srv.start();
+    String result = scrape(port);
+    String[] targetOutputs = {
+      "# TYPE Flume_channel_current_size gauge\n",
+      "Flume_channel_current_size{agent=\"a1\",type=\"channel\",component=\"memChannel\",} 1.0\n",
+      "Flume_channel_capacity{agent=\"a1\",type=\"channel\",component=\"memChannel\",} 100.0\n",
+      "Flume_channel_event_put_attempt_total{agent=\"a1\",type=\"channel\","
+          + "component=\"pmemChannel\",} 2.0\n",
+      "Flume_channel_event_take_success_total{agent=\"a1\",type=\"channel\","
+          + "component=\"memChannel\",} 1.0\n",
+      "Flume_channel_put_batch_size{agent=\"a1\",type=\"channel\",component=\"memChannel\","
+          + "quantile=\"0.5\",} 2.0\n"};
+
+    for (String target : targetOutputs) {
+      Assert.assertTrue(target, result.contains(target));
+    }
+
+    srv.stop();
+    shutdown();
+  }
+
+  private String scrape(int port) throws Exception {
     Thread.sleep(1000);
     URL url = new URL("http://0.0.0.0:" + port + "/metrics");
     HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -58,6 +86,16 @@ public class TestPrometheusMetricsServer extends BaseHTTPMetricsTest {
       result += line + "\n";
     }
     reader.close();
+    return result;
+  }
+
+  private void testWithPort(int port) throws Exception {
+    MonitorService srv = new PrometheusHTTPMetricsServer();
+    Context context = new Context();
+    context.put(PrometheusHTTPMetricsServer.CONFIG_PORT, String.valueOf(port));
+    srv.configure(context);
+    srv.start();
+    String result = scrape(port);
     String[] targetOutputs = {"ChannelSize{component=\"pmemChannel\",} 1.0\n",
       "Flume_ChannelSize{component=\"memChannel\",} 1.0\n",
       "Flume_ChannelCapacity{component=\"pmemChannel\",} 0.0\n",
@@ -69,7 +107,10 @@ public class TestPrometheusMetricsServer extends BaseHTTPMetricsTest {
       "Flume_EventPutSuccessCount_total{component=\"pmemChannel\",} 2.0\n",
       "Flume_EventPutSuccessCount_total{component=\"memChannel\",} 2.0\n",
       "Flume_EventTakeSuccessCount_total{component=\"pmemChannel\",} 1.0\n",
-      "Flume_EventTakeSuccessCount_total{component=\"memChannel\",} 1.0\n"};
+      "Flume_EventTakeSuccessCount_total{component=\"memChannel\",} 1.0\n",
+      "Flume_channel_put_batch_size{component=\"memChannel\",quantile=\"0.5\",} 2.0\n",
+      "Flume_channel_put_batch_size_count{component=\"memChannel\",} 1.0\n",
+      "Flume_channel_take_batch_size_sum{component=\"memChannel\",} 1.0\n"};
 
     for (String target : targetOutputs) {
       Assert.assertTrue(result.contains(target));
@@ -78,6 +78,9 @@ public class TestJMXPollUtil {
     Map<String, String> memBean = mbeans.get("CHANNEL.memChannel");
     Assert.assertNotNull(memBean);
     JMXTestUtils.checkChannelCounterParams(memBean);
+    Assert.assertEquals("1", memBean.get("channel.put.batch.size.Count"));
+    Assert.assertEquals("2", memBean.get("channel.put.batch.size.50thPercentile"));
+    Assert.assertEquals("2", memBean.get("channel.commit.latency.us.Count"));
     Map<String, String> pmemBean = mbeans.get("CHANNEL.pmemChannel");
     Assert.assertNotNull(pmemBean);
     JMXTestUtils.checkChannelCounterParams(pmemBean);
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flume.interceptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
+import org.apache.flume.event.EventBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+public class TestInterceptorChain {
+
+  /** Drops the events whose body is a multiple of the given number. */
+  @ThreadSafe
+  private static class DropMultiplesInterceptor implements Interceptor {
+    private final int divisor;
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    DropMultiplesInterceptor(int divisor) {
+      this.divisor = divisor;
+    }
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public Event intercept(Event event) {
+      threads.add(Thread.currentThread().getName());
+      int value = Integer.parseInt(new String(event.getBody(), Charsets.UTF_8));
+      return value % divisor == 0 ? null : event;
+    }
+
+    @Override
+    public List<Event> intercept(List<Event> events) {
+      List<Event> out = new ArrayList<Event>();
+      for (Event event : events) {
+        if (intercept(event) != null) {
+          out.add(event);
+        }
+      }
+      return out;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /** Records the size of the batches it sees. */
+  private static class BatchSizeInterceptor implements Interceptor {
+    private final List<Integer> batchSizes = Collections.synchronizedList(
+        new ArrayList<Integer>());
+
+    @Override
+    public void initialize() {
+    }
+
+    @Override
+    public Event intercept(Event event) {
+      return event;
+    }
+
+    @Override
+    public List<Event> intercept(List<Event> events) {
+      batchSizes.add(events.size());
+      return events;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static List<Event> createEvents(int count) {
+    List<Event> events = new ArrayList<Event>();
+    for (int i = 1; i <= count; i++) {
+      events.add(EventBuilder.withBody(String.valueOf(i), Charsets.UTF_8));
+    }
+    return events;
+  }
+
+  @Test
+  public void testParallelChain() {
+    DropMultiplesInterceptor dropTwos = new DropMultiplesInterceptor(2);
+    BatchSizeInterceptor batchSize = new BatchSizeInterceptor();
+    DropMultiplesInterceptor dropThrees = new DropMultiplesInterceptor(3);
+    InterceptorChain chain = new InterceptorChain();
+    chain.setInterceptors(Lists.<Interceptor>newArrayList(dropTwos, batchSize, dropThrees));
+    chain.setParallelChunkSize(10);
+    chain.initialize();
+
+    List<Event> events = chain.intercept(createEvents(1000));
+    Assert.assertEquals(333, events.size());
+    int expected = 1;
+    for (Event event : events) {
+      Assert.assertEquals(String.valueOf(expected), new String(event.getBody(), Charsets.UTF_8));
+      expected += expected % 6 == 1 ? 4 : 2;
+    }
+    // The interceptor that is not thread safe saw the whole batch
+    Assert.assertEquals(Collections.singletonList(500), batchSize.batchSizes);
+    Assert.assertTrue(dropTwos.threads.contains(Thread.currentThread().getName()));
+    Assert.assertTrue(dropTwos.threads.size() > 1);
+    chain.close();
+  }
+
+  @Test
+  public void testSmallBatchesRunSerially() {
+    DropMultiplesInterceptor dropTwos = new DropMultiplesInterceptor(2);
+    InterceptorChain chain = new InterceptorChain();
+    chain.setInterceptors(Lists.<Interceptor>newArrayList(dropTwos));
+    chain.setParallelChunkSize(100);
+
+    Assert.assertEquals(50, chain.intercept(createEvents(100)).size());
+    Assert.assertEquals(Collections.singleton(Thread.currentThread().getName()),
+        dropTwos.threads);
+  }
+
+  @Test
+  public void testThreadSafeBuiltins() {
+    Assert.assertTrue(InterceptorChain.isThreadSafe(
+        new TimestampInterceptor.Builder().build()));
+    Assert.assertFalse(InterceptorChain.isThreadSafe(new BatchSizeInterceptor()));
+  }
+}
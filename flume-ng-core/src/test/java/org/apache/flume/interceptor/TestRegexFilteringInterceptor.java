@@ -100,4 +100,25 @@ public class TestRegexFilteringInterceptor {
 
     builder.configure(ctx);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testNonAsciiBody() throws ClassNotFoundException,
+      InstantiationException, IllegalAccessException {
+    Event event = EventBuilder.withBody("WARNING: caf\u00e9 \u00e0 5\u20ac", Charsets.UTF_8);
+    // Plain ASCII strings are found in the undecoded body, regexes in the decoded one
+    for (String regex : new String[] {"WARNING", "caf\u00e9", "caf. . 5.$", "5\u20ac$"}) {
+      Interceptor.Builder builder = InterceptorBuilderFactory.newInstance(
+          InterceptorType.REGEX_FILTER.toString());
+      Context ctx = new Context();
+      ctx.put(Constants.REGEX, regex);
+      builder.configure(ctx);
+      Assert.assertNotNull(regex, builder.build().intercept(event));
+    }
+    Interceptor.Builder builder = InterceptorBuilderFactory.newInstance(
+        InterceptorType.REGEX_FILTER.toString());
+    Context ctx = new Context();
+    ctx.put(Constants.REGEX, "caf...$");
+    builder.configure(ctx);
+    Assert.assertNull(builder.build().intercept(event));
+  }
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flume.interceptor;
+
+import java.util.List;
+
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.event.EventBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+public class TestRegexRulesInterceptor {
+
+  private Interceptor build(Context context) throws Exception {
+    Interceptor.Builder builder = InterceptorBuilderFactory.newInstance(
+        InterceptorType.REGEX_RULES.toString());
+    builder.configure(context);
+    Interceptor interceptor = builder.build();
+    interceptor.initialize();
+    return interceptor;
+  }
+
+  private Context rules() {
+    Context context = new Context();
+    context.put("rules", "no-debug user mask masked");
+    context.put("rules.no-debug.type", "regex_filter");
+    context.put("rules.no-debug.regex", "^DEBUG");
+    context.put("rules.no-debug.excludeEvents", "true");
+    context.put("rules.user.type", "regex_extractor");
+    context.put("rules.user.regex", "user=(\\S+)");
+    context.put("rules.user.serializers", "s1");
+    context.put("rules.user.serializers.s1.name", "user");
+    context.put("rules.mask.type", "search_replace");
+    context.put("rules.mask.searchPattern", "password=\\S+");
+    context.put("rules.mask.replaceString", "password=***");
+    // Sees the replacement made by the rule before it
+    context.put("rules.masked.type", "regex_extractor");
+    context.put("rules.masked.regex", "password=(\\S+)");
+    context.put("rules.masked.serializers", "s1");
+    context.put("rules.masked.serializers.s1.name", "password");
+    return context;
+  }
+
+  @Test
+  public void testRules() throws Exception {
+    Interceptor interceptor = build(rules());
+
+    Event debug = EventBuilder.withBody("DEBUG user=joe", Charsets.UTF_8);
+    Event login = EventBuilder.withBody("INFO user=jos\u00e9 password=s\u00e9cret ok",
+        Charsets.UTF_8);
+    byte[] plainBody = "INFO nothing to see".getBytes(Charsets.UTF_8);
+    Event plain = EventBuilder.withBody(plainBody);
+
+    List<Event> events = interceptor.intercept(Lists.newArrayList(debug, login, plain));
+    Assert.assertEquals(Lists.newArrayList(login, plain), events);
+
+    Assert.assertEquals("INFO user=jos\u00e9 password=*** ok",
+        new String(login.getBody(), Charsets.UTF_8));
+    Assert.assertEquals("jos\u00e9", login.getHeaders().get("user"));
+    Assert.assertEquals("***", login.getHeaders().get("password"));
+
+    Assert.assertSame(plainBody, plain.getBody());
+    Assert.assertTrue(plain.getHeaders().isEmpty());
+    interceptor.close();
+  }
+
+  @Test
+  public void testRulesOnAsciiBody() throws Exception {
+    Interceptor interceptor = build(rules());
+    Event login = interceptor.intercept(
+        EventBuilder.withBody("INFO user=joe password=secret", Charsets.UTF_8));
+    Assert.assertEquals("INFO user=joe password=***",
+        new String(login.getBody(), Charsets.UTF_8));
+    Assert.assertEquals("joe", login.getHeaders().get("user"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedRuleType() throws Exception {
+    Context context = new Context();
+    context.put("rules", "ts");
+    context.put("rules.ts.type", "timestamp");
+    build(context);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedCharset() throws Exception {
+    Context context = new Context();
+    context.put("rules", "mask");
+    context.put("rules.mask.type", "search_replace");
+    context.put("rules.mask.searchPattern", "a");
+    context.put("rules.mask.charset", "UTF-16");
+    build(context);
+  }
+}
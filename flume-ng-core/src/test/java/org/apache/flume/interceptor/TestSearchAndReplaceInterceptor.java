@@ -27,6 +27,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class TestSearchAndReplaceInterceptor {
 
@@ -95,4 +96,28 @@ public class TestSearchAndReplaceInterceptor {
     context.put("replaceString", "");
     testSearchReplace(context, input, output);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testNonAsciiBody() throws Exception {
+    final String input = "caf\u00e9 fa\u00e7ade na\u00efve";
+    final String output = "caf\u00e9 [fa\u00e7ade] na\u00efve";
+    Context context = new Context();
+    context.put("searchPattern", "fa.ade");
+    context.put("replaceString", "[$0]");
+    testSearchReplace(context, input, output);
+  }
+
+  @Test
+  public void testNoMatchKeepsBody() throws Exception {
+    Context context = new Context();
+    context.put("searchPattern", "absent");
+    Interceptor.Builder builder = InterceptorBuilderFactory.newInstance(
+        InterceptorType.SEARCH_REPLACE.toString());
+    builder.configure(context);
+    Interceptor interceptor = builder.build();
+
+    byte[] body = "nothing to replace".getBytes(Charsets.UTF_8);
+    Event event = interceptor.intercept(EventBuilder.withBody(body));
+    assertSame(body, event.getBody());
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.serialization;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import junit.framework.Assert;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.util.List;
+import java.util.Random;
+
+public class TestBlockLineDeserializer {
+
+  private static final File WORK_DIR =
+      new File("target/test/work").getAbsoluteFile();
+
+  private File file;
+  private File meta;
+
+  @Before
+  public void setup() throws Exception {
+    Files.createParentDirs(new File(WORK_DIR, "dummy"));
+    file = File.createTempFile(getClass().getSimpleName(), ".txt", WORK_DIR);
+    meta = File.createTempFile(getClass().getSimpleName(), ".avro", WORK_DIR);
+    meta.delete(); // We want the filename but not the empty file
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    meta.delete();
+    file.delete();
+  }
+
+  private ResettableFileInputStream open(String content, Charset charset) throws IOException {
+    Files.write(content, file, charset);
+    meta.delete();
+    PositionTracker tracker = new DurablePositionTracker(meta, file.getPath());
+    return new ResettableFileInputStream(file, tracker,
+        ResettableFileInputStream.DEFAULT_BUF_SIZE, charset, DecodeErrorPolicy.FAIL);
+  }
+
+  private EventDeserializer build(Context ctx, ResettableInputStream in) {
+    return new BlockLineDeserializer.Builder().build(ctx, in);
+  }
+
+  @Test
+  public void testSimpleViaFactory() throws IOException {
+    ResettableInputStream in = open("line 1\nline 2\n", Charsets.UTF_8);
+    EventDeserializer des = EventDeserializerFactory.getInstance("BLOCK_LINE", new Context(), in);
+    Assert.assertTrue(des instanceof BlockLineDeserializer);
+
+    Event evt = des.readEvent();
+    Assert.assertEquals("line 1", new String(evt.getBody()));
+    des.mark();
+
+    evt = des.readEvent();
+    Assert.assertEquals("line 2", new String(evt.getBody()));
+    des.reset(); // reset!
+
+    evt = des.readEvent();
+    Assert.assertEquals("Line 2 should be repeated, " +
+        "because we reset() the stream", "line 2", new String(evt.getBody()));
+
+    evt = des.readEvent();
+    Assert.assertNull("Event should be null because there are no lines " +
+        "left to read", evt);
+
+    des.mark();
+    des.close();
+  }
+
+  @Test
+  public void testMarkSurvivesReopen() throws IOException {
+    ResettableInputStream in = open("line 1\nline 2\nline 3", Charsets.UTF_8);
+    EventDeserializer des = build(new Context(), in);
+    Assert.assertEquals(2, des.readEvents(2).size());
+    des.mark();
+    des.close();
+
+    // the mark points after the last line returned, not after the block read
+    PositionTracker tracker = new DurablePositionTracker(meta, file.getPath());
+    in = new ResettableFileInputStream(file, tracker);
+    des = build(new Context(), in);
+    List<Event> events = des.readEvents(10);
+    Assert.assertEquals(1, events.size());
+    Assert.assertEquals("line 3", new String(events.get(0).getBody()));
+    des.close();
+  }
+
+  // truncation occurs at maxLineLength boundaries
+  @Test
+  public void testMaxLineLength() throws IOException {
+    Context ctx = new Context();
+    ctx.put(LineDeserializer.MAXLINE_KEY, "10");
+
+    EventDeserializer des = build(ctx, open("abcdefghijklmnopqrstuvwxyz\n", Charsets.UTF_8));
+    assertEventBodyEquals("abcdefghij", des.readEvent());
+    assertEventBodyEquals("klmnopqrst", des.readEvent());
+    assertEventBodyEquals("uvwxyz", des.readEvent());
+    Assert.assertNull(des.readEvent());
+    des.close();
+
+    des = build(ctx, open("àbcdefghijklmnopqrstuvwxyz\n", Charsets.UTF_8));
+    assertEventBodyEquals("àbcdefghij", des.readEvent());
+    assertEventBodyEquals("klmnopqrst", des.readEvent());
+    assertEventBodyEquals("uvwxyz", des.readEvent());
+    Assert.assertNull(des.readEvent());
+    des.close();
+  }
+
+  @Test
+  public void testOutputCharset() throws IOException {
+    Context ctx = new Context();
+    ctx.put(LineDeserializer.OUT_CHARSET_KEY, "UTF-16BE");
+    EventDeserializer des = build(ctx, open("ascii\nété\n", Charsets.UTF_8));
+    Assert.assertEquals("ascii", new String(des.readEvent().getBody(), Charsets.UTF_16BE));
+    Assert.assertEquals("été",
+        new String(des.readEvent().getBody(), Charsets.UTF_16BE));
+    des.close();
+  }
+
+  @Test(expected = MalformedInputException.class)
+  public void testMalformedInput() throws IOException {
+    Files.write(new byte[] {'a', (byte) 0xff, 'b', '\n'}, file);
+    PositionTracker tracker = new DurablePositionTracker(meta, file.getPath());
+    EventDeserializer des = build(new Context(), new ResettableFileInputStream(file, tracker));
+    des.readEvent();
+  }
+
+  @Test
+  public void testFallback() throws IOException {
+    ResettableInputStream in = new ResettableTestStringInputStream("line 1\n");
+    Assert.assertTrue(build(new Context(), in) instanceof LineDeserializer);
+    in = open("line 1\n", Charsets.UTF_16);
+    Assert.assertTrue(build(new Context(), in) instanceof LineDeserializer);
+    in.close();
+  }
+
+  // lines spanning many blocks are split exactly like LineDeserializer does
+  @Test
+  public void testSameAsLineDeserializer() throws IOException {
+    Random rnd = new Random(42);
+    String chars = "abc é中\n";
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 200000) {
+      sb.append(chars.charAt(rnd.nextInt(chars.length())));
+      if (rnd.nextInt(100) == 0) {
+        sb.append('\n');
+      }
+    }
+    Context ctx = new Context();
+    ctx.put(LineDeserializer.MAXLINE_KEY, "50");
+    ctx.put(BlockLineDeserializer.BLOCK_SIZE_KEY, "16");
+
+    EventDeserializer expected = new LineDeserializer(ctx, open(sb.toString(), Charsets.UTF_8));
+    List<Event> expectedEvents = expected.readEvents(Integer.MAX_VALUE);
+    expected.close();
+    EventDeserializer des = build(ctx, open(sb.toString(), Charsets.UTF_8));
+    List<Event> events = des.readEvents(Integer.MAX_VALUE);
+    des.close();
+
+    Assert.assertEquals(expectedEvents.size(), events.size());
+    for (int i = 0; i < events.size(); i++) {
+      Assert.assertEquals(new String(expectedEvents.get(i).getBody(), Charsets.UTF_8),
+          new String(events.get(i).getBody(), Charsets.UTF_8));
+    }
+  }
+
+  private void assertEventBodyEquals(String expected, Event event) {
+    String bodyStr = new String(event.getBody(), Charsets.UTF_8);
+    Assert.assertEquals(expected, bodyStr);
+  }
+}
@@ -36,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TestLoadBalancingSinkProcessor {
 
@@ -623,13 +624,226 @@ public class TestLoadBalancingSinkProcessor {
     Assert.assertTrue(s3.getEvents().size() == 0);
   }
 
+  @Test
+  public void testLeastLatencySlowSink() throws Exception {
+    Channel ch = new MockChannel();
+    int numEvents = 200;
+    for (int i = 0; i < numEvents; i++) {
+      ch.put(new MockEvent("test" + i));
+    }
+
+    // s1 is slow but does not fail
+    MockSink s1 = new MockSink(1) {
+      @Override
+      public Status process() throws EventDeliveryException {
+        try {
+          Thread.sleep(20);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+        return super.process();
+      }
+    };
+    s1.setChannel(ch);
+
+    MockSink s2 = new MockSink(2);
+    s2.setChannel(ch);
+
+    MockSink s3 = new MockSink(3);
+    s3.setChannel(ch);
+
+    List<Sink> sinks = new ArrayList<Sink>();
+    sinks.add(s1);
+    sinks.add(s2);
+    sinks.add(s3);
+
+    LoadBalancingSinkProcessor lbsp = getProcessor("least_latency", sinks, false);
+
+    Sink.Status s = Sink.Status.READY;
+    while (s != Sink.Status.BACKOFF) {
+      s = lbsp.process();
+    }
+
+    // s1 is not picked anymore once its latency is known
+    Assert.assertTrue(s1.getEvents().size() <= 2);
+    Assert.assertEquals(numEvents,
+        s1.getEvents().size() + s2.getEvents().size() + s3.getEvents().size());
+    Assert.assertTrue(s2.getEvents().size() > 0);
+    Assert.assertTrue(s3.getEvents().size() > 0);
+  }
+
+  private static class SlowSink extends MockSink {
+    private final AtomicInteger inFlight;
+    private final AtomicInteger maxInFlight;
+
+    private SlowSink(int id, AtomicInteger inFlight, AtomicInteger maxInFlight) {
+      super(id);
+      this.inFlight = inFlight;
+      this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public Status process() throws EventDeliveryException {
+      int current = inFlight.incrementAndGet();
+      try {
+        maxInFlight.accumulateAndGet(current, Math::max);
+        Thread.sleep(20);
+        return super.process();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new EventDeliveryException(ex);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  private static void awaitEmpty(Channel ch) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (System.currentTimeMillis() < deadline) {
+      synchronized (ch) {
+        if (((MockChannel) ch).events.isEmpty()) {
+          return;
+        }
+      }
+      Thread.sleep(50);
+    }
+    Assert.fail("The channel was not drained");
+  }
+
+  @Test
+  public void testConcurrentSinks() throws Exception {
+    Channel ch = new MockChannel();
+    int numEvents = 60;
+    for (int i = 0; i < numEvents; i++) {
+      ch.put(new MockEvent("test" + i));
+    }
+
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    List<Sink> sinks = new ArrayList<Sink>();
+    for (int i = 0; i < 3; i++) {
+      MockSink sink = new SlowSink(i, inFlight, maxInFlight);
+      sink.setName("s" + i);
+      sink.setChannel(ch);
+      sinks.add(sink);
+    }
+
+    Context ctx = getContext("round_robin", false);
+    ctx.put("concurrent", "true");
+    LoadBalancingSinkProcessor lbsp = getProcessor(sinks, ctx);
+    awaitEmpty(ch);
+    Assert.assertEquals(Status.READY, lbsp.process());
+    lbsp.stop();
+
+    int delivered = 0;
+    for (Sink sink : sinks) {
+      delivered += ((MockSink) sink).getEvents().size();
+      Assert.assertTrue(((MockSink) sink).getEvents().size() > 0);
+    }
+    Assert.assertEquals(numEvents, delivered);
+    Assert.assertTrue(maxInFlight.get() > 1);
+  }
+
+  @Test
+  public void testConcurrentSinksFailover() throws Exception {
+    Channel ch = new MockChannel();
+    int numEvents = 20;
+    for (int i = 0; i < numEvents; i++) {
+      ch.put(new MockEvent("test" + i));
+    }
+
+    MockSink s1 = new MockSink(1);
+    s1.setName("s1");
+    s1.setChannel(ch);
+    s1.setFail(true);
+
+    MockSink s2 = new MockSink(2);
+    s2.setName("s2");
+    s2.setChannel(ch);
+
+    List<Sink> sinks = new ArrayList<Sink>();
+    sinks.add(s1);
+    sinks.add(s2);
+
+    Context ctx = getContext("random", true);
+    ctx.put("concurrent", "true");
+    LoadBalancingSinkProcessor lbsp = getProcessor(sinks, ctx);
+    awaitEmpty(ch);
+    Assert.assertEquals(Status.READY, lbsp.process());
+
+    // Once s2 fails too, the whole group fails
+    s2.setFail(true);
+    ch.put(new MockEvent("test"));
+    boolean failed = false;
+    for (int i = 0; i < 15 && !failed; i++) {
+      try {
+        lbsp.process();
+      } catch (EventDeliveryException e) {
+        failed = true;
+      }
+    }
+    lbsp.stop();
+    Assert.assertTrue(failed);
+
+    Assert.assertEquals(0, s1.getEvents().size());
+    Assert.assertEquals(numEvents, s2.getEvents().size());
+  }
+
+  @Test
+  public void testConcurrentSinkThrowingError() throws Exception {
+    Channel ch = new MockChannel();
+    int numEvents = 20;
+    for (int i = 0; i < numEvents; i++) {
+      ch.put(new MockEvent("test" + i));
+    }
+
+    // s1 throws an Error rather than an exception
+    MockSink s1 = new MockSink(1) {
+      @Override
+      public Status process() throws EventDeliveryException {
+        throw new NoClassDefFoundError("failed");
+      }
+    };
+    s1.setName("s1");
+    s1.setChannel(ch);
+
+    MockSink s2 = new MockSink(2);
+    s2.setName("s2");
+    s2.setChannel(ch);
+
+    List<Sink> sinks = new ArrayList<Sink>();
+    sinks.add(s1);
+    sinks.add(s2);
+
+    Context ctx = getContext("round_robin", true);
+    ctx.put("concurrent", "true");
+    LoadBalancingSinkProcessor lbsp = getProcessor(sinks, ctx);
+    awaitEmpty(ch);
+    Assert.assertEquals(Status.READY, lbsp.process());
+
+    // s1 counts as failing, so the group fails once s2 fails too
+    s2.setFail(true);
+    boolean failed = false;
+    for (int i = 0; i < 15 && !failed; i++) {
+      try {
+        lbsp.process();
+      } catch (EventDeliveryException e) {
+        failed = true;
+      }
+    }
+    lbsp.stop();
+    Assert.assertTrue(failed);
+    Assert.assertEquals(numEvents, s2.getEvents().size());
+  }
+
   private static class MockSink extends AbstractSink {
 
     private final int id;
 
     private List<Event> events = new ArrayList();
 
-    private boolean fail = false;
+    private volatile boolean fail = false;
 
     private MockSink(int id) {
       this.id = id;
@@ -667,12 +881,12 @@ public class TestLoadBalancingSinkProcessor {
     private List<Event> events = new ArrayList<Event>();
 
     @Override
-    public void put(Event event) throws ChannelException {
+    public synchronized void put(Event event) throws ChannelException {
       events.add(event);
     }
 
     @Override
-    public Event take() throws ChannelException {
+    public synchronized Event take() throws ChannelException {
       if (events.size() > 0) {
         return events.remove(0);
       }
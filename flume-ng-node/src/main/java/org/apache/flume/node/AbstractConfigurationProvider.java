@@ -103,10 +103,11 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
       Map<String, ChannelComponent> channelComponentMap = Maps.newHashMap();
       Map<String, SourceRunner> sourceRunnerMap = Maps.newHashMap();
       Map<String, SinkRunner> sinkRunnerMap = Maps.newHashMap();
+      Map<String, Map<String, String>> componentProperties = Maps.newHashMap();
       try {
-        loadChannels(agentConf, channelComponentMap);
-        loadSources(agentConf, channelComponentMap, sourceRunnerMap);
-        loadSinks(agentConf, channelComponentMap, sinkRunnerMap);
+        loadChannels(agentConf, channelComponentMap, componentProperties);
+        loadSources(agentConf, channelComponentMap, sourceRunnerMap, componentProperties);
+        loadSinks(agentConf, channelComponentMap, sinkRunnerMap, componentProperties);
         Set<String> channelNames = new HashSet<String>(channelComponentMap.keySet());
         for (String channelName : channelNames) {
           ChannelComponent channelComponent = channelComponentMap.get(channelName);
@@ -123,13 +124,19 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
             LOGGER.info(String.format("Channel %s connected to %s",
                 channelName, channelComponent.components.toString()));
             conf.addChannel(channelName, channelComponent.channel);
+            setComponentProperties(conf, componentProperties,
+                BasicConfigurationConstants.CONFIG_CHANNELS_PREFIX + channelName);
           }
         }
         for (Map.Entry<String, SourceRunner> entry : sourceRunnerMap.entrySet()) {
           conf.addSourceRunner(entry.getKey(), entry.getValue());
+          setComponentProperties(conf, componentProperties,
+              BasicConfigurationConstants.CONFIG_SOURCES_PREFIX + entry.getKey());
         }
         for (Map.Entry<String, SinkRunner> entry : sinkRunnerMap.entrySet()) {
           conf.addSinkRunner(entry.getKey(), entry.getValue());
+          setComponentProperties(conf, componentProperties,
+              BasicConfigurationConstants.CONFIG_SINKS_PREFIX + entry.getKey());
         }
       } catch (InstantiationException ex) {
         LOGGER.error("Failed to instantiate component", ex);
@@ -148,8 +155,17 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
     return agentName;
   }
 
+  private void setComponentProperties(MaterializedConfiguration conf,
+      Map<String, Map<String, String>> componentProperties, String key) {
+    Map<String, String> properties = componentProperties.get(key);
+    if (properties != null) {
+      conf.setComponentProperties(key, properties);
+    }
+  }
+
   private void loadChannels(AgentConfiguration agentConf,
-      Map<String, ChannelComponent> channelComponentMap)
+      Map<String, ChannelComponent> channelComponentMap,
+      Map<String, Map<String, String>> componentProperties)
           throws InstantiationException {
     LOGGER.info("Creating channels");
 
@@ -205,6 +221,8 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
         try {
           Configurables.configure(channel, context);
           channelComponentMap.put(chName, new ChannelComponent(channel));
+          componentProperties.put(BasicConfigurationConstants.CONFIG_CHANNELS_PREFIX + chName,
+              context.getParameters());
           LOGGER.info("Created channel " + chName);
         } catch (Exception e) {
           String msg = String.format("Channel %s has been removed due to an " +
@@ -262,7 +280,8 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
 
   private void loadSources(AgentConfiguration agentConf,
       Map<String, ChannelComponent> channelComponentMap,
-      Map<String, SourceRunner> sourceRunnerMap)
+      Map<String, SourceRunner> sourceRunnerMap,
+      Map<String, Map<String, String>> componentProperties)
       throws InstantiationException {
 
     Set<String> sourceNames = agentConf.getSourceSet();
@@ -346,6 +365,8 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
           source.setChannelProcessor(channelProcessor);
           sourceRunnerMap.put(sourceName,
               SourceRunner.forSource(source));
+          componentProperties.put(BasicConfigurationConstants.CONFIG_SOURCES_PREFIX + sourceName,
+              context.getParameters());
           for (Channel channel : sourceChannels) {
             ChannelComponent channelComponent =
                 Preconditions.checkNotNull(channelComponentMap.get(channel.getName()),
@@ -409,12 +430,14 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
   }
 
   private void loadSinks(AgentConfiguration agentConf,
-      Map<String, ChannelComponent> channelComponentMap, Map<String, SinkRunner> sinkRunnerMap)
+      Map<String, ChannelComponent> channelComponentMap, Map<String, SinkRunner> sinkRunnerMap,
+      Map<String, Map<String, String>> componentProperties)
       throws InstantiationException {
     Set<String> sinkNames = agentConf.getSinkSet();
     Map<String, ComponentConfiguration> compMap =
         agentConf.getSinkConfigMap();
     Map<String, Sink> sinks = new HashMap<String, Sink>();
+    Map<String, Map<String, String>> sinkProperties = new HashMap<String, Map<String, String>>();
     /*
      * Components which have a ComponentConfiguration object
      */
@@ -465,6 +488,7 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
           checkSinkChannelCompatibility(sink, channelComponent.channel);
           sink.setChannel(channelComponent.channel);
           sinks.put(sinkName, sink);
+          sinkProperties.put(sinkName, context.getParameters());
           channelComponent.components.add(sinkName);
         } catch (Exception e) {
           String msg = String.format("Sink %s has been removed due to an " +
@@ -474,11 +498,13 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
       }
     }
 
-    loadSinkGroups(agentConf, sinks, sinkRunnerMap);
+    loadSinkGroups(agentConf, sinks, sinkRunnerMap, sinkProperties, componentProperties);
   }
 
   private void loadSinkGroups(AgentConfiguration agentConf,
-      Map<String, Sink> sinks, Map<String, SinkRunner> sinkRunnerMap)
+      Map<String, Sink> sinks, Map<String, SinkRunner> sinkRunnerMap,
+      Map<String, Map<String, String>> sinkProperties,
+      Map<String, Map<String, String>> componentProperties)
           throws InstantiationException {
     Set<String> sinkGroupNames = agentConf.getSinkgroupSet();
     Map<String, ComponentConfiguration> compMap =
@@ -512,6 +538,12 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
           Configurables.configure(group, groupConf);
           sinkRunnerMap.put(comp.getComponentName(),
               new SinkRunner(group.getProcessor()));
+          Map<String, String> groupProperties = getSinkGroupProperties(groupConf, sinkProperties);
+          if (groupProperties != null) {
+            componentProperties.put(
+                BasicConfigurationConstants.CONFIG_SINKS_PREFIX + comp.getComponentName(),
+                groupProperties);
+          }
         } catch (Exception e) {
           String msg = String.format("SinkGroup %s has been removed due to " +
               "an error during configuration", groupName);
@@ -529,6 +561,11 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
           pr.setSinks(sinkMap);
           Configurables.configure(pr, new Context());
           sinkRunnerMap.put(entry.getKey(), new SinkRunner(pr));
+          if (sinkProperties.containsKey(entry.getKey())) {
+            componentProperties.put(
+                BasicConfigurationConstants.CONFIG_SINKS_PREFIX + entry.getKey(),
+                sinkProperties.get(entry.getKey()));
+          }
         } catch (Exception e) {
           String msg = String.format("SinkGroup %s has been removed due to " +
               "an error during configuration", entry.getKey());
@@ -537,6 +574,36 @@ public abstract class AbstractConfigurationProvider implements ConfigurationProv
       }
     }
   }
+
+  /*
+   * The properties of a sink group cover the group itself and all its sinks,
+   * so that changing any of them restarts the group's runner.
+   */
+  private Map<String, String> getSinkGroupProperties(SinkGroupConfiguration groupConf,
+      Map<String, Map<String, String>> sinkProperties) {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put(BasicConfigurationConstants.CONFIG_SINKS,
+        String.join(" ", groupConf.getSinks()));
+    if (groupConf.getProcessorContext() != null) {
+      for (Entry<String, String> entry :
+           groupConf.getProcessorContext().getParameters().entrySet()) {
+        properties.put(BasicConfigurationConstants.CONFIG_SINK_PROCESSOR_PREFIX + entry.getKey(),
+            entry.getValue());
+      }
+    }
+    for (String sink : groupConf.getSinks()) {
+      Map<String, String> sinkConf = sinkProperties.get(sink);
+      if (sinkConf == null) {
+        return null;
+      }
+      for (Entry<String, String> entry : sinkConf.entrySet()) {
+        properties.put(BasicConfigurationConstants.CONFIG_SINKS_PREFIX + sink + "."
+            + entry.getKey(), entry.getValue());
+      }
+    }
+    return properties;
+  }
+
   private static class ChannelComponent {
     final Channel channel;
     final List<String> components;
@@ -27,8 +27,11 @@ import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
@@ -48,6 +51,8 @@ import org.apache.flume.SinkProcessor;
 import org.apache.flume.SinkRunner;
 import org.apache.flume.Source;
 import org.apache.flume.SourceRunner;
+import org.apache.flume.channel.ChannelProcessor;
+import org.apache.flume.conf.BasicConfigurationConstants;
 import org.apache.flume.instrumentation.MonitorService;
 import org.apache.flume.instrumentation.MonitoringType;
 import org.apache.flume.lifecycle.LifecycleAware;
@@ -108,9 +113,13 @@ public class Application {
   public void handleConfigurationEvent(MaterializedConfiguration conf) {
     try {
       lifecycleLock.lockInterruptibly();
-      stopAllComponents();
-      initializeAllComponents(conf);
-      startAllComponents(conf);
+      if (this.materializedConfiguration == null) {
+        stopAllComponents();
+        initializeComponents(conf, conf);
+        startAllComponents(conf);
+      } else {
+        reloadChangedComponents(conf);
+      }
     } catch (InterruptedException e) {
       logger.info("Interrupted while trying to handle configuration event");
       return;
@@ -173,14 +182,21 @@ public class Application {
     }
   }
 
-  private void initializeAllComponents(MaterializedConfiguration materializedConfiguration) {
+  /**
+   * Initializes the components of the first configuration, which may only be
+   * some of the components of the second one. The components are given the
+   * whole configuration, so that they can find the other components they use
+   * even if those were not restarted.
+   */
+  private void initializeComponents(MaterializedConfiguration components,
+      MaterializedConfiguration materializedConfiguration) {
     logger.info("Initializing components");
-    for (Channel ch : materializedConfiguration.getChannels().values()) {
+    for (Channel ch : components.getChannels().values()) {
       while (ch.getLifecycleState() != LifecycleState.START && ch instanceof Initializable) {
         ((Initializable) ch).initialize(materializedConfiguration);
       }
     }
-    for (SinkRunner sinkRunner : materializedConfiguration.getSinkRunners().values()) {
+    for (SinkRunner sinkRunner : components.getSinkRunners().values()) {
       SinkProcessor processor = sinkRunner.getPolicy();
       if (processor instanceof AbstractSingleSinkProcessor) {
         Sink sink = ((AbstractSingleSinkProcessor) processor).getSink();
@@ -195,7 +211,7 @@ public class Application {
         }
       }
     }
-    for (SourceRunner sourceRunner : materializedConfiguration.getSourceRunners().values()) {
+    for (SourceRunner sourceRunner : components.getSourceRunners().values()) {
       Source source = sourceRunner.getSource();
       if (source instanceof Initializable) {
         ((Initializable) source).initialize(materializedConfiguration);
@@ -207,7 +223,11 @@ public class Application {
     logger.info("Starting new configuration:{}", materializedConfiguration);
 
     this.materializedConfiguration = materializedConfiguration;
+    startComponents(materializedConfiguration);
+    this.loadMonitoring();
+  }
 
+  private void startComponents(MaterializedConfiguration materializedConfiguration) {
     for (Entry<String, Channel> entry :
         materializedConfiguration.getChannels().entrySet()) {
       try {
@@ -256,8 +276,136 @@ public class Application {
         logger.error("Error while starting {}", entry.getValue(), e);
       }
     }
+  }
 
-    this.loadMonitoring();
+  /**
+   * Applies a new configuration by restarting only the components whose
+   * properties changed, along with the sources and sinks of any restarted
+   * channel. The runners of unchanged components are kept running and carried
+   * over into the new configuration in place of the instances it created.
+   * Only the restarted components are initialized and started, against the
+   * resulting configuration, which also holds the components kept running.
+   */
+  private void reloadChangedComponents(MaterializedConfiguration conf) {
+    MaterializedConfiguration current = this.materializedConfiguration;
+    logger.info("Reloading configuration: {}", conf);
+
+    Map<String, Channel> keptChannels = new HashMap<String, Channel>();
+    for (Entry<String, Channel> entry : conf.getChannels().entrySet()) {
+      String key = BasicConfigurationConstants.CONFIG_CHANNELS_PREFIX + entry.getKey();
+      if (current.getChannels().get(entry.getKey()) == entry.getValue()
+          && isUnchanged(current, conf, key)) {
+        keptChannels.put(entry.getKey(), entry.getValue());
+      }
+    }
+    Map<String, SourceRunner> keptSources = new HashMap<String, SourceRunner>();
+    for (Entry<String, SourceRunner> entry : conf.getSourceRunners().entrySet()) {
+      String key = BasicConfigurationConstants.CONFIG_SOURCES_PREFIX + entry.getKey();
+      SourceRunner running = current.getSourceRunners().get(entry.getKey());
+      if (running != null && isUnchanged(current, conf, key)
+          && keptChannels.values().containsAll(getChannels(running))) {
+        keptSources.put(entry.getKey(), running);
+      }
+    }
+    Map<String, SinkRunner> keptSinks = new HashMap<String, SinkRunner>();
+    for (Entry<String, SinkRunner> entry : conf.getSinkRunners().entrySet()) {
+      String key = BasicConfigurationConstants.CONFIG_SINKS_PREFIX + entry.getKey();
+      SinkRunner running = current.getSinkRunners().get(entry.getKey());
+      if (running != null && isUnchanged(current, conf, key)
+          && keptChannels.values().containsAll(getChannels(running))) {
+        keptSinks.put(entry.getKey(), running);
+      }
+    }
+
+    for (Entry<String, SourceRunner> entry : current.getSourceRunners().entrySet()) {
+      if (keptSources.get(entry.getKey()) != entry.getValue()) {
+        stopComponent("Source", entry.getKey(), entry.getValue());
+      }
+    }
+    for (Entry<String, SinkRunner> entry : current.getSinkRunners().entrySet()) {
+      if (keptSinks.get(entry.getKey()) != entry.getValue()) {
+        stopComponent("Sink", entry.getKey(), entry.getValue());
+      }
+    }
+    for (Entry<String, Channel> entry : current.getChannels().entrySet()) {
+      if (keptChannels.get(entry.getKey()) != entry.getValue()) {
+        stopComponent("Channel", entry.getKey(), entry.getValue());
+      }
+    }
+
+    for (Entry<String, SourceRunner> entry : keptSources.entrySet()) {
+      conf.addSourceRunner(entry.getKey(), entry.getValue());
+    }
+    for (Entry<String, SinkRunner> entry : keptSinks.entrySet()) {
+      conf.addSinkRunner(entry.getKey(), entry.getValue());
+    }
+    logger.info("Keeping channels {}, sinks {} and sources {} running", keptChannels.keySet(),
+        keptSinks.keySet(), keptSources.keySet());
+
+    MaterializedConfiguration changed = new SimpleMaterializedConfiguration();
+    for (Entry<String, Channel> entry : conf.getChannels().entrySet()) {
+      if (!keptChannels.containsKey(entry.getKey())) {
+        changed.addChannel(entry.getKey(), entry.getValue());
+      }
+    }
+    for (Entry<String, SinkRunner> entry : conf.getSinkRunners().entrySet()) {
+      if (!keptSinks.containsKey(entry.getKey())) {
+        changed.addSinkRunner(entry.getKey(), entry.getValue());
+      }
+    }
+    for (Entry<String, SourceRunner> entry : conf.getSourceRunners().entrySet()) {
+      if (!keptSources.containsKey(entry.getKey())) {
+        changed.addSourceRunner(entry.getKey(), entry.getValue());
+      }
+    }
+    initializeComponents(changed, conf);
+    startComponents(changed);
+    this.materializedConfiguration = conf;
+    if (monitorServer == null) {
+      loadMonitoring();
+    }
+  }
+
+  private static boolean isUnchanged(MaterializedConfiguration current,
+      MaterializedConfiguration conf, String key) {
+    // Unknown properties count as changed, the component is then restarted
+    Map<String, String> properties = conf.getComponentProperties(key);
+    Map<String, String> currentProperties = current.getComponentProperties(key);
+    return properties != null && currentProperties != null
+        && properties.equals(currentProperties);
+  }
+
+  private void stopComponent(String kind, String name, LifecycleAware component) {
+    try {
+      logger.info("Stopping {} {}", kind, name);
+      supervisor.unsupervise(component);
+    } catch (Exception e) {
+      logger.error("Error while stopping {}", component, e);
+    }
+  }
+
+  private static List<Channel> getChannels(SourceRunner sourceRunner) {
+    ChannelProcessor processor = sourceRunner.getSource().getChannelProcessor();
+    if (processor == null) {
+      return Collections.emptyList();
+    }
+    return processor.getSelector().getAllChannels();
+  }
+
+  private static List<Channel> getChannels(SinkRunner sinkRunner) {
+    List<Channel> channels = new ArrayList<Channel>();
+    SinkProcessor processor = sinkRunner.getPolicy();
+    if (processor instanceof AbstractSingleSinkProcessor) {
+      channels.add(((AbstractSingleSinkProcessor) processor).getSink().getChannel());
+    } else if (processor instanceof AbstractSinkProcessor) {
+      for (Sink sink : ((AbstractSinkProcessor) processor).getSinks()) {
+        channels.add(sink.getChannel());
+      }
+    } else {
+      // Unknown processor, it can't be proven to use only kept channels
+      channels.add(null);
+    }
+    return channels;
   }
 
   @SuppressWarnings("unchecked")
@@ -370,6 +518,10 @@ public class Application {
       }
 
       String agentName = commandLine.getOptionValue('n');
+      // lets the monitoring services label their metrics with the agent name
+      if (agentName != null && System.getProperty(CONF_MONITOR_PREFIX + "agent") == null) {
+        System.setProperty(CONF_MONITOR_PREFIX + "agent", agentName);
+      }
       boolean reload = !commandLine.hasOption("no-reload-conf");
 
       boolean isZkConfigured = false;
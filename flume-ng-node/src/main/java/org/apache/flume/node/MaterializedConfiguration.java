@@ -44,4 +44,23 @@ public interface MaterializedConfiguration {
 
   Map<String, Channel> getChannels();
 
+  /**
+   * Records the properties a component was configured from, so that a later
+   * configuration can tell whether the component changed. Keys are the
+   * component name prefixed as in the properties file, e.g. "sources.r1",
+   * "channels.c1", or "sinks.k1" for the runner of a sink or sink group.
+   * The default implementation does not record them, and every component
+   * is then considered changed on reload.
+   */
+  default void setComponentProperties(String key, Map<String, String> properties) {
+  }
+
+  /**
+   * @return the properties recorded for the component, or null if they are
+   * not known
+   */
+  default Map<String, String> getComponentProperties(String key) {
+    return null;
+  }
+
 }
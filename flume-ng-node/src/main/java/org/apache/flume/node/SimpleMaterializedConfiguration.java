@@ -33,11 +33,13 @@ public class SimpleMaterializedConfiguration implements MaterializedConfiguratio
   private final Map<String, Channel> channels;
   private final Map<String, SourceRunner> sourceRunners;
   private final Map<String, SinkRunner> sinkRunners;
+  private final Map<String, Map<String, String>> componentProperties;
 
   public SimpleMaterializedConfiguration() {
     channels = new HashMap<String, Channel>();
     sourceRunners = new HashMap<String, SourceRunner>();
     sinkRunners = new HashMap<String, SinkRunner>();
+    componentProperties = new HashMap<String, Map<String, String>>();
   }
 
   @Override
@@ -75,4 +77,14 @@ public class SimpleMaterializedConfiguration implements MaterializedConfiguratio
     return ImmutableMap.copyOf(sinkRunners);
   }
 
+  @Override
+  public void setComponentProperties(String key, Map<String, String> properties) {
+    componentProperties.put(key, ImmutableMap.copyOf(properties));
+  }
+
+  @Override
+  public Map<String, String> getComponentProperties(String key) {
+    return componentProperties.get(key);
+  }
+
 }
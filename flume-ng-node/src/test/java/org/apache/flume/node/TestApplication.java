@@ -24,6 +24,7 @@ import static org.mockito.Mockito.*;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -37,7 +38,9 @@ import org.apache.flume.SourceRunner;
 import org.apache.flume.Transaction;
 import org.apache.flume.event.SimpleEvent;
 import org.apache.flume.lifecycle.LifecycleAware;
+import org.apache.flume.lifecycle.LifecycleController;
 import org.apache.flume.lifecycle.LifecycleState;
+import org.apache.flume.node.TestAbstractConfigurationProvider.MemoryConfigurationProvider;
 import org.apache.flume.source.EventProcessor;
 import org.junit.After;
 import org.junit.Assert;
@@ -246,6 +249,187 @@ public class TestApplication {
     application.stop();
   }
 
+  @Test
+  public void testIncrementalReload() throws Exception {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("a1.sources", "r1");
+    properties.put("a1.channels", "c1 c2");
+    properties.put("a1.sinks", "k1 k2");
+    properties.put("a1.sources.r1.type", "seq");
+    properties.put("a1.sources.r1.totalEvents", "10");
+    properties.put("a1.sources.r1.channels", "c1");
+    properties.put("a1.channels.c1.type", "memory");
+    properties.put("a1.channels.c2.type", "memory");
+    properties.put("a1.sinks.k1.type", "null");
+    properties.put("a1.sinks.k1.channel", "c1");
+    properties.put("a1.sinks.k2.type", "null");
+    properties.put("a1.sinks.k2.channel", "c2");
+    MemoryConfigurationProvider configurationProvider =
+        new MemoryConfigurationProvider("a1", properties);
+
+    Application application = new Application();
+    MaterializedConfiguration first = configurationProvider.getConfiguration();
+    application.handleConfigurationEvent(first);
+    SourceRunner r1 = first.getSourceRunners().get("r1");
+    SinkRunner k1 = first.getSinkRunners().get("k1");
+    SinkRunner k2 = first.getSinkRunners().get("k2");
+
+    // Changing a sink only restarts that sink
+    properties.put("a1.sinks.k2.batchSize", "50");
+    MaterializedConfiguration second = configurationProvider.getConfiguration();
+    application.handleConfigurationEvent(second);
+    Assert.assertSame(r1, second.getSourceRunners().get("r1"));
+    Assert.assertSame(k1, second.getSinkRunners().get("k1"));
+    Assert.assertNotSame(k2, second.getSinkRunners().get("k2"));
+    Assert.assertTrue(LifecycleController.waitForState(r1,
+        LifecycleState.START, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(k2,
+        LifecycleState.STOP, 5000L));
+    k2 = second.getSinkRunners().get("k2");
+    Assert.assertTrue(LifecycleController.waitForState(k2,
+        LifecycleState.START, 5000L));
+
+    // Changing a channel restarts the source and sink connected to it
+    properties.put("a1.channels.c1.capacity", "500");
+    MaterializedConfiguration third = configurationProvider.getConfiguration();
+    application.handleConfigurationEvent(third);
+    Assert.assertNotSame(r1, third.getSourceRunners().get("r1"));
+    Assert.assertNotSame(k1, third.getSinkRunners().get("k1"));
+    Assert.assertSame(k2, third.getSinkRunners().get("k2"));
+    Assert.assertTrue(LifecycleController.waitForState(r1,
+        LifecycleState.STOP, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(k1,
+        LifecycleState.STOP, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(k2,
+        LifecycleState.START, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(third.getSinkRunners().get("k1"),
+        LifecycleState.START, 5000L));
+
+    application.stop();
+  }
+
+  @Test
+  public void testReloadChangedSinkWithUnchangedChannel() throws Exception {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("host1.sources", "source1 processedSource");
+    properties.put("host1.channels", "channel1 processedChannel");
+    properties.put("host1.sinks", "sink1");
+    properties.put("host1.sources.source1.type", "org.apache.flume.source.LocalSource");
+    properties.put("host1.sources.source1.channels", "channel1");
+    properties.put("host1.sources.processedSource.type", "org.apache.flume.source.LocalSource");
+    properties.put("host1.sources.processedSource.channels", "processedChannel");
+    properties.put("host1.channels.channel1.type", "memory");
+    properties.put("host1.channels.processedChannel.type", "memory");
+    properties.put("host1.sinks.sink1.type", "org.apache.flume.sink.NullInitSink");
+    properties.put("host1.sinks.sink1.batchSize", "1");
+    properties.put("host1.sinks.sink1.targetSource", "processedSource");
+    properties.put("host1.sinks.sink1.channel", "channel1");
+    MemoryConfigurationProvider configurationProvider =
+        new MemoryConfigurationProvider("host1", properties);
+
+    Application application = new Application();
+    MaterializedConfiguration first = configurationProvider.getConfiguration();
+    application.handleConfigurationEvent(first);
+    SinkRunner sink1 = first.getSinkRunners().get("sink1");
+
+    // Only the sink is restarted, it must still find the source it publishes to
+    properties.put("host1.sinks.sink1.batchSize", "2");
+    MaterializedConfiguration second = configurationProvider.getConfiguration();
+    application.handleConfigurationEvent(second);
+    Assert.assertNotSame(sink1, second.getSinkRunners().get("sink1"));
+    Assert.assertSame(first.getChannels().get("channel1"), second.getChannels().get("channel1"));
+    Assert.assertSame(first.getSourceRunners().get("processedSource"),
+        second.getSourceRunners().get("processedSource"));
+    Assert.assertTrue(LifecycleController.waitForState(sink1,
+        LifecycleState.STOP, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(second.getSinkRunners().get("sink1"),
+        LifecycleState.START, 5000L));
+
+    EventProcessor processor =
+        (EventProcessor) second.getSourceRunners().get("source1").getSource();
+    Event event = new SimpleEvent();
+    event.setBody("1".getBytes(StandardCharsets.UTF_8));
+    processor.processEvent(event);
+    Channel processedChannel = second.getChannels().get("processedChannel");
+    Event processed = null;
+    for (int i = 0; i < 50 && processed == null; i++) {
+      Thread.sleep(100);
+      processed = getEvent(processedChannel);
+    }
+    Assert.assertNotNull("The restarted sink did not publish the event", processed);
+    Assert.assertEquals("1", processed.getHeaders().get("Total"));
+
+    application.stop();
+  }
+
+  @Test
+  public void testReloadWithoutComponentProperties() throws Exception {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("a1.channels", "c1");
+    properties.put("a1.sinks", "k1");
+    properties.put("a1.channels.c1.type", "memory");
+    properties.put("a1.sinks.k1.type", "null");
+    properties.put("a1.sinks.k1.channel", "c1");
+    MemoryConfigurationProvider configurationProvider =
+        new MemoryConfigurationProvider("a1", properties);
+
+    Application application = new Application();
+    MaterializedConfiguration first =
+        withoutComponentProperties(configurationProvider.getConfiguration());
+    application.handleConfigurationEvent(first);
+    SinkRunner k1 = first.getSinkRunners().get("k1");
+
+    // The properties are unknown, so the unchanged sink is restarted anyway
+    MaterializedConfiguration second =
+        withoutComponentProperties(configurationProvider.getConfiguration());
+    application.handleConfigurationEvent(second);
+    Assert.assertNotSame(k1, second.getSinkRunners().get("k1"));
+    Assert.assertTrue(LifecycleController.waitForState(k1,
+        LifecycleState.STOP, 5000L));
+    Assert.assertTrue(LifecycleController.waitForState(second.getSinkRunners().get("k1"),
+        LifecycleState.START, 5000L));
+
+    application.stop();
+  }
+
+  /**
+   * @return a configuration relying on the default component properties methods
+   */
+  private static MaterializedConfiguration withoutComponentProperties(
+      final MaterializedConfiguration conf) {
+    return new MaterializedConfiguration() {
+      @Override
+      public void addSourceRunner(String name, SourceRunner sourceRunner) {
+        conf.addSourceRunner(name, sourceRunner);
+      }
+
+      @Override
+      public void addSinkRunner(String name, SinkRunner sinkRunner) {
+        conf.addSinkRunner(name, sinkRunner);
+      }
+
+      @Override
+      public void addChannel(String name, Channel channel) {
+        conf.addChannel(name, channel);
+      }
+
+      @Override
+      public Map<String, SourceRunner> getSourceRunners() {
+        return conf.getSourceRunners();
+      }
+
+      @Override
+      public Map<String, SinkRunner> getSinkRunners() {
+        return conf.getSinkRunners();
+      }
+
+      @Override
+      public Map<String, Channel> getChannels() {
+        return conf.getChannels();
+      }
+    };
+  }
+
   private Event getEvent(Channel channel) {
     Transaction transaction = channel.getTransaction();
     Event event = null;
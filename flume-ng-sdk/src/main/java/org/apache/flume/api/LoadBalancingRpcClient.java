@@ -27,6 +27,7 @@ import java.util.Properties;
 import org.apache.flume.Event;
 import org.apache.flume.EventDeliveryException;
 import org.apache.flume.FlumeException;
+import org.apache.flume.util.LeastLatencyOrderSelector;
 import org.apache.flume.util.OrderSelector;
 import org.apache.flume.util.RandomOrderSelector;
 import org.apache.flume.util.RoundRobinOrderSelector;
@@ -40,8 +41,10 @@ import org.slf4j.LoggerFactory;
  * load balancing over the various hosts. To specify round-robin scheme set
  * the value of the configuration property <tt>load-balance-type</tt> to
  * <tt>round_robin</tt>. Similarly, for random scheme this value should be
- * set to <tt>random</tt>, and for a custom scheme the full class name of
- * the class that implements the <tt>HostSelector</tt> interface.
+ * set to <tt>random</tt>, to favor the hosts that accept the batches the
+ * fastest it should be set to <tt>least_latency</tt>, and for a custom scheme
+ * the full class name of the class that implements the <tt>HostSelector</tt>
+ * interface.
  * </p>
  * <p>
  * This implementation also performs basic failover in case the randomly
@@ -67,15 +70,20 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
 
     while (it.hasNext()) {
       HostInfo host = it.next();
+      long start = System.nanoTime();
       try {
         RpcClient client = getClient(host);
+        start = System.nanoTime();
         client.append(event);
         eventSent = true;
-        break;
       } catch (Exception ex) {
         selector.informFailure(host);
         LOGGER.warn("Failed to send event to host " + host, ex);
       }
+      if (eventSent) {
+        informSuccess(host, start, 1);
+        break;
+      }
     }
 
     if (!eventSent) {
@@ -91,15 +99,20 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
 
     while (it.hasNext()) {
       HostInfo host = it.next();
+      long start = System.nanoTime();
       try {
         RpcClient client = getClient(host);
+        start = System.nanoTime();
         client.appendBatch(events);
         batchSent = true;
-        break;
       } catch (Exception ex) {
         selector.informFailure(host);
         LOGGER.warn("Failed to send batch to host " + host, ex);
       }
+      if (batchSent) {
+        informSuccess(host, start, events.size());
+        break;
+      }
     }
 
     if (!batchSent) {
@@ -107,6 +120,13 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
     }
   }
 
+  private void informSuccess(HostInfo host, long startNanos, int eventCount) {
+    if (selector instanceof LoadAwareHostSelector) {
+      ((LoadAwareHostSelector) selector).informSuccess(host,
+          System.nanoTime() - startNanos, eventCount / (double) batchSize);
+    }
+  }
+
   @Override
   public boolean isActive() {
     return isOpen;
@@ -171,6 +191,15 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
     } else if (lbTypeName.equalsIgnoreCase(
         RpcClientConfigurationConstants.HOST_SELECTOR_RANDOM)) {
       selector = new RandomOrderHostSelector(backoff, maxBackoff);
+    } else if (lbTypeName.equalsIgnoreCase(
+        RpcClientConfigurationConstants.HOST_SELECTOR_LEAST_LATENCY)) {
+      String decayTimeStr = properties.getProperty(
+          RpcClientConfigurationConstants.CONFIG_LATENCY_DECAY_TIME);
+      long decayTime = LeastLatencyOrderSelector.DEFAULT_DECAY_TIME;
+      if (decayTimeStr != null) {
+        decayTime = Long.parseLong(decayTimeStr);
+      }
+      selector = new LeastLatencyHostSelector(backoff, maxBackoff, decayTime);
     } else {
       try {
         @SuppressWarnings("unchecked")
@@ -234,6 +263,15 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
     void informFailure(HostInfo failedHost);
   }
 
+  /**
+   * A {@link HostSelector} that is also informed of how long each successful
+   * call took and how full its batch was.
+   */
+  public interface LoadAwareHostSelector extends HostSelector {
+
+    void informSuccess(HostInfo host, long latencyNanos, double fillRatio);
+  }
+
   /**
    * A host selector that implements the round-robin host selection policy.
    */
@@ -290,4 +328,41 @@ public class LoadBalancingRpcClient extends AbstractRpcClient {
     }
   }
 
+  /**
+   * A host selector that favors the hosts with the lowest recent latency per
+   * full batch, using the power of two choices.
+   */
+  private static class LeastLatencyHostSelector implements LoadAwareHostSelector {
+
+    private LeastLatencyOrderSelector<HostInfo> selector;
+
+    LeastLatencyHostSelector(boolean backoff, long maxBackoff, long decayTime) {
+      selector = new LeastLatencyOrderSelector<HostInfo>(backoff);
+      if (maxBackoff != 0) {
+        selector.setMaxTimeOut(maxBackoff);
+      }
+      selector.setDecayTime(decayTime);
+    }
+
+    @Override
+    public Iterator<HostInfo> createHostIterator() {
+      return selector.createIterator();
+    }
+
+    @Override
+    public void setHosts(List<HostInfo> hosts) {
+      selector.setObjects(hosts);
+    }
+
+    @Override
+    public void informFailure(HostInfo failedHost) {
+      selector.informFailure(failedHost);
+    }
+
+    @Override
+    public void informSuccess(HostInfo host, long latencyNanos, double fillRatio) {
+      selector.informSuccess(host, latencyNanos, fillRatio);
+    }
+  }
+
 }
@@ -106,7 +106,7 @@ public final class RpcClientConfigurationConstants {
   /**
    * The selector type used by the <tt>LoadBalancingRpcClient</tt>. This
    * value of this setting could be either <tt>round_robin</tt>,
-   * <tt>random</tt>, or the fully qualified name class that implements the
+   * <tt>random</tt>, <tt>least_latency</tt>, or the fully qualified name class that implements the
    * <tt>LoadBalancingRpcClient.HostSelector</tt> interface.
    */
   public static final String CONFIG_HOST_SELECTOR =
@@ -114,6 +114,13 @@ public final class RpcClientConfigurationConstants {
 
   public static final String HOST_SELECTOR_ROUND_ROBIN = "ROUND_ROBIN";
   public static final String HOST_SELECTOR_RANDOM = "RANDOM";
+  public static final String HOST_SELECTOR_LEAST_LATENCY = "LEAST_LATENCY";
+
+  /**
+   * The time in milliseconds over which the latencies observed by the
+   * <tt>least_latency</tt> host selector lose most of their weight.
+   */
+  public static final String CONFIG_LATENCY_DECAY_TIME = "latencyDecayTime";
 
   public static final String CONFIG_MAX_BACKOFF = "maxBackoff";
   public static final String CONFIG_BACKOFF = "backoff";
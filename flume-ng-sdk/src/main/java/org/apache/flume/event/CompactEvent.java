@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.event;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.apache.flume.Event;
+
+/**
+ * An {@link Event} that uses less memory than {@link SimpleEvent}: its
+ * headers are a {@link CompactHeaderMap}, only allocated when they are first
+ * needed, and its body may be a {@link ByteBuffer} that is only copied to a
+ * byte array if {@link #getBody()} is called. This is the event built by
+ * {@link EventBuilder}.
+ * <p>
+ * A replicating channel selector hands the same event to several channels,
+ * so the headers and the body may be first read by several sinks at once.
+ * They are allocated or copied once, under the lock of the event, and
+ * published through volatile fields. Setting the headers or the body is
+ * not thread safe, like in {@link SimpleEvent}.
+ */
+public class CompactEvent implements Event {
+
+  private static final ByteBuffer EMPTY_BODY = ByteBuffer.wrap(new byte[0]);
+
+  private volatile Map<String, String> headers;
+  // Only ever replaced by a buffer with the same content
+  private volatile ByteBuffer body;
+
+  public CompactEvent() {
+    body = EMPTY_BODY;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    Map<String, String> current = headers;
+    if (current == null) {
+      synchronized (this) {
+        current = headers;
+        if (current == null) {
+          current = new CompactHeaderMap();
+          headers = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  @Override
+  public void setHeaders(Map<String, String> headers) {
+    this.headers = headers;
+  }
+
+  @Override
+  public byte[] getBody() {
+    ByteBuffer current = body;
+    if (!wrapsWholeArray(current)) {
+      synchronized (this) {
+        current = body;
+        if (!wrapsWholeArray(current)) {
+          byte[] copy = new byte[current.remaining()];
+          current.duplicate().get(copy);
+          current = ByteBuffer.wrap(copy);
+          body = current;
+        }
+      }
+    }
+    return current.array();
+  }
+
+  private static boolean wrapsWholeArray(ByteBuffer buffer) {
+    return buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+        && buffer.remaining() == buffer.array().length;
+  }
+
+  @Override
+  public void setBody(byte[] body) {
+    this.body = body == null ? EMPTY_BODY : ByteBuffer.wrap(body);
+  }
+
+  /**
+   * Sets the body to the remaining bytes of a buffer, without copying them.
+   * The buffer must not be modified afterwards.
+   */
+  public void setBody(ByteBuffer body) {
+    this.body = body == null ? EMPTY_BODY : body;
+  }
+
+  /**
+   * @return the body as a buffer, without copying it to a byte array.
+   */
+  public ByteBuffer getBodyAsByteBuffer() {
+    return body.duplicate();
+  }
+
+  /**
+   * @return the length of the body, without copying it to a byte array.
+   */
+  public int getBodyLength() {
+    return body.remaining();
+  }
+
+  @Override
+  public String toString() {
+    return "[Event headers = " + getHeaders() + ", body.length = " + getBodyLength() + " ]";
+  }
+
+}
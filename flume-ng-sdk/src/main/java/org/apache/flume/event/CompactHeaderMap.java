@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.event;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Map} of event headers that keeps its entries in an array while
+ * there are few of them, as most events carry a handful of headers. Lookups
+ * scan the array, which is faster than hashing for a few keys, and the map
+ * costs one small array instead of a hash table and an entry object per
+ * header. Past {@link #MAX_ARRAY_ENTRIES} entries the map switches to a
+ * {@link HashMap}.
+ * <p>
+ * The keys commonly set by Flume components are interned on insertion so
+ * that the events of a channel share them. Entries are iterated in insertion
+ * order while the map is array backed. Like {@link HashMap}, this map accepts
+ * null keys and values and is not thread safe.
+ */
+public class CompactHeaderMap extends AbstractMap<String, String> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  static final int MAX_ARRAY_ENTRIES = 8;
+  private static final int INITIAL_ARRAY_ENTRIES = 4;
+
+  private static final Map<String, String> COMMON_KEYS = new HashMap<String, String>();
+
+  static {
+    for (String key : new String[] {
+        "timestamp", "host", "hostname", "topic", "partition", "key", "offset",
+        "Facility", "Severity", "priority", "version", "flume.syslog.status",
+        "file", "basename", "type", "id", "flume.client.log4j.timestamp",
+        "flume.client.log4j.log.level", "flume.client.log4j.logger.name",
+        "flume.client.log4j.message.encoding", "flume.avro.schema.literal",
+        "flume.avro.schema.url", "flume.selector.header"}) {
+      COMMON_KEYS.put(key, key);
+    }
+  }
+
+  // Keys at even indexes, values at odd ones
+  private String[] entries;
+  private int size;
+  private HashMap<String, String> map;
+
+  public CompactHeaderMap() {
+  }
+
+  public CompactHeaderMap(Map<String, String> headers) {
+    if (headers instanceof CompactHeaderMap) {
+      CompactHeaderMap other = (CompactHeaderMap) headers;
+      if (other.map != null) {
+        map = new HashMap<String, String>(other.map);
+      } else if (other.size > 0) {
+        entries = Arrays.copyOf(other.entries, other.size * 2);
+        size = other.size;
+      }
+    } else if (headers.size() > MAX_ARRAY_ENTRIES) {
+      map = new HashMap<String, String>(headers);
+    } else {
+      for (Map.Entry<String, String> entry : headers.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * @return the shared instance of a common header key, or the key itself.
+   */
+  static String intern(String key) {
+    String common = COMMON_KEYS.get(key);
+    return common != null ? common : key;
+  }
+
+  private int indexOf(Object key) {
+    for (int i = 0; i < size * 2; i += 2) {
+      String k = entries[i];
+      if (k == null ? key == null : k.equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public int size() {
+    return map != null ? map.size() : size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map != null ? map.containsKey(key) : indexOf(key) >= 0;
+  }
+
+  @Override
+  public String get(Object key) {
+    if (map != null) {
+      return map.get(key);
+    }
+    int index = indexOf(key);
+    return index >= 0 ? entries[index + 1] : null;
+  }
+
+  @Override
+  public String put(String key, String value) {
+    if (map != null) {
+      return map.put(intern(key), value);
+    }
+    int index = indexOf(key);
+    if (index >= 0) {
+      String previous = entries[index + 1];
+      entries[index + 1] = value;
+      return previous;
+    }
+    if (size == MAX_ARRAY_ENTRIES) {
+      map = new HashMap<String, String>(MAX_ARRAY_ENTRIES * 4);
+      for (int i = 0; i < size * 2; i += 2) {
+        map.put(entries[i], entries[i + 1]);
+      }
+      entries = null;
+      size = 0;
+      map.put(intern(key), value);
+      return null;
+    }
+    if (entries == null) {
+      entries = new String[INITIAL_ARRAY_ENTRIES * 2];
+    } else if (entries.length == size * 2) {
+      entries = Arrays.copyOf(entries, Math.min(size * 2, MAX_ARRAY_ENTRIES) * 2);
+    }
+    entries[size * 2] = intern(key);
+    entries[size * 2 + 1] = value;
+    size++;
+    return null;
+  }
+
+  @Override
+  public String remove(Object key) {
+    if (map != null) {
+      return map.remove(key);
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    String previous = entries[index + 1];
+    removeAt(index);
+    return previous;
+  }
+
+  private void removeAt(int index) {
+    System.arraycopy(entries, index + 2, entries, index, size * 2 - index - 2);
+    size--;
+    entries[size * 2] = null;
+    entries[size * 2 + 1] = null;
+  }
+
+  @Override
+  public void clear() {
+    map = null;
+    entries = null;
+    size = 0;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<Map.Entry<String, String>>() {
+      @Override
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return map != null ? map.entrySet().iterator() : new ArrayIterator();
+      }
+
+      @Override
+      public int size() {
+        return CompactHeaderMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        CompactHeaderMap.this.clear();
+      }
+    };
+  }
+
+  private class ArrayIterator implements Iterator<Map.Entry<String, String>> {
+    private int next = 0;
+    private int last = -1;
+
+    @Override
+    public boolean hasNext() {
+      return next < size * 2;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next += 2;
+      return new ArrayEntry(last);
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      removeAt(last);
+      next = last;
+      last = -1;
+    }
+  }
+
+  private class ArrayEntry implements Map.Entry<String, String> {
+    private final String key;
+    private final int index;
+
+    ArrayEntry(int index) {
+      this.key = entries[index];
+      this.index = index;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public String getValue() {
+      return entries[index + 1];
+    }
+
+    @Override
+    public String setValue(String value) {
+      String previous = entries[index + 1];
+      entries[index + 1] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+      return eq(key, other.getKey()) && eq(getValue(), other.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      String value = getValue();
+      return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + getValue();
+    }
+  }
+
+  private static boolean eq(Object a, Object b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
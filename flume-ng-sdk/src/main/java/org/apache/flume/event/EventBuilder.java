@@ -19,8 +19,8 @@
 
 package org.apache.flume.event;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.flume.Event;
@@ -35,15 +35,12 @@ public class EventBuilder {
    * @return
    */
   public static Event withBody(byte[] body, Map<String, String> headers) {
-    Event event = new SimpleEvent();
+    Event event = new CompactEvent();
 
-    if (body == null) {
-      body = new byte[0];
-    }
     event.setBody(body);
 
     if (headers != null) {
-      event.setHeaders(new HashMap<String, String>(headers));
+      event.setHeaders(new CompactHeaderMap(headers));
     }
 
     return event;
@@ -63,4 +60,25 @@ public class EventBuilder {
     return withBody(body, charset, null);
   }
 
+  /**
+   * Instantiate an Event instance whose body is the remaining bytes of the
+   * given buffer. The buffer is only copied if the body is read as a byte
+   * array, so it must not be modified afterwards.
+   * If <code>headers</code> is <code>null</code>, then it is ignored.
+   * @param body
+   * @param headers
+   * @return
+   */
+  public static Event withBodyBuffer(ByteBuffer body, Map<String, String> headers) {
+    CompactEvent event = new CompactEvent();
+
+    event.setBody(body);
+
+    if (headers != null) {
+      event.setHeaders(new CompactHeaderMap(headers));
+    }
+
+    return event;
+  }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flume.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An implementation of OrderSelector which favors the objects that process
+ * their batches the fastest, using the power of two choices: two active
+ * objects are drawn at random and the one with the lowest cost comes first,
+ * followed by the others in increasing cost order. Also supports backoff.
+ * <p>
+ * The cost of an object is an exponentially weighted moving average of the
+ * latency of its calls, divided by the moving average of how full its batches
+ * were, which estimates the time it takes to process a full batch. Callers
+ * report both with {@link #informSuccess(Object, long, double)}. The averages
+ * decay with time rather than with the number of calls, and the cost of an
+ * object that has not been called for a while decays towards zero, so that
+ * objects that were slow are tried again once they had time to recover.
+ */
+public class LeastLatencyOrderSelector<T> extends OrderSelector<T> {
+
+  public static final long DEFAULT_DECAY_TIME = 10000L;
+
+  // Keeps the cost of an object whose batches were all empty finite
+  private static final double MIN_FILL_RATIO = 0.01;
+
+  private final Map<T, LoadState> loadStates = new HashMap<T, LoadState>();
+  private final Random random = new Random(System.currentTimeMillis());
+  private double decayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DECAY_TIME);
+  private List<T> objects = new ArrayList<T>();
+
+  public LeastLatencyOrderSelector(boolean shouldBackOff) {
+    super(shouldBackOff);
+  }
+
+  /**
+   * Sets the time, in milliseconds, over which the observed latencies lose
+   * most of their weight.
+   */
+  public synchronized void setDecayTime(long decayMillis) {
+    if (decayMillis <= 0) {
+      throw new IllegalArgumentException("Decay time must be positive: " + decayMillis);
+    }
+    this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMillis);
+  }
+
+  @Override
+  public synchronized void setObjects(List<T> objects) {
+    super.setObjects(objects);
+    this.objects = getObjects();
+    for (T object : this.objects) {
+      if (!loadStates.containsKey(object)) {
+        loadStates.put(object, new LoadState());
+      }
+    }
+  }
+
+  /**
+   * Informs this class of a successful call to an object.
+   *
+   * @param object The object that was called
+   * @param latencyNanos How long the call took, in nanoseconds
+   * @param fillRatio How full the processed batch was, between 0 and 1
+   */
+  public synchronized void informSuccess(T object, long latencyNanos, double fillRatio) {
+    LoadState state = loadStates.get(object);
+    if (state != null) {
+      state.update(System.nanoTime(), latencyNanos,
+          Math.max(0.0, Math.min(1.0, fillRatio)), decayNanos);
+    }
+  }
+
+  @Override
+  public synchronized void informFailure(T failedObject) {
+    super.informFailure(failedObject);
+  }
+
+  @Override
+  public synchronized boolean isActive(T object) {
+    return super.isActive(object);
+  }
+
+  /**
+   * @return the current cost of the given object, in nanoseconds per full batch
+   */
+  public synchronized double getCost(T object) {
+    LoadState state = loadStates.get(object);
+    return state == null ? 0.0 : state.cost(System.nanoTime(), decayNanos);
+  }
+
+  @Override
+  public synchronized Iterator<T> createIterator() {
+    List<Integer> indexList = getIndexList();
+    int size = indexList.size();
+    long now = System.nanoTime();
+    final double[] costs = new double[objects.size()];
+    Integer[] order = indexList.toArray(new Integer[size]);
+    for (Integer index : order) {
+      costs[index] = loadStates.get(objects.get(index)).cost(now, decayNanos);
+    }
+    if (size > 1) {
+      int first = random.nextInt(size);
+      int second = random.nextInt(size - 1);
+      if (second >= first) {
+        second++;
+      }
+      int winner = costs[order[second]] < costs[order[first]] ? second : first;
+      Integer head = order[winner];
+      order[winner] = order[0];
+      order[0] = head;
+      Arrays.sort(order, 1, size, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          return Double.compare(costs[a], costs[b]);
+        }
+      });
+    }
+    int[] indexOrder = new int[size];
+    for (int i = 0; i < size; i++) {
+      indexOrder[i] = order[i];
+    }
+    return new SpecificOrderIterator<T>(indexOrder, objects);
+  }
+
+  private static class LoadState {
+    boolean sampled = false;
+    long lastUpdate;
+    double latency;
+    double fillRatio;
+
+    void update(long now, long sampleLatency, double sampleFillRatio, double decayNanos) {
+      if (!sampled) {
+        latency = sampleLatency;
+        fillRatio = sampleFillRatio;
+        sampled = true;
+      } else {
+        double weight = Math.exp(-Math.max(0L, now - lastUpdate) / decayNanos);
+        latency = latency * weight + sampleLatency * (1.0 - weight);
+        fillRatio = fillRatio * weight + sampleFillRatio * (1.0 - weight);
+      }
+      lastUpdate = now;
+    }
+
+    double cost(long now, double decayNanos) {
+      if (!sampled) {
+        // Unknown objects are tried first
+        return 0.0;
+      }
+      double idleDecay = Math.exp(-Math.max(0L, now - lastUpdate) / decayNanos);
+      return latency * idleDecay / Math.max(fillRatio, MIN_FILL_RATIO);
+    }
+  }
+}
@@ -136,6 +136,16 @@ public abstract class OrderSelector<T> {
     return indexList;
   }
 
+  /**
+   * Unlike <tt>createIterator</tt>, this does not advance the iteration order.
+   * @return - true if the object is currently active, i.e. not backed off
+   */
+  public boolean isActive(T object) {
+    FailureState state = stateMap.get(object);
+    return state != null
+        && (!isShouldBackOff() || state.restoreTime < System.currentTimeMillis());
+  }
+
   public boolean isShouldBackOff() {
     return shouldBackOff;
   }
@@ -40,12 +40,15 @@ public class RandomOrderSelector<T> extends OrderSelector<T> {
     int size = indexList.size();
     int[] indexOrder = new int[size];
 
-    while (indexList.size() != 1) {
+    // All the objects may be backed off
+    while (indexList.size() > 1) {
       int pick = random.nextInt(indexList.size());
       indexOrder[indexList.size() - 1] = indexList.remove(pick);
     }
 
-    indexOrder[0] = indexList.get(0);
+    if (size > 0) {
+      indexOrder[0] = indexList.get(0);
+    }
 
     return new SpecificOrderIterator<T>(indexOrder, getObjects());
   }
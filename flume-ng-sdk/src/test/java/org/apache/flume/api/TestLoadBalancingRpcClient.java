@@ -26,6 +26,8 @@ import org.apache.flume.FlumeException;
 import org.apache.flume.api.RpcTestUtils.LoadBalancedAvroHandler;
 import org.apache.flume.api.RpcTestUtils.OKAvroHandler;
 import org.apache.flume.event.EventBuilder;
+import org.apache.flume.source.avro.AvroFlumeEvent;
+import org.apache.flume.source.avro.Status;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -684,4 +686,58 @@ public class TestLoadBalancingRpcClient {
     return EventBuilder.withBody(("event: " + index).getBytes());
   }
 
+  @Test
+  public void testLeastLatencySelector() throws Exception {
+    Properties p = new Properties();
+    List<LoadBalancedAvroHandler> hosts = new ArrayList<LoadBalancedAvroHandler>();
+    List<Server> servers = new ArrayList<Server>();
+    StringBuilder hostList = new StringBuilder("");
+    for (int i = 0; i < 2; i++) {
+      final boolean slow = i == 0;
+      LoadBalancedAvroHandler s = new LoadBalancedAvroHandler() {
+        @Override
+        public Status appendBatch(List<AvroFlumeEvent> events) {
+          if (slow) {
+            try {
+              Thread.sleep(50);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          return super.appendBatch(events);
+        }
+      };
+      hosts.add(s);
+      Server srv = RpcTestUtils.startServer(s);
+      servers.add(srv);
+      String name = "h" + i;
+      p.put("hosts." + name, "127.0.0.1:" + srv.getPort());
+      hostList.append(name).append(" ");
+    }
+    p.put("hosts", hostList.toString().trim());
+    p.put("client.type", "default_loadbalance");
+    p.put("host-selector", "least_latency");
+    p.put("batch-size", "10");
+
+    RpcClient c = RpcClientFactory.getInstance(p);
+    Assert.assertTrue(c instanceof LoadBalancingRpcClient);
+    try {
+      List<Event> events = new ArrayList<Event>();
+      for (int i = 0; i < 10; i++) {
+        events.add(EventBuilder.withBody(("test" + i).getBytes()));
+      }
+      for (int i = 0; i < 40; i++) {
+        c.appendBatch(events);
+      }
+      // The slow host is tried once, then only again when its cost decayed
+      Assert.assertTrue(hosts.get(0).getAppendBatchCount() <= 2);
+      Assert.assertEquals(40, hosts.get(0).getAppendBatchCount()
+          + hosts.get(1).getAppendBatchCount());
+    } finally {
+      c.close();
+      for (Server s : servers) {
+        s.close();
+      }
+    }
+  }
 }
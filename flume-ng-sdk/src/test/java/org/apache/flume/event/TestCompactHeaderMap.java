@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompactHeaderMap {
+
+  @Test
+  public void testAgainstHashMap() {
+    Random random = new Random(42);
+    Map<String, String> expected = new HashMap<String, String>();
+    CompactHeaderMap headers = new CompactHeaderMap();
+    for (int i = 0; i < 10000; i++) {
+      String key = "key" + random.nextInt(CompactHeaderMap.MAX_ARRAY_ENTRIES + 4);
+      switch (random.nextInt(4)) {
+        case 0:
+          Assert.assertEquals(expected.remove(key), headers.remove(key));
+          break;
+        case 1:
+          Assert.assertEquals(expected.get(key), headers.get(key));
+          Assert.assertEquals(expected.containsKey(key), headers.containsKey(key));
+          break;
+        default:
+          String value = String.valueOf(i);
+          Assert.assertEquals(expected.put(key, value), headers.put(key, value));
+      }
+      Assert.assertEquals(expected.size(), headers.size());
+      if (random.nextInt(100) == 0) {
+        Assert.assertEquals(expected, headers);
+        Assert.assertEquals(headers, expected);
+        Assert.assertEquals(expected.hashCode(), headers.hashCode());
+        Assert.assertEquals(expected, new CompactHeaderMap(headers));
+      }
+      if (random.nextInt(1000) == 0) {
+        expected.clear();
+        headers.clear();
+      }
+    }
+  }
+
+  @Test
+  public void testInsertionOrderAndIterator() {
+    CompactHeaderMap headers = new CompactHeaderMap();
+    headers.put("c", "3");
+    headers.put("a", "1");
+    headers.put("b", "2");
+    headers.put(null, null);
+    Assert.assertEquals("{c=3, a=1, b=2, null=null}", headers.toString());
+    Assert.assertTrue(headers.containsKey(null));
+
+    Iterator<Map.Entry<String, String>> iterator = headers.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, String> entry = iterator.next();
+      if ("a".equals(entry.getKey())) {
+        iterator.remove();
+      } else if ("b".equals(entry.getKey())) {
+        entry.setValue("two");
+      }
+    }
+    Assert.assertEquals("{c=3, b=two, null=null}", headers.toString());
+    headers.keySet().remove("c");
+    headers.values().remove(null);
+    Assert.assertEquals("{b=two}", headers.toString());
+  }
+
+  @Test
+  public void testCommonKeysInterned() {
+    CompactHeaderMap headers = new CompactHeaderMap();
+    headers.put(new String("timestamp"), "1");
+    Assert.assertSame("timestamp", headers.keySet().iterator().next());
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    CompactHeaderMap headers = new CompactHeaderMap();
+    headers.put("host", "localhost");
+    headers.put("topic", "events");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(headers);
+    out.close();
+    Object copy = new ObjectInputStream(
+        new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    Assert.assertEquals(headers, copy);
+  }
+}
@@ -19,8 +19,14 @@
 
 package org.apache.flume.event;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.flume.Event;
 import org.apache.flume.FlumeException;
@@ -57,6 +63,50 @@ public class TestEventBuilder {
     Assert.assertEquals("e1 has a one key", "1", e1.getHeaders().get("one"));
   }
 
+  @Test
+  public void testBodyBuffer() {
+    byte[] bytes = "xxbodyxx".getBytes();
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, 4);
+    Event e1 = EventBuilder.withBodyBuffer(buffer, null);
+    Assert.assertEquals(4, ((CompactEvent) e1).getBodyLength());
+    Assert.assertEquals(buffer, ((CompactEvent) e1).getBodyAsByteBuffer());
+    Assert.assertArrayEquals("body is correct", "body".getBytes(), e1.getBody());
+    Assert.assertEquals(2, buffer.position());
+    Assert.assertTrue(e1.getHeaders().isEmpty());
+
+    // A whole array is not copied
+    Event e2 = EventBuilder.withBodyBuffer(ByteBuffer.wrap(bytes), null);
+    Assert.assertSame(bytes, e2.getBody());
+  }
+
+  // a replicated event is read by several sinks at once
+  @Test
+  public void testBodyBufferReadConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 100; i++) {
+        final Event event = EventBuilder.withBodyBuffer(
+            ByteBuffer.wrap("xxbodyxx".getBytes(), 2, 4), null);
+        final CountDownLatch start = new CountDownLatch(1);
+        Callable<byte[]> read = new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            start.await();
+            return event.getBody();
+          }
+        };
+        Future<byte[]> first = executor.submit(read);
+        Future<byte[]> second = executor.submit(read);
+        start.countDown();
+        Assert.assertArrayEquals("body".getBytes(), first.get());
+        Assert.assertSame(first.get(), second.get());
+        Assert.assertSame(first.get(), event.getBody());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   @Test (expected = FlumeException.class)
   public void testJsonEventUnsupportedEncoding() {
     JSONEvent jsonEvent = new JSONEvent();
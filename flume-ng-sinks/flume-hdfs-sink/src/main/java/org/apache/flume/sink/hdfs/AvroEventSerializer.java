@@ -155,7 +155,7 @@ public class AvroEventSerializer implements EventSerializer, Configurable {
     dataFileWriter.create(schema, out);
   }
 
-  private Schema loadFromUrl(String schemaUrl) throws IOException {
+  static Schema loadFromUrl(String schemaUrl) throws IOException {
     Configuration conf = new Configuration();
     Schema.Parser parser = new Schema.Parser();
     if (schemaUrl.toLowerCase(Locale.ENGLISH).startsWith("hdfs://")) {
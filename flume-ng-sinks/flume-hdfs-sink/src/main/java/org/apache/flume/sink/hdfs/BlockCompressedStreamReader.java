@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.sink.hdfs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Reads the files written by {@link HDFSBlockCompressedDataStream} one block
+ * at a time.
+ * <p>
+ * A file starts with a header made of {@link #MAGIC} and the class name of
+ * the codec. Frames follow, each made of a type byte, the uncompressed
+ * length, the stored length and the stored bytes:
+ * <ul>
+ * <li>a block frame holds a compressed block of serialized events,</li>
+ * <li>the index frame is written on close. It lists the offset in the file
+ * and the offset in the uncompressed data of every block, and is followed
+ * by the offset of the index frame and {@link #TRAILER_MAGIC}.</li>
+ * </ul>
+ * The data synced since the last block of a file that is still open, or was
+ * not closed, is in the side file named after the file with the
+ * {@link HDFSBlockCompressedDataStream#SYNC_SUFFIX} suffix. It starts with
+ * the offset in the uncompressed data of its first byte, followed by the
+ * uncompressed data. It only counts if that offset is the end of the data
+ * of the last block, otherwise its data was already written in a block.
+ * Run the class with a path to write the uncompressed content of a file to
+ * the standard output.
+ */
+public class BlockCompressedStreamReader implements Closeable {
+
+  static final byte[] MAGIC = {'F', 'L', 'B', 'C', 1};
+  static final int TRAILER_MAGIC = 0x464c4249;
+  static final byte BLOCK_FRAME = 2;
+  static final byte INDEX_FRAME = 3;
+  static final int TRAILER_LENGTH = 12;
+
+  /**
+   * The position of a block in the file and in the uncompressed data.
+   */
+  public static class IndexEntry {
+    private final long fileOffset;
+    private final long dataOffset;
+
+    IndexEntry(long fileOffset, long dataOffset) {
+      this.fileOffset = fileOffset;
+      this.dataOffset = dataOffset;
+    }
+
+    public long getFileOffset() {
+      return fileOffset;
+    }
+
+    public long getDataOffset() {
+      return dataOffset;
+    }
+  }
+
+  private final FileSystem fs;
+  private final Path syncPath;
+  private final FSDataInputStream in;
+  private final long fileLength;
+  private final CompressionCodec codec;
+  private final Decompressor decompressor;
+  private boolean finished = false;
+  private long dataOffset = 0;
+
+  public BlockCompressedStreamReader(Path path, Configuration conf) throws IOException {
+    fs = path.getFileSystem(conf);
+    syncPath = new Path(path.toString() + HDFSBlockCompressedDataStream.SYNC_SUFFIX);
+    fileLength = fs.getFileStatus(path).getLen();
+    in = fs.open(path);
+    try {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException(path + " is not a block compressed stream");
+      }
+      String codecClass = in.readUTF();
+      codec = (CompressionCodec) ReflectionUtils.newInstance(
+          conf.getClassByName(codecClass), conf);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    } catch (ClassNotFoundException e) {
+      in.close();
+      throw new IOException("Codec of " + path + " not found", e);
+    }
+    decompressor = CodecPool.getDecompressor(codec);
+  }
+
+  /**
+   * Returns the next block of uncompressed data. The data of a file that was
+   * not closed ends with the content of its side file, it comes back as one
+   * last block.
+   *
+   * @return The uncompressed data, or null at the end of the file
+   */
+  public byte[] readBlock() throws IOException {
+    if (finished) {
+      return null;
+    }
+    try {
+      byte type = in.readByte();
+      if (type == BLOCK_FRAME) {
+        int length = in.readInt();
+        byte[] stored = new byte[in.readInt()];
+        in.readFully(stored);
+        dataOffset += length;
+        return decompress(stored, length);
+      } else if (type != INDEX_FRAME) {
+        throw new IOException("Unknown frame type " + type);
+      }
+      finished = true;
+      return null;
+    } catch (EOFException e) {
+      // End of a file that was not closed, or a frame that was not synced yet
+      finished = true;
+      return readSyncFile();
+    }
+  }
+
+  private byte[] readSyncFile() throws IOException {
+    if (!fs.exists(syncPath)) {
+      return null;
+    }
+    ByteArrayOutputStream synced = new ByteArrayOutputStream();
+    try (FSDataInputStream syncIn = fs.open(syncPath)) {
+      if (syncIn.readLong() != dataOffset) {
+        return null;
+      }
+      IOUtils.copyBytes(syncIn, synced, 4096, false);
+    } catch (EOFException e) {
+      // A side file whose header was not synced yet
+      return null;
+    }
+    return synced.size() == 0 ? null : synced.toByteArray();
+  }
+
+  /**
+   * Reads the index of a file that was closed.
+   *
+   * @return The blocks of the file, or an empty list if it has no index
+   */
+  public List<IndexEntry> readIndex() throws IOException {
+    if (fileLength < MAGIC.length + TRAILER_LENGTH) {
+      return Collections.emptyList();
+    }
+    long position = in.getPos();
+    try {
+      in.seek(fileLength - TRAILER_LENGTH);
+      long indexOffset = in.readLong();
+      if (in.readInt() != TRAILER_MAGIC) {
+        return Collections.emptyList();
+      }
+      in.seek(indexOffset);
+      if (in.readByte() != INDEX_FRAME) {
+        throw new IOException("Index frame not found at " + indexOffset);
+      }
+      int count = in.readInt();
+      List<IndexEntry> index = new ArrayList<IndexEntry>(count);
+      for (int i = 0; i < count; i++) {
+        index.add(new IndexEntry(in.readLong(), in.readLong()));
+      }
+      return index;
+    } finally {
+      in.seek(position);
+    }
+  }
+
+  /**
+   * Moves to a block of the index, the next {@link #readBlock()} returns it.
+   */
+  public void seek(IndexEntry entry) throws IOException {
+    in.seek(entry.getFileOffset());
+    dataOffset = entry.getDataOffset();
+    finished = false;
+  }
+
+  private byte[] decompress(byte[] stored, int length) throws IOException {
+    decompressor.reset();
+    byte[] data = new byte[length];
+    InputStream blockIn = codec.createInputStream(
+        new ByteArrayInputStream(stored), decompressor);
+    IOUtils.readFully(blockIn, data, 0, length);
+    return data;
+  }
+
+  @Override
+  public void close() throws IOException {
+    CodecPool.returnDecompressor(decompressor);
+    in.close();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: " + BlockCompressedStreamReader.class.getName() + " <path>");
+      System.exit(1);
+    }
+    OutputStream out = System.out;
+    try (BlockCompressedStreamReader reader =
+             new BlockCompressedStreamReader(new Path(args[0]), new Configuration())) {
+      byte[] block;
+      while ((block = reader.readBlock()) != null) {
+        out.write(block);
+      }
+    }
+    out.flush();
+  }
+}
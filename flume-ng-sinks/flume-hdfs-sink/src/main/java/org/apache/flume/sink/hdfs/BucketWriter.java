@@ -601,7 +601,7 @@ class BucketWriter {
 
     // write the event
     try {
-      sinkCounter.incrementEventDrainAttemptCount();
+      sinkCounter.recordEventDrainAttempt();
       callWithTimeout(new CallRunner<Void>() {
         @Override
         public Void call() throws Exception {
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.sink.hdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.serialization.EventSerializer;
+import org.apache.flume.serialization.EventSerializerFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compressed stream that compresses the serialized events in blocks of a
+ * fixed size instead of finishing a compressed member on every sync, which
+ * compresses poorly with small batches.
+ * <p>
+ * Serialized events are buffered on the heap and every full block is
+ * compressed by a background thread while the next one fills up. So that
+ * the events are durable when the transaction commits, a sync copies the
+ * data of the current block that was not synced yet to a side file named
+ * after the file with the {@link #SYNC_SUFFIX} suffix. The side file is
+ * deleted once the block is written to the file, so the file itself only
+ * holds compressed blocks. The file ends with an index of the blocks. The
+ * format is described in {@link BlockCompressedStreamReader}, which reads
+ * it back, side file included.
+ * <p>
+ * The buffer of a block grows with the data written to it, up to
+ * hdfs.compressionBlockSize bytes. A file whose blocks fill up holds two of
+ * them, the one being compressed and the one being filled, so the heap used
+ * by a sink can reach twice the block size times hdfs.maxOpenFiles. Lower
+ * the block size for sinks with many open buckets.
+ */
+public class HDFSBlockCompressedDataStream extends AbstractHDFSWriter {
+
+  private static final Logger logger =
+      LoggerFactory.getLogger(HDFSBlockCompressedDataStream.class);
+
+  static final String BLOCK_SIZE = "hdfs.compressionBlockSize";
+  static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+  static final String SYNC_SUFFIX = ".sync";
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  private static final ExecutorService compressionPool = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("hdfs-block-compressor-%d")
+          .setDaemon(true).build());
+
+  private FileSystem hdfs;
+  private FSDataOutputStream fsOut;
+  private CompressionCodec codec;
+  private Compressor compressor;
+
+  private String serializerType;
+  private Context serializerContext;
+  private EventSerializer serializer;
+  private boolean useRawLocalFileSystem;
+  private int blockSize;
+
+  private byte[] currentBlock;
+  private int currentLength;
+  private byte[] spareBlock;
+  private int syncedLength;
+  private Future<?> pendingBlock;
+
+  private Path syncPath;
+  private FSDataOutputStream syncOut;
+  private long syncDataOffset;
+
+  // Only used by the block being compressed
+  private ByteArrayOutputStream compressedBytes;
+  private long dataOffset;
+  private List<BlockCompressedStreamReader.IndexEntry> index;
+
+  @Override
+  public void configure(Context context) {
+    super.configure(context);
+
+    serializerType = context.getString("serializer", "TEXT");
+    useRawLocalFileSystem = context.getBoolean("hdfs.useRawLocalFileSystem",
+        false);
+    blockSize = context.getInteger(BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+    Preconditions.checkArgument(blockSize > 0, BLOCK_SIZE + " must be positive");
+    serializerContext = new Context(
+        context.getSubProperties(EventSerializer.CTX_PREFIX));
+    logger.info("Serializer = " + serializerType + ", UseRawLocalFileSystem = "
+        + useRawLocalFileSystem + ", BlockSize = " + blockSize);
+  }
+
+  @Override
+  public void open(String filePath) throws IOException {
+    DefaultCodec defCodec = new DefaultCodec();
+    CompressionType cType = CompressionType.BLOCK;
+    open(filePath, defCodec, cType);
+  }
+
+  @Override
+  public void open(String filePath, CompressionCodec codec,
+      CompressionType cType) throws IOException {
+    Configuration conf = new Configuration();
+    Path dstPath = new Path(filePath);
+    hdfs = dstPath.getFileSystem(conf);
+    if (useRawLocalFileSystem) {
+      if (hdfs instanceof LocalFileSystem) {
+        hdfs = ((LocalFileSystem)hdfs).getRaw();
+      } else {
+        logger.warn("useRawLocalFileSystem is set to true but file system " +
+            "is not of type LocalFileSystem: " + hdfs.getClass().getName());
+      }
+    }
+    if (conf.getBoolean("hdfs.append.support", false) == true && hdfs.isFile(dstPath)) {
+      throw new IOException("Block compressed streams do not support append");
+    }
+    fsOut = hdfs.create(dstPath);
+    syncPath = new Path(filePath + SYNC_SUFFIX);
+    this.codec = codec;
+    if (compressor == null) {
+      compressor = CodecPool.getCompressor(codec, conf);
+    }
+    currentBlock = new byte[Math.min(blockSize, INITIAL_BUFFER_SIZE)];
+    currentLength = 0;
+    syncedLength = 0;
+    compressedBytes = new ByteArrayOutputStream();
+    dataOffset = 0;
+    index = new ArrayList<BlockCompressedStreamReader.IndexEntry>();
+
+    fsOut.write(BlockCompressedStreamReader.MAGIC);
+    fsOut.writeUTF(codec.getClass().getName());
+    serializer = EventSerializerFactory.getInstance(serializerType,
+        serializerContext, new BlockOutputStream());
+
+    registerCurrentStream(fsOut, hdfs, dstPath);
+
+    serializer.afterCreate();
+  }
+
+  @Override
+  public void append(Event e) throws IOException {
+    serializer.write(e);
+  }
+
+  @Override
+  public void sync() throws IOException {
+    serializer.flush();
+    awaitPendingBlock();
+    // The blocks written so far must be durable before the side file that
+    // holds a copy of them goes away
+    fsOut.flush();
+    hflushOrSync(fsOut);
+    if (syncOut != null && syncDataOffset != dataOffset) {
+      deleteSyncFile();
+    }
+    if (currentLength > syncedLength) {
+      if (syncOut == null) {
+        syncOut = hdfs.create(syncPath, true);
+        syncOut.writeLong(dataOffset);
+        syncDataOffset = dataOffset;
+      }
+      syncOut.write(currentBlock, syncedLength, currentLength - syncedLength);
+      syncOut.flush();
+      hflushOrSync(syncOut);
+      syncedLength = currentLength;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      serializer.flush();
+      serializer.beforeClose();
+      awaitPendingBlock();
+      if (currentLength > 0) {
+        writeBlock(currentBlock, currentLength);
+      }
+      writeIndex();
+      fsOut.flush();
+      hflushOrSync(fsOut);
+      fsOut.close();
+      if (syncOut != null) {
+        deleteSyncFile();
+      }
+    } finally {
+      if (compressor != null) {
+        CodecPool.returnCompressor(compressor);
+        compressor = null;
+      }
+      if (syncOut != null) {
+        syncOut.close();
+        syncOut = null;
+      }
+      currentBlock = null;
+      spareBlock = null;
+      compressedBytes = null;
+      unregisterCurrentStream();
+    }
+  }
+
+  private void deleteSyncFile() throws IOException {
+    syncOut.close();
+    syncOut = null;
+    if (!hdfs.delete(syncPath, false)) {
+      logger.warn("Failed to delete " + syncPath);
+    }
+  }
+
+  /**
+   * Hands the full current block over to the compression thread, after the
+   * previous block was written.
+   */
+  private void rotateBlock() throws IOException {
+    awaitPendingBlock();
+    final byte[] fullBlock = currentBlock;
+    currentBlock = spareBlock != null ? spareBlock : new byte[blockSize];
+    currentLength = 0;
+    spareBlock = fullBlock;
+    syncedLength = 0;
+    pendingBlock = compressionPool.submit(() -> {
+      writeBlock(fullBlock, fullBlock.length);
+      return null;
+    });
+  }
+
+  /**
+   * Makes room in the current block, which grows up to the block size and
+   * is rotated once full.
+   */
+  private void ensureCapacity() throws IOException {
+    if (currentLength < currentBlock.length) {
+      return;
+    }
+    if (currentBlock.length < blockSize) {
+      currentBlock = Arrays.copyOf(currentBlock,
+          (int) Math.min(blockSize, 2L * currentBlock.length));
+    } else {
+      rotateBlock();
+    }
+  }
+
+  private void awaitPendingBlock() throws IOException {
+    if (pendingBlock == null) {
+      return;
+    }
+    try {
+      pendingBlock.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing a block");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to compress a block", e.getCause());
+    } finally {
+      pendingBlock = null;
+    }
+  }
+
+  private void writeBlock(byte[] block, int length) throws IOException {
+    compressedBytes.reset();
+    if (compressor != null) {
+      // Codecs without a native library may not use a compressor
+      compressor.reset();
+    }
+    CompressionOutputStream cmpOut = codec.createOutputStream(compressedBytes, compressor);
+    cmpOut.write(block, 0, length);
+    cmpOut.finish();
+
+    index.add(new BlockCompressedStreamReader.IndexEntry(fsOut.getPos(), dataOffset));
+    fsOut.writeByte(BlockCompressedStreamReader.BLOCK_FRAME);
+    fsOut.writeInt(length);
+    fsOut.writeInt(compressedBytes.size());
+    compressedBytes.writeTo(fsOut);
+    dataOffset += length;
+  }
+
+  private void writeIndex() throws IOException {
+    long indexOffset = fsOut.getPos();
+    fsOut.writeByte(BlockCompressedStreamReader.INDEX_FRAME);
+    fsOut.writeInt(index.size());
+    for (BlockCompressedStreamReader.IndexEntry entry : index) {
+      fsOut.writeLong(entry.getFileOffset());
+      fsOut.writeLong(entry.getDataOffset());
+    }
+    fsOut.writeLong(indexOffset);
+    fsOut.writeInt(BlockCompressedStreamReader.TRAILER_MAGIC);
+  }
+
+  /**
+   * The stream the serializer writes to, it fills the current block.
+   */
+  private class BlockOutputStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      ensureCapacity();
+      currentBlock[currentLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        ensureCapacity();
+        int length = Math.min(len, currentBlock.length - currentLength);
+        System.arraycopy(b, off, currentBlock, currentLength, length);
+        currentLength += length;
+        off += length;
+        len -= length;
+      }
+    }
+  }
+}
@@ -256,7 +256,15 @@ public class HDFSEventSink extends AbstractSink implements Configurable, BatchSi
           " or change the fileType if compressed output is desired.");
     }
 
-    if (fileType.equalsIgnoreCase(HDFSWriterFactory.CompStreamType)) {
+    // Parquet compresses its column chunks itself
+    if (fileType.equalsIgnoreCase(HDFSWriterFactory.ParquetType) && codecName != null) {
+      throw new IllegalArgumentException("fileType: " + fileType +
+          " does not support codeC. Please set serializer.compressionCodec" +
+          " to compress the Parquet files.");
+    }
+
+    if (fileType.equalsIgnoreCase(HDFSWriterFactory.CompStreamType)
+        || fileType.equalsIgnoreCase(HDFSWriterFactory.BlockCompStreamType)) {
       Preconditions.checkNotNull(codeC, "It's essential to set compress codec"
           + " when fileType is: " + fileType);
     }
@@ -364,6 +372,7 @@ public class HDFSEventSink extends AbstractSink implements Configurable, BatchSi
     Channel channel = getChannel();
     Transaction transaction = channel.getTransaction();
     transaction.begin();
+    long startNanos = System.nanoTime();
     try {
       Set<BucketWriter> writers = new LinkedHashSet<>();
       int txnEventCount = 0;
@@ -427,11 +436,11 @@ public class HDFSEventSink extends AbstractSink implements Configurable, BatchSi
       }
 
       if (txnEventCount == 0) {
-        sinkCounter.incrementBatchEmptyCount();
+        sinkCounter.recordBatchEmpty();
       } else if (txnEventCount == batchSize) {
-        sinkCounter.incrementBatchCompleteCount();
+        sinkCounter.recordBatchComplete();
       } else {
-        sinkCounter.incrementBatchUnderflowCount();
+        sinkCounter.recordBatchUnderflow();
       }
 
       // flush all pending buckets before committing the transaction
@@ -444,7 +453,8 @@ public class HDFSEventSink extends AbstractSink implements Configurable, BatchSi
       if (txnEventCount < 1) {
         return Status.BACKOFF;
       } else {
-        sinkCounter.addToEventDrainSuccessCount(txnEventCount);
+        sinkCounter.recordEventDrainSuccess(txnEventCount);
+        sinkCounter.recordBatch(txnEventCount, startNanos);
         return Status.READY;
       }
     } catch (IOException eIO) {
@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flume.sink.hdfs;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Preconditions;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.FlumeException;
+import org.apache.flume.serialization.EventSerializer;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.util.HadoopStreams;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.flume.serialization.AvroEventSerializerConfigurationConstants.STATIC_SCHEMA_URL;
+
+/**
+ * Writes events to Parquet files. The body of every event is read as an Avro
+ * datum and written as a row of the file.
+ * <p>
+ * The Avro schema is found like {@link AvroEventSerializer} does: from the
+ * {@link AvroEventSerializer#AVRO_SCHEMA_URL_HEADER} or
+ * {@link AvroEventSerializer#AVRO_SCHEMA_LITERAL_HEADER} header of the first
+ * event of the file, or else from the <tt>serializer.schemaURL</tt> or
+ * <tt>serializer.schemaLiteral</tt> properties.
+ * <p>
+ * Rows are buffered in memory until a row group of
+ * <tt>serializer.rowGroupSize</tt> bytes is full, and the file is only
+ * readable once it is closed: use the <tt>hdfs.rollSize</tt>,
+ * <tt>hdfs.rollCount</tt> and <tt>hdfs.rollInterval</tt> settings to bound
+ * the size of the files and the time before events become visible.
+ * <p>
+ * A Parquet file cannot be read without its footer, which is only written
+ * when the file is closed, so {@link #sync()} does not make anything durable.
+ * A committed transaction is only durable once its file is rolled: on a
+ * crash, every event written since the file was opened is lost even though
+ * it was taken from the channel, including the row groups already written.
+ * <tt>hdfs.rollInterval</tt> and <tt>hdfs.rollSize</tt> bound how many
+ * events can be lost. Use a file type that can sync its content when events
+ * must not be lost.
+ */
+public class HDFSParquetFile extends AbstractHDFSWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(HDFSParquetFile.class);
+
+  // configure() runs for every bucket, the durability warning is logged once
+  private static final AtomicBoolean durabilityWarned = new AtomicBoolean();
+
+  /**
+   * Avro schema of the rows, used when the events have no schema header
+   */
+  public static final String SCHEMA_LITERAL = "schemaLiteral";
+
+  /**
+   * Parquet compression codec, one of the names of {@link CompressionCodecName}
+   */
+  public static final String COMPRESSION_CODEC = "compressionCodec";
+  public static final String DEFAULT_COMPRESSION_CODEC = "uncompressed";
+
+  /**
+   * Size of the row groups buffered in memory before they are written, in bytes
+   */
+  public static final String ROW_GROUP_SIZE = "rowGroupSize";
+  public static final int DEFAULT_ROW_GROUP_SIZE = ParquetWriter.DEFAULT_BLOCK_SIZE;
+
+  /**
+   * Size of the pages of a column chunk, in bytes
+   */
+  public static final String PAGE_SIZE = "pageSize";
+  public static final int DEFAULT_PAGE_SIZE = ParquetWriter.DEFAULT_PAGE_SIZE;
+
+  private boolean useRawLocalFileSystem;
+  private String staticSchemaURL;
+  private String staticSchemaLiteral;
+  private CompressionCodecName compressionCodec;
+  private int rowGroupSize;
+  private int pageSize;
+  private final Map<String, Schema> schemaCache = new HashMap<String, Schema>();
+
+  private Configuration conf;
+  private FSDataOutputStream outStream;
+  private ParquetWriter<GenericRecord> writer;
+  private GenericDatumReader<GenericRecord> datumReader;
+  private BinaryDecoder decoder;
+  private GenericRecord record;
+
+  @Override
+  public void configure(Context context) {
+    super.configure(context);
+
+    useRawLocalFileSystem = context.getBoolean("hdfs.useRawLocalFileSystem",
+        false);
+    Context serializerContext =
+        new Context(context.getSubProperties(EventSerializer.CTX_PREFIX));
+    staticSchemaURL = serializerContext.getString(STATIC_SCHEMA_URL);
+    staticSchemaLiteral = serializerContext.getString(SCHEMA_LITERAL);
+    String codecName = serializerContext.getString(COMPRESSION_CODEC,
+        DEFAULT_COMPRESSION_CODEC);
+    try {
+      compressionCodec = CompressionCodecName.valueOf(codecName.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown Parquet compression codec: " + codecName, e);
+    }
+    rowGroupSize = serializerContext.getInteger(ROW_GROUP_SIZE, DEFAULT_ROW_GROUP_SIZE);
+    pageSize = serializerContext.getInteger(PAGE_SIZE, DEFAULT_PAGE_SIZE);
+    Preconditions.checkArgument(rowGroupSize > 0, ROW_GROUP_SIZE + " must be positive");
+    Preconditions.checkArgument(pageSize > 0, PAGE_SIZE + " must be positive");
+    logger.info("Compression = " + compressionCodec + ", RowGroupSize = " + rowGroupSize
+        + ", UseRawLocalFileSystem = " + useRawLocalFileSystem);
+    if (durabilityWarned.compareAndSet(false, true)) {
+      logger.warn("Parquet files are only readable once they are rolled, on a crash all the"
+          + " events written since the last roll are lost. Use hdfs.rollInterval and"
+          + " hdfs.rollSize to bound them");
+    }
+  }
+
+  @Override
+  public void open(String filePath) throws IOException {
+    conf = new Configuration();
+    Path dstPath = new Path(filePath);
+    FileSystem hdfs = dstPath.getFileSystem(conf);
+    if (useRawLocalFileSystem) {
+      if (hdfs instanceof LocalFileSystem) {
+        hdfs = ((LocalFileSystem)hdfs).getRaw();
+      } else {
+        logger.warn("useRawLocalFileSystem is set to true but file system " +
+            "is not of type LocalFileSystem: " + hdfs.getClass().getName());
+      }
+    }
+    if (conf.getBoolean("hdfs.append.support", false) == true && hdfs.isFile(dstPath)) {
+      throw new IOException("Parquet files do not support append");
+    }
+    outStream = hdfs.create(dstPath);
+    registerCurrentStream(outStream, hdfs, dstPath);
+  }
+
+  @Override
+  public void open(String filePath, CompressionCodec codec,
+      CompressionType cType) throws IOException {
+    throw new IOException("Parquet files are compressed with serializer."
+        + COMPRESSION_CODEC + ", not with a codec");
+  }
+
+  @Override
+  public void append(Event e) throws IOException {
+    if (writer == null) {
+      initialize(e);
+    }
+    decoder = DecoderFactory.get().binaryDecoder(e.getBody(), decoder);
+    record = datumReader.read(record, decoder);
+    writer.write(record);
+  }
+
+  private void initialize(Event event) throws IOException {
+    Schema schema;
+    String schemaUrl = event.getHeaders().get(AvroEventSerializer.AVRO_SCHEMA_URL_HEADER);
+    String schemaString = event.getHeaders().get(AvroEventSerializer.AVRO_SCHEMA_LITERAL_HEADER);
+    if (schemaUrl != null) {
+      schema = getSchemaFromUrl(schemaUrl);
+    } else if (schemaString != null) {
+      schema = new Schema.Parser().parse(schemaString);
+    } else if (staticSchemaURL != null) {
+      schema = getSchemaFromUrl(staticSchemaURL);
+    } else if (staticSchemaLiteral != null) {
+      schema = new Schema.Parser().parse(staticSchemaLiteral);
+    } else {
+      throw new FlumeException("Could not find schema for event " + event);
+    }
+
+    datumReader = new GenericDatumReader<GenericRecord>(schema);
+    record = null;
+    writer = AvroParquetWriter.<GenericRecord>builder(new StreamOutputFile(outStream))
+        .withSchema(schema)
+        .withConf(conf)
+        .withCompressionCodec(compressionCodec)
+        .withRowGroupSize(rowGroupSize)
+        .withPageSize(pageSize)
+        .build();
+  }
+
+  private Schema getSchemaFromUrl(String schemaUrl) throws IOException {
+    Schema schema = schemaCache.get(schemaUrl);
+    if (schema == null) {
+      schema = AvroEventSerializer.loadFromUrl(schemaUrl);
+      schemaCache.put(schemaUrl, schema);
+    }
+    return schema;
+  }
+
+  @Override
+  public void sync() throws IOException {
+    // Nothing written before the footer can be read back, flushing the row
+    // groups written so far would only cost a round trip per transaction.
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (writer != null) {
+        writer.close();
+      } else {
+        outStream.close();
+      }
+    } finally {
+      writer = null;
+      datumReader = null;
+      record = null;
+      unregisterCurrentStream();
+    }
+  }
+
+  /**
+   * Lets Parquet write to the stream opened by this writer, so that it can
+   * be monitored for replication like the streams of the other writers.
+   */
+  private static class StreamOutputFile implements OutputFile {
+    private final FSDataOutputStream outStream;
+
+    StreamOutputFile(FSDataOutputStream outStream) {
+      this.outStream = outStream;
+    }
+
+    @Override
+    public PositionOutputStream create(long blockSizeHint) {
+      return HadoopStreams.wrap(outStream);
+    }
+
+    @Override
+    public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+      return HadoopStreams.wrap(outStream);
+    }
+
+    @Override
+    public boolean supportsBlockSize() {
+      return false;
+    }
+
+    @Override
+    public long defaultBlockSize() {
+      return 0;
+    }
+  }
+}
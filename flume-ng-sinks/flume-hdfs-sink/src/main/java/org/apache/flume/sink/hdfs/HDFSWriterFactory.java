@@ -24,6 +24,8 @@ public class HDFSWriterFactory {
   static final String SequenceFileType = "SequenceFile";
   static final String DataStreamType = "DataStream";
   static final String CompStreamType = "CompressedStream";
+  static final String BlockCompStreamType = "BlockCompressedStream";
+  static final String ParquetType = "Parquet";
 
   public HDFSWriterFactory() {
 
@@ -36,6 +38,10 @@ public class HDFSWriterFactory {
       return new HDFSDataStream();
     } else if (fileType.equalsIgnoreCase(CompStreamType)) {
       return new HDFSCompressedDataStream();
+    } else if (fileType.equalsIgnoreCase(BlockCompStreamType)) {
+      return new HDFSBlockCompressedDataStream();
+    } else if (fileType.equalsIgnoreCase(ParquetType)) {
+      return new HDFSParquetFile();
     } else {
       throw new IOException("File type " + fileType + " not supported");
     }
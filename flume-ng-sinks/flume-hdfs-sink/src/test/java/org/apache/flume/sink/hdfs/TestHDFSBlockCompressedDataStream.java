@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flume.sink.hdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import org.apache.flume.Context;
+import org.apache.flume.event.EventBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class TestHDFSBlockCompressedDataStream {
+
+  private String fileURI;
+  private Configuration conf;
+
+  @Before
+  public void init() throws Exception {
+    File file = new File("target/test/data/foo.flbc");
+    file.delete();
+    new File(file.getPath() + HDFSBlockCompressedDataStream.SYNC_SUFFIX).delete();
+    this.fileURI = file.getAbsoluteFile().toURI().toString();
+
+    conf = new Configuration();
+    // local FS must be raw in order to be Syncable
+    conf.set("fs.file.impl", "org.apache.hadoop.fs.RawLocalFileSystem");
+    Path path = new Path(fileURI);
+    path.getFileSystem(conf); // get FS with our conf cached
+  }
+
+  private HDFSBlockCompressedDataStream openWriter() throws Exception {
+    return openWriter(100);
+  }
+
+  private HDFSBlockCompressedDataStream openWriter(int blockSize) throws Exception {
+    Context context = new Context();
+    context.put(HDFSBlockCompressedDataStream.BLOCK_SIZE, String.valueOf(blockSize));
+    HDFSBlockCompressedDataStream writer = new HDFSBlockCompressedDataStream();
+    writer.configure(context);
+    writer.open(fileURI, ReflectionUtils.newInstance(GzipCodec.class, conf),
+        SequenceFile.CompressionType.BLOCK);
+    return writer;
+  }
+
+  private String writeBatches(HDFSBlockCompressedDataStream writer, int batches)
+      throws Exception {
+    StringBuilder expected = new StringBuilder();
+    for (int batch = 0; batch < batches; batch++) {
+      for (int i = 0; i < 3; i++) {
+        String body = "event " + batch + "-" + i;
+        writer.append(EventBuilder.withBody(body, Charsets.UTF_8));
+        expected.append(body).append('\n');
+      }
+      writer.sync();
+    }
+    return expected.toString();
+  }
+
+  private String readAll(BlockCompressedStreamReader reader) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] block;
+    while ((block = reader.readBlock()) != null) {
+      out.write(block);
+    }
+    return new String(out.toByteArray(), Charsets.UTF_8);
+  }
+
+  // make sure the synced data can be read before the file is closed
+  @Test
+  public void testDurability() throws Exception {
+    HDFSBlockCompressedDataStream writer = openWriter();
+    String expected = writeBatches(writer, 20);
+
+    try (BlockCompressedStreamReader reader =
+             new BlockCompressedStreamReader(new Path(fileURI), conf)) {
+      Assert.assertEquals(expected, readAll(reader));
+      Assert.assertTrue(reader.readIndex().isEmpty());
+    }
+    writer.close();
+  }
+
+  @Test
+  public void testBlocksAndIndex() throws Exception {
+    HDFSBlockCompressedDataStream writer = openWriter();
+    String expected = writeBatches(writer, 20);
+    writer.close();
+
+    try (BlockCompressedStreamReader reader =
+             new BlockCompressedStreamReader(new Path(fileURI), conf)) {
+      List<BlockCompressedStreamReader.IndexEntry> index = reader.readIndex();
+      Assert.assertEquals((expected.length() + 99) / 100, index.size());
+      Assert.assertEquals(expected, readAll(reader));
+
+      BlockCompressedStreamReader.IndexEntry last = index.get(index.size() - 1);
+      reader.seek(last);
+      String tail = new String(reader.readBlock(), Charsets.UTF_8);
+      Assert.assertEquals(expected.substring((int) last.getDataOffset()), tail);
+      Assert.assertNull(reader.readBlock());
+    }
+    Assert.assertFalse(new File(new Path(fileURI + HDFSBlockCompressedDataStream.SYNC_SUFFIX)
+        .toUri()).exists());
+  }
+
+  // synced data must not stay in the file uncompressed
+  @Test
+  public void testSizeWithSyncPerBatch() throws Exception {
+    HDFSBlockCompressedDataStream writer = openWriter(64 * 1024);
+    String expected = writeBatches(writer, 5000);
+    File file = new File(new Path(fileURI).toUri());
+    File syncFile = new File(file.getPath() + HDFSBlockCompressedDataStream.SYNC_SUFFIX);
+    Assert.assertTrue(file.length() < expected.length() / 2);
+    Assert.assertTrue(syncFile.length() <= 64 * 1024 + 8);
+    writer.close();
+
+    Assert.assertTrue(file.length() < expected.length() / 2);
+    Assert.assertFalse(syncFile.exists());
+    try (BlockCompressedStreamReader reader =
+             new BlockCompressedStreamReader(new Path(fileURI), conf)) {
+      Assert.assertEquals(expected, readAll(reader));
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flume.sink.hdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.flume.Channel;
+import org.apache.flume.Context;
+import org.apache.flume.Event;
+import org.apache.flume.Transaction;
+import org.apache.flume.channel.MemoryChannel;
+import org.apache.flume.conf.Configurables;
+import org.apache.flume.event.EventBuilder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestHDFSParquetFile {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("Row").fields()
+      .requiredLong("id")
+      .requiredString("message")
+      .endRecord();
+
+  private File dir;
+  private Configuration conf;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = new File("target/test/parquet-" + UUID.randomUUID());
+    FileUtils.forceMkdir(dir);
+    conf = new Configuration();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteQuietly(dir);
+  }
+
+  private Event createEvent(long id, boolean withSchema) throws IOException {
+    GenericRecord record = new GenericData.Record(SCHEMA);
+    record.put("id", id);
+    record.put("message", "message " + id);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(SCHEMA).write(record, encoder);
+    encoder.flush();
+    return EventBuilder.withBody(out.toByteArray(), withSchema
+        ? Collections.singletonMap(AvroEventSerializer.AVRO_SCHEMA_LITERAL_HEADER,
+            SCHEMA.toString())
+        : Collections.<String, String>emptyMap());
+  }
+
+  private List<Long> readIds(File file) throws IOException {
+    List<Long> ids = Lists.newArrayList();
+    try (ParquetReader<GenericRecord> reader =
+             AvroParquetReader.<GenericRecord>builder(
+                 HadoopInputFile.fromPath(new Path(file.toURI()), conf))
+                 .withConf(conf).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        long id = (Long) record.get("id");
+        Assert.assertEquals("message " + id, record.get("message").toString());
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private ParquetMetadata readFooter(File file) throws IOException {
+    try (ParquetFileReader reader = ParquetFileReader.open(
+        HadoopInputFile.fromPath(new Path(file.toURI()), conf))) {
+      return reader.getFooter();
+    }
+  }
+
+  @Test
+  public void testRowGroups() throws Exception {
+    Context context = new Context();
+    context.put("serializer." + HDFSParquetFile.COMPRESSION_CODEC, "gzip");
+    context.put("serializer." + HDFSParquetFile.ROW_GROUP_SIZE, "1024");
+    context.put("serializer." + HDFSParquetFile.PAGE_SIZE, "256");
+    HDFSParquetFile writer = new HDFSParquetFile();
+    writer.configure(context);
+
+    File file = new File(dir, "rows.parquet");
+    writer.open(file.toURI().toString());
+    List<Long> expected = Lists.newArrayList();
+    for (long id = 0; id < 5000; id++) {
+      writer.append(createEvent(id, true));
+      expected.add(id);
+      if (id % 100 == 0) {
+        writer.sync();
+      }
+    }
+    writer.close();
+
+    Assert.assertEquals(expected, readIds(file));
+    ParquetMetadata footer = readFooter(file);
+    Assert.assertTrue(footer.getBlocks().size() > 1);
+    Assert.assertEquals(CompressionCodecName.GZIP,
+        footer.getBlocks().get(0).getColumns().get(0).getCodec());
+  }
+
+  @Test
+  public void testConfiguredSchema() throws Exception {
+    Context context = new Context();
+    context.put("serializer." + HDFSParquetFile.SCHEMA_LITERAL, SCHEMA.toString());
+    HDFSParquetFile writer = new HDFSParquetFile();
+    writer.configure(context);
+
+    File file = new File(dir, "static.parquet");
+    writer.open(file.toURI().toString());
+    writer.append(createEvent(1, false));
+    writer.append(createEvent(2, false));
+    writer.close();
+
+    Assert.assertEquals(Lists.newArrayList(1L, 2L), readIds(file));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownCompressionCodec() {
+    Context context = new Context();
+    context.put("serializer." + HDFSParquetFile.COMPRESSION_CODEC, "nope");
+    new HDFSParquetFile().configure(context);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCodecNotAllowed() {
+    Context context = new Context();
+    context.put("hdfs.path", dir.toURI().toString());
+    context.put("hdfs.fileType", HDFSWriterFactory.ParquetType);
+    context.put("hdfs.codeC", "gzip");
+    Configurables.configure(new HDFSEventSink(), context);
+  }
+
+  @Test
+  public void testSinkRollCount() throws Exception {
+    Context context = new Context();
+    context.put("hdfs.path", dir.toURI().toString());
+    context.put("hdfs.filePrefix", "FlumeData");
+    context.put("hdfs.fileSuffix", ".parquet");
+    context.put("hdfs.fileType", HDFSWriterFactory.ParquetType);
+    context.put("hdfs.rollCount", "3");
+    context.put("hdfs.rollInterval", "0");
+    context.put("hdfs.rollSize", "0");
+    context.put("hdfs.batchSize", "1");
+
+    HDFSEventSink sink = new HDFSEventSink();
+    sink.setName("ParquetSink");
+    Configurables.configure(sink, context);
+    Channel channel = new MemoryChannel();
+    Configurables.configure(channel, new Context());
+    sink.setChannel(channel);
+    sink.start();
+
+    for (long id = 0; id < 6; id++) {
+      Transaction txn = channel.getTransaction();
+      txn.begin();
+      channel.put(createEvent(id, true));
+      txn.commit();
+      txn.close();
+      sink.process();
+    }
+    sink.stop();
+
+    File[] files = dir.listFiles((d, name) -> name.endsWith(".parquet"));
+    Assert.assertEquals(2, files.length);
+    List<Long> ids = Lists.newArrayList();
+    for (File file : files) {
+      List<Long> fileIds = readIds(file);
+      Assert.assertEquals(3, fileIds.size());
+      ids.addAll(fileIds);
+    }
+    Collections.sort(ids);
+    Assert.assertEquals(Lists.newArrayList(0L, 1L, 2L, 3L, 4L, 5L), ids);
+  }
+}
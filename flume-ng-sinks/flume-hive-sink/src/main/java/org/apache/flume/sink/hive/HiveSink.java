@@ -278,6 +278,7 @@ public class HiveSink extends AbstractSink implements Configurable, BatchSizeSup
   // Drains one batch of events from Channel into Hive
   private int drainOneBatch(Channel channel)
           throws HiveWriter.Failure, InterruptedException {
+    long startNanos = System.nanoTime();
     int txnEventCount = 0;
     try {
       Map<HiveEndPoint,HiveWriter> activeWriters = Maps.newHashMap();
@@ -304,13 +305,13 @@ public class HiveSink extends AbstractSink implements Configurable, BatchSizeSup
 
       //4) Update counters
       if (txnEventCount == 0) {
-        sinkCounter.incrementBatchEmptyCount();
+        sinkCounter.recordBatchEmpty();
       } else if (txnEventCount == batchSize) {
-        sinkCounter.incrementBatchCompleteCount();
+        sinkCounter.recordBatchComplete();
       } else {
-        sinkCounter.incrementBatchUnderflowCount();
+        sinkCounter.recordBatchUnderflow();
       }
-      sinkCounter.addToEventDrainAttemptCount(txnEventCount);
+      sinkCounter.recordEventDrainAttempt(txnEventCount);
 
 
       // 5) Flush all Writers
@@ -318,7 +319,8 @@ public class HiveSink extends AbstractSink implements Configurable, BatchSizeSup
         writer.flush(true);
       }
 
-      sinkCounter.addToEventDrainSuccessCount(txnEventCount);
+      sinkCounter.recordEventDrainSuccess(txnEventCount);
+      sinkCounter.recordBatch(txnEventCount, startNanos);
       return txnEventCount;
     } catch (HiveWriter.Failure e) {
       // in case of error we close all TxnBatches to start clean next time
@@ -18,6 +18,9 @@
  */
 package org.apache.flume.sink.http;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.apache.flume.Channel;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
@@ -29,13 +32,28 @@ import org.apache.flume.sink.AbstractSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Implementation of an HTTP sink. Events are POSTed to an HTTP / HTTPS
@@ -44,6 +62,19 @@ import java.util.Map;
  *
  * Rollback of the Flume transaction, and backoff can be specified globally,
  * then overridden for ranges (or individual) status codes.
+ *
+ * By default every event is POSTed on its own. When batchSize is greater than
+ * one, up to batchSize events are taken in a single transaction and POSTed in
+ * one request, either separated by newlines or as a JSON array, optionally
+ * gzip compressed. The status code of the response then applies to the whole
+ * batch. With maxInFlightRequests greater than one, several transactions are
+ * processed concurrently, each on a thread of its own. Connections are kept
+ * alive and reused through the keep-alive cache of HttpURLConnection, whose
+ * size per endpoint is set by the http.maxConnections system property.
+ *
+ * Events with an empty body, and in the JSON_ARRAY format events whose body
+ * is not a single JSON value, cannot be sent. They are committed with the
+ * rest of their transaction and counted as skipped by the sink counter.
  */
 public class HttpSink extends AbstractSink implements Configurable {
 
@@ -65,6 +96,23 @@ public class HttpSink extends AbstractSink implements Configurable {
   /** Default setting for the HTTP accept header. */
   private static final String DEFAULT_ACCEPT_HEADER = "text/plain";
 
+  /** Default setting for the maximum number of events POSTed at once. */
+  private static final int DEFAULT_BATCH_SIZE = 1;
+
+  /** Default setting for the number of concurrent requests. */
+  private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1;
+
+  /** Size of the buffer used to drain response bodies. */
+  private static final int RESPONSE_BUFFER_SIZE = 4096;
+
+  /** Encoding of the events in a batch request. */
+  enum BatchFormat {
+    /** Event bodies separated by newlines. */
+    NEWLINE,
+    /** Event bodies as the elements of a JSON array. */
+    JSON_ARRAY
+  }
+
   /** Endpoint URL to POST events to. */
   private URL endpointUrl;
 
@@ -116,6 +164,31 @@ public class HttpSink extends AbstractSink implements Configurable {
   /** Used to create HTTP connections to the endpoint. */
   private ConnectionBuilder connectionBuilder;
 
+  /** Maximum number of events POSTed in a single request. */
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  /** Encoding of the events when more than one is POSTed at once. */
+  private BatchFormat batchFormat = BatchFormat.NEWLINE;
+
+  /** Whether the request bodies are gzip compressed. */
+  private boolean compress;
+
+  /** Maximum number of transactions processed concurrently. */
+  private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+
+  /** Runs the transactions when more than one request can be in flight. */
+  private ExecutorService requestExecutor;
+
+  /** Limits the number of transactions handed over to requestExecutor. */
+  private Semaphore inFlightPermits;
+
+  /** Status of the last transaction completed by requestExecutor. */
+  private volatile Status lastStatus = Status.READY;
+
+  /** Failure of a request thread, re-thrown to the sink runner. */
+  private final AtomicReference<Throwable> requestFailure =
+      new AtomicReference<>();
+
   @Override
   public final void configure(final Context context) {
     String configuredEndpoint = context.getString("endpoint", "");
@@ -162,6 +235,36 @@ public class HttpSink extends AbstractSink implements Configurable {
         false);
     LOG.info("Incrementing metrics by default is " + defaultIncrementMetrics);
 
+    batchSize = context.getInteger("batchSize", DEFAULT_BATCH_SIZE);
+
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException(
+          "Batch size must be a non-zero and positive");
+    }
+    LOG.info("Using batch size : " + batchSize);
+
+    String configuredFormat = context.getString("batchFormat",
+        BatchFormat.NEWLINE.name());
+    try {
+      batchFormat = BatchFormat.valueOf(
+          configuredFormat.toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Batch format invalid", e);
+    }
+    LOG.info("Using batch format : " + batchFormat);
+
+    compress = context.getBoolean("compress", false);
+    LOG.info("Request compression is " + compress);
+
+    maxInFlightRequests = context.getInteger("maxInFlightRequests",
+        DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+
+    if (maxInFlightRequests <= 0) {
+      throw new IllegalArgumentException(
+          "Max in flight requests must be a non-zero and positive");
+    }
+    LOG.info("Using max in flight requests : " + maxInFlightRequests);
+
     parseConfigOverrides("backoff", context, backoffOverrides);
     parseConfigOverrides("rollback", context, rollbackOverrides);
     parseConfigOverrides("incrementMetrics", context,
@@ -177,52 +280,155 @@ public class HttpSink extends AbstractSink implements Configurable {
   @Override
   public final void start() {
     LOG.info("Starting HttpSink");
+    if (maxInFlightRequests > 1) {
+      requestExecutor = Executors.newFixedThreadPool(maxInFlightRequests,
+          new ThreadFactoryBuilder().setNameFormat(
+              "http-sink-" + getName() + "-%d").build());
+      inFlightPermits = new Semaphore(maxInFlightRequests);
+      lastStatus = Status.READY;
+      requestFailure.set(null);
+    }
     sinkCounter.start();
   }
 
   @Override
   public final void stop() {
     LOG.info("Stopping HttpSink");
+    if (requestExecutor != null) {
+      requestExecutor.shutdown();
+      try {
+        // in flight requests complete or time out within this delay
+        if (!requestExecutor.awaitTermination(connectTimeout + requestTimeout,
+            TimeUnit.MILLISECONDS)) {
+          requestExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        requestExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      requestExecutor = null;
+    }
     sinkCounter.stop();
   }
 
   @Override
   public final Status process() throws EventDeliveryException {
+    if (requestExecutor != null) {
+      return processConcurrently();
+    }
+    return processTransaction(getChannel());
+  }
+
+  /**
+   * Hands the next transaction over to a request thread, once less than
+   * maxInFlightRequests are being processed. Channel transactions are bound to
+   * the thread which opened them, so each concurrent request needs a thread of
+   * its own.
+   *
+   * @return the status of the last completed transaction
+   * @throws EventDeliveryException if a request thread failed
+   */
+  private Status processConcurrently() throws EventDeliveryException {
+    Throwable failure = requestFailure.getAndSet(null);
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new EventDeliveryException("HTTP request thread failed", failure);
+    }
+
+    try {
+      inFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Status.BACKOFF;
+    }
+
+    final Channel ch = getChannel();
+    try {
+      requestExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            lastStatus = processTransaction(ch);
+          } catch (Throwable t) {
+            lastStatus = Status.BACKOFF;
+            requestFailure.compareAndSet(null, t);
+          } finally {
+            inFlightPermits.release();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlightPermits.release();
+      return Status.BACKOFF;
+    }
+    return lastStatus;
+  }
+
+  /**
+   * Takes up to batchSize events from the channel and POSTs them in a single
+   * request. The transaction is committed or rolled back depending on the
+   * response status.
+   *
+   * @param ch  the channel to take the events from
+   * @return the status to return to the sink runner
+   */
+  private Status processTransaction(final Channel ch) {
     Status status = null;
     OutputStream outputStream = null;
 
-    Channel ch = getChannel();
     Transaction txn = ch.getTransaction();
     txn.begin();
 
     try {
-      Event event = ch.take();
-
-      byte[] eventBody = null;
-      if (event != null) {
-        eventBody = event.getBody();
+      List<byte[]> eventBodies = new ArrayList<>(batchSize);
+      int skippedEvents = 0;
+      for (int i = 0; i < batchSize; i++) {
+        Event event = ch.take();
+        if (event == null) {
+          break;
+        }
+        byte[] eventBody = event.getBody();
+        if (eventBody == null || eventBody.length == 0) {
+          skippedEvents++;
+        } else if (batchSize > 1 && batchFormat == BatchFormat.JSON_ARRAY
+            && !isJsonValue(eventBody)) {
+          LOG.warn("Skipping event whose body is not a JSON value : "
+              + new String(eventBody, StandardCharsets.UTF_8));
+          skippedEvents++;
+        } else {
+          eventBodies.add(eventBody);
+        }
       }
 
-      if (eventBody != null && eventBody.length > 0) {
-        sinkCounter.incrementEventDrainAttemptCount();
-        LOG.debug("Sending request : " + new String(event.getBody()));
+      if (!eventBodies.isEmpty()) {
+        if (batchSize == 1) {
+          sinkCounter.recordEventDrainAttempt();
+          LOG.debug("Sending request : " + new String(eventBodies.get(0)));
+        } else {
+          sinkCounter.recordEventDrainAttempt(eventBodies.size());
+          LOG.debug("Sending request of " + eventBodies.size() + " events");
+        }
 
         try {
+          long startNanos = System.nanoTime();
+          byte[] requestBody = encode(eventBodies);
           HttpURLConnection connection = connectionBuilder.getConnection();
 
           outputStream = connection.getOutputStream();
-          outputStream.write(eventBody);
+          outputStream.write(requestBody);
           outputStream.flush();
           outputStream.close();
 
           int httpStatusCode = connection.getResponseCode();
           LOG.debug("Got status code : " + httpStatusCode);
 
+          // reading the response fully lets the connection be kept alive
           if (httpStatusCode < HttpURLConnection.HTTP_BAD_REQUEST) {
-            connection.getInputStream().close();
+            drain(connection.getInputStream());
           } else {
             LOG.debug("bad request");
-            connection.getErrorStream().close();
+            drain(connection.getErrorStream());
           }
           LOG.debug("Response processed and closed");
 
@@ -236,6 +442,8 @@ public class HttpSink extends AbstractSink implements Configurable {
               txn.rollback();
             } else {
               txn.commit();
+              recordSkippedEvents(skippedEvents);
+              sinkCounter.recordBatch(eventBodies.size(), startNanos);
             }
 
             boolean shouldBackoff = findOverrideValue(httpStatusString,
@@ -251,7 +459,19 @@ public class HttpSink extends AbstractSink implements Configurable {
                 incrementMetricsOverrides, defaultIncrementMetrics);
 
             if (shouldIncrementMetrics) {
-              sinkCounter.incrementEventDrainSuccessCount();
+              if (batchSize == 1) {
+                sinkCounter.recordEventDrainSuccess();
+              } else {
+                sinkCounter.recordEventDrainSuccess(eventBodies.size());
+              }
+            }
+
+            if (batchSize > 1) {
+              if (eventBodies.size() == batchSize) {
+                sinkCounter.recordBatchComplete();
+              } else {
+                sinkCounter.recordBatchUnderflow();
+              }
             }
 
             if (shouldRollback) {
@@ -280,8 +500,12 @@ public class HttpSink extends AbstractSink implements Configurable {
 
       } else {
         txn.commit();
+        recordSkippedEvents(skippedEvents);
         status = Status.BACKOFF;
 
+        if (batchSize > 1) {
+          sinkCounter.recordBatchEmpty();
+        }
         LOG.warn("Processed empty event");
       }
 
@@ -304,7 +528,7 @@ public class HttpSink extends AbstractSink implements Configurable {
         try {
           outputStream.close();
         } catch (IOException e) {
-          // ignore errors
+          LOG.debug("Error closing the request stream", e);
         }
       }
     }
@@ -312,6 +536,93 @@ public class HttpSink extends AbstractSink implements Configurable {
     return status;
   }
 
+  /**
+   * Counts the events committed without being sent.
+   *
+   * @param skippedEvents  the number of events skipped by a transaction
+   */
+  private void recordSkippedEvents(final int skippedEvents) {
+    if (skippedEvents > 0) {
+      sinkCounter.addToEventSkippedCount(skippedEvents);
+    }
+  }
+
+  /**
+   * Checks that an event body is a single, strictly formatted JSON value, so
+   * that one malformed event cannot make the whole JSON array invalid.
+   *
+   * @param eventBody  the event body, encoded in UTF-8
+   * @return true if the body is a valid JSON value
+   */
+  private static boolean isJsonValue(final byte[] eventBody) {
+    try {
+      JsonReader reader = new JsonReader(new InputStreamReader(
+          new ByteArrayInputStream(eventBody), StandardCharsets.UTF_8));
+      reader.skipValue();
+      return reader.peek() == JsonToken.END_DOCUMENT;
+    } catch (IOException | IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Builds the request body from the given event bodies. A single event is
+   * sent as is unless batching is enabled.
+   *
+   * @param eventBodies  the bodies of the events to send
+   * @return the request body, compressed if configured
+   * @throws IOException on any compression error
+   */
+  private byte[] encode(final List<byte[]> eventBodies) throws IOException {
+    if (batchSize == 1 && !compress) {
+      return eventBodies.get(0);
+    }
+
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    OutputStream out = compress ? new GZIPOutputStream(buffer) : buffer;
+    if (batchSize == 1) {
+      out.write(eventBodies.get(0));
+    } else if (batchFormat == BatchFormat.JSON_ARRAY) {
+      out.write('[');
+      for (int i = 0; i < eventBodies.size(); i++) {
+        if (i > 0) {
+          out.write(',');
+        }
+        out.write(eventBodies.get(i));
+      }
+      out.write(']');
+    } else {
+      for (byte[] eventBody : eventBodies) {
+        out.write(eventBody);
+        out.write('\n');
+      }
+    }
+    out.close();
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Reads the given response stream to the end and closes it.
+   *
+   * @param in  the response stream, may be null if there is no response body
+   * @throws IOException on any read error
+   */
+  private void drain(final InputStream in) throws IOException {
+    if (in == null) {
+      return;
+    }
+    try {
+      // discard the response
+      byte[] buffer = new byte[RESPONSE_BUFFER_SIZE];
+      int read;
+      do {
+        read = in.read(buffer);
+      } while (read > 0);
+    } finally {
+      in.close();
+    }
+  }
+
   /**
    * Reads a set of override values from the context configuration and stores
    * the results in the Map provided.
@@ -404,6 +715,9 @@ public class HttpSink extends AbstractSink implements Configurable {
       connection.setRequestMethod("POST");
       connection.setRequestProperty("Content-Type", contentTypeHeader);
       connection.setRequestProperty("Accept", acceptHeader);
+      if (compress) {
+        connection.setRequestProperty("Content-Encoding", "gzip");
+      }
       connection.setConnectTimeout(connectTimeout);
       connection.setReadTimeout(requestTimeout);
       connection.setDoOutput(true);
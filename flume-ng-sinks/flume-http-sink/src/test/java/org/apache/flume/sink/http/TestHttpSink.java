@@ -18,23 +18,32 @@
  */
 package org.apache.flume.sink.http;
 
+import com.google.common.io.ByteStreams;
 import org.apache.flume.Channel;
+import org.apache.flume.ChannelException;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.EventDeliveryException;
 import org.apache.flume.Sink.Status;
 import org.apache.flume.Transaction;
 import org.apache.flume.instrumentation.SinkCounter;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
@@ -89,6 +98,10 @@ public class TestHttpSink {
     verify(configContext).getBoolean("defaultBackoff", true);
     verify(configContext).getBoolean("defaultRollback", true);
     verify(configContext).getBoolean("defaultIncrementMetrics", false);
+    verify(configContext).getInteger(eq("batchSize"), Mockito.anyInt());
+    verify(configContext).getString(eq("batchFormat"), Mockito.anyString());
+    verify(configContext).getBoolean("compress", false);
+    verify(configContext).getInteger(eq("maxInFlightRequests"), Mockito.anyInt());
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -153,6 +166,22 @@ public class TestHttpSink {
     verify(configContext).getString("contentTypeHeader", DEFAULT_CONTENT_TYPE_HEADER);
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void ensureExceptionIfBatchSizeNegative() {
+    whenDefaultStringConfig();
+    whenDefaultTimeouts();
+    when(configContext.getInteger(eq("batchSize"), Mockito.anyInt())).thenReturn(-1);
+    new HttpSink().configure(configContext);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void ensureExceptionIfBatchFormatInvalid() {
+    whenDefaultStringConfig();
+    whenDefaultTimeouts();
+    when(configContext.getString(eq("batchFormat"), Mockito.anyString())).thenReturn("xml");
+    new HttpSink().configure(configContext);
+  }
+
   @Test
   public void ensureBackoffOnNullEvent() throws Exception {
     when(channel.take()).thenReturn(null);
@@ -171,6 +200,7 @@ public class TestHttpSink {
     when(channel.take()).thenReturn(event);
     when(event.getBody()).thenReturn(new byte[]{});
     executeWithMocks(true);
+    verify(sinkCounter).addToEventSkippedCount(1);
   }
 
   @Test
@@ -281,6 +311,110 @@ public class TestHttpSink {
     executeWithMocks(false, Status.BACKOFF, false, true, context, HttpURLConnection.HTTP_OK);
   }
 
+  @Test
+  public void ensureBatchRolledBackAsAWhole() throws Exception {
+    when(channel.take()).thenReturn(event, event, event, null);
+    when(event.getBody()).thenReturn("something".getBytes());
+
+    Context context = new Context();
+    context.put("batchSize", "5");
+    context.put("defaultRollback", "true");
+    context.put("defaultBackoff", "true");
+    context.put("defaultIncrementMetrics", "false");
+
+    executeWithMocks(false, Status.BACKOFF, false, false, context,
+        HttpURLConnection.HTTP_UNAVAILABLE);
+    verify(sinkCounter).recordEventDrainAttempt(3);
+    verify(outputStream).write("something\nsomething\nsomething\n".getBytes());
+  }
+
+  @Test
+  public void ensureBatchCommittedAsJsonArray() throws Exception {
+    when(channel.take()).thenReturn(event, event, null);
+    when(event.getBody()).thenReturn("{}".getBytes());
+
+    Context context = new Context();
+    context.put("batchSize", "2");
+    context.put("batchFormat", "json_array");
+    context.put("defaultRollback", "false");
+    context.put("defaultBackoff", "false");
+    context.put("defaultIncrementMetrics", "true");
+
+    executeWithMocks(true, Status.READY, false, false, context, HttpURLConnection.HTTP_OK);
+    verify(sinkCounter).recordEventDrainSuccess(2);
+    verify(sinkCounter).recordBatchComplete();
+    verify(outputStream).write("[{},{}]".getBytes());
+  }
+
+  @Test
+  public void ensureNonJsonEventSkippedFromJsonArray() throws Exception {
+    Event invalidEvent = Mockito.mock(Event.class);
+    when(channel.take()).thenReturn(event, invalidEvent, event, null);
+    when(event.getBody()).thenReturn("{}".getBytes());
+    when(invalidEvent.getBody()).thenReturn("not json".getBytes());
+
+    Context context = new Context();
+    context.put("batchSize", "3");
+    context.put("batchFormat", "json_array");
+    context.put("defaultRollback", "false");
+    context.put("defaultBackoff", "false");
+
+    executeWithMocks(true, Status.READY, false, false, context, HttpURLConnection.HTTP_OK);
+    verify(sinkCounter).addToEventSkippedCount(1);
+    verify(outputStream).write("[{},{}]".getBytes());
+  }
+
+  @Test
+  public void ensureRequestThreadFailurePropagated() throws Exception {
+    ChannelException failure = new ChannelException("close failed");
+    when(channel.take()).thenReturn(null);
+    when(channel.getTransaction()).thenReturn(transaction);
+    Mockito.doThrow(failure).when(transaction).close();
+
+    Context context = new Context();
+    context.put("endpoint", "http://localhost:8080/endpoint");
+    context.put("maxInFlightRequests", "2");
+
+    HttpSink httpSink = new HttpSink();
+    httpSink.configure(context);
+    httpSink.setChannel(channel);
+    httpSink.setSinkCounter(sinkCounter);
+    httpSink.start();
+    try {
+      EventDeliveryException thrown = null;
+      for (int i = 0; i < 100 && thrown == null; i++) {
+        try {
+          httpSink.process();
+          Thread.sleep(20);
+        } catch (EventDeliveryException e) {
+          thrown = e;
+        }
+      }
+      assertNotNull(thrown);
+      assertSame(failure, thrown.getCause());
+    } finally {
+      httpSink.stop();
+    }
+  }
+
+  @Test
+  public void ensureBatchCompressed() throws Exception {
+    when(channel.take()).thenReturn(event, event);
+    when(event.getBody()).thenReturn("something".getBytes());
+
+    Context context = new Context();
+    context.put("batchSize", "2");
+    context.put("compress", "true");
+    context.put("defaultRollback", "false");
+    context.put("defaultBackoff", "false");
+
+    executeWithMocks(true, Status.READY, false, false, context, HttpURLConnection.HTTP_OK);
+    ArgumentCaptor<byte[]> requestBody = ArgumentCaptor.forClass(byte[].class);
+    verify(outputStream).write(requestBody.capture());
+    InputStream in = new GZIPInputStream(new ByteArrayInputStream(requestBody.getValue()));
+    assertEquals("something\nsomething\n", new String(ByteStreams.toByteArray(in)));
+  }
+
   private void executeWithMocks(boolean commit) throws Exception {
     Context context = new Context();
     executeWithMocks(commit, Status.BACKOFF, false, false, context, HttpURLConnection.HTTP_OK);
@@ -318,7 +452,7 @@ public class TestHttpSink {
     inOrder(transaction).verify(transaction).begin();
 
     if (expectedIncrementAttemptMetrics) {
-      inOrder(sinkCounter).verify(sinkCounter).incrementEventDrainAttemptCount();
+      inOrder(sinkCounter).verify(sinkCounter).recordEventDrainAttempt();
     }
 
     if (expectedCommit) {
@@ -328,7 +462,7 @@ public class TestHttpSink {
     }
 
     if (expectedIncrementSuccessMetrics) {
-      inOrder(sinkCounter).verify(sinkCounter).incrementEventDrainSuccessCount();
+      inOrder(sinkCounter).verify(sinkCounter).recordEventDrainSuccess();
     }
 
     inOrder(transaction).verify(transaction).close();
@@ -338,6 +472,9 @@ public class TestHttpSink {
     when(configContext.getString("endpoint", "")).thenReturn("http://test.abc/");
     when(configContext.getString("acceptHeader", "")).thenReturn("test/accept");
     when(configContext.getString("contentTypeHeader", "")).thenReturn("test/content");
+    when(configContext.getString(eq("batchFormat"), Mockito.anyString())).thenReturn("newline");
+    when(configContext.getInteger(eq("batchSize"), Mockito.anyInt())).thenReturn(1);
+    when(configContext.getInteger(eq("maxInFlightRequests"), Mockito.anyInt())).thenReturn(1);
   }
 
   private void whenDefaultBooleanConfig() {
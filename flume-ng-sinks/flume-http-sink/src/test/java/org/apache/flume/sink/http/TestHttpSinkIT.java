@@ -47,6 +47,7 @@ import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMoc
 import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.apache.flume.Sink.Status;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -273,6 +274,51 @@ public class TestHttpSinkIT {
         .withRequestBody(equalToJson(event("SUCCESS"))));
   }
 
+  @Test
+  public void ensureBatchesDeliveredConcurrently() throws Exception {
+    service.stubFor(post(urlEqualTo("/batch"))
+        .willReturn(aResponse().withStatus(200).withFixedDelay(500)));
+
+    Context httpSinkContext = new Context();
+    httpSinkContext.put("endpoint", "http://localhost:" + port + "/batch");
+    httpSinkContext.put("batchSize", "2");
+    httpSinkContext.put("maxInFlightRequests", "3");
+    httpSinkContext.put("backoff.200", "false");
+    httpSinkContext.put("rollback.200", "false");
+
+    HttpSink batchSink = new HttpSink();
+    batchSink.configure(httpSinkContext);
+    batchSink.setChannel(channel);
+    batchSink.start();
+
+    Transaction channelTransaction = channel.getTransaction();
+    channelTransaction.begin();
+    for (int i = 0; i < 6; i++) {
+      SimpleEvent event = new SimpleEvent();
+      event.setBody(("line" + i).getBytes());
+      channel.put(event);
+    }
+    channelTransaction.commit();
+    channelTransaction.close();
+
+    long startTime = System.currentTimeMillis();
+    for (int i = 0; i < 3; i++) {
+      batchSink.process();
+    }
+    batchSink.stop();
+    long endTime = System.currentTimeMillis();
+    assertTrue("Requests should have been sent concurrently", endTime - startTime < 1400);
+
+    service.verify(3, postRequestedFor(urlEqualTo("/batch"))
+        .withRequestBody(matching("line[0-9]\nline[0-9]\n")));
+
+    channelTransaction = channel.getTransaction();
+    channelTransaction.begin();
+    assertNull("Channel should be drained", channel.take());
+    channelTransaction.commit();
+    channelTransaction.close();
+  }
+
   private void addEventToChannel(String line) throws EventDeliveryException {
     addEventToChannel(line, Status.READY);
   }
@@ -58,12 +58,12 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A simple sink which reads events from a channel and writes them to HBase.
@@ -92,6 +92,10 @@ import java.util.concurrent.locks.ReentrantLock;
  * <tt>timeout: </tt> The length of time in milliseconds the sink waits for
  * callbacks from hbase for all events in a transaction.
  * If no timeout is specified, the sink will wait forever.<p>
+ * <tt>maxInFlightTransactions: </tt>The number of transactions which can be
+ * waiting for the callbacks of HBase at the same time. When greater than 1,
+ * the next batches are taken from the channel and serialized while the
+ * callbacks of the previous ones are outstanding. The default is 1.<p>
  * <p>
  * <strong>Note: </strong> Hbase does not guarantee atomic commits on multiple
  * rows. So if a subset of events in a batch are written to disk by Hbase and
@@ -114,9 +118,8 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
   Config asyncClientConfig;
   private String eventSerializerType;
   private Context serializerContext;
-  private HBaseClient client;
+  private volatile HBaseClient client;
   private Configuration conf;
-  private Transaction txn;
   private volatile boolean open = false;
   private SinkCounter sinkCounter;
   private long timeout;
@@ -127,9 +130,21 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
   private boolean isCoalesceTest;
   private boolean enableWal = true;
   private boolean batchIncrements = false;
-  private volatile int totalCallbacksReceived = 0;
+  private final AtomicInteger totalCallbacksReceived = new AtomicInteger();
   private int maxConsecutiveFails;
-  private Map<CellIdentifier, AtomicIncrementRequest> incrementBuffer;
+  private int maxInFlightTransactions;
+  private ExecutorService pipelineExecutor;
+  private Semaphore inFlightPermits;
+  private volatile boolean lastBatchEmpty;
+  private final AtomicReference<Throwable> pipelineFailure = new AtomicReference<>();
+  // Guards the client and the consecutive failures, which the in flight
+  // transactions update concurrently
+  private final Object clientLock = new Object();
+  // The transactions using the client. Once too many transactions failed the
+  // client is only shut down when the last of them is done, and no new one
+  // starts until then.
+  private int clientTransactions = 0;
+  private boolean clientShutdownPending = false;
   // The HBaseClient buffers the requests until a callback is received. In the event of a
   // timeout, there is no way to clear these buffers. If there is a major cluster issue, this
   // buffer can become too big and cause crashes. So if we hit a fixed number of HBase write
@@ -138,8 +153,7 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
   private int consecutiveHBaseFailures = 0;
   private boolean lastTxnFailed = false;
 
-  // Does not need to be thread-safe. Always called only from the sink's
-  // process method.
+  // Stateless, so it can be shared by the in flight transactions.
   private final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
 
   public AsyncHBaseSink() {
@@ -160,104 +174,197 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
 
   @Override
   public Status process() throws EventDeliveryException {
-    /*
-     * Reference to the boolean representing failure of the current transaction.
-     * Since each txn gets a new boolean, failure of one txn will not affect
-     * the next even if errbacks for the current txn get called while
-     * the next one is being processed.
-     *
-     */
     if (!open) {
       throw new EventDeliveryException("Sink was never opened. " +
           "Please fix the configuration.");
     }
-    if (client == null) {
-      client = initHBaseClient();
+    if (pipelineExecutor != null) {
+      return processPipelined();
+    }
+    HBaseClient client = acquireClient();
+    try {
+      return processTransaction(client);
+    } finally {
+      releaseClient();
+    }
+  }
+
+  /**
+   * Returns the client for a new transaction, after waiting for a pending
+   * shutdown of the client to complete.
+   */
+  private HBaseClient acquireClient() throws EventDeliveryException {
+    synchronized (clientLock) {
+      try {
+        while (clientShutdownPending) {
+          clientLock.wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new EventDeliveryException("Interrupted while waiting for the HBase client", e);
+      }
       if (client == null) {
-        throw new EventDeliveryException("Could not establish connection to HBase!");
+        client = initHBaseClient();
+        if (client == null) {
+          throw new EventDeliveryException("Could not establish connection to HBase!");
+        }
       }
+      clientTransactions++;
+      return client;
     }
-    AtomicBoolean txnFail = new AtomicBoolean(false);
-    AtomicInteger callbacksReceived = new AtomicInteger(0);
-    AtomicInteger callbacksExpected = new AtomicInteger(0);
-    final Lock lock = new ReentrantLock();
-    final Condition condition = lock.newCondition();
-    if (incrementBuffer != null) {
-      incrementBuffer.clear();
+  }
+
+  /**
+   * Called once a transaction no longer uses the client. The last transaction
+   * done shuts the client down if too many transactions failed.
+   */
+  private void releaseClient() {
+    synchronized (clientLock) {
+      clientTransactions--;
+      if (clientShutdownPending && clientTransactions == 0) {
+        if (client != null) {
+          shutdownHBaseClient();
+        }
+        clientShutdownPending = false;
+        clientLock.notifyAll();
+      }
     }
+  }
+
+  /**
+   * Hands the next batch over to a pipeline thread and returns without
+   * waiting for its callbacks, once less than maxInFlightTransactions batches
+   * are in flight. Channel transactions are bound to the thread which opened
+   * them, so each in flight batch needs a thread of its own. A failed batch
+   * is reported by the next call.
+   */
+  private Status processPipelined() throws EventDeliveryException {
+    Throwable failure = pipelineFailure.getAndSet(null);
+    if (failure != null) {
+      if (failure instanceof Error || failure instanceof RuntimeException) {
+        Throwables.propagate(failure);
+      }
+      throw new EventDeliveryException("Failed to commit transaction." +
+          "Transaction rolled back.", failure);
+    }
+    try {
+      inFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventDeliveryException("Interrupted while waiting for in flight batches", e);
+    }
+    final HBaseClient client;
+    try {
+      client = acquireClient();
+    } catch (EventDeliveryException | RuntimeException e) {
+      inFlightPermits.release();
+      throw e;
+    }
+    try {
+      pipelineExecutor.execute(() -> {
+        try {
+          lastBatchEmpty = processTransaction(client) == Status.BACKOFF;
+        } catch (Throwable e) {
+          pipelineFailure.compareAndSet(null, e);
+        } finally {
+          releaseClient();
+          inFlightPermits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      releaseClient();
+      inFlightPermits.release();
+      throw new EventDeliveryException("Sink is stopping", e);
+    }
+    return lastBatchEmpty ? Status.BACKOFF : Status.READY;
+  }
+
+  private Status processTransaction(HBaseClient client) throws EventDeliveryException {
+    /*
+     * Reference to the boolean representing failure of the current transaction.
+     * Since each txn gets a new boolean, failure of one txn will not affect
+     * the next even if errbacks for the current txn get called while
+     * the next one is being processed.
+     *
+     */
+    CallbackTracker callbacks = new CallbackTracker();
+    Map<CellIdentifier, AtomicIncrementRequest> incrementBuffer =
+        batchIncrements ? Maps.<CellIdentifier, AtomicIncrementRequest>newHashMap() : null;
     /*
      * Callbacks can be reused per transaction, since they share the same
-     * locks and conditions.
+     * tracker.
      */
     Callback<Object, Object> putSuccessCallback =
-        new SuccessCallback<Object, Object>(
-            lock, callbacksReceived, condition);
+        new SuccessCallback<Object, Object>(callbacks);
     Callback<Object, Exception> putFailureCallback =
-        new FailureCallback<Object, Exception>(
-            lock, callbacksReceived, txnFail, condition);
+        new FailureCallback<Object, Exception>(callbacks);
 
     Callback<Long, Long> incrementSuccessCallback =
-        new SuccessCallback<Long, Long>(
-            lock, callbacksReceived, condition);
+        new SuccessCallback<Long, Long>(callbacks);
     Callback<Long, Exception> incrementFailureCallback =
-        new FailureCallback<Long, Exception>(
-            lock, callbacksReceived, txnFail, condition);
+        new FailureCallback<Long, Exception>(callbacks);
 
     Status status = Status.READY;
     Channel channel = getChannel();
-    txn = channel.getTransaction();
+    Transaction txn = channel.getTransaction();
     txn.begin();
+    long startNanos = System.nanoTime();
 
     int i = 0;
     try {
-      for (; i < batchSize; i++) {
-        Event event = channel.take();
-        if (event == null) {
-          status = Status.BACKOFF;
-          if (i == 0) {
-            sinkCounter.incrementBatchEmptyCount();
+      // serializers are not thread safe, the batches of the in flight
+      // transactions are serialized one at a time, while the callbacks of the
+      // others are outstanding
+      synchronized (serializer) {
+        for (; i < batchSize; i++) {
+          Event event = channel.take();
+          if (event == null) {
+            status = Status.BACKOFF;
+            if (i == 0) {
+              sinkCounter.recordBatchEmpty();
+            } else {
+              sinkCounter.recordBatchUnderflow();
+            }
+            break;
           } else {
-            sinkCounter.incrementBatchUnderflowCount();
-          }
-          break;
-        } else {
-          serializer.setEvent(event);
-          List<PutRequest> actions = serializer.getActions();
-          List<AtomicIncrementRequest> increments = serializer.getIncrements();
-          callbacksExpected.addAndGet(actions.size());
-          if (!batchIncrements) {
-            callbacksExpected.addAndGet(increments.size());
-          }
+            serializer.setEvent(event);
+            List<PutRequest> actions = serializer.getActions();
+            List<AtomicIncrementRequest> increments = serializer.getIncrements();
+            callbacks.expect(actions.size());
+            if (!batchIncrements) {
+              callbacks.expect(increments.size());
+            }
 
-          for (PutRequest action : actions) {
-            action.setDurable(enableWal);
-            client.put(action).addCallbacks(putSuccessCallback, putFailureCallback);
-          }
-          for (AtomicIncrementRequest increment : increments) {
-            if (batchIncrements) {
-              CellIdentifier identifier = new CellIdentifier(increment.key(),
-                  increment.qualifier());
-              AtomicIncrementRequest request
-                  = incrementBuffer.get(identifier);
-              if (request == null) {
-                incrementBuffer.put(identifier, increment);
+            for (PutRequest action : actions) {
+              action.setDurable(enableWal);
+              client.put(action).addCallbacks(putSuccessCallback, putFailureCallback);
+            }
+            for (AtomicIncrementRequest increment : increments) {
+              if (batchIncrements) {
+                CellIdentifier identifier = new CellIdentifier(increment.key(),
+                    increment.qualifier());
+                AtomicIncrementRequest request
+                    = incrementBuffer.get(identifier);
+                if (request == null) {
+                  incrementBuffer.put(identifier, increment);
+                } else {
+                  request.setAmount(request.getAmount() + increment.getAmount());
+                }
               } else {
-                request.setAmount(request.getAmount() + increment.getAmount());
+                client.atomicIncrement(increment).addCallbacks(
+                    incrementSuccessCallback, incrementFailureCallback);
               }
-            } else {
-              client.atomicIncrement(increment).addCallbacks(
-                  incrementSuccessCallback, incrementFailureCallback);
             }
           }
         }
-      }
-      if (batchIncrements) {
-        Collection<AtomicIncrementRequest> increments = incrementBuffer.values();
-        for (AtomicIncrementRequest increment : increments) {
-          client.atomicIncrement(increment).addCallbacks(
-              incrementSuccessCallback, incrementFailureCallback);
+        if (batchIncrements) {
+          Collection<AtomicIncrementRequest> increments = incrementBuffer.values();
+          callbacks.expect(increments.size());
+          for (AtomicIncrementRequest increment : increments) {
+            client.atomicIncrement(increment).addCallbacks(
+                incrementSuccessCallback, incrementFailureCallback);
+          }
         }
-        callbacksExpected.addAndGet(increments.size());
       }
       client.flush();
     } catch (Throwable e) {
@@ -265,65 +372,57 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
       this.checkIfChannelExceptionAndThrow(e);
     }
     if (i == batchSize) {
-      sinkCounter.incrementBatchCompleteCount();
+      sinkCounter.recordBatchComplete();
     }
-    sinkCounter.addToEventDrainAttemptCount(i);
+    sinkCounter.recordEventDrainAttempt(i);
 
-    lock.lock();
-    long startTime = System.nanoTime();
-    long timeRemaining;
+    boolean txnFail;
     try {
-      while ((callbacksReceived.get() < callbacksExpected.get())
-          && !txnFail.get()) {
-        timeRemaining = timeout - (System.nanoTime() - startTime);
-        timeRemaining = (timeRemaining >= 0) ? timeRemaining : 0;
-        try {
-          if (!condition.await(timeRemaining, TimeUnit.NANOSECONDS)) {
-            txnFail.set(true);
-            logger.warn("HBase callbacks timed out. "
-                + "Transaction will be rolled back.");
-          }
-        } catch (Exception ex) {
-          logger.error("Exception while waiting for callbacks from HBase.");
-          this.handleTransactionFailure(txn);
-          Throwables.propagate(ex);
-        }
+      txnFail = !callbacks.awaitAll(timeout);
+      if (txnFail && !callbacks.hasFailed()) {
+        logger.warn("HBase callbacks timed out. "
+            + "Transaction will be rolled back.");
       }
-    } finally {
-      lock.unlock();
+    } catch (Exception ex) {
+      logger.error("Exception while waiting for callbacks from HBase.");
+      this.handleTransactionFailure(txn);
+      throw Throwables.propagate(ex);
     }
 
     if (isCoalesceTest) {
-      totalCallbacksReceived += callbacksReceived.get();
+      totalCallbacksReceived.addAndGet(callbacks.getReceived());
     }
 
     /*
      * At this point, either the txn has failed
      * or all callbacks received and txn is successful.
      *
-     * This need not be in the monitor, since all callbacks for this txn
-     * have been received. So txnFail will not be modified any more(even if
-     * it is, it is set from true to true only - false happens only
-     * in the next process call).
+     * Callbacks arriving late for a failed txn only update its own tracker,
+     * the next process call uses a new one.
      *
      */
-    if (txnFail.get()) {
+    if (txnFail) {
       // We enter this if condition only if the failure was due to HBase failure, so we make sure
       // we track the consecutive failures.
-      if (lastTxnFailed) {
-        consecutiveHBaseFailures++;
+      synchronized (clientLock) {
+        if (lastTxnFailed) {
+          consecutiveHBaseFailures++;
+        }
+        lastTxnFailed = true;
       }
-      lastTxnFailed = true;
       this.handleTransactionFailure(txn);
       throw new EventDeliveryException("Could not write events to Hbase. " +
           "Transaction failed, and rolled back.");
     } else {
       try {
-        lastTxnFailed = false;
-        consecutiveHBaseFailures = 0;
+        synchronized (clientLock) {
+          lastTxnFailed = false;
+          consecutiveHBaseFailures = 0;
+        }
         txn.commit();
         txn.close();
-        sinkCounter.addToEventDrainSuccessCount(i);
+        sinkCounter.recordEventDrainSuccess(i);
+        sinkCounter.recordBatch(i, startNanos);
       } catch (Throwable e) {
         this.handleTransactionFailure(txn);
         this.checkIfChannelExceptionAndThrow(e);
@@ -418,7 +517,6 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
         HBaseSinkConfigurationConstants.DEFAULT_COALESCE_INCREMENTS);
 
     if (batchIncrements) {
-      incrementBuffer = Maps.newHashMap();
       logger.info("Increment coalescing is enabled. Increments will be " +
           "buffered.");
     }
@@ -427,6 +525,15 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
         context.getInteger(HBaseSinkConfigurationConstants.CONFIG_MAX_CONSECUTIVE_FAILS,
                            HBaseSinkConfigurationConstants.DEFAULT_MAX_CONSECUTIVE_FAILS);
 
+    maxInFlightTransactions = context.getInteger(
+        HBaseSinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS,
+        HBaseSinkConfigurationConstants.DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS);
+    if (maxInFlightTransactions < 1) {
+      throw new ConfigurationException(
+          HBaseSinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS
+              + " must be greater than 0");
+    }
+
 
     Map<String, String> asyncProperties
             = context.getSubProperties(HBaseSinkConfigurationConstants.ASYNC_PREFIX);
@@ -444,7 +551,7 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
 
   @VisibleForTesting
   int getTotalCallbacksReceived() {
-    return totalCallbacksReceived;
+    return totalCallbacksReceived.get();
   }
 
   @VisibleForTesting
@@ -463,7 +570,20 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
         + "before calling start on an old instance.");
     sinkCounter.start();
     sinkCounter.incrementConnectionCreatedCount();
+    synchronized (clientLock) {
+      clientTransactions = 0;
+      clientShutdownPending = false;
+    }
     client = initHBaseClient();
+    if (maxInFlightTransactions > 1) {
+      logger.info("Pipelining up to {} transactions", maxInFlightTransactions);
+      pipelineExecutor = Executors.newFixedThreadPool(maxInFlightTransactions,
+          new ThreadFactoryBuilder().setNameFormat("asynchbase-sink-" + getName() + "-%d")
+              .build());
+      inFlightPermits = new Semaphore(maxInFlightTransactions);
+      lastBatchEmpty = false;
+      pipelineFailure.set(null);
+    }
     super.start();
   }
 
@@ -523,6 +643,19 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
 
   @Override
   public void stop() {
+    if (pipelineExecutor != null) {
+      pipelineExecutor.shutdown();
+      try {
+        if (!pipelineExecutor.awaitTermination(timeout, TimeUnit.NANOSECONDS)) {
+          logger.warn("Timed out waiting for in flight transactions, rolling them back");
+          pipelineExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        pipelineExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      pipelineExecutor = null;
+    }
     serializer.cleanUp();
     if (client != null) {
       shutdownHBaseClient();
@@ -583,11 +716,12 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
 
   private void handleTransactionFailure(Transaction txn)
       throws EventDeliveryException {
-    if (maxConsecutiveFails > 0 && consecutiveHBaseFailures >= maxConsecutiveFails) {
-      if (client != null) {
-        shutdownHBaseClient();
+    synchronized (clientLock) {
+      if (maxConsecutiveFails > 0 && consecutiveHBaseFailures >= maxConsecutiveFails) {
+        // the other in flight transactions may still use the client
+        clientShutdownPending = true;
+        consecutiveHBaseFailures = 0;
       }
-      consecutiveHBaseFailures = 0;
     }
     try {
       txn.rollback();
@@ -609,17 +743,73 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
     }
   }
 
+  /**
+   * Tracks the callbacks of the requests of one transaction without locking.
+   * Callbacks only decrement a counter, the last one, or the first failure,
+   * releases the sink thread waiting for them.
+   */
+  @VisibleForTesting
+  static final class CallbackTracker {
+    // One more than the outstanding requests until all of them were sent, so
+    // that callbacks of the first requests cannot complete the transaction.
+    private final AtomicInteger outstanding = new AtomicInteger(1);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile boolean failed = false;
+    // Only used by the sink thread.
+    private int expected = 0;
+
+    /**
+     * Registers requests about to be sent. Only called by the sink thread.
+     */
+    void expect(int count) {
+      expected += count;
+      outstanding.addAndGet(count);
+    }
+
+    void onSuccess() {
+      if (outstanding.decrementAndGet() == 0) {
+        completed.countDown();
+      }
+    }
+
+    void onFailure() {
+      failed = true;
+      outstanding.decrementAndGet();
+      completed.countDown();
+    }
+
+    /**
+     * Waits for the callbacks of all the requests sent. Only called by the
+     * sink thread, once all the requests of the transaction were sent.
+     *
+     * @return true if all requests succeeded, false if one failed or the
+     * timeout elapsed
+     */
+    boolean awaitAll(long timeoutNanos) throws InterruptedException {
+      onSuccess();
+      return completed.await(timeoutNanos, TimeUnit.NANOSECONDS) && !failed;
+    }
+
+    boolean hasFailed() {
+      return failed;
+    }
+
+    @VisibleForTesting
+    boolean isCompleted() {
+      return completed.getCount() == 0;
+    }
+
+    int getReceived() {
+      return expected - Math.max(outstanding.get(), 0);
+    }
+  }
+
   private class SuccessCallback<R, T> implements Callback<R, T> {
-    private Lock lock;
-    private AtomicInteger callbacksReceived;
-    private Condition condition;
+    private final CallbackTracker callbacks;
     private final boolean isTimeoutTesting;
 
-    public SuccessCallback(Lock lck, AtomicInteger callbacksReceived,
-                           Condition condition) {
-      lock = lck;
-      this.callbacksReceived = callbacksReceived;
-      this.condition = condition;
+    public SuccessCallback(CallbackTracker callbacks) {
+      this.callbacks = callbacks;
       isTimeoutTesting = isTimeoutTest;
     }
 
@@ -633,34 +823,17 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
           //ignore
         }
       }
-      doCall();
+      callbacks.onSuccess();
       return null;
     }
-
-    private void doCall() throws Exception {
-      callbacksReceived.incrementAndGet();
-      lock.lock();
-      try {
-        condition.signal();
-      } finally {
-        lock.unlock();
-      }
-    }
   }
 
   private class FailureCallback<R, T extends Exception> implements Callback<R, T> {
-    private Lock lock;
-    private AtomicInteger callbacksReceived;
-    private AtomicBoolean txnFail;
-    private Condition condition;
+    private final CallbackTracker callbacks;
     private final boolean isTimeoutTesting;
 
-    public FailureCallback(Lock lck, AtomicInteger callbacksReceived,
-                           AtomicBoolean txnFail, Condition condition) {
-      this.lock = lck;
-      this.callbacksReceived = callbacksReceived;
-      this.txnFail = txnFail;
-      this.condition = condition;
+    public FailureCallback(CallbackTracker callbacks) {
+      this.callbacks = callbacks;
       isTimeoutTesting = isTimeoutTest;
     }
 
@@ -675,20 +848,9 @@ public class AsyncHBaseSink extends AbstractSink implements Configurable, BatchS
           //ignore
         }
       }
-      doCall();
+      callbacks.onFailure();
       return null;
     }
-
-    private void doCall() throws Exception {
-      callbacksReceived.incrementAndGet();
-      this.txnFail.set(true);
-      lock.lock();
-      try {
-        condition.signal();
-      } finally {
-        lock.unlock();
-      }
-    }
   }
 
   private void checkIfChannelExceptionAndThrow(Throwable e)
@@ -327,9 +327,9 @@ public class HBaseSink extends AbstractSink implements Configurable, BatchSizeSu
         if (event == null) {
           if (i == 0) {
             status = Status.BACKOFF;
-            sinkCounter.incrementBatchEmptyCount();
+            sinkCounter.recordBatchEmpty();
           } else {
-            sinkCounter.incrementBatchUnderflowCount();
+            sinkCounter.recordBatchUnderflow();
           }
           break;
         } else {
@@ -339,9 +339,9 @@ public class HBaseSink extends AbstractSink implements Configurable, BatchSizeSu
         }
       }
       if (i == batchSize) {
-        sinkCounter.incrementBatchCompleteCount();
+        sinkCounter.recordBatchComplete();
       }
-      sinkCounter.addToEventDrainAttemptCount(i);
+      sinkCounter.recordEventDrainAttempt(i);
 
       putEventsAndCommit(actions, incs, txn);
 
@@ -372,6 +372,7 @@ public class HBaseSink extends AbstractSink implements Configurable, BatchSizeSu
 
   private void putEventsAndCommit(final List<Row> actions,
                                   final List<Increment> incs, Transaction txn) throws Exception {
+    long startNanos = System.nanoTime();
 
     privilegedExecutor.execute(new PrivilegedExceptionAction<Void>() {
       @Override
@@ -415,7 +416,8 @@ public class HBaseSink extends AbstractSink implements Configurable, BatchSizeSu
     });
 
     txn.commit();
-    sinkCounter.addToEventDrainSuccessCount(actions.size());
+    sinkCounter.recordEventDrainSuccess(actions.size());
+    sinkCounter.recordBatch(actions.size(), startNanos);
   }
 
   /**
@@ -74,6 +74,14 @@ public class HBaseSinkConfigurationConstants {
 
   public static final String CONFIG_MAX_CONSECUTIVE_FAILS = "maxConsecutiveFails";
 
+  /**
+   * Number of transactions the async sink can have waiting for HBase
+   * callbacks at the same time.
+   */
+  public static final String CONFIG_MAX_IN_FLIGHT_TRANSACTIONS = "maxInFlightTransactions";
+
+  public static final int DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS = 1;
+
   public static final String ASYNC_PREFIX = "async.";
 
   public static final String ASYNC_ZK_QUORUM_KEY = "hbase.zookeeper.quorum";
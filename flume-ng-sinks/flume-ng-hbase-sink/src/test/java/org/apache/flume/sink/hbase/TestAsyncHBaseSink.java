@@ -276,6 +276,49 @@ public class TestAsyncHBaseSink {
     Assert.assertArrayEquals(Longs.toByteArray(3), out);
   }
 
+  @Test
+  public void testMultipleBatchesInFlight() throws Exception {
+    testUtility.createTable(tableName.getBytes(), columnFamily.getBytes());
+    deleteTable = true;
+    Context tmpctx = new Context(ctx.getParameters());
+    tmpctx.put("batchSize", "2");
+    tmpctx.put(HBaseSinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS, "3");
+    AsyncHBaseSink sink = new AsyncHBaseSink(testUtility.getConfiguration());
+    Configurables.configure(sink, tmpctx);
+    Channel channel = new MemoryChannel();
+    Configurables.configure(channel, ctx);
+    sink.setChannel(channel);
+    sink.start();
+    Transaction tx = channel.getTransaction();
+    tx.begin();
+    for (int i = 0; i < 5; i++) {
+      Event e = EventBuilder.withBody(Bytes.toBytes(valBase + "-" + i));
+      channel.put(e);
+    }
+    tx.commit();
+    tx.close();
+    Status status = Status.READY;
+    for (int i = 0; i < 100 && status != Status.BACKOFF; i++) {
+      status = sink.process();
+    }
+    // waits for the batches still in flight
+    sink.stop();
+    Assert.assertEquals(Status.BACKOFF, status);
+    HTable table = new HTable(testUtility.getConfiguration(), tableName);
+    byte[][] results = getResults(table, 5);
+    int found = 0;
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        if (Arrays.equals(results[j], Bytes.toBytes(valBase + "-" + i))) {
+          found++;
+          break;
+        }
+      }
+    }
+    Assert.assertEquals(5, found);
+    Assert.assertArrayEquals(Longs.toByteArray(5), results[5]);
+  }
+
   @Test
   public void testMultipleBatchesBatchIncrementsWithCoalescing() throws Exception {
     doTestMultipleBatchesBatchIncrements(true);
@@ -509,6 +552,55 @@ public class TestAsyncHBaseSink {
                       increaseInFD < 50);
   }
 
+  // the client is only shut down once the other batches in flight are done with it
+  @Test
+  public void testClientShutdownWithBatchesInFlight() throws Exception {
+    testUtility.createTable(tableName.getBytes(), columnFamily.getBytes());
+    deleteTable = true;
+    AsyncHBaseSink sink = new AsyncHBaseSink(testUtility.getConfiguration(),
+                                             true, false);
+    Context tmpctx = new Context();
+    tmpctx.put("table", tableName);
+    tmpctx.put("columnFamily", columnFamily);
+    tmpctx.put("serializer", "org.apache.flume.sink.hbase.SimpleAsyncHbaseEventSerializer");
+    tmpctx.put("serializer.payloadColumn", plCol);
+    tmpctx.put("timeout", "10000");
+    tmpctx.put("batchSize", "3");
+    tmpctx.put("maxConsecutiveFails", "1");
+    tmpctx.put(HBaseSinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS, "3");
+    Configurables.configure(sink, tmpctx);
+    Channel channel = new MemoryChannel();
+    Configurables.configure(channel, ctx);
+    sink.setChannel(channel);
+    channel.start();
+    sink.start();
+    Transaction tx = channel.getTransaction();
+    tx.begin();
+    for (int i = 0; i < 9; i++) {
+      Event e = EventBuilder.withBody(Bytes.toBytes(valBase + "-" + i));
+      channel.put(e);
+    }
+    tx.commit();
+    tx.close();
+
+    // Since the isTimeOutTest is set to true, every transaction fails
+    for (int i = 0; i < 6; i++) {
+      try {
+        sink.process();
+      } catch (EventDeliveryException ex) {
+      }
+    }
+    sink.stop();
+
+    tx = channel.getTransaction();
+    tx.begin();
+    for (int i = 0; i < 9; i++) {
+      Assert.assertNotNull(channel.take());
+    }
+    tx.commit();
+    tx.close();
+  }
+
   /**
    * This test must run last - it shuts down the minicluster :D
    *
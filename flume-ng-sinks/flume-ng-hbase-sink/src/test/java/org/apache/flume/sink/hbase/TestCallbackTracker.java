@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flume.sink.hbase;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.flume.sink.hbase.AsyncHBaseSink.CallbackTracker;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCallbackTracker {
+
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Test
+  public void testCallbackBeforeAllRequestsSent() throws Exception {
+    CallbackTracker callbacks = new CallbackTracker();
+    callbacks.expect(1);
+    // the first request completes while the sink is still sending
+    callbacks.onSuccess();
+    Assert.assertFalse(callbacks.isCompleted());
+    callbacks.expect(2);
+    callbacks.onSuccess();
+    callbacks.onSuccess();
+    Assert.assertFalse(callbacks.isCompleted());
+
+    Assert.assertTrue(callbacks.awaitAll(TIMEOUT_NANOS));
+    Assert.assertFalse(callbacks.hasFailed());
+    Assert.assertEquals(3, callbacks.getReceived());
+  }
+
+  @Test
+  public void testCallbacksAfterAllRequestsSent() throws Exception {
+    final CallbackTracker callbacks = new CallbackTracker();
+    callbacks.expect(2);
+    Thread hbase = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        callbacks.onSuccess();
+        callbacks.onSuccess();
+      }
+    });
+    hbase.start();
+
+    Assert.assertTrue(callbacks.awaitAll(TIMEOUT_NANOS));
+    hbase.join();
+    Assert.assertEquals(2, callbacks.getReceived());
+  }
+
+  @Test
+  public void testFirstFailureReleasesWaiter() throws Exception {
+    CallbackTracker callbacks = new CallbackTracker();
+    callbacks.expect(3);
+    callbacks.onSuccess();
+    callbacks.onFailure();
+    Assert.assertTrue(callbacks.isCompleted());
+
+    long start = System.nanoTime();
+    // one request is still outstanding, the failure does not wait for it
+    Assert.assertFalse(callbacks.awaitAll(TIMEOUT_NANOS));
+    Assert.assertTrue(System.nanoTime() - start < TIMEOUT_NANOS);
+    Assert.assertTrue(callbacks.hasFailed());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    CallbackTracker callbacks = new CallbackTracker();
+    callbacks.expect(2);
+    callbacks.onSuccess();
+
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    long start = System.nanoTime();
+    Assert.assertFalse(callbacks.awaitAll(timeoutNanos));
+    Assert.assertTrue(System.nanoTime() - start >= timeoutNanos);
+    Assert.assertFalse(callbacks.hasFailed());
+    Assert.assertEquals(1, callbacks.getReceived());
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.flume.Channel;
 import org.apache.flume.Context;
 import org.apache.flume.Event;
@@ -42,6 +43,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.AsyncBufferedMutator;
+import org.apache.hadoop.hbase.client.AsyncConnection;
 import org.apache.hadoop.hbase.client.BufferedMutator;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
@@ -63,6 +66,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A simple sink which reads events from a channel and writes them to HBase 2.
@@ -84,7 +95,14 @@ import java.util.NavigableMap;
  * as an object of {@link org.apache.flume.Context}.<p>
  * <tt>batchSize: </tt>This is the batch size used by the client. This is the
  * maximum number of events the sink will commit per transaction. The default
- * batch size is 100 events.
+ * batch size is 100 events.<p>
+ * <tt>maxInFlightTransactions: </tt>The number of transactions which can be
+ * waiting for HBase at the same time. When greater than 1, the sink writes
+ * through the asynchronous HBase client and commits each transaction once
+ * its mutations completed, while the next batches are already being taken
+ * from the channel. With <tt>coalesceIncrements</tt>, the increments of the
+ * batches taken while a previous flush of increments is in progress are
+ * coalesced together. The default is 1.
  * <p>
  * <p>
  * <strong>Note: </strong> While this sink flushes all events in a transaction
@@ -112,6 +130,14 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
   private boolean batchIncrements = false;
   private SinkCounter sinkCounter;
   private PrivilegedExecutor privilegedExecutor;
+  private int maxInFlightTransactions;
+  private AsyncConnection asyncConn;
+  private AsyncBufferedMutator asyncTable;
+  private ExecutorService pipelineExecutor;
+  private Semaphore inFlightPermits;
+  private volatile boolean lastBatchEmpty;
+  private final AtomicReference<Throwable> pipelineFailure = new AtomicReference<>();
+  private IncrementCoalescer incrementCoalescer;
 
   // Internal hooks used for unit testing.
   private DebugIncrementsCallback debugIncrCallback = null;
@@ -133,7 +159,7 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
 
   @Override
   public void start() {
-    Preconditions.checkArgument(table == null, "Please call stop " +
+    Preconditions.checkArgument(table == null && asyncTable == null, "Please call stop " +
         "before calling start on an old instance.");
     try {
       privilegedExecutor =
@@ -143,6 +169,18 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
       throw new FlumeException("Failed to login to HBase using "
           + "provided credentials.", ex);
     }
+    if (maxInFlightTransactions > 1) {
+      connectAsync();
+    } else {
+      connect();
+    }
+
+    super.start();
+    sinkCounter.incrementConnectionCreatedCount();
+    sinkCounter.start();
+  }
+
+  private void connect() {
     try {
       conn = privilegedExecutor.execute((PrivilegedExceptionAction<Connection>) () -> {
         conn = ConnectionFactory.createConnection(config);
@@ -183,14 +221,78 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
           + Bytes.toString(columnFamily) + " exists in HBase, and the"
           + " current user has permissions to access that table.", e);
     }
+  }
 
-    super.start();
-    sinkCounter.incrementConnectionCreatedCount();
-    sinkCounter.start();
+  /**
+   * Connects through the asynchronous HBase client and starts the threads
+   * holding the in flight transactions.
+   */
+  private void connectAsync() {
+    try {
+      asyncConn = privilegedExecutor.execute(
+          (PrivilegedExceptionAction<AsyncConnection>) () ->
+              ConnectionFactory.createAsyncConnection(config).get());
+      asyncTable = asyncConn.getBufferedMutator(TableName.valueOf(tableName));
+    } catch (Exception e) {
+      sinkCounter.incrementConnectionFailedCount();
+      logger.error("Could not load table, " + tableName +
+          " from HBase", e);
+      throw new FlumeException("Could not load table, " + tableName +
+          " from HBase", e);
+    }
+    try {
+      if (!asyncConn.getTable(TableName.valueOf(tableName)).getDescriptor().get()
+          .hasColumnFamily(columnFamily)) {
+        throw new IOException("Table " + tableName
+            + " has no such column family " + Bytes.toString(columnFamily));
+      }
+    } catch (Exception e) {
+      sinkCounter.incrementConnectionFailedCount();
+      throw new FlumeException("Error getting column family from HBase."
+          + "Please verify that the table " + tableName + " and Column Family, "
+          + Bytes.toString(columnFamily) + " exists in HBase, and the"
+          + " current user has permissions to access that table.", e);
+    }
+    logger.info("Pipelining up to {} transactions", maxInFlightTransactions);
+    pipelineExecutor = Executors.newFixedThreadPool(maxInFlightTransactions,
+        new ThreadFactoryBuilder().setNameFormat("hbase2-sink-" + getName() + "-%d").build());
+    inFlightPermits = new Semaphore(maxInFlightTransactions);
+    lastBatchEmpty = false;
+    pipelineFailure.set(null);
+    if (batchIncrements) {
+      incrementCoalescer = new IncrementCoalescer();
+    }
   }
 
   @Override
   public void stop() {
+    if (pipelineExecutor != null) {
+      pipelineExecutor.shutdown();
+      try {
+        if (!pipelineExecutor.awaitTermination(HBase2SinkConfigurationConstants.DEFAULT_TIMEOUT,
+            TimeUnit.MILLISECONDS)) {
+          logger.warn("Timed out waiting for in flight transactions, rolling them back");
+          pipelineExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        pipelineExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      pipelineExecutor = null;
+      incrementCoalescer = null;
+    }
+    if (asyncTable != null) {
+      asyncTable.close();
+      asyncTable = null;
+    }
+    try {
+      if (asyncConn != null) {
+        asyncConn.close();
+      }
+      asyncConn = null;
+    } catch (IOException e) {
+      throw new FlumeException("Error closing connection.", e);
+    }
     try {
       if (table != null) {
         table.close();
@@ -272,6 +374,15 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
           "buffered.");
     }
 
+    maxInFlightTransactions = context.getInteger(
+        HBase2SinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS,
+        HBase2SinkConfigurationConstants.DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS);
+    if (maxInFlightTransactions < 1) {
+      throw new ConfigurationException(
+          HBase2SinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS
+              + " must be greater than 0");
+    }
+
     String zkQuorum = context.getString(HBase2SinkConfigurationConstants
         .ZK_QUORUM);
     Integer port = null;
@@ -324,6 +435,9 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
 
   @Override
   public Status process() throws EventDeliveryException {
+    if (pipelineExecutor != null) {
+      return processPipelined();
+    }
     Status status = Status.READY;
     Channel channel = getChannel();
     Transaction txn = channel.getTransaction();
@@ -332,54 +446,158 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
     try {
       txn.begin();
 
-      if (serializer instanceof BatchAware) {
-        ((BatchAware) serializer).onBatchStart();
+      if (takeEvents(channel, actions, incs) == 0) {
+        status = Status.BACKOFF;
       }
 
-      long i = 0;
-      for (; i < batchSize; i++) {
-        Event event = channel.take();
-        if (event == null) {
-          if (i == 0) {
-            status = Status.BACKOFF;
-            sinkCounter.incrementBatchEmptyCount();
-          } else {
-            sinkCounter.incrementBatchUnderflowCount();
-          }
-          break;
+      putEventsAndCommit(actions, incs, txn);
+
+    } catch (Throwable e) {
+      handleTransactionFailure(txn, e);
+    } finally {
+      txn.close();
+    }
+    return status;
+  }
+
+  /**
+   * Takes up to batchSize events from the channel and serializes them.
+   *
+   * @return the number of events taken
+   */
+  private long takeEvents(Channel channel, List<Row> actions, List<Increment> incs) {
+    if (serializer instanceof BatchAware) {
+      ((BatchAware) serializer).onBatchStart();
+    }
+
+    long i = 0;
+    for (; i < batchSize; i++) {
+      Event event = channel.take();
+      if (event == null) {
+        if (i == 0) {
+          sinkCounter.recordBatchEmpty();
         } else {
-          serializer.initialize(event, columnFamily);
-          actions.addAll(serializer.getActions());
-          incs.addAll(serializer.getIncrements());
+          sinkCounter.recordBatchUnderflow();
         }
+        break;
+      } else {
+        serializer.initialize(event, columnFamily);
+        actions.addAll(serializer.getActions());
+        incs.addAll(serializer.getIncrements());
       }
-      if (i == batchSize) {
-        sinkCounter.incrementBatchCompleteCount();
+    }
+    if (i == batchSize) {
+      sinkCounter.recordBatchComplete();
+    }
+    sinkCounter.recordEventDrainAttempt(i);
+    return i;
+  }
+
+  private void handleTransactionFailure(Transaction txn, Throwable e)
+      throws EventDeliveryException {
+    try {
+      txn.rollback();
+    } catch (Exception e2) {
+      logger.error("Exception in rollback. Rollback might not have been " +
+          "successful.", e2);
+    }
+    logger.error("Failed to commit transaction." +
+        "Transaction rolled back.", e);
+    sinkCounter.incrementEventWriteOrChannelFail(e);
+    if (e instanceof Error || e instanceof RuntimeException) {
+      logger.error("Failed to commit transaction." +
+          "Transaction rolled back.", e);
+      Throwables.propagate(e);
+    } else {
+      logger.error("Failed to commit transaction." +
+          "Transaction rolled back.", e);
+      throw new EventDeliveryException("Failed to commit transaction." +
+          "Transaction rolled back.", e);
+    }
+  }
+
+  /**
+   * Hands the next batch over to a pipeline thread and returns without
+   * waiting for HBase, once less than maxInFlightTransactions batches are in
+   * flight. Channel transactions are bound to the thread which opened them,
+   * so each in flight batch needs a thread of its own. A failed batch is
+   * reported by the next call.
+   */
+  private Status processPipelined() throws EventDeliveryException {
+    Throwable failure = pipelineFailure.getAndSet(null);
+    if (failure != null) {
+      if (failure instanceof Error || failure instanceof RuntimeException) {
+        Throwables.propagate(failure);
       }
-      sinkCounter.addToEventDrainAttemptCount(i);
+      throw new EventDeliveryException("Failed to commit transaction." +
+          "Transaction rolled back.", failure);
+    }
+    try {
+      inFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventDeliveryException("Interrupted while waiting for in flight batches", e);
+    }
+    final Channel channel = getChannel();
+    try {
+      pipelineExecutor.execute(() -> {
+        try {
+          lastBatchEmpty = processAsync(channel) == Status.BACKOFF;
+        } catch (Throwable e) {
+          pipelineFailure.compareAndSet(null, e);
+        } finally {
+          inFlightPermits.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlightPermits.release();
+      throw new EventDeliveryException("Sink is stopping", e);
+    }
+    return lastBatchEmpty ? Status.BACKOFF : Status.READY;
+  }
 
-      putEventsAndCommit(actions, incs, txn);
+  /**
+   * Writes a batch through the asynchronous HBase client and commits the
+   * transaction once all of its mutations completed.
+   */
+  private Status processAsync(Channel channel) throws EventDeliveryException {
+    Status status = Status.READY;
+    Transaction txn = channel.getTransaction();
+    List<Row> actions = new LinkedList<>();
+    List<Increment> incs = new LinkedList<>();
+    try {
+      txn.begin();
+      long startNanos = System.nanoTime();
 
-    } catch (Throwable e) {
-      try {
-        txn.rollback();
-      } catch (Exception e2) {
-        logger.error("Exception in rollback. Rollback might not have been " +
-            "successful.", e2);
+      // serializers are not thread safe, and batch aware ones see whole batches
+      synchronized (serializer) {
+        if (takeEvents(channel, actions, incs) == 0) {
+          status = Status.BACKOFF;
+        }
       }
-      logger.error("Failed to commit transaction." +
-          "Transaction rolled back.", e);
-      sinkCounter.incrementEventWriteOrChannelFail(e);
-      if (e instanceof Error || e instanceof RuntimeException) {
-        logger.error("Failed to commit transaction." +
-            "Transaction rolled back.", e);
-        Throwables.propagate(e);
+
+      List<CompletableFuture<Void>> futures =
+          new ArrayList<>(asyncTable.mutate(toMutations(actions)));
+      if (batchIncrements) {
+        futures.add(incrementCoalescer.add(incs));
       } else {
-        logger.error("Failed to commit transaction." +
-            "Transaction rolled back.", e);
-        throw new EventDeliveryException("Failed to commit transaction." +
-            "Transaction rolled back.", e);
+        for (Increment i : incs) {
+          i.setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
+        }
+        futures.addAll(asyncTable.mutate(incs));
+      }
+      asyncTable.flush();
+      try {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
       }
+
+      txn.commit();
+      sinkCounter.recordEventDrainSuccess(actions.size());
+      sinkCounter.recordBatch(actions.size(), startNanos);
+    } catch (Throwable e) {
+      handleTransactionFailure(txn, e);
     } finally {
       txn.close();
     }
@@ -388,24 +606,10 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
 
   private void putEventsAndCommit(final List<Row> actions,
                                   final List<Increment> incs, Transaction txn) throws Exception {
+    long startNanos = System.nanoTime();
 
     privilegedExecutor.execute((PrivilegedExceptionAction<Void>) () -> {
-      final List<Mutation> mutations = new ArrayList<>(actions.size());
-      for (Row r : actions) {
-        if (r instanceof Put) {
-          ((Put) r).setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
-        }
-        // Newer versions of HBase - Increment implements Row.
-        if (r instanceof Increment) {
-          ((Increment) r).setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
-        }
-        if (r instanceof Mutation) {
-          mutations.add((Mutation)r);
-        } else {
-          logger.warn("dropping row " + r + " since it is not an Increment or Put");
-        }
-      }
-      table.mutate(mutations);
+      table.mutate(toMutations(actions));
       table.flush();
       return null;
     });
@@ -433,7 +637,27 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
     });
 
     txn.commit();
-    sinkCounter.addToEventDrainSuccessCount(actions.size());
+    sinkCounter.recordEventDrainSuccess(actions.size());
+    sinkCounter.recordBatch(actions.size(), startNanos);
+  }
+
+  private List<Mutation> toMutations(List<Row> actions) {
+    final List<Mutation> mutations = new ArrayList<>(actions.size());
+    for (Row r : actions) {
+      if (r instanceof Put) {
+        ((Put) r).setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
+      }
+      // Newer versions of HBase - Increment implements Row.
+      if (r instanceof Increment) {
+        ((Increment) r).setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
+      }
+      if (r instanceof Mutation) {
+        mutations.add((Mutation)r);
+      } else {
+        logger.warn("dropping row " + r + " since it is not an Increment or Put");
+      }
+    }
+    return mutations;
   }
 
 
@@ -469,8 +693,18 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
         }
       }
     }
+    return toIncrements(counters);
+  }
 
-    // Reconstruct list of Increments per unique row/family/qualifier.
+  /**
+   * Reconstructs the list of Increments per unique row/family/qualifier from
+   * the aggregated counts.
+   *
+   * @param counters Nested data structure containing the counters.
+   * @return List of new Increment objects, one per row.
+   */
+  private List<Increment> toIncrements(
+      Map<byte[], Map<byte[], NavigableMap<byte[], Long>>> counters) {
     List<Increment> coalesced = Lists.newLinkedList();
     for (Map.Entry<byte[], Map<byte[], NavigableMap<byte[], Long>>> rowEntry :
          counters.entrySet()) {
@@ -515,6 +749,76 @@ public class HBase2Sink extends AbstractSink implements Configurable, BatchSizeS
     qualifiers.merge(qualifier, count, (a, b) -> a + b);
   }
 
+  /**
+   * Coalesces the increments of pipelined batches. While the increments of a
+   * batch are being written, the increments of the following batches are
+   * aggregated and then written together once the previous write completed.
+   * Each batch waits for the write which includes its increments.
+   */
+  private class IncrementCoalescer {
+    private Map<byte[], Map<byte[], NavigableMap<byte[], Long>>> pending =
+        Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    private CompletableFuture<Void> pendingWritten = new CompletableFuture<>();
+    private boolean writing = false;
+
+    synchronized CompletableFuture<Void> add(List<Increment> incs) {
+      if (incs.isEmpty()) {
+        return CompletableFuture.completedFuture(null);
+      }
+      for (Increment inc : incs) {
+        for (Map.Entry<byte[], NavigableMap<byte[], Long>> familyEntry :
+            getFamilyMap(inc).entrySet()) {
+          for (Map.Entry<byte[], Long> qualifierEntry : familyEntry.getValue().entrySet()) {
+            incrementCounter(pending, inc.getRow(), familyEntry.getKey(),
+                qualifierEntry.getKey(), qualifierEntry.getValue());
+          }
+        }
+      }
+      CompletableFuture<Void> written = pendingWritten;
+      if (!writing) {
+        writePending();
+      }
+      return written;
+    }
+
+    private synchronized void writePending() {
+      final CompletableFuture<Void> written = pendingWritten;
+      List<Increment> processedIncrements = toIncrements(pending);
+      pending = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      pendingWritten = new CompletableFuture<>();
+
+      // Only used for unit testing.
+      if (debugIncrCallback != null) {
+        debugIncrCallback.onAfterCoalesce(processedIncrements);
+      }
+      if (processedIncrements.isEmpty()) {
+        written.complete(null);
+        return;
+      }
+
+      writing = true;
+      for (Increment i : processedIncrements) {
+        i.setDurability(enableWal ? Durability.USE_DEFAULT : Durability.SKIP_WAL);
+      }
+      List<CompletableFuture<Void>> futures = asyncTable.mutate(processedIncrements);
+      asyncTable.flush();
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .whenComplete((result, error) -> {
+            if (error != null) {
+              written.completeExceptionally(error);
+            } else {
+              written.complete(null);
+            }
+            synchronized (this) {
+              writing = false;
+              if (!pending.isEmpty()) {
+                writePending();
+              }
+            }
+          });
+    }
+  }
+
   String getHBbaseVersionString() {
     return VersionInfo.getVersion();
   }
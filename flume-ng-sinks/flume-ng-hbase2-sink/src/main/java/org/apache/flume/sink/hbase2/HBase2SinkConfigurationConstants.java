@@ -70,6 +70,14 @@ public class HBase2SinkConfigurationConstants {
 
   public static final Boolean DEFAULT_COALESCE_INCREMENTS = false;
 
+  /**
+   * Number of transactions which can be waiting for HBase at the same time.
+   * Greater than one switches the sink to the asynchronous HBase client.
+   */
+  public static final String CONFIG_MAX_IN_FLIGHT_TRANSACTIONS = "maxInFlightTransactions";
+
+  public static final int DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS = 1;
+
   public static final int DEFAULT_MAX_CONSECUTIVE_FAILS = 10;
 
   public static final String CONFIG_MAX_CONSECUTIVE_FAILS = "maxConsecutiveFails";
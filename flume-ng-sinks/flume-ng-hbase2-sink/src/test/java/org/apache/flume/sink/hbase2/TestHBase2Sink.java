@@ -43,6 +43,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Increment;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -649,6 +650,98 @@ public class TestHBase2Sink {
     sink.stop();
   }
 
+  @Test
+  public void testPipelinedBatches() throws Exception {
+    Context ctx = getContextForSimpleHBase2EventSerializer();
+    ctx.put("batchSize", "2");
+    ctx.put(HBase2SinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS, "3");
+    HBase2Sink sink = new HBase2Sink(conf);
+    Configurables.configure(sink, ctx);
+    Channel channel = createAndConfigureMemoryChannel(sink);
+    sink.start();
+
+    List<Event> events = Lists.newLinkedList();
+    for (int i = 0; i < 5; i++) {
+      events.add(EventBuilder.withBody(Bytes.toBytes(valBase + "-" + i)));
+    }
+    putEvents(channel, events);
+    for (int i = 0; i < 3; i++) {
+      sink.process();
+    }
+    // waits for the transactions in flight
+    sink.stop();
+
+    Transaction tx = channel.getTransaction();
+    tx.begin();
+    Assert.assertNull(channel.take());
+    tx.commit();
+    tx.close();
+
+    try (Connection connection = ConnectionFactory.createConnection(conf);
+         Table table = connection.getTable(TableName.valueOf(tableName))) {
+      byte[][] results = getResults(table, 5);
+      int found = 0;
+      for (int i = 0; i < 5; i++) {
+        for (int j = 0; j < 5; j++) {
+          if (Arrays.equals(results[j], Bytes.toBytes(valBase + "-" + i))) {
+            found++;
+            break;
+          }
+        }
+      }
+      Assert.assertEquals(5, found);
+      Assert.assertArrayEquals(Longs.toByteArray(5), results[5]);
+    }
+  }
+
+  @Test
+  public void testCoalescePipelined() throws Exception {
+    Context ctx = getContextForIncrementHBaseSerializer();
+    ctx.put("batchSize", "10");
+    ctx.put(HBase2SinkConfigurationConstants.CONFIG_COALESCE_INCREMENTS,
+        String.valueOf(true));
+    ctx.put(HBase2SinkConfigurationConstants.CONFIG_MAX_IN_FLIGHT_TRANSACTIONS, "4");
+
+    final Map<String, Long> expectedCounts = Maps.newHashMap();
+    expectedCounts.put("r1:c1", 10L);
+    expectedCounts.put("r1:c2", 20L);
+    expectedCounts.put("r2:c1", 7L);
+    expectedCounts.put("r2:c3", 63L);
+    final List<Increment> written = Lists.newArrayList();
+    HBase2Sink.DebugIncrementsCallback cb = increments -> {
+      for (Increment inc : increments) {
+        written.add(inc);
+      }
+    };
+
+    HBase2Sink sink = new HBase2Sink(conf, cb);
+    Configurables.configure(sink, ctx);
+    Channel channel = createAndConfigureMemoryChannel(sink);
+
+    List<Event> events = Lists.newLinkedList();
+    generateEvents(events, expectedCounts);
+    putEvents(channel, events);
+
+    sink.start();
+    for (int i = 0; i < 10; i++) {
+      sink.process();
+    }
+    sink.stop();
+
+    // 10 batches, each incrementing both rows at most
+    Assert.assertTrue(written.size() <= 20);
+    try (Connection connection = ConnectionFactory.createConnection(conf);
+         Table table = connection.getTable(TableName.valueOf(tableName))) {
+      for (Map.Entry<String, Long> entry : expectedCounts.entrySet()) {
+        String[] pieces = entry.getKey().split(":");
+        Result result = table.get(new Get(Bytes.toBytes(pieces[0])));
+        Assert.assertEquals("Unexpected count for " + entry.getKey(),
+            (long) entry.getValue(),
+            Bytes.toLong(result.getValue(columnFamily.getBytes(), Bytes.toBytes(pieces[1]))));
+      }
+    }
+  }
+
   @Test(expected = AssertionError.class)
   public void negativeTestCoalesce() throws EventDeliveryException {
     Context ctx = getContextForIncrementHBaseSerializer();
@@ -20,6 +20,7 @@ package org.apache.flume.sink.kafka;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumWriter;
@@ -34,6 +35,7 @@ import org.apache.flume.conf.ConfigurationException;
 import org.apache.flume.conf.LogPrivacyUtil;
 import org.apache.flume.formatter.output.BucketPath;
 import org.apache.flume.instrumentation.kafka.KafkaSinkCounter;
+import org.apache.flume.shared.kafka.AvroEncodedEvent;
 import org.apache.flume.shared.kafka.KafkaSSLUtil;
 import org.apache.flume.sink.AbstractSink;
 import org.apache.flume.source.avro.AvroFlumeEvent;
@@ -61,7 +63,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.apache.flume.shared.kafka.KafkaSSLUtil.SSL_DISABLE_FQDN_CHECK;
 import static org.apache.flume.shared.kafka.KafkaSSLUtil.isSSLEnabled;
@@ -118,8 +127,19 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
 
   private boolean useKafkaTransactions = false;
 
+  private static final long PIPELINE_SHUTDOWN_TIMEOUT_SEC = 30;
+  private int maxInFlightTransactions;
+  private ExecutorService pipelineExecutor;
+  private Semaphore inFlightPermits;
+  // completed with true when the last batch handed over to the pipeline is committed, and with
+  // false when it is rolled back
+  private CompletableFuture<Boolean> lastBatchDone;
+  private volatile boolean lastBatchEmpty;
+  private final AtomicReference<Exception> pipelineFailure = new AtomicReference<>();
+
   private Optional<SpecificDatumWriter<AvroFlumeEvent>> writer = Optional.absent();
   private Optional<ByteArrayOutputStream> tempOutStream = Optional.absent();
+  private final Object serializeLock = new Object();
 
   //Fine to use null for initial value, Avro will create new ones if this
   // is null
@@ -137,8 +157,72 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
 
   @Override
   public Status process() throws EventDeliveryException {
+    if (pipelineExecutor != null) {
+      return processPipelined();
+    }
+    return processBatch(getChannel(), kafkaFutures, null);
+  }
+
+  /**
+   * Hands the next batch over to a pipeline thread and returns without waiting for it to be
+   * acknowledged, once less than maxInFlightTransactions batches are in flight. Channel
+   * transactions are bound to the thread which opened them, so each in flight batch needs a
+   * thread of its own. Batches are committed in the order they were started, and once a batch
+   * is rolled back the batches started after it are rolled back too.
+   */
+  private Status processPipelined() throws EventDeliveryException {
+    Exception failure = pipelineFailure.getAndSet(null);
+    if (failure != null) {
+      throw new EventDeliveryException("Failed to publish events", failure);
+    }
+    try {
+      inFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new EventDeliveryException("Interrupted while waiting for in flight batches", e);
+    }
+    // resolved here as getChannel() would block on the sink monitor held by stop()
+    final Channel channel = getChannel();
+    final CompletableFuture<Boolean> previousBatch = lastBatchDone;
+    final CompletableFuture<Boolean> batchDone = new CompletableFuture<>();
+    lastBatchDone = batchDone;
+    try {
+      pipelineExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          boolean committed = false;
+          try {
+            Status status = processBatch(channel, new LinkedList<Future<RecordMetadata>>(),
+                previousBatch);
+            lastBatchEmpty = status == Status.BACKOFF;
+            committed = true;
+          } catch (Exception e) {
+            pipelineFailure.compareAndSet(null, e);
+          } finally {
+            batchDone.complete(committed);
+            inFlightPermits.release();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      batchDone.complete(false);
+      inFlightPermits.release();
+      throw new EventDeliveryException("Sink is stopping", e);
+    }
+    return lastBatchEmpty ? Status.BACKOFF : Status.READY;
+  }
+
+  /**
+   * Takes a batch from the channel, publishes it to Kafka and commits the channel transaction
+   * once every event was acknowledged.
+   *
+   * @param previousBatch if not null, the batch is pipelined: the producer is not flushed and
+   *                      the transaction is only committed after the given previous batch
+   *                      was committed, and rolled back if it was rolled back
+   */
+  private Status processBatch(Channel channel, List<Future<RecordMetadata>> batchFutures,
+      Future<Boolean> previousBatch) throws EventDeliveryException {
     Status result = Status.READY;
-    Channel channel = getChannel();
     Transaction transaction = null;
     Event event = null;
     String eventTopic = null;
@@ -153,7 +237,7 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
         producer.beginTransaction();
       }
 
-      kafkaFutures.clear();
+      batchFutures.clear();
       long batchStartTime = System.nanoTime();
       for (; processedEvents < batchSize; processedEvents += 1) {
         event = channel.take();
@@ -162,13 +246,13 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
           // no events available in channel
           if (processedEvents == 0) {
             result = Status.BACKOFF;
-            counter.incrementBatchEmptyCount();
+            counter.recordBatchEmpty();
           } else {
-            counter.incrementBatchUnderflowCount();
+            counter.recordBatchUnderflow();
           }
           break;
         }
-        counter.incrementEventDrainAttemptCount();
+        counter.recordEventDrainAttempt();
 
         byte[] eventBody = event.getBody();
         Map<String, String> headers = event.getHeaders();
@@ -246,7 +330,7 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
             record = new ProducerRecord<>(eventTopic, null, timestamp, eventKey,
                 serializeEvent(event, useAvroEventFormat), kafkaHeaders);
           }
-          kafkaFutures.add(producer.send(record, new SinkCallback(startTime)));
+          batchFutures.add(producer.send(record, new SinkCallback(startTime)));
         } catch (NumberFormatException ex) {
           throw new EventDeliveryException("Non integer partition id specified", ex);
         } catch (Exception ex) {
@@ -260,17 +344,23 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
       if (useKafkaTransactions) {
         producer.commitTransaction();
       } else {
-        //Prevent linger.ms from holding the batch
-        producer.flush();
-        for (Future<RecordMetadata> future : kafkaFutures) {
+        if (previousBatch == null) {
+          //Prevent linger.ms from holding the batch
+          producer.flush();
+        }
+        for (Future<RecordMetadata> future : batchFutures) {
           future.get();
         }
       }
+      if (previousBatch != null && !previousBatch.get()) {
+        throw new EventDeliveryException("Previous batch was rolled back");
+      }
       // publish batch and commit.
       if (processedEvents > 0) {
         long endTime = System.nanoTime();
         counter.addToKafkaEventSendTimer((endTime - batchStartTime) / (1000 * 1000));
-        counter.addToEventDrainSuccessCount(processedEvents);
+        counter.recordEventDrainSuccess(processedEvents);
+        counter.recordBatch(processedEvents, batchStartTime);
       }
 
       transaction.commit();
@@ -281,7 +371,7 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
       counter.incrementEventWriteOrChannelFail(ex);
       if (transaction != null) {
         try {
-          kafkaFutures.clear();
+          batchFutures.clear();
           try {
             if (useKafkaTransactions) {
               producer.abortTransaction();
@@ -314,6 +404,14 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
     if (useKafkaTransactions) {
       logger.info("Transactions enabled, initializing transactions");
       producer.initTransactions();
+    } else if (maxInFlightTransactions > 1) {
+      logger.info("Pipelining up to {} transactions", maxInFlightTransactions);
+      pipelineExecutor = Executors.newFixedThreadPool(maxInFlightTransactions,
+          new ThreadFactoryBuilder().setNameFormat("kafka-sink-" + getName() + "-%d").build());
+      inFlightPermits = new Semaphore(maxInFlightTransactions);
+      lastBatchDone = CompletableFuture.completedFuture(true);
+      lastBatchEmpty = false;
+      pipelineFailure.set(null);
     }
     counter.start();
     super.start();
@@ -321,6 +419,19 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
 
   @Override
   public synchronized void stop() {
+    if (pipelineExecutor != null) {
+      pipelineExecutor.shutdown();
+      try {
+        if (!pipelineExecutor.awaitTermination(PIPELINE_SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+          logger.warn("Timed out waiting for in flight batches, rolling them back");
+          pipelineExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        pipelineExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      pipelineExecutor = null;
+    }
     producer.close();
     counter.stop();
     logger.info("Kafka Sink {} stopped. Metrics: {}", getName(), counter);
@@ -391,6 +502,17 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
       logger.debug(KafkaSinkConstants.AVRO_EVENT + " set to: {}", useAvroEventFormat);
     }
 
+    maxInFlightTransactions = context.getInteger(KafkaSinkConstants.MAX_IN_FLIGHT_TRANSACTIONS,
+        KafkaSinkConstants.DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS);
+    if (maxInFlightTransactions < 1) {
+      throw new ConfigurationException(KafkaSinkConstants.MAX_IN_FLIGHT_TRANSACTIONS
+          + " must be greater than 0");
+    }
+    if (maxInFlightTransactions > 1 && useKafkaTransactions) {
+      logger.warn("{} is not supported with Kafka transactions, ignoring it",
+          KafkaSinkConstants.MAX_IN_FLIGHT_TRANSACTIONS);
+    }
+
     kafkaFutures = new LinkedList<Future<RecordMetadata>>();
 
     String bootStrapServers = context.getString(KafkaSinkConstants.BOOTSTRAP_SERVERS_CONFIG);
@@ -435,19 +557,27 @@ public class KafkaSink extends AbstractSink implements Configurable, BatchSizeSu
   private byte[] serializeEvent(Event event, boolean useAvroEventFormat) throws IOException {
     byte[] bytes;
     if (useAvroEventFormat) {
-      if (!tempOutStream.isPresent()) {
-        tempOutStream = Optional.of(new ByteArrayOutputStream());
+      byte[] encoded = AvroEncodedEvent.getEncodedIfUnchanged(event);
+      if (encoded != null) {
+        // read from Kafka and forwarded untouched
+        return encoded;
       }
-      if (!writer.isPresent()) {
-        writer = Optional.of(new SpecificDatumWriter<AvroFlumeEvent>(AvroFlumeEvent.class));
+      // pipelined batches share the Avro writer and its buffer
+      synchronized (serializeLock) {
+        if (!tempOutStream.isPresent()) {
+          tempOutStream = Optional.of(new ByteArrayOutputStream());
+        }
+        if (!writer.isPresent()) {
+          writer = Optional.of(new SpecificDatumWriter<AvroFlumeEvent>(AvroFlumeEvent.class));
+        }
+        tempOutStream.get().reset();
+        AvroFlumeEvent e = new AvroFlumeEvent(toCharSeqMap(event.getHeaders()),
+                                              ByteBuffer.wrap(event.getBody()));
+        encoder = EncoderFactory.get().directBinaryEncoder(tempOutStream.get(), encoder);
+        writer.get().write(e, encoder);
+        encoder.flush();
+        bytes = tempOutStream.get().toByteArray();
       }
-      tempOutStream.get().reset();
-      AvroFlumeEvent e = new AvroFlumeEvent(toCharSeqMap(event.getHeaders()),
-                                            ByteBuffer.wrap(event.getBody()));
-      encoder = EncoderFactory.get().directBinaryEncoder(tempOutStream.get(), encoder);
-      writer.get().write(e, encoder);
-      encoder.flush();
-      bytes = tempOutStream.get().toByteArray();
     } else {
       bytes = event.getBody();
     }
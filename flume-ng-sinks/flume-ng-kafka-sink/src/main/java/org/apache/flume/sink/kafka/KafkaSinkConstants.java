@@ -46,6 +46,10 @@ public class KafkaSinkConstants {
   public static final String AVRO_EVENT = "useFlumeEventFormat";
   public static final boolean DEFAULT_AVRO_EVENT = false;
 
+  /** Number of batches which can be waiting for Kafka acknowledgements at the same time. */
+  public static final String MAX_IN_FLIGHT_TRANSACTIONS = "maxInFlightTransactions";
+  public static final int DEFAULT_MAX_IN_FLIGHT_TRANSACTIONS = 1;
+
   public static final String PARTITION_HEADER_NAME = "partitionIdHeader";
   public static final String STATIC_PARTITION_CONF = "defaultPartitionId";
 
@@ -20,8 +20,11 @@ package org.apache.flume.sink.kafka;
 
 import com.google.common.base.Charsets;
 import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
 import org.apache.avro.util.Utf8;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.flume.Channel;
@@ -31,9 +34,11 @@ import org.apache.flume.EventDeliveryException;
 import org.apache.flume.Sink;
 import org.apache.flume.Transaction;
 import org.apache.flume.channel.MemoryChannel;
+import org.apache.flume.conf.ConfigurationException;
 import org.apache.flume.conf.Configurables;
 import org.apache.flume.event.EventBuilder;
 import org.apache.flume.instrumentation.SinkCounter;
+import org.apache.flume.shared.kafka.AvroEncodedEvent;
 import org.apache.flume.shared.kafka.test.KafkaPartitionTestUtil;
 import org.apache.flume.shared.kafka.test.PartitionOption;
 import org.apache.flume.shared.kafka.test.PartitionTestScenario;
@@ -54,7 +59,9 @@ import org.junit.Test;
 import org.mockito.internal.util.reflection.Whitebox;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -75,6 +82,7 @@ import static org.apache.kafka.common.config.SslConfigs.SSL_TRUSTSTORE_LOCATION_
 import static org.apache.kafka.common.config.SslConfigs.SSL_TRUSTSTORE_PASSWORD_CONFIG;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -455,6 +463,64 @@ public class TestKafkaSink {
     assertEquals(TestConstants.CUSTOM_KEY, eventHeaders.get(new Utf8("key")).toString());
   }
 
+  @Test
+  public void testAvroEventForwarded() throws Exception {
+    Sink kafkaSink = new KafkaSink();
+    Context context = prepareDefaultContext();
+    context.put(AVRO_EVENT, "true");
+    context.put(BATCH_SIZE, "2");
+    Configurables.configure(kafkaSink, context);
+    Channel memoryChannel = new MemoryChannel();
+    Configurables.configure(memoryChannel, context);
+    kafkaSink.setChannel(memoryChannel);
+    kafkaSink.start();
+
+    Map<String, String> headers = new HashMap<String, String>();
+    headers.put("topic", TestConstants.CUSTOM_TOPIC);
+    headers.put("key", TestConstants.CUSTOM_KEY);
+    // The serialized form carries a header the decoded event doesn't have,
+    // so the record tells whether it was forwarded or encoded again
+    Map<CharSequence, CharSequence> encodedHeaders = new HashMap<CharSequence, CharSequence>();
+    encodedHeaders.putAll(headers);
+    encodedHeaders.put("forwarded", "true");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    new SpecificDatumWriter<>(AvroFlumeEvent.class).write(
+        new AvroFlumeEvent(encodedHeaders, ByteBuffer.wrap("forwarded".getBytes())), encoder);
+    encoder.flush();
+
+    Transaction tx = memoryChannel.getTransaction();
+    tx.begin();
+    memoryChannel.put(new AvroEncodedEvent(headers, "forwarded".getBytes(), out.toByteArray()));
+    AvroEncodedEvent changed =
+        new AvroEncodedEvent(headers, "changed".getBytes(), out.toByteArray());
+    changed.getHeaders().put(TestConstants.HEADER_1_KEY, TestConstants.HEADER_1_VALUE);
+    memoryChannel.put(changed);
+    tx.commit();
+    tx.close();
+
+    assertEquals(Sink.Status.READY, kafkaSink.process());
+
+    List<AvroFlumeEvent> received = new ArrayList<AvroFlumeEvent>();
+    SpecificDatumReader<AvroFlumeEvent> reader = new SpecificDatumReader<>(AvroFlumeEvent.class);
+    for (int i = 0; i < 20 && received.size() < 2; i++) {
+      for (ConsumerRecord<String, String> record :
+          pollConsumerRecords(TestConstants.CUSTOM_TOPIC, 1)) {
+        BinaryDecoder decoder = DecoderFactory.get().directBinaryDecoder(
+            new ByteArrayInputStream(record.value().getBytes()), null);
+        received.add(reader.read(null, decoder));
+      }
+    }
+    assertEquals(2, received.size());
+    assertEquals("forwarded", new String(received.get(0).getBody().array(), Charsets.UTF_8));
+    assertEquals("true", received.get(0).getHeaders().get(new Utf8("forwarded")).toString());
+    assertEquals("changed", new String(received.get(1).getBody().array(), Charsets.UTF_8));
+    assertNull(received.get(1).getHeaders().get(new Utf8("forwarded")));
+    assertEquals(TestConstants.HEADER_1_VALUE,
+        received.get(1).getHeaders().get(new Utf8(TestConstants.HEADER_1_KEY)).toString());
+    kafkaSink.stop();
+  }
+
   private ConsumerRecords<String, String> pollConsumerRecords(String topic) {
     return pollConsumerRecords(topic, 20);
   }
@@ -494,6 +560,99 @@ public class TestKafkaSink {
     assertEquals(0, recs.count());
   }
 
+  @Test
+  public void testPipelinedTransactions() throws EventDeliveryException {
+    Sink kafkaSink = new KafkaSink();
+    Context context = prepareDefaultContext();
+    context.put(TOPIC_CONFIG, TestConstants.STATIC_TOPIC);
+    context.put(MAX_IN_FLIGHT_TRANSACTIONS, "3");
+    Configurables.configure(kafkaSink, context);
+    Channel memoryChannel = new MemoryChannel();
+    Configurables.configure(memoryChannel, context);
+    kafkaSink.setChannel(memoryChannel);
+    kafkaSink.start();
+
+    int numMsgs = 20;
+    Set<String> expected = new HashSet<String>();
+    Transaction tx = memoryChannel.getTransaction();
+    tx.begin();
+    for (int i = 0; i < numMsgs; i++) {
+      String msg = "pipelined-test-" + i;
+      expected.add(msg);
+      memoryChannel.put(EventBuilder.withBody(msg.getBytes()));
+    }
+    tx.commit();
+    tx.close();
+
+    for (int i = 0; i < numMsgs; i++) {
+      kafkaSink.process();
+    }
+    // stopping waits for the batches still in flight
+    kafkaSink.stop();
+
+    tx = memoryChannel.getTransaction();
+    tx.begin();
+    assertEquals("Channel should be drained", null, memoryChannel.take());
+    tx.commit();
+    tx.close();
+
+    for (int i = 0; i < 20 && !expected.isEmpty(); i++) {
+      ConsumerRecords<String, String> recs = pollConsumerRecords(TestConstants.STATIC_TOPIC);
+      for (ConsumerRecord<String, String> record : recs.records(TestConstants.STATIC_TOPIC)) {
+        expected.remove(record.value());
+      }
+    }
+    assertTrue("Messages not received: " + expected, expected.isEmpty());
+  }
+
+  @Test
+  public void testPipelinedRollbackIsChained() throws EventDeliveryException {
+    Sink kafkaSink = new KafkaSink();
+    Context context = prepareDefaultContext();
+    context.put(TOPIC_CONFIG, TestConstants.STATIC_TOPIC);
+    context.put(BATCH_SIZE, "1");
+    context.put(MAX_IN_FLIGHT_TRANSACTIONS, "2");
+    context.put(KafkaSinkConstants.PARTITION_HEADER_NAME, "partition-header");
+    Configurables.configure(kafkaSink, context);
+    Channel memoryChannel = new MemoryChannel();
+    Configurables.configure(memoryChannel, context);
+    kafkaSink.setChannel(memoryChannel);
+    kafkaSink.start();
+
+    Transaction tx = memoryChannel.getTransaction();
+    tx.begin();
+    memoryChannel.put(EventBuilder.withBody("bad-partition".getBytes(),
+        Collections.singletonMap("partition-header", "not-a-number")));
+    memoryChannel.put(EventBuilder.withBody("after-bad-partition".getBytes()));
+    tx.commit();
+    tx.close();
+
+    kafkaSink.process();
+    kafkaSink.process();
+    kafkaSink.stop();
+
+    // the second batch must not be committed as the first one was rolled back
+    tx = memoryChannel.getTransaction();
+    tx.begin();
+    assertNotNull(memoryChannel.take());
+    assertNotNull(memoryChannel.take());
+    tx.commit();
+    tx.close();
+  }
+
+  @Test
+  public void testInvalidMaxInFlightTransactions() {
+    Sink kafkaSink = new KafkaSink();
+    Context context = prepareDefaultContext();
+    context.put(MAX_IN_FLIGHT_TRANSACTIONS, "0");
+    try {
+      Configurables.configure(kafkaSink, context);
+      fail("Configuration should have failed");
+    } catch (ConfigurationException ex) {
+      // expected
+    }
+  }
+
   @Test
   public void testPartitionHeaderSet() throws Exception {
     doPartitionHeader(PartitionTestScenario.PARTITION_ID_HEADER_ONLY);
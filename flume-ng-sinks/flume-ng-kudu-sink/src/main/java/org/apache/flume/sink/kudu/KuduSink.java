@@ -247,6 +247,7 @@ public class KuduSink extends AbstractSink implements Configurable {
     Transaction txn = channel.getTransaction();
 
     txn.begin();
+    long startNanos = System.nanoTime();
 
     try {
       long txnEventCount = 0;
@@ -281,11 +282,11 @@ public class KuduSink extends AbstractSink implements Configurable {
       }
 
       if (txnEventCount == 0) {
-        sinkCounter.incrementBatchEmptyCount();
+        sinkCounter.recordBatchEmpty();
       } else if (txnEventCount == batchSize) {
-        sinkCounter.incrementBatchCompleteCount();
+        sinkCounter.recordBatchComplete();
       } else {
-        sinkCounter.incrementBatchUnderflowCount();
+        sinkCounter.recordBatchUnderflow();
       }
 
       txn.commit();
@@ -294,7 +295,8 @@ public class KuduSink extends AbstractSink implements Configurable {
         return Status.BACKOFF;
       }
 
-      sinkCounter.addToEventDrainSuccessCount(txnEventCount);
+      sinkCounter.recordEventDrainSuccess(txnEventCount);
+      sinkCounter.recordBatch(txnEventCount, startNanos);
       return Status.READY;
 
     } catch (Throwable e) {
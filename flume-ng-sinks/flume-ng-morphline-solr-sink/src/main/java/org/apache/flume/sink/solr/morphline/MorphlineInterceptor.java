@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.apache.flume.FlumeException;
 import org.apache.flume.event.EventBuilder;
 import org.apache.flume.interceptor.Interceptor;
@@ -44,6 +45,7 @@ import com.google.common.io.ByteStreams;
  * Currently, there is a restriction in that the morphline must not generate more than one output
  * record for each input event.
  */
+@ThreadSafe
 public class MorphlineInterceptor implements Interceptor {
 
   private final Context context;
@@ -124,6 +124,7 @@ public class MorphlineSink extends AbstractSink implements Configurable, BatchSi
     Channel myChannel = getChannel();
     Transaction txn = myChannel.getTransaction();
     txn.begin();
+    long startNanos = System.nanoTime();
     boolean isMorphlineTransactionCommitted = true;
     try {
       int numEventsTaken = 0;
@@ -136,7 +137,7 @@ public class MorphlineSink extends AbstractSink implements Configurable, BatchSi
         if (event == null) {
           break;
         }
-        sinkCounter.incrementEventDrainAttemptCount();
+        sinkCounter.recordEventDrainAttempt();
         numEventsTaken++;
         if (LOGGER.isTraceEnabled() && LogPrivacyUtil.allowLogRawData()) {
           LOGGER.trace("Flume event arrived {}", event);
@@ -151,17 +152,18 @@ public class MorphlineSink extends AbstractSink implements Configurable, BatchSi
 
       // update metrics
       if (numEventsTaken == 0) {
-        sinkCounter.incrementBatchEmptyCount();
+        sinkCounter.recordBatchEmpty();
       }
       if (numEventsTaken < batchSize) {
-        sinkCounter.incrementBatchUnderflowCount();
+        sinkCounter.recordBatchUnderflow();
       } else {
-        sinkCounter.incrementBatchCompleteCount();
+        sinkCounter.recordBatchComplete();
       }
       handler.commitTransaction();
       isMorphlineTransactionCommitted = true;
       txn.commit();
-      sinkCounter.addToEventDrainSuccessCount(numEventsTaken);
+      sinkCounter.recordEventDrainSuccess(numEventsTaken);
+      sinkCounter.recordBatch(numEventsTaken, startNanos);
       return numEventsTaken == 0 ? Status.BACKOFF : Status.READY;
     } catch (Throwable t) {
       // Ooops - need to rollback and back off
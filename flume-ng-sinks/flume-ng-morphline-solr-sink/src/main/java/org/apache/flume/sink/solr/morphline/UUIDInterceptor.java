@@ -23,12 +23,14 @@ import java.util.UUID;
 
 import org.apache.flume.Context;
 import org.apache.flume.Event;
+import org.apache.flume.annotations.ThreadSafe;
 import org.apache.flume.interceptor.Interceptor;
 
 /**
  * Flume Interceptor that sets a universally unique identifier on all events
  * that are intercepted. By default this event header is named "id".
  */
+@ThreadSafe
 public class UUIDInterceptor implements Interceptor {
 
   private String headerName;
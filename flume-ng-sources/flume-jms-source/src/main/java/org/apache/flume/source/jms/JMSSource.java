@@ -322,12 +322,13 @@ public class JMSSource extends AbstractPollableSource implements BatchSizeSuppor
         error = false;
         return Status.BACKOFF;
       }
-      sourceCounter.incrementAppendBatchReceivedCount();
-      sourceCounter.addToEventReceivedCount(size);
+      sourceCounter.recordAppendBatchReceived();
+      sourceCounter.recordEventReceived(size);
       getChannelProcessor().processEventBatch(events);
       error = false;
-      sourceCounter.addToEventAcceptedCount(size);
-      sourceCounter.incrementAppendBatchAcceptedCount();
+      sourceCounter.recordEventAccepted(size);
+      sourceCounter.recordBatch(size);
+      sourceCounter.recordAppendBatchAccepted();
       return Status.READY;
     } catch (ChannelException channelException) {
       logger.warn("Error appending event to channel. "
@@ -18,6 +18,7 @@ package org.apache.flume.source.kafka;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import kafka.zk.KafkaZkClient;
 import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DecoderFactory;
@@ -32,6 +33,7 @@ import org.apache.flume.conf.ConfigurationException;
 import org.apache.flume.conf.LogPrivacyUtil;
 import org.apache.flume.event.EventBuilder;
 import org.apache.flume.instrumentation.kafka.KafkaSourceCounter;
+import org.apache.flume.shared.kafka.AvroEncodedEvent;
 import org.apache.flume.shared.kafka.KafkaSSLUtil;
 import org.apache.flume.source.AbstractPollableSource;
 import org.apache.flume.source.avro.AvroFlumeEvent;
@@ -44,6 +46,7 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.config.SslConfigs;
+import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 import org.slf4j.Logger;
@@ -61,6 +64,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
@@ -70,10 +76,12 @@ import static org.apache.flume.source.kafka.KafkaSourceConstants.AVRO_EVENT;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BATCH_DURATION_MS;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BATCH_SIZE;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BOOTSTRAP_SERVERS;
+import static org.apache.flume.source.kafka.KafkaSourceConstants.CONSUMER_THREADS;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_AUTO_COMMIT;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_AVRO_EVENT;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_BATCH_DURATION;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_BATCH_SIZE;
+import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_CONSUMER_THREADS;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_GROUP_ID;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_KEY_DESERIALIZER;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_SET_TOPIC_HEADER;
@@ -109,6 +117,9 @@ import static org.apache.flume.source.kafka.KafkaSourceConstants.TOPIC_HEADER;
  * <tt>maxBatchDurationMillis: </tt> Maximum number of milliseconds before a
  * batch (of any size) will be written to a channel. Default: 1000
  * <p>
+ * <tt>consumer.threads: </tt> Number of consumers of the group run by the source, each
+ * with its own thread, batch and offset commits. Default: 1
+ * <p>
  * <tt>kafka.consumer.*: </tt> Any property starting with "kafka.consumer" will be
  * passed to the kafka consumer So you can use any configuration supported by Kafka 0.9.0.X
  * <tt>useFlumeEventFormat: </tt> Reads events from Kafka Topic as an Avro FlumeEvent. Used
@@ -126,19 +137,12 @@ public class KafkaSource extends AbstractPollableSource
   private Context context;
   private Properties kafkaProps;
   private KafkaSourceCounter counter;
-  private KafkaConsumer<String, byte[]> consumer;
-  private Iterator<ConsumerRecord<String, byte[]>> it;
-
-  private final List<Event> eventList = new ArrayList<Event>();
-  private Map<TopicPartition, OffsetAndMetadata> tpAndOffsetMetadata;
-  private AtomicBoolean rebalanceFlag;
-
-  private Map<String, String> headers;
-
-  private Optional<SpecificDatumReader<AvroFlumeEvent>> reader = Optional.absent();
-  private BinaryDecoder decoder = null;
+  private final List<ConsumerWorker> workers = new ArrayList<ConsumerWorker>();
+  private ExecutorService consumerExecutor;
+  private volatile boolean running;
 
   private boolean useAvroEventFormat;
+  private int consumerThreads;
 
   private int batchUpperLimit;
   private int maxBatchDurationMillis;
@@ -207,147 +211,220 @@ public class KafkaSource extends AbstractPollableSource
 
   @Override
   protected Status doProcess() throws EventDeliveryException {
-    final String batchUUID = UUID.randomUUID().toString();
-    String kafkaKey;
-    Event event;
-    byte[] eventBody;
-
-    try {
-      // prepare time variables for new batch
-      final long nanoBatchStartTime = System.nanoTime();
-      final long batchStartTime = System.currentTimeMillis();
-      final long maxBatchEndTime = System.currentTimeMillis() + maxBatchDurationMillis;
-
-      while (eventList.size() < batchUpperLimit &&
-              System.currentTimeMillis() < maxBatchEndTime) {
-
-        if (it == null || !it.hasNext()) {
-          // Obtaining new records
-          // Poll time is remainder time for current batch.
-          long durMs = Math.max(0L, maxBatchEndTime - System.currentTimeMillis());
-          Duration duration = Duration.ofMillis(durMs);
-          ConsumerRecords<String, byte[]> records = consumer.poll(duration);
-          it = records.iterator();
-
-          // this flag is set to true in a callback when some partitions are revoked.
-          // If there are any records we commit them.
-          if (rebalanceFlag.compareAndSet(true, false)) {
-            break;
-          }
-          // check records after poll
-          if (!it.hasNext()) {
-            counter.incrementKafkaEmptyCount();
-            log.debug("Returning with backoff. No more data to read");
-            // batch time exceeded
-            break;
+    // The runner thread drives the first consumer, the others have their own threads
+    return workers.get(0).process();
+  }
+
+  /**
+   * One Kafka consumer of the source, along with the batch it is filling.
+   * Each worker commits the offsets of its own batches, so the source runs
+   * as many members of the consumer group as it has workers.
+   */
+  private class ConsumerWorker implements Runnable {
+    private final KafkaConsumer<String, byte[]> consumer;
+    private Iterator<ConsumerRecord<String, byte[]>> it;
+
+    private final List<Event> eventList = new ArrayList<Event>();
+    private final Map<TopicPartition, OffsetAndMetadata> tpAndOffsetMetadata =
+        new HashMap<TopicPartition, OffsetAndMetadata>();
+    private final AtomicBoolean rebalanceFlag = new AtomicBoolean(false);
+
+    private Map<String, String> headers = new HashMap<String, String>(4);
+
+    private Optional<SpecificDatumReader<AvroFlumeEvent>> reader = Optional.absent();
+    private BinaryDecoder decoder = null;
+
+    ConsumerWorker() {
+      consumer = new KafkaConsumer<String, byte[]>(kafkaProps);
+      // Subscribe for topics by already specified strategy
+      subscriber.subscribe(consumer, new SourceRebalanceListener(rebalanceFlag));
+    }
+
+    @Override
+    public void run() {
+      long backoff = 0;
+      try {
+        while (running) {
+          if (process() == Status.BACKOFF) {
+            backoff = Math.min(backoff + getBackOffSleepIncrement(),
+                getMaxBackOffSleepInterval());
+            Thread.sleep(backoff);
+          } else {
+            backoff = 0;
           }
         }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        close();
+      }
+    }
+
+    void wakeup() {
+      consumer.wakeup();
+    }
+
+    void close() {
+      consumer.close();
+    }
 
-        // get next message
-        ConsumerRecord<String, byte[]> message = it.next();
-        kafkaKey = message.key();
-
-        if (useAvroEventFormat) {
-          //Assume the event is in Avro format using the AvroFlumeEvent schema
-          //Will need to catch the exception if it is not
-          ByteArrayInputStream in =
-                  new ByteArrayInputStream(message.value());
-          decoder = DecoderFactory.get().directBinaryDecoder(in, decoder);
-          if (!reader.isPresent()) {
-            reader = Optional.of(
-                    new SpecificDatumReader<AvroFlumeEvent>(AvroFlumeEvent.class));
+    Status process() {
+      final String batchUUID = UUID.randomUUID().toString();
+      String kafkaKey;
+      Event event;
+      AvroEncodedEvent encodedEvent;
+      byte[] eventBody;
+
+      try {
+        // prepare time variables for new batch
+        final long nanoBatchStartTime = System.nanoTime();
+        final long batchStartTime = System.currentTimeMillis();
+        final long maxBatchEndTime = System.currentTimeMillis() + maxBatchDurationMillis;
+
+        while (eventList.size() < batchUpperLimit &&
+                System.currentTimeMillis() < maxBatchEndTime) {
+
+          if (it == null || !it.hasNext()) {
+            // Obtaining new records
+            // Poll time is remainder time for current batch.
+            long durMs = Math.max(0L, maxBatchEndTime - System.currentTimeMillis());
+            Duration duration = Duration.ofMillis(durMs);
+            ConsumerRecords<String, byte[]> records = consumer.poll(duration);
+            it = records.iterator();
+
+            // this flag is set to true in a callback when some partitions are revoked.
+            // If there are any records we commit them.
+            if (rebalanceFlag.compareAndSet(true, false)) {
+              break;
+            }
+            // check records after poll
+            if (!it.hasNext()) {
+              counter.incrementKafkaEmptyCount();
+              log.debug("Returning with backoff. No more data to read");
+              // batch time exceeded
+              break;
+            }
           }
-          //This may throw an exception but it will be caught by the
-          //exception handler below and logged at error
-          AvroFlumeEvent avroevent = reader.get().read(null, decoder);
-
-          eventBody = avroevent.getBody().array();
-          headers = toStringMap(avroevent.getHeaders());
-        } else {
-          eventBody = message.value();
-          headers.clear();
-          headers = new HashMap<String, String>(4);
-        }
 
-        // Add headers to event (timestamp, topic, partition, key) only if they don't exist
-        if (!headers.containsKey(TIMESTAMP_HEADER)) {
-          headers.put(TIMESTAMP_HEADER, String.valueOf(message.timestamp()));
-        }
-        if (!headerMap.isEmpty()) {
-          Headers kafkaHeaders = message.headers();
-          for (Map.Entry<String, String> entry : headerMap.entrySet()) {
-            for (Header kafkaHeader : kafkaHeaders.headers(entry.getValue())) {
-              headers.put(entry.getKey(), new String(kafkaHeader.value()));
+          // get next message
+          ConsumerRecord<String, byte[]> message = it.next();
+          kafkaKey = message.key();
+
+          if (useAvroEventFormat) {
+            //Assume the event is in Avro format using the AvroFlumeEvent schema
+            //Will need to catch the exception if it is not
+            ByteArrayInputStream in =
+                    new ByteArrayInputStream(message.value());
+            decoder = DecoderFactory.get().directBinaryDecoder(in, decoder);
+            if (!reader.isPresent()) {
+              reader = Optional.of(
+                      new SpecificDatumReader<AvroFlumeEvent>(AvroFlumeEvent.class));
             }
+            //This may throw an exception but it will be caught by the
+            //exception handler below and logged at error
+            AvroFlumeEvent avroevent = reader.get().read(null, decoder);
+
+            eventBody = avroevent.getBody().array();
+            // keep the record so that a Kafka sink or channel can forward it as is,
+            // the headers below are added to the event itself
+            encodedEvent = new AvroEncodedEvent(toStringMap(avroevent.getHeaders()),
+                eventBody, message.value());
+            headers = encodedEvent.getHeaders();
+          } else {
+            eventBody = message.value();
+            encodedEvent = null;
+            headers.clear();
+            headers = new HashMap<String, String>(4);
           }
-        }
-        // Only set the topic header if setTopicHeader and it isn't already populated
-        if (setTopicHeader && !headers.containsKey(topicHeader)) {
-          headers.put(topicHeader, message.topic());
-        }
-        if (!headers.containsKey(PARTITION_HEADER)) {
-          headers.put(PARTITION_HEADER, String.valueOf(message.partition()));
-        }
-        if (!headers.containsKey(OFFSET_HEADER)) {
-          headers.put(OFFSET_HEADER, String.valueOf(message.offset()));
-        }
 
-        if (kafkaKey != null) {
-          headers.put(KEY_HEADER, kafkaKey);
-        }
+          // Add headers to event (timestamp, topic, partition, key) only if they don't exist
+          if (!headers.containsKey(TIMESTAMP_HEADER)) {
+            headers.put(TIMESTAMP_HEADER, String.valueOf(message.timestamp()));
+          }
+          if (!headerMap.isEmpty()) {
+            Headers kafkaHeaders = message.headers();
+            for (Map.Entry<String, String> entry : headerMap.entrySet()) {
+              for (Header kafkaHeader : kafkaHeaders.headers(entry.getValue())) {
+                headers.put(entry.getKey(), new String(kafkaHeader.value()));
+              }
+            }
+          }
+          // Only set the topic header if setTopicHeader and it isn't already populated
+          if (setTopicHeader && !headers.containsKey(topicHeader)) {
+            headers.put(topicHeader, message.topic());
+          }
+          if (!headers.containsKey(PARTITION_HEADER)) {
+            headers.put(PARTITION_HEADER, String.valueOf(message.partition()));
+          }
+          if (!headers.containsKey(OFFSET_HEADER)) {
+            headers.put(OFFSET_HEADER, String.valueOf(message.offset()));
+          }
 
-        if (log.isTraceEnabled()) {
-          if (LogPrivacyUtil.allowLogRawData()) {
-            log.trace("Topic: {} Partition: {} Message: {}", new String[]{
-                message.topic(),
-                String.valueOf(message.partition()),
-                new String(eventBody)
-            });
-          } else {
-            log.trace("Topic: {} Partition: {} Message arrived.",
-                message.topic(),
-                String.valueOf(message.partition()));
+          if (kafkaKey != null) {
+            headers.put(KEY_HEADER, kafkaKey);
           }
-        }
 
-        event = EventBuilder.withBody(eventBody, headers);
-        eventList.add(event);
+          if (log.isTraceEnabled()) {
+            if (LogPrivacyUtil.allowLogRawData()) {
+              log.trace("Topic: {} Partition: {} Message: {}", new String[]{
+                  message.topic(),
+                  String.valueOf(message.partition()),
+                  new String(eventBody)
+              });
+            } else {
+              log.trace("Topic: {} Partition: {} Message arrived.",
+                  message.topic(),
+                  String.valueOf(message.partition()));
+            }
+          }
 
-        if (log.isDebugEnabled()) {
-          log.debug("Waited: {} ", System.currentTimeMillis() - batchStartTime);
-          log.debug("Event #: {}", eventList.size());
-        }
+          if (encodedEvent != null) {
+            event = encodedEvent;
+          } else {
+            event = EventBuilder.withBody(eventBody, headers);
+          }
+          eventList.add(event);
 
-        // For each partition store next offset that is going to be read.
-        tpAndOffsetMetadata.put(new TopicPartition(message.topic(), message.partition()),
-                new OffsetAndMetadata(message.offset() + 1, batchUUID));
-      }
+          if (log.isDebugEnabled()) {
+            log.debug("Waited: {} ", System.currentTimeMillis() - batchStartTime);
+            log.debug("Event #: {}", eventList.size());
+          }
 
-      if (eventList.size() > 0) {
-        counter.addToKafkaEventGetTimer((System.nanoTime() - nanoBatchStartTime) / (1000 * 1000));
-        counter.addToEventReceivedCount((long) eventList.size());
-        getChannelProcessor().processEventBatch(eventList);
-        counter.addToEventAcceptedCount(eventList.size());
-        if (log.isDebugEnabled()) {
-          log.debug("Wrote {} events to channel", eventList.size());
+          // For each partition store next offset that is going to be read.
+          tpAndOffsetMetadata.put(new TopicPartition(message.topic(), message.partition()),
+                  new OffsetAndMetadata(message.offset() + 1, batchUUID));
         }
-        eventList.clear();
-
-        if (!tpAndOffsetMetadata.isEmpty()) {
-          long commitStartTime = System.nanoTime();
-          consumer.commitSync(tpAndOffsetMetadata);
-          long commitEndTime = System.nanoTime();
-          counter.addToKafkaCommitTimer((commitEndTime - commitStartTime) / (1000 * 1000));
-          tpAndOffsetMetadata.clear();
+
+        if (eventList.size() > 0) {
+          counter.addToKafkaEventGetTimer((System.nanoTime() - nanoBatchStartTime) / (1000 * 1000));
+          counter.recordEventReceived((long) eventList.size());
+          getChannelProcessor().processEventBatch(eventList);
+          counter.recordEventAccepted(eventList.size());
+          counter.recordBatch(eventList.size());
+          if (log.isDebugEnabled()) {
+            log.debug("Wrote {} events to channel", eventList.size());
+          }
+          eventList.clear();
+
+          if (!tpAndOffsetMetadata.isEmpty()) {
+            long commitStartTime = System.nanoTime();
+            consumer.commitSync(tpAndOffsetMetadata);
+            long commitEndTime = System.nanoTime();
+            counter.addToKafkaCommitTimer((commitEndTime - commitStartTime) / (1000 * 1000));
+            tpAndOffsetMetadata.clear();
+          }
+          return Status.READY;
         }
-        return Status.READY;
-      }
 
-      return Status.BACKOFF;
-    } catch (Exception e) {
-      log.error("KafkaSource EXCEPTION, {}", e);
-      counter.incrementEventReadOrChannelFail(e);
-      return Status.BACKOFF;
+        return Status.BACKOFF;
+      } catch (WakeupException e) {
+        log.debug("Consumer of {} woken up, the source is stopping", getName());
+        return Status.BACKOFF;
+      } catch (Exception e) {
+        log.error("KafkaSource EXCEPTION, {}", e);
+        counter.incrementEventReadOrChannelFail(e);
+        return Status.BACKOFF;
+      }
     }
   }
 
@@ -365,9 +442,6 @@ public class KafkaSource extends AbstractPollableSource
   @Override
   protected void doConfigure(Context context) throws FlumeException {
     this.context = context;
-    headers = new HashMap<String, String>(4);
-    tpAndOffsetMetadata = new HashMap<TopicPartition, OffsetAndMetadata>();
-    rebalanceFlag = new AtomicBoolean(false);
     kafkaProps = new Properties();
 
     String topicProperty = context.getString(TOPICS_REGEX);
@@ -387,6 +461,11 @@ public class KafkaSource extends AbstractPollableSource
 
     useAvroEventFormat = context.getBoolean(AVRO_EVENT, DEFAULT_AVRO_EVENT);
 
+    consumerThreads = context.getInteger(CONSUMER_THREADS, DEFAULT_CONSUMER_THREADS);
+    if (consumerThreads < 1) {
+      throw new ConfigurationException(CONSUMER_THREADS + " must be at least 1");
+    }
+
     if (log.isDebugEnabled()) {
       log.debug(AVRO_EVENT + " set to: {}", useAvroEventFormat);
     }
@@ -475,21 +554,46 @@ public class KafkaSource extends AbstractPollableSource
   protected void doStart() throws FlumeException {
     log.info("Starting {}...", this);
 
-    //initialize a consumer.
-    consumer = new KafkaConsumer<String, byte[]>(kafkaProps);
-
-    // Subscribe for topics by already specified strategy
-    subscriber.subscribe(consumer, new SourceRebalanceListener(rebalanceFlag));
+    //initialize the consumers, they all share the counter.
+    workers.clear();
+    for (int i = 0; i < consumerThreads; i++) {
+      workers.add(new ConsumerWorker());
+    }
+    running = true;
+    if (consumerThreads > 1) {
+      consumerExecutor = Executors.newFixedThreadPool(consumerThreads - 1,
+          new ThreadFactoryBuilder().setNameFormat("kafka-source-" + getName() + "-%d").build());
+      for (ConsumerWorker worker : workers.subList(1, workers.size())) {
+        consumerExecutor.submit(worker);
+      }
+    }
 
-    log.info("Kafka source {} started.", getName());
+    log.info("Kafka source {} started with {} consumers.", getName(), consumerThreads);
     counter.start();
   }
 
   @Override
   protected void doStop() throws FlumeException {
-    if (consumer != null) {
-      consumer.wakeup();
-      consumer.close();
+    running = false;
+    for (ConsumerWorker worker : workers) {
+      worker.wakeup();
+    }
+    if (consumerExecutor != null) {
+      consumerExecutor.shutdown();
+      try {
+        if (!consumerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+          consumerExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        consumerExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      consumerExecutor = null;
+    }
+    if (!workers.isEmpty()) {
+      // The other consumers are closed by their own threads
+      workers.get(0).close();
+      workers.clear();
     }
     if (counter != null) {
       counter.stop();
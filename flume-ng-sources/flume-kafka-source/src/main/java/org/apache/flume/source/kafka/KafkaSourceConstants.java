@@ -36,6 +36,8 @@ public class KafkaSourceConstants {
   public static final int DEFAULT_BATCH_SIZE = 1000;
   public static final int DEFAULT_BATCH_DURATION = 1000;
   public static final String DEFAULT_GROUP_ID = "flume";
+  public static final String CONSUMER_THREADS = "consumer.threads";
+  public static final int DEFAULT_CONSUMER_THREADS = 1;
   public static final String KAFKA_HEADER = "header.";
 
   public static final String AVRO_EVENT = "useFlumeEventFormat";
@@ -75,6 +75,7 @@ import static org.apache.flume.source.kafka.KafkaSourceConstants.AVRO_EVENT;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BATCH_DURATION_MS;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BATCH_SIZE;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.BOOTSTRAP_SERVERS;
+import static org.apache.flume.source.kafka.KafkaSourceConstants.CONSUMER_THREADS;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_AUTO_COMMIT;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.DEFAULT_TOPIC_HEADER;
 import static org.apache.flume.source.kafka.KafkaSourceConstants.KAFKA_CONSUMER_PREFIX;
@@ -455,6 +456,30 @@ public class TestKafkaSource {
     Assert.assertEquals("event 2", new String(events.get(0).getBody(), Charsets.UTF_8));
   }
 
+  @Test
+  public void testConsumerThreads() throws InterruptedException, EventDeliveryException {
+    context.put(TOPICS, topic1);
+    context.put(BATCH_SIZE, "5");
+    context.put(CONSUMER_THREADS, "3");
+    // The group takes a while to settle with three members
+    context.put(KAFKA_CONSUMER_PREFIX + "auto.offset.reset", "earliest");
+    kafkaSource.configure(context);
+    events = Collections.synchronizedList(events);
+    startKafkaSource();
+    Thread.sleep(500L);
+
+    for (int i = 0; i < 30; i++) {
+      kafkaServer.produce(topic1, i % 3, "", "event " + i);
+    }
+    long deadline = System.currentTimeMillis() + 30000L;
+    while (events.size() < 30 && System.currentTimeMillis() < deadline) {
+      kafkaSource.process();
+    }
+    Assert.assertEquals(30, events.size());
+    SourceCounter sc = (SourceCounter) Whitebox.getInternalState(kafkaSource, "counter");
+    Assert.assertEquals(30, sc.getEventAcceptedCount());
+  }
+
   @Test
   public void testTwoBatchesWithAutocommit() throws InterruptedException, EventDeliveryException {
     context.put(TOPICS, topic0);
@@ -149,7 +149,7 @@ public class ScribeSource extends AbstractSource implements
 
     public ResultCode Log(List<LogEntry> list) throws TException {
       if (list != null) {
-        sourceCounter.addToEventReceivedCount(list.size());
+        sourceCounter.recordEventReceived(list.size());
 
         try {
           List<Event> events = new ArrayList<Event>(list.size());
@@ -170,7 +170,8 @@ public class ScribeSource extends AbstractSource implements
             getChannelProcessor().processEventBatch(events);
           }
 
-          sourceCounter.addToEventAcceptedCount(list.size());
+          sourceCounter.recordEventAccepted(list.size());
+          sourceCounter.recordBatch(list.size());
           return ResultCode.OK;
         } catch (Exception e) {
           LOG.warn("Scribe source handling failure", e);
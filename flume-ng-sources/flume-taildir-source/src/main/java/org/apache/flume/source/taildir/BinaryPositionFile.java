@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flume.source.taildir;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import org.apache.flume.annotations.InterfaceAudience;
+import org.apache.flume.annotations.InterfaceStability;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Position file of the {@code TAILDIR} source kept in a memory-mapped file of fixed size
+ * records, one per tracked file, which are updated in place.
+ * <p></p>
+ * A record consists of two slots holding the inode, the position, a hash of the path and a
+ * sequence number, each protected by a CRC32 checksum. Updates go to the slot with the older
+ * sequence number, so a write torn by a crash never corrupts the last consistent position.
+ * Records of files that are not tracked anymore are cleared and reused.
+ * <pre>
+ * header: magic (4) | version (4) | capacity (4) | unused (52)
+ * slot:   inode (8) | pos (8) | path hash (8) | seq (4) | crc32 of the previous fields (4)
+ * record: slot (32) | slot (32)
+ * </pre>
+ *
+ * @see TaildirSource
+ * @see ReliableTaildirEventReader
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class BinaryPositionFile implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(BinaryPositionFile.class);
+
+  private static final int MAGIC = 0x46545046;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 64;
+  private static final int SLOT_SIZE = 32;
+  private static final int RECORD_SIZE = 2 * SLOT_SIZE;
+  private static final int CHECKSUMMED_SIZE = SLOT_SIZE - 4;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final String path;
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int capacity;
+  private final boolean created;
+
+  private final Map<Long, Record> records = Maps.newHashMap();
+  private final Deque<Integer> freeRecords = Lists.newLinkedList();
+  private final CRC32 crc = new CRC32();
+
+  /**
+   * Last consistent state of a record.
+   */
+  public static class Record {
+    private final int index;
+    private final long inode;
+    private long pos;
+    private long pathHash;
+    private int seq;
+
+    private Record(int index, long inode, long pos, long pathHash, int seq) {
+      this.index = index;
+      this.inode = inode;
+      this.pos = pos;
+      this.pathHash = pathHash;
+      this.seq = seq;
+    }
+
+    public long getInode() {
+      return inode;
+    }
+
+    public long getPos() {
+      return pos;
+    }
+
+    public long getPathHash() {
+      return pathHash;
+    }
+  }
+
+  public BinaryPositionFile(String path) throws IOException {
+    this.path = path;
+    this.file = new RandomAccessFile(path, "rw");
+    this.channel = file.getChannel();
+    try {
+      created = channel.size() == 0;
+      if (created) {
+        map(INITIAL_CAPACITY);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, capacity);
+        for (int i = 0; i < capacity; i++) {
+          freeRecords.add(i);
+        }
+      } else {
+        load();
+      }
+    } catch (IOException e) {
+      file.close();
+      throw e;
+    }
+  }
+
+  public static long hashPath(String path) {
+    return Hashing.murmur3_128().hashString(path, Charsets.UTF_8).asLong();
+  }
+
+  /** Whether the file was empty when it was opened, so it holds no earlier positions. */
+  public boolean isCreated() {
+    return created;
+  }
+
+  /** Positions found in the file when it was opened. */
+  public synchronized Collection<Record> getRecords() {
+    return Collections.unmodifiableCollection(records.values());
+  }
+
+  /**
+   * Store the position of the given file. The record is only written if something changed
+   * since the last update.
+   */
+  public synchronized void update(long inode, long pos, String filePath) throws IOException {
+    long pathHash = hashPath(filePath);
+    Record record = records.get(inode);
+    if (record == null) {
+      record = new Record(allocate(), inode, pos, pathHash, 0);
+      records.put(inode, record);
+    } else if (record.pos == pos && record.pathHash == pathHash) {
+      return;
+    }
+    record.pos = pos;
+    record.pathHash = pathHash;
+    record.seq++;
+    writeSlot(recordOffset(record.index) + (record.seq & 1) * SLOT_SIZE, record);
+  }
+
+  /** Clear the records of the files which are not in the given inodes. */
+  public synchronized void retainAll(Collection<Long> inodes) {
+    Iterator<Record> it = records.values().iterator();
+    while (it.hasNext()) {
+      Record record = it.next();
+      if (!inodes.contains(record.inode)) {
+        clearRecord(record.index);
+        freeRecords.add(record.index);
+        it.remove();
+      }
+    }
+  }
+
+  /** Flush the updated records to the storage device. */
+  public synchronized void force() {
+    buffer.force();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    force();
+    file.close();
+  }
+
+  @Override
+  public String toString() {
+    return "BinaryPositionFile{path='" + path + "', capacity=" + capacity + "}";
+  }
+
+  @VisibleForTesting
+  int getCapacity() {
+    return capacity;
+  }
+
+  private void load() throws IOException {
+    if (channel.size() < HEADER_SIZE) {
+      throw new IOException("Not a binary position file: " + path);
+    }
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("Not a binary position file: " + path);
+    }
+    if (header.getInt(4) != VERSION) {
+      throw new IOException("Unsupported binary position file version " + header.getInt(4)
+          + ": " + path);
+    }
+    int storedCapacity = (int) Math.min(header.getInt(8),
+        (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+    map(Math.max(storedCapacity, INITIAL_CAPACITY));
+
+    List<Integer> duplicates = Lists.newArrayList();
+    for (int i = 0; i < capacity; i++) {
+      Record record = readRecord(i);
+      if (record == null) {
+        freeRecords.add(i);
+        continue;
+      }
+      Record previous = records.put(record.inode, record);
+      if (previous != null) {
+        duplicates.add(previous.index);
+      }
+    }
+    for (int index : duplicates) {
+      clearRecord(index);
+      freeRecords.add(index);
+    }
+    logger.info("Loaded {} positions from {}", records.size(), this);
+  }
+
+  private void map(int newCapacity) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+        HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+    capacity = newCapacity;
+  }
+
+  private int allocate() throws IOException {
+    if (freeRecords.isEmpty()) {
+      int oldCapacity = capacity;
+      map(oldCapacity * 2);
+      buffer.putInt(8, capacity);
+      for (int i = oldCapacity; i < capacity; i++) {
+        freeRecords.add(i);
+      }
+    }
+    return freeRecords.poll();
+  }
+
+  private static int recordOffset(int index) {
+    return HEADER_SIZE + index * RECORD_SIZE;
+  }
+
+  private Record readRecord(int index) {
+    int offset = recordOffset(index);
+    Record first = readSlot(index, offset);
+    Record second = readSlot(index, offset + SLOT_SIZE);
+    if (first == null) {
+      return second;
+    }
+    if (second == null) {
+      return first;
+    }
+    return second.seq - first.seq > 0 ? second : first;
+  }
+
+  private Record readSlot(int index, int offset) {
+    if (buffer.getInt(offset + CHECKSUMMED_SIZE) != checksum(offset)) {
+      return null;
+    }
+    return new Record(index, buffer.getLong(offset), buffer.getLong(offset + 8),
+        buffer.getLong(offset + 16), buffer.getInt(offset + 24));
+  }
+
+  private void writeSlot(int offset, Record record) {
+    buffer.putLong(offset, record.inode);
+    buffer.putLong(offset + 8, record.pos);
+    buffer.putLong(offset + 16, record.pathHash);
+    buffer.putInt(offset + 24, record.seq);
+    buffer.putInt(offset + CHECKSUMMED_SIZE, checksum(offset));
+  }
+
+  private void clearRecord(int index) {
+    int offset = recordOffset(index);
+    for (int i = 0; i < RECORD_SIZE; i += 8) {
+      buffer.putLong(offset + i, 0L);
+    }
+  }
+
+  private int checksum(int offset) {
+    crc.reset();
+    for (int i = 0; i < CHECKSUMMED_SIZE; i++) {
+      crc.update(buffer.get(offset + i));
+    }
+    return (int) crc.getValue();
+  }
+}
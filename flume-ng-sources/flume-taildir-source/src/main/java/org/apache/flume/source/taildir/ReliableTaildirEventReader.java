@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.gson.stream.JsonReader;
 import org.apache.flume.Event;
@@ -43,6 +44,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -54,6 +56,7 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
 
   private TailFile currentFile = null;
   private Map<Long, TailFile> tailFiles = Maps.newHashMap();
+  private Map<String, List<Long>> fileGroupInodes = Maps.newHashMap();
   private long updateTime;
   private boolean addByteOffset;
   private boolean cachePatternMatching;
@@ -67,7 +70,8 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
   private ReliableTaildirEventReader(Map<String, String> filePaths,
       Table<String, String, String> headerTable, String positionFilePath,
       boolean skipToEnd, boolean addByteOffset, boolean cachePatternMatching,
-      boolean annotateFileName, String fileNameHeader) throws IOException {
+      boolean annotateFileName, String fileNameHeader, BinaryPositionFile binaryPositionFile)
+      throws IOException {
     // Sanity checks
     Preconditions.checkNotNull(filePaths);
     Preconditions.checkNotNull(positionFilePath);
@@ -92,8 +96,30 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
     this.fileNameHeader = fileNameHeader;
     updateTailFiles(skipToEnd);
 
-    logger.info("Updating position from position file: " + positionFilePath);
-    loadPositionFile(positionFilePath);
+    if (binaryPositionFile != null && !binaryPositionFile.isCreated()) {
+      logger.info("Updating position from position file: " + binaryPositionFile);
+      loadPositionFile(binaryPositionFile);
+    } else {
+      // a new binary position file is seeded from the JSON one, it is written on the next update
+      logger.info("Updating position from position file: " + positionFilePath);
+      loadPositionFile(positionFilePath);
+    }
+  }
+
+  /**
+   * Load the positions of a binary position file, update tailFiles mapping of the files
+   * which still have the same inode and path.
+   */
+  public void loadPositionFile(BinaryPositionFile positionFile) throws IOException {
+    for (BinaryPositionFile.Record record : positionFile.getRecords()) {
+      TailFile tf = tailFiles.get(record.getInode());
+      if (tf != null && BinaryPositionFile.hashPath(tf.getPath()) == record.getPathHash()) {
+        tf.updatePos(tf.getPath(), record.getInode(), record.getPos());
+      } else {
+        logger.info("Missing file with inode: " + record.getInode() + ", pos: "
+            + record.getPos());
+      }
+    }
   }
 
   /**
@@ -190,26 +216,40 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
         throw new IllegalStateException("current file does not exist. " + currentFile.getPath());
       }
       logger.info("Last read was never committed - resetting position");
-      long lastPos = currentFile.getPos();
-      currentFile.updateFilePos(lastPos);
+      rollback(currentFile);
     }
-    List<Event> events = currentFile.readEvents(numEvents, backoffWithoutNL, addByteOffset);
+    List<Event> events = readEvents(currentFile, numEvents, backoffWithoutNL);
     if (events.isEmpty()) {
       return events;
     }
+    committed = false;
+    return events;
+  }
 
-    Map<String, String> headers = currentFile.getHeaders();
+  /**
+   * Read events from the given file. Unlike {@link #readEvents(int, boolean)} it does not
+   * use the current file of this reader, so distinct files can be read by concurrent threads.
+   * The caller is responsible to {@link #commit(TailFile)} or {@link #rollback(TailFile)}
+   * the events read before reading the file again.
+   */
+  public List<Event> readEvents(TailFile tf, int numEvents, boolean backoffWithoutNL)
+      throws IOException {
+    List<Event> events = tf.readEvents(numEvents, backoffWithoutNL, addByteOffset);
+    if (events.isEmpty()) {
+      return events;
+    }
+
+    Map<String, String> headers = tf.getHeaders();
     if (annotateFileName || (headers != null && !headers.isEmpty())) {
       for (Event event : events) {
         if (headers != null && !headers.isEmpty()) {
           event.getHeaders().putAll(headers);
         }
         if (annotateFileName) {
-          event.getHeaders().put(fileNameHeader, currentFile.getPath());
+          event.getHeaders().put(fileNameHeader, tf.getPath());
         }
       }
     }
-    committed = false;
     return events;
   }
 
@@ -224,22 +264,56 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
   @Override
   public void commit() throws IOException {
     if (!committed && currentFile != null) {
-      long pos = currentFile.getLineReadPos();
-      currentFile.setPos(pos);
-      currentFile.setLastUpdated(updateTime);
+      commit(currentFile);
       committed = true;
     }
   }
 
+  /** Commit the last lines which were read from the given file. */
+  public void commit(TailFile tf) {
+    tf.setPos(tf.getLineReadPos());
+    tf.setLastUpdated(updateTime);
+  }
+
+  /** Reset the given file to the last committed position. */
+  public void rollback(TailFile tf) throws IOException {
+    tf.updateFilePos(tf.getPos());
+  }
+
   /**
    * Update tailFiles mapping if a new file is created or appends are detected
    * to the existing file.
    */
   public List<Long> updateTailFiles(boolean skipToEnd) throws IOException {
+    return updateTailFiles(skipToEnd, null);
+  }
+
+  public List<Long> updateTailFiles() throws IOException {
+    return updateTailFiles(false);
+  }
+
+  /**
+   * Update tailFiles mapping only for the file groups whose parent directory is one of
+   * changedDirs. The files of the other groups are not listed nor checked, they keep the
+   * tail state of the previous update.
+   */
+  public List<Long> updateTailFiles(Set<File> changedDirs) throws IOException {
+    return updateTailFiles(false, changedDirs);
+  }
+
+  private List<Long> updateTailFiles(boolean skipToEnd, Set<File> changedDirs)
+      throws IOException {
     updateTime = System.currentTimeMillis();
     List<Long> updatedInodes = Lists.newArrayList();
 
     for (TaildirMatcher taildir : taildirCache) {
+      List<Long> groupInodes = fileGroupInodes.get(taildir.getFileGroup());
+      if (changedDirs != null && groupInodes != null
+          && !changedDirs.contains(taildir.getParentDir())) {
+        updatedInodes.addAll(groupInodes);
+        continue;
+      }
+      groupInodes = Lists.newArrayList();
       Map<String, String> headers = headerTable.row(taildir.getFileGroup());
 
       for (File f : taildir.getMatchingFiles()) {
@@ -269,14 +343,21 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
           tf.setNeedTail(updated);
         }
         tailFiles.put(inode, tf);
-        updatedInodes.add(inode);
+        groupInodes.add(inode);
       }
+      fileGroupInodes.put(taildir.getFileGroup(), groupInodes);
+      updatedInodes.addAll(groupInodes);
     }
     return updatedInodes;
   }
 
-  public List<Long> updateTailFiles() throws IOException {
-    return updateTailFiles(false);
+  /** Parent directories of the configured file groups. */
+  public Set<File> getParentDirs() {
+    Set<File> dirs = Sets.newHashSet();
+    for (TaildirMatcher taildir : taildirCache) {
+      dirs.add(taildir.getParentDir());
+    }
+    return dirs;
   }
 
 
@@ -308,6 +389,7 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
             TaildirSourceConfigurationConstants.DEFAULT_FILE_HEADER;
     private String fileNameHeader =
             TaildirSourceConfigurationConstants.DEFAULT_FILENAME_HEADER_KEY;
+    private BinaryPositionFile binaryPositionFile;
 
     public Builder filePaths(Map<String, String> filePaths) {
       this.filePaths = filePaths;
@@ -349,10 +431,17 @@ public class ReliableTaildirEventReader implements ReliableEventReader {
       return this;
     }
 
+    /** Load the positions from the given binary file instead of the JSON position file. */
+    public Builder binaryPositionFile(BinaryPositionFile binaryPositionFile) {
+      this.binaryPositionFile = binaryPositionFile;
+      return this;
+    }
+
     public ReliableTaildirEventReader build() throws IOException {
       return new ReliableTaildirEventReader(filePaths, headerTable, positionFilePath, skipToEnd,
                                             addByteOffset, cachePatternMatching,
-                                            annotateFileName, fileNameHeader);
+                                            annotateFileName, fileNameHeader,
+                                            binaryPositionFile);
     }
   }
 
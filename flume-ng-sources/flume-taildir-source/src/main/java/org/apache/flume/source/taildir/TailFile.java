@@ -45,8 +45,8 @@ public class TailFile {
   private RandomAccessFile raf;
   private final String path;
   private final long inode;
-  private long pos;
-  private long lastUpdated;
+  private volatile long pos;
+  private volatile long lastUpdated;
   private boolean needTail;
   private final Map<String, String> headers;
   private byte[] buffer;
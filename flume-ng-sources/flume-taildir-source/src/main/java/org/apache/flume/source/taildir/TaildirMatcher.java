@@ -283,4 +283,8 @@ public class TaildirMatcher {
     return fileGroup;
   }
 
+  File getParentDir() {
+    return parentDir;
+  }
+
 }
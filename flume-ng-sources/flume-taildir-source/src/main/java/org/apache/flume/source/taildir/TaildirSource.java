@@ -23,14 +23,18 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -49,10 +53,12 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
@@ -66,6 +72,7 @@ public class TaildirSource extends AbstractSource implements
   private Table<String, String, String> headerTable;
   private int batchSize;
   private String positionFilePath;
+  private String binaryPositionFilePath;
   private boolean skipToEnd;
   private boolean byteOffsetHeader;
 
@@ -73,6 +80,10 @@ public class TaildirSource extends AbstractSource implements
   private ReliableTaildirEventReader reader;
   private ScheduledExecutorService idleFileChecker;
   private ScheduledExecutorService positionWriter;
+  private ExecutorService tailWorkers;
+  private int workerThreads;
+  private PositionFileFormat positionFileFormat;
+  private BinaryPositionFile binaryPositionFile;
   private int retryInterval = 1000;
   private int maxRetryInterval = 5000;
   private int idleTimeout;
@@ -88,11 +99,19 @@ public class TaildirSource extends AbstractSource implements
   private boolean fileHeader;
   private String fileHeaderKey;
   private Long maxBatchCount;
+  private FileDiscovery fileDiscovery;
+  private long watchRescanInterval;
+  private TaildirWatcher watcher;
+  private long lastRescanTime;
+  private boolean pendingTail;
 
   @Override
   public synchronized void start() {
     logger.info("{} TaildirSource source starting with directory: {}", getName(), filePaths);
     try {
+      if (positionFileFormat == PositionFileFormat.BINARY) {
+        binaryPositionFile = new BinaryPositionFile(binaryPositionFilePath);
+      }
       reader = new ReliableTaildirEventReader.Builder()
           .filePaths(filePaths)
           .headerTable(headerTable)
@@ -102,10 +121,20 @@ public class TaildirSource extends AbstractSource implements
           .cachePatternMatching(cachePatternMatching)
           .annotateFileName(fileHeader)
           .fileNameHeader(fileHeaderKey)
+          .binaryPositionFile(binaryPositionFile)
           .build();
     } catch (IOException e) {
       throw new FlumeException("Error instantiating ReliableTaildirEventReader", e);
     }
+    if (fileDiscovery == FileDiscovery.WATCH) {
+      try {
+        watcher = new TaildirWatcher(reader.getParentDirs());
+      } catch (IOException e) {
+        throw new FlumeException("Error instantiating TaildirWatcher", e);
+      }
+      lastRescanTime = 0L;
+      pendingTail = false;
+    }
     idleFileChecker = Executors.newSingleThreadScheduledExecutor(
         new ThreadFactoryBuilder().setNameFormat("idleFileChecker").build());
     idleFileChecker.scheduleWithFixedDelay(new idleFileCheckerRunnable(),
@@ -116,6 +145,11 @@ public class TaildirSource extends AbstractSource implements
     positionWriter.scheduleWithFixedDelay(new PositionWriterRunnable(),
         writePosInitDelay, writePosInterval, TimeUnit.MILLISECONDS);
 
+    if (workerThreads > 1) {
+      tailWorkers = Executors.newFixedThreadPool(workerThreads,
+          new ThreadFactoryBuilder().setNameFormat("taildirWorker-%d").build());
+    }
+
     super.start();
     logger.debug("TaildirSource started");
     sourceCounter.start();
@@ -125,8 +159,11 @@ public class TaildirSource extends AbstractSource implements
   public synchronized void stop() {
     try {
       super.stop();
-      ExecutorService[] services = {idleFileChecker, positionWriter};
+      ExecutorService[] services = {idleFileChecker, positionWriter, tailWorkers};
       for (ExecutorService service : services) {
+        if (service == null) {
+          continue;
+        }
         service.shutdown();
         if (!service.awaitTermination(1, TimeUnit.SECONDS)) {
           service.shutdownNow();
@@ -135,6 +172,14 @@ public class TaildirSource extends AbstractSource implements
       // write the last position
       writePosition();
       reader.close();
+      if (binaryPositionFile != null) {
+        binaryPositionFile.close();
+        binaryPositionFile = null;
+      }
+      if (watcher != null) {
+        watcher.close();
+        watcher = null;
+      }
     } catch (InterruptedException e) {
       logger.info("Interrupted while awaiting termination", e);
     } catch (IOException e) {
@@ -147,8 +192,10 @@ public class TaildirSource extends AbstractSource implements
   @Override
   public String toString() {
     return String.format("Taildir source: { positionFile: %s, skipToEnd: %s, "
-        + "byteOffsetHeader: %s, idleTimeout: %s, writePosInterval: %s }",
-        positionFilePath, skipToEnd, byteOffsetHeader, idleTimeout, writePosInterval);
+        + "byteOffsetHeader: %s, idleTimeout: %s, writePosInterval: %s, fileDiscovery: %s, "
+        + "workerThreads: %s }",
+        positionFilePath, skipToEnd, byteOffsetHeader, idleTimeout, writePosInterval,
+        fileDiscovery, workerThreads);
   }
 
   @Override
@@ -163,12 +210,7 @@ public class TaildirSource extends AbstractSource implements
 
     String homePath = System.getProperty("user.home").replace('\\', '/');
     positionFilePath = context.getString(POSITION_FILE, homePath + DEFAULT_POSITION_FILE);
-    Path positionFile = Paths.get(positionFilePath);
-    try {
-      Files.createDirectories(positionFile.getParent());
-    } catch (IOException e) {
-      throw new FlumeException("Error creating positionFile parent directories", e);
-    }
+    createParentDirectories(positionFilePath);
     headerTable = getTable(context, HEADERS_PREFIX);
     batchSize = context.getInteger(BATCH_SIZE, DEFAULT_BATCH_SIZE);
     skipToEnd = context.getBoolean(SKIP_TO_END, DEFAULT_SKIP_TO_END);
@@ -186,13 +228,28 @@ public class TaildirSource extends AbstractSource implements
             DEFAULT_FILE_HEADER);
     fileHeaderKey = context.getString(FILENAME_HEADER_KEY,
             DEFAULT_FILENAME_HEADER_KEY);
-    maxBatchCount = context.getLong(MAX_BATCH_COUNT, DEFAULT_MAX_BATCH_COUNT);
+    workerThreads = context.getInteger(WORKER_THREADS, DEFAULT_WORKER_THREADS);
+    Preconditions.checkArgument(workerThreads > 0, WORKER_THREADS + " must be greater than 0");
+    long defaultMaxBatchCount = workerThreads > 1
+        ? DEFAULT_WORKER_MAX_BATCH_COUNT : DEFAULT_MAX_BATCH_COUNT;
+    maxBatchCount = context.getLong(MAX_BATCH_COUNT, defaultMaxBatchCount);
     if (maxBatchCount <= 0) {
-      maxBatchCount = DEFAULT_MAX_BATCH_COUNT;
+      maxBatchCount = defaultMaxBatchCount;
       logger.warn("Invalid maxBatchCount specified, initializing source "
           + "default maxBatchCount of {}", maxBatchCount);
     }
-
+    fileDiscovery = FileDiscovery.valueOf(context.getString(FILE_DISCOVERY,
+        DEFAULT_FILE_DISCOVERY.toString()).toUpperCase(Locale.ENGLISH));
+    watchRescanInterval = context.getLong(WATCH_RESCAN_INTERVAL, DEFAULT_WATCH_RESCAN_INTERVAL);
+    Preconditions.checkArgument(watchRescanInterval > 0,
+        WATCH_RESCAN_INTERVAL + " must be greater than 0");
+    positionFileFormat = PositionFileFormat.valueOf(context.getString(POSITION_FILE_FORMAT,
+        DEFAULT_POSITION_FILE_FORMAT.toString()).toUpperCase(Locale.ENGLISH));
+    if (positionFileFormat == PositionFileFormat.BINARY) {
+      binaryPositionFilePath = context.getString(BINARY_POSITION_FILE,
+          homePath + DEFAULT_BINARY_POSITION_FILE);
+      createParentDirectories(binaryPositionFilePath);
+    }
     if (sourceCounter == null) {
       sourceCounter = new SourceCounter(getName());
     }
@@ -203,6 +260,14 @@ public class TaildirSource extends AbstractSource implements
     return batchSize;
   }
 
+  private void createParentDirectories(String filePath) {
+    try {
+      Files.createDirectories(Paths.get(filePath).getParent());
+    } catch (IOException e) {
+      throw new FlumeException("Error creating positionFile parent directories", e);
+    }
+  }
+
   private Map<String, String> selectByKeys(Map<String, String> map, String[] keys) {
     Map<String, String> result = Maps.newHashMap();
     for (String key : keys) {
@@ -231,18 +296,29 @@ public class TaildirSource extends AbstractSource implements
   public Status process() {
     Status status = Status.BACKOFF;
     try {
+      List<Long> updatedInodes = updateTailFiles();
       existingInodes.clear();
-      existingInodes.addAll(reader.updateTailFiles());
+      existingInodes.addAll(updatedInodes);
+      Set<TailFile> needTailFiles = Sets.newLinkedHashSet();
       for (long inode : existingInodes) {
         TailFile tf = reader.getTailFiles().get(inode);
         if (tf.needTail()) {
-          boolean hasMoreLines = tailFileProcess(tf, true);
-          if (hasMoreLines) {
-            status = Status.READY;
-          }
+          needTailFiles.add(tf);
         }
       }
+      if (tailFiles(needTailFiles, true)) {
+        status = Status.READY;
+      }
       closeTailFiles();
+      pendingTail = status == Status.READY;
+      if (watcher != null) {
+        // waiting on the watcher already took the place of the runner backoff
+        status = Status.READY;
+      }
+    } catch (InterruptedException e) {
+      logger.info("Interrupted while tailing files");
+      Thread.currentThread().interrupt();
+      status = Status.BACKOFF;
     } catch (Throwable t) {
       logger.error("Unable to tail files", t);
       sourceCounter.incrementEventReadFail();
@@ -251,6 +327,28 @@ public class TaildirSource extends AbstractSource implements
     return status;
   }
 
+  /**
+   * In watch mode only the file groups whose directory reported a change are updated, with a
+   * full update every watchRescanInterval. If no file was left with unread lines it waits for
+   * a change for at most the max backoff interval.
+   */
+  private List<Long> updateTailFiles() throws IOException, InterruptedException {
+    if (watcher == null) {
+      return reader.updateTailFiles();
+    }
+    long now = System.currentTimeMillis();
+    long nextRescan = lastRescanTime + watchRescanInterval;
+    if (now >= nextRescan) {
+      // pending changes are covered by the full rescan
+      watcher.pollChangedDirs(0, TimeUnit.MILLISECONDS);
+      lastRescanTime = now;
+      return reader.updateTailFiles();
+    }
+    long timeout = pendingTail ? 0 : Math.min(maxBackOffSleepInterval, nextRescan - now);
+    Set<File> changedDirs = watcher.pollChangedDirs(timeout, TimeUnit.MILLISECONDS);
+    return reader.updateTailFiles(changedDirs);
+  }
+
   @Override
   public long getBackOffSleepIncrement() {
     return backoffSleepIncrement;
@@ -261,21 +359,64 @@ public class TaildirSource extends AbstractSource implements
     return maxBackOffSleepInterval;
   }
 
+  /**
+   * Tails the given files, on the worker threads if there are more than one. Each file is
+   * processed by a single thread at a time, so workers don't share any reader state. The call
+   * returns once every file is done, maxBatchCount bounds how long the slowest one holds it.
+   *
+   * @return true if any of the files has more lines to read
+   */
+  private boolean tailFiles(Set<TailFile> files, final boolean backoffWithoutNL)
+      throws IOException, InterruptedException {
+    boolean hasMoreLines = false;
+    if (tailWorkers == null || files.size() < 2) {
+      for (TailFile tf : files) {
+        hasMoreLines |= tailFileProcess(tf, backoffWithoutNL);
+      }
+      return hasMoreLines;
+    }
+
+    List<Callable<Boolean>> tasks = Lists.newArrayListWithCapacity(files.size());
+    for (final TailFile tf : files) {
+      tasks.add(new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return tailFileProcess(tf, backoffWithoutNL);
+        }
+      });
+    }
+    Throwable failure = null;
+    for (Future<Boolean> future : tailWorkers.invokeAll(tasks)) {
+      try {
+        hasMoreLines |= future.get();
+      } catch (ExecutionException e) {
+        failure = e.getCause();
+      }
+    }
+    if (failure != null) {
+      Throwables.propagateIfPossible(failure, IOException.class, InterruptedException.class);
+      throw new FlumeException("Failed tailing files", failure);
+    }
+    return hasMoreLines;
+  }
+
   private boolean tailFileProcess(TailFile tf, boolean backoffWithoutNL)
       throws IOException, InterruptedException {
     long batchCount = 0;
+    int retryInterval = this.retryInterval;
     while (true) {
-      reader.setCurrentFile(tf);
-      List<Event> events = reader.readEvents(batchSize, backoffWithoutNL);
+      List<Event> events = reader.readEvents(tf, batchSize, backoffWithoutNL);
       if (events.isEmpty()) {
+        tf.setNeedTail(false);
         return false;
       }
-      sourceCounter.addToEventReceivedCount(events.size());
-      sourceCounter.incrementAppendBatchReceivedCount();
+      sourceCounter.recordEventReceived(events.size());
+      sourceCounter.recordAppendBatchReceived();
       try {
         getChannelProcessor().processEventBatch(events);
-        reader.commit();
+        reader.commit(tf);
       } catch (ChannelException ex) {
+        reader.rollback(tf);
         logger.warn("The channel is full or unexpected failure. " +
             "The source will try again after " + retryInterval + " ms");
         sourceCounter.incrementChannelWriteFail();
@@ -284,11 +425,13 @@ public class TaildirSource extends AbstractSource implements
         retryInterval = Math.min(retryInterval, maxRetryInterval);
         continue;
       }
-      retryInterval = 1000;
-      sourceCounter.addToEventAcceptedCount(events.size());
-      sourceCounter.incrementAppendBatchAcceptedCount();
+      retryInterval = this.retryInterval;
+      sourceCounter.recordEventAccepted(events.size());
+      sourceCounter.recordBatch(events.size());
+      sourceCounter.recordAppendBatchAccepted();
       if (events.size() < batchSize) {
         logger.debug("The events taken from " + tf.getPath() + " is less than " + batchSize);
+        tf.setNeedTail(false);
         return false;
       }
       if (++batchCount >= maxBatchCount) {
@@ -299,14 +442,19 @@ public class TaildirSource extends AbstractSource implements
   }
 
   private void closeTailFiles() throws IOException, InterruptedException {
+    Set<TailFile> idleFiles = Sets.newLinkedHashSet();
     for (long inode : idleInodes) {
       TailFile tf = reader.getTailFiles().get(inode);
       if (tf.getRaf() != null) { // when file has not closed yet
-        tailFileProcess(tf, false);
-        tf.close();
-        logger.info("Closed file: " + tf.getPath() + ", inode: " + inode + ", pos: " + tf.getPos());
+        idleFiles.add(tf);
       }
     }
+    tailFiles(idleFiles, false);
+    for (TailFile tf : idleFiles) {
+      tf.close();
+      logger.info("Closed file: " + tf.getPath() + ", inode: " + tf.getInode()
+          + ", pos: " + tf.getPos());
+    }
     idleInodes.clear();
   }
 
@@ -342,6 +490,10 @@ public class TaildirSource extends AbstractSource implements
   }
 
   private void writePosition() {
+    if (binaryPositionFile != null) {
+      writeBinaryPosition();
+      return;
+    }
     File file = new File(positionFilePath);
     FileWriter writer = null;
     try {
@@ -363,6 +515,28 @@ public class TaildirSource extends AbstractSource implements
     }
   }
 
+  /**
+   * Only the records of the files whose position changed are written, files which are not
+   * tracked anymore are removed.
+   */
+  private void writeBinaryPosition() {
+    try {
+      if (existingInodes.isEmpty()) {
+        return;
+      }
+      List<Long> inodes = Lists.newArrayList(existingInodes);
+      for (Long inode : inodes) {
+        TailFile tf = reader.getTailFiles().get(inode);
+        binaryPositionFile.update(inode, tf.getPos(), tf.getPath());
+      }
+      binaryPositionFile.retainAll(Sets.newHashSet(inodes));
+      binaryPositionFile.force();
+    } catch (Throwable t) {
+      logger.error("Failed writing positionFile", t);
+      sourceCounter.incrementGenericProcessingFail();
+    }
+  }
+
   private String toPosInfoJson() {
     @SuppressWarnings("rawtypes")
     List<Map> posInfos = Lists.newArrayList();
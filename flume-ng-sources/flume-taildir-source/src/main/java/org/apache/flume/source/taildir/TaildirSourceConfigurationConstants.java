@@ -67,4 +67,51 @@ public class TaildirSourceConfigurationConstants {
   /** The max number of batch reads from a file in one loop */
   public static final String MAX_BATCH_COUNT = "maxBatchCount";
   public static final Long DEFAULT_MAX_BATCH_COUNT = Long.MAX_VALUE;
+
+  /**
+   * The default max number of batch reads from a file in one loop when workerThreads is greater
+   * than 1. A loop waits for the slowest of its files, so each file is read one batch at a time.
+   */
+  public static final long DEFAULT_WORKER_MAX_BATCH_COUNT = 1L;
+
+  /** How new and appended files are discovered. */
+  public enum FileDiscovery {
+    /** List and stat every file group on each poll. */
+    POLL,
+    /** Rescan only the file groups whose parent directory reported a change. */
+    WATCH
+  }
+
+  public static final String FILE_DISCOVERY = "fileDiscovery";
+  public static final FileDiscovery DEFAULT_FILE_DISCOVERY = FileDiscovery.POLL;
+
+  /** Interval time (ms) of the full rescan done as a safety net in watch discovery mode. */
+  public static final String WATCH_RESCAN_INTERVAL = "watchRescanInterval";
+  public static final long DEFAULT_WATCH_RESCAN_INTERVAL = 60000L;
+
+  /** Number of threads tailing files concurrently, 1 tails every file on the source thread. */
+  public static final String WORKER_THREADS = "workerThreads";
+  public static final int DEFAULT_WORKER_THREADS = 1;
+
+  /**
+   * Format of the position file, {@code json} (default) or {@code binary}.
+   */
+  public enum PositionFileFormat {
+    /** JSON array rewritten as a whole on each write. */
+    JSON,
+    /**
+     * Memory-mapped binary records updated in place, see {@link BinaryPositionFile}.
+     */
+    BINARY
+  }
+
+  public static final String POSITION_FILE_FORMAT = "positionFileFormat";
+  public static final PositionFileFormat DEFAULT_POSITION_FILE_FORMAT = PositionFileFormat.JSON;
+
+  /**
+   * Path of the binary position file, used when the position file format is binary. When it
+   * does not exist yet, the positions are seeded from the JSON position file.
+   */
+  public static final String BINARY_POSITION_FILE = "binaryPositionFile";
+  public static final String DEFAULT_BINARY_POSITION_FILE = "/.flume/taildir_position.bin";
 }
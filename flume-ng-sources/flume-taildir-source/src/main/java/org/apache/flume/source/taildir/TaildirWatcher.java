@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flume.source.taildir;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.flume.annotations.InterfaceAudience;
+import org.apache.flume.annotations.InterfaceStability;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the parent directories of the {@code TAILDIR} file groups through a
+ * {@link WatchService} and reports which of them saw files being created, modified or deleted.
+ * <p></p>
+ * The watcher has no thread of its own: the source polls it from its runner thread, which lets
+ * a blocking {@linkplain #pollChangedDirs(long, TimeUnit)} replace the runner backoff so that
+ * new writes wake the source immediately. Events are only tracked per directory, the matching
+ * file group is rescanned as a whole. Depending on the platform notifications can be delayed or
+ * lost (e.g. on overflow), so it is meant to be combined with a periodic full rescan.
+ * Member functions are not thread safe.
+ *
+ * @see TaildirSource
+ * @see ReliableTaildirEventReader
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class TaildirWatcher implements Closeable {
+  private static final Logger logger = LoggerFactory.getLogger(TaildirWatcher.class);
+
+  private final WatchService watchService;
+  private final Map<WatchKey, File> watchedDirs = Maps.newHashMap();
+
+  TaildirWatcher(Collection<File> dirs) throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    try {
+      for (File dir : dirs) {
+        if (watchedDirs.containsValue(dir)) {
+          continue;
+        }
+        WatchKey key = dir.toPath().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+      }
+    } catch (IOException e) {
+      watchService.close();
+      throw e;
+    }
+    logger.info("Watching directories: " + watchedDirs.values());
+  }
+
+  /**
+   * Returns the directories which reported changes since the last invocation. Waits up to the
+   * given timeout for the first change if none is pending.
+   *
+   * @return directories with pending changes, empty if the timeout elapsed without any
+   */
+  Set<File> pollChangedDirs(long timeout, TimeUnit unit) throws InterruptedException {
+    Set<File> changedDirs = Sets.newHashSet();
+    WatchKey key = timeout > 0 ? watchService.poll(timeout, unit) : watchService.poll();
+    while (key != null) {
+      // the events themselves are not needed, the whole directory gets rescanned
+      key.pollEvents();
+      File dir = watchedDirs.get(key);
+      if (dir != null) {
+        changedDirs.add(dir);
+      }
+      if (!key.reset()) {
+        logger.warn("Directory is no longer watched: " + dir);
+        watchedDirs.remove(key);
+      }
+      key = watchService.poll();
+    }
+    return changedDirs;
+  }
+
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flume.source.taildir;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestBinaryPositionFile {
+  private File tmpDir;
+  private String posFilePath;
+
+  @Before
+  public void setUp() {
+    tmpDir = Files.createTempDir();
+    posFilePath = tmpDir.getAbsolutePath() + "/taildir_position_test.bin";
+  }
+
+  @After
+  public void tearDown() {
+    for (File f : tmpDir.listFiles()) {
+      f.delete();
+    }
+    tmpDir.delete();
+  }
+
+  private Map<Long, Long> positions(BinaryPositionFile positionFile) {
+    Map<Long, Long> positions = Maps.newHashMap();
+    for (BinaryPositionFile.Record record : positionFile.getRecords()) {
+      positions.put(record.getInode(), record.getPos());
+    }
+    return positions;
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    BinaryPositionFile positionFile = new BinaryPositionFile(posFilePath);
+    positionFile.update(1L, 10L, "/tmp/file1");
+    positionFile.update(2L, 20L, "/tmp/file2");
+    positionFile.update(1L, 15L, "/tmp/file1");
+    positionFile.close();
+
+    positionFile = new BinaryPositionFile(posFilePath);
+    Map<Long, Long> positions = positions(positionFile);
+    assertEquals(2, positions.size());
+    assertEquals(15L, (long) positions.get(1L));
+    assertEquals(20L, (long) positions.get(2L));
+    for (BinaryPositionFile.Record record : positionFile.getRecords()) {
+      String path = record.getInode() == 1L ? "/tmp/file1" : "/tmp/file2";
+      assertEquals(BinaryPositionFile.hashPath(path), record.getPathHash());
+    }
+    positionFile.close();
+  }
+
+  @Test
+  public void testGrowAndRetain() throws IOException {
+    BinaryPositionFile positionFile = new BinaryPositionFile(posFilePath);
+    int initialCapacity = positionFile.getCapacity();
+    for (long inode = 1; inode <= initialCapacity + 1; inode++) {
+      positionFile.update(inode, inode * 100, "/tmp/file" + inode);
+    }
+    assertTrue(positionFile.getCapacity() > initialCapacity);
+    positionFile.retainAll(Sets.newHashSet(1L, 2L));
+    positionFile.update(1000L, 5L, "/tmp/file1000");
+    positionFile.close();
+
+    positionFile = new BinaryPositionFile(posFilePath);
+    Map<Long, Long> positions = positions(positionFile);
+    assertEquals(3, positions.size());
+    assertEquals(100L, (long) positions.get(1L));
+    assertEquals(200L, (long) positions.get(2L));
+    assertEquals(5L, (long) positions.get(1000L));
+    positionFile.close();
+  }
+
+  @Test
+  public void testTornWriteKeepsLastPosition() throws IOException {
+    BinaryPositionFile positionFile = new BinaryPositionFile(posFilePath);
+    positionFile.update(1L, 10L, "/tmp/file1");
+    positionFile.update(1L, 20L, "/tmp/file1");
+    positionFile.close();
+
+    // corrupt the position of the slot written last
+    RandomAccessFile raf = new RandomAccessFile(posFilePath, "rw");
+    raf.seek(64 + 8);
+    raf.writeLong(12345L);
+    raf.close();
+
+    positionFile = new BinaryPositionFile(posFilePath);
+    assertEquals(10L, (long) positions(positionFile).get(1L));
+    positionFile.close();
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectJsonPositionFile() throws IOException {
+    Files.write("[{\"inode\":1,\"pos\":10,\"file\":\"/tmp/file1\"}, {}, {}, {}]",
+        new File(posFilePath), Charsets.UTF_8);
+    new BinaryPositionFile(posFilePath);
+  }
+}
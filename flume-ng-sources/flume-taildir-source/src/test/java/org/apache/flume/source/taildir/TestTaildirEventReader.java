@@ -537,4 +537,24 @@ public class TestTaildirEventReader {
       assertEquals(true, tf.needTail());
     }
   }
+
+  @Test
+  // Ensure only the file groups of the changed directories are updated.
+  public void testUpdateTailFilesOfChangedDirs() throws IOException {
+    File f1 = new File(tmpDir, "file1");
+    Files.write("file1line1\n", f1, Charsets.UTF_8);
+
+    ReliableTaildirEventReader reader = getReader();
+    assertEquals(1, reader.getTailFiles().size());
+
+    File f2 = new File(tmpDir, "file2");
+    Files.write("file2line1\n", f2, Charsets.UTF_8);
+    Set<File> noChanges = Sets.newHashSet();
+    assertEquals(1, reader.updateTailFiles(noChanges).size());
+    assertEquals(1, reader.getTailFiles().size());
+
+    assertEquals(reader.getParentDirs(), Sets.newHashSet(tmpDir));
+    assertEquals(2, reader.updateTailFiles(reader.getParentDirs()).size());
+    assertEquals(2, reader.getTailFiles().size());
+  }
 }
@@ -58,6 +58,10 @@ import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstant
 import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.FILENAME_HEADER_KEY;
 import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.BATCH_SIZE;
 import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.MAX_BATCH_COUNT;
+import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.FILE_DISCOVERY;
+import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.WORKER_THREADS;
+import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.POSITION_FILE_FORMAT;
+import static org.apache.flume.source.taildir.TaildirSourceConfigurationConstants.BINARY_POSITION_FILE;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -70,6 +74,7 @@ public class TestTaildirSource {
   static MemoryChannel channel;
   private File tmpDir;
   private String posFilePath;
+  private String binaryPosFilePath;
 
   @Before
   public void setUp() {
@@ -87,6 +92,7 @@ public class TestTaildirSource {
     source.setChannelProcessor(new ChannelProcessor(rcs));
     tmpDir = Files.createTempDir();
     posFilePath = tmpDir.getAbsolutePath() + "/taildir_position_test.json";
+    binaryPosFilePath = tmpDir.getAbsolutePath() + "/taildir_position_test.bin";
   }
 
   @After
@@ -472,4 +478,201 @@ public class TestTaildirSource {
     assertEquals(Status.BACKOFF, status);
   }
 
+  @Test
+  public void testWatchFileDiscovery() throws IOException {
+    File f1 = new File(tmpDir, "file1");
+    Files.write("file1line1\n", f1, Charsets.UTF_8);
+
+    Context context = new Context();
+    context.put(POSITION_FILE, posFilePath);
+    context.put(FILE_GROUPS, "fg");
+    context.put(FILE_GROUPS_PREFIX + "fg", tmpDir.getAbsolutePath() + "/file.*");
+    context.put(FILE_DISCOVERY, "watch");
+
+    Configurables.configure(source, context);
+    source.start();
+
+    // first round is a full rescan
+    assertEquals(Status.READY, source.process());
+    Files.append("file1line2\n", f1, Charsets.UTF_8);
+    File f2 = new File(tmpDir, "file2");
+    Files.write("file2line1\n", f2, Charsets.UTF_8);
+    // later rounds wait for the directory change
+    source.process();
+
+    List<String> out = Lists.newArrayList();
+    Transaction txn = channel.getTransaction();
+    txn.begin();
+    for (int i = 0; i < 4; i++) {
+      Event e = channel.take();
+      if (e != null) {
+        out.add(TestTaildirEventReader.bodyAsString(e));
+      }
+    }
+    txn.commit();
+    txn.close();
+    source.stop();
+
+    assertEquals(3, out.size());
+    assertTrue(out.contains("file1line1"));
+    assertTrue(out.contains("file1line2"));
+    assertTrue(out.contains("file2line1"));
+  }
+
+  @Test
+  public void testWorkerThreads() throws IOException {
+    List<String> expected = Lists.newArrayList();
+    for (int i = 1; i <= 4; i++) {
+      File f = new File(tmpDir, "file" + i);
+      StringBuilder sb = new StringBuilder();
+      for (int j = 1; j <= 5; j++) {
+        String line = "file" + i + "line" + j;
+        sb.append(line).append("\n");
+        expected.add(line);
+      }
+      Files.write(sb.toString(), f, Charsets.UTF_8);
+    }
+
+    Context context = new Context();
+    context.put(POSITION_FILE, posFilePath);
+    context.put(FILE_GROUPS, "fg");
+    context.put(FILE_GROUPS_PREFIX + "fg", tmpDir.getAbsolutePath() + "/file.*");
+    context.put(BATCH_SIZE, String.valueOf(2));
+    context.put(MAX_BATCH_COUNT, String.valueOf(2));
+    context.put(WORKER_THREADS, String.valueOf(3));
+
+    Configurables.configure(source, context);
+    source.start();
+
+    // every file has 4 lines read in the first round
+    assertEquals(Status.READY, source.process());
+    assertEquals(Status.BACKOFF, source.process());
+
+    List<String> out = Lists.newArrayList();
+    Transaction txn = channel.getTransaction();
+    txn.begin();
+    for (int i = 0; i < 21; i++) {
+      Event e = channel.take();
+      if (e != null) {
+        out.add(TestTaildirEventReader.bodyAsString(e));
+      }
+    }
+    txn.commit();
+    txn.close();
+    source.stop();
+
+    assertEquals(expected.size(), out.size());
+    assertTrue(out.containsAll(expected));
+    // lines of a single file keep their order
+    for (int i = 1; i <= 4; i++) {
+      int last = -1;
+      for (int j = 1; j <= 5; j++) {
+        int idx = out.indexOf("file" + i + "line" + j);
+        assertTrue(idx > last);
+        last = idx;
+      }
+    }
+  }
+
+  @Test
+  public void testWorkerThreadsReadOneBatchPerRound() throws IOException {
+    for (int i = 1; i <= 3; i++) {
+      Files.write("line1\nline2\nline3\n", new File(tmpDir, "file" + i), Charsets.UTF_8);
+    }
+
+    Context context = new Context();
+    context.put(POSITION_FILE, posFilePath);
+    context.put(FILE_GROUPS, "fg");
+    context.put(FILE_GROUPS_PREFIX + "fg", tmpDir.getAbsolutePath() + "/file.*");
+    context.put(BATCH_SIZE, String.valueOf(2));
+    context.put(WORKER_THREADS, String.valueOf(3));
+
+    Configurables.configure(source, context);
+    source.start();
+
+    // a round does not wait for a file to be read to its end
+    assertEquals(Status.READY, source.process());
+    assertEquals(6, takeBodies(10).size());
+    assertEquals(Status.BACKOFF, source.process());
+    assertEquals(3, takeBodies(10).size());
+    source.stop();
+  }
+
+  @Test
+  public void testBinaryPositionFile() throws IOException {
+    File f1 = new File(tmpDir, "file1");
+    Files.write("file1line1\nfile1line2\n", f1, Charsets.UTF_8);
+
+    Context context = new Context();
+    context.put(POSITION_FILE, posFilePath);
+    context.put(FILE_GROUPS, "fg");
+    context.put(FILE_GROUPS_PREFIX + "fg", tmpDir.getAbsolutePath() + "/file.*");
+    context.put(POSITION_FILE_FORMAT, "binary");
+    context.put(BINARY_POSITION_FILE, binaryPosFilePath);
+
+    Configurables.configure(source, context);
+    source.start();
+    source.process();
+    source.stop();
+
+    Files.append("file1line3\n", f1, Charsets.UTF_8);
+    source.start();
+    source.process();
+    source.stop();
+
+    // the second run resumes from the stored position
+    assertEquals(Lists.newArrayList("file1line1", "file1line2", "file1line3"), takeBodies(4));
+    // the JSON position file is left alone
+    assertFalse(new File(posFilePath).exists());
+    assertTrue(new File(binaryPosFilePath).exists());
+  }
+
+  @Test
+  public void testBinaryPositionFileSeededFromJson() throws IOException {
+    File f1 = new File(tmpDir, "file1");
+    Files.write("file1line1\nfile1line2\n", f1, Charsets.UTF_8);
+
+    Context context = new Context();
+    context.put(POSITION_FILE, posFilePath);
+    context.put(FILE_GROUPS, "fg");
+    context.put(FILE_GROUPS_PREFIX + "fg", tmpDir.getAbsolutePath() + "/file.*");
+
+    Configurables.configure(source, context);
+    source.start();
+    source.process();
+    source.stop();
+
+    Files.append("file1line3\n", f1, Charsets.UTF_8);
+    context.put(POSITION_FILE_FORMAT, "binary");
+    context.put(BINARY_POSITION_FILE, binaryPosFilePath);
+    Configurables.configure(source, context);
+    source.start();
+    source.process();
+    source.stop();
+
+    Files.append("file1line4\n", f1, Charsets.UTF_8);
+    source.start();
+    source.process();
+    source.stop();
+
+    // switching to the binary format resumes from the JSON position, then from its own
+    assertEquals(Lists.newArrayList("file1line1", "file1line2", "file1line3", "file1line4"),
+        takeBodies(5));
+  }
+
+  private List<String> takeBodies(int max) {
+    List<String> out = Lists.newArrayList();
+    Transaction txn = channel.getTransaction();
+    txn.begin();
+    for (int i = 0; i < max; i++) {
+      Event e = channel.take();
+      if (e != null) {
+        out.add(TestTaildirEventReader.bodyAsString(e));
+      }
+    }
+    txn.commit();
+    txn.close();
+    return out;
+  }
+
 }
@@ -163,7 +163,7 @@ public class TwitterSource
     docs.add(doc);
     if (docs.size() >= maxBatchSize ||
         System.currentTimeMillis() >= batchEndTime) {
-      sourceCounter.addToEventReceivedCount(docs.size());
+      sourceCounter.recordEventReceived(docs.size());
       batchEndTime = System.currentTimeMillis() + maxBatchDurationMillis;
       byte[] bytes;
       try {
@@ -176,7 +176,8 @@ public class TwitterSource
       Event event = EventBuilder.withBody(bytes);
       getChannelProcessor().processEvent(event); // send event to the flume sink
       docs.clear();
-      sourceCounter.addToEventAcceptedCount(docs.size());
+      sourceCounter.recordEventAccepted(docs.size());
+      sourceCounter.recordBatch(docs.size());
     }
     docCount++;
     if ((docCount % REPORT_INTERVAL) == 0) {
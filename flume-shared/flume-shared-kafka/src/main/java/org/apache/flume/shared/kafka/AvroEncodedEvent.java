@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.shared.kafka;
+
+import org.apache.flume.Event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An event read from a Kafka record holding a serialized
+ * {@link org.apache.flume.source.avro.AvroFlumeEvent}, which keeps the
+ * serialized form next to the decoded headers and body. As long as neither
+ * was changed, a Kafka sink or channel writing the event back as an
+ * AvroFlumeEvent can send the original bytes instead of encoding it again.
+ *
+ * Changes are detected by comparing the headers with the decoded ones and
+ * the body array by reference, so a body modified in place is not noticed;
+ * interceptors replace the body with {@link #setBody(byte[])}.
+ */
+public class AvroEncodedEvent implements Event {
+
+  private final Map<String, String> encodedHeaders;
+  private final byte[] encodedBody;
+  private final byte[] encoded;
+
+  private Map<String, String> headers;
+  private byte[] body;
+
+  /**
+   * @param headers The headers decoded from <tt>encoded</tt>, not modified afterwards
+   * @param body The body decoded from <tt>encoded</tt>
+   * @param encoded The serialized AvroFlumeEvent
+   */
+  public AvroEncodedEvent(Map<String, String> headers, byte[] body, byte[] encoded) {
+    this.encodedHeaders = headers;
+    this.encodedBody = body;
+    this.encoded = encoded;
+    this.headers = new HashMap<String, String>(headers);
+    this.body = body;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  @Override
+  public void setHeaders(Map<String, String> headers) {
+    this.headers = headers;
+  }
+
+  @Override
+  public byte[] getBody() {
+    return body;
+  }
+
+  @Override
+  public void setBody(byte[] body) {
+    if (body == null) {
+      body = new byte[0];
+    }
+    this.body = body;
+  }
+
+  /**
+   * @return the serialized AvroFlumeEvent the event was read from, or null if
+   * its headers or body changed since
+   */
+  public byte[] getEncodedIfUnchanged() {
+    if (body == encodedBody && encodedHeaders.equals(headers)) {
+      return encoded;
+    }
+    return null;
+  }
+
+  /**
+   * @return the serialized form of the event if it can be reused, or null if
+   * the event has to be serialized again
+   */
+  public static byte[] getEncodedIfUnchanged(Event event) {
+    if (event instanceof AvroEncodedEvent) {
+      return ((AvroEncodedEvent) event).getEncodedIfUnchanged();
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "[Event headers = " + headers + ", body.length = " + body.length
+        + ", encoded.length = " + encoded.length + " ]";
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.flume.shared.kafka;
+
+import org.apache.flume.event.EventBuilder;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AvroEncodedEventTest {
+
+  private final byte[] encoded = new byte[] {1, 2, 3};
+  private final byte[] body = new byte[] {4};
+
+  @Test
+  public void testUnchanged() {
+    AvroEncodedEvent event = newEvent();
+    assertSame(encoded, event.getEncodedIfUnchanged());
+    event.getHeaders().put("a", "1");
+    event.setBody(body);
+    assertSame(encoded, AvroEncodedEvent.getEncodedIfUnchanged(event));
+  }
+
+  @Test
+  public void testHeadersChanged() {
+    AvroEncodedEvent event = newEvent();
+    event.getHeaders().put("b", "2");
+    assertNull(event.getEncodedIfUnchanged());
+
+    event = newEvent();
+    event.getHeaders().remove("a");
+    assertNull(event.getEncodedIfUnchanged());
+
+    event = newEvent();
+    event.setHeaders(new HashMap<String, String>());
+    assertNull(event.getEncodedIfUnchanged());
+  }
+
+  @Test
+  public void testBodyChanged() {
+    AvroEncodedEvent event = newEvent();
+    event.setBody(new byte[] {4});
+    assertNull(event.getEncodedIfUnchanged());
+  }
+
+  @Test
+  public void testOtherEvents() {
+    assertNull(AvroEncodedEvent.getEncodedIfUnchanged(EventBuilder.withBody(body)));
+  }
+
+  private AvroEncodedEvent newEvent() {
+    Map<String, String> headers = Collections.singletonMap("a", "1");
+    return new AvroEncodedEvent(headers, body, encoded);
+  }
+}